@@ -0,0 +1,41 @@
+package com.huangwei.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口<br>
+ * <br>
+ * 1. 未指定线程数（-t）时，按并发数1、8、32依次运行（可通过系统属性 bench.threads 修改，如：-Dbench.threads=1,16）；<br>
+ * 2. 其余参数与JMH命令行相同，例如：<br>
+ * java -jar target/benchmarks.jar HttpClientBenchmark -p payloadSize=16384 -rf json<br>
+ * java -jar target/benchmarks.jar -t 8 TlsHandshakeBenchmark
+ */
+public class BenchmarkMain {
+
+	public static void main(String[] args) throws Exception {
+		List<String> arguments = Arrays.asList(args);
+		if (arguments.contains("-t") || arguments.contains("-h") || arguments.contains("-l")) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		CommandLineOptions options = new CommandLineOptions(args);
+		for (String threads : System.getProperty("bench.threads", "1,8,32").split(",")) {
+			OptionsBuilder builder = new OptionsBuilder();
+			builder.parent(options).threads(Integer.parseInt(threads.trim()));
+			if (options.getResult().hasValue()) {// 每个并发数单独一个结果文件（如：result-t8.json）
+				String result = options.getResult().get();
+				int dot = result.lastIndexOf('.');
+				builder.result(dot > 0 ? result.substring(0, dot) + "-t" + threads.trim() + result.substring(dot)
+						: result + "-t" + threads.trim());
+			}
+			new Runner(builder.build()).run();
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.huangwei.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.huangwei.filter.HtmlFilter;
+import com.huangwei.filter.LegacyHtmlFilter;
+
+/**
+ * HTML过滤基准测试（改写前的逐段正则替换 / 单遍扫描；按输入类型）
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HtmlFilterBenchmark {
+
+	/** 共享实例（线程安全） */
+	private static final HtmlFilter FILTER = new HtmlFilter();
+
+	/**
+	 * 输入类型<br>
+	 * text：普通文本（无标签）；entity：含引号及&amp;的文本；comment：含允许的标签的评论；xss：攻击载荷；article：较长的富文本
+	 */
+	@Param({ "text", "entity", "comment", "xss", "article" })
+	public String input;
+
+	/** 原实现非线程安全，每个线程一个实例 */
+	private LegacyHtmlFilter legacy;
+	private String value;
+
+	@Setup
+	public void setup() {
+		legacy = new LegacyHtmlFilter();
+		value = input(input);
+	}
+
+	@Benchmark
+	public String legacy() {
+		return legacy.filter(value);
+	}
+
+	@Benchmark
+	public String singlePass() {
+		return FILTER.filter(value);
+	}
+
+	static String input(String type) {
+		switch (type) {
+		case "text":
+			return "这件商品质量很好，物流也快，五星好评！Fast shipping, great quality.";
+		case "entity":
+			return "Tom & Jerry say \"hello\" & \"goodbye\"; 5 > 3 && 2 < 4";
+		case "comment":
+			return "<b>推荐</b>：详见 <a href=\"https://example.com/item?id=1&amp;from=list\" target=\"_blank\">商品页</a>，"
+					+ "<i>限时</i>优惠 <img src=\"https://example.com/a.png\" alt=\"图\" />";
+		case "xss":
+			return "<script>alert(document.cookie)</script><img src=x onerror=alert(1)>"
+					+ "<a href=\"javascript:alert(1)\">click</a><a href=\"&#106;avascript:alert(1)\">x</a><!-- <b> -->";
+		case "article":
+			StringBuilder builder = new StringBuilder();
+			for (int i = 0; i < 20; i++) {
+				builder.append("<p>第").append(i).append("段：<strong>重点</strong>内容 & \"引用\"，")
+						.append("<a href=\"http://example.com/").append(i).append("\">链接</a> <em>强调</em></p>\n");
+			}
+			return builder.toString();
+		default:
+			throw new IllegalArgumentException("未知的输入类型！type:" + type);
+		}
+	}
+
+}
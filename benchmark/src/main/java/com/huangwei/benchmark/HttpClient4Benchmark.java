@@ -0,0 +1,64 @@
+package com.huangwei.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.huangwei.http.HttpClient4;
+
+/**
+ * HttpClient4基准测试（每次请求新建客户端及连接，作为连接池客户端的对照）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpClient4Benchmark {
+
+	/** 响应体/请求体字节数 */
+	@Param({ "256", "16384", "262144" })
+	public int payloadSize;
+
+	private StubServer server;
+	private String getUrl;
+	private String postUrl;
+	private String body;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		server = StubServer.http();
+		getUrl = server.url("/json?size=" + payloadSize);
+		postUrl = server.url("/echo");
+		body = StubServer.payload(payloadSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		server.close();
+	}
+
+	@Benchmark
+	public String doGet() throws Exception {
+		return HttpClient4.doGet(getUrl, "UTF-8");
+	}
+
+	@Benchmark
+	public String doPost() throws Exception {
+		return HttpClient4.doPost(postUrl, body, "UTF-8");
+	}
+
+}
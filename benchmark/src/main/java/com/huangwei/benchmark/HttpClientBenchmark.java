@@ -0,0 +1,91 @@
+package com.huangwei.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.huangwei.http.AsyncHttpClient;
+import com.huangwei.http.HttpClient;
+import com.huangwei.http.HttpClient.Response;
+import com.huangwei.http.HttpClientPool;
+
+/**
+ * HttpClient基准测试（连接池客户端及异步客户端；按响应/请求体大小及是否压缩）<br>
+ * <br>
+ * 并发数由{@link BenchmarkMain}按线程数依次运行（或命令行参数 -t 指定）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpClientBenchmark {
+
+	/** 响应体/请求体字节数 */
+	@Param({ "256", "16384", "262144" })
+	public int payloadSize;
+
+	/** 是否压缩（响应：服务端gzip；请求：请求体以gzip发送） */
+	@Param({ "false", "true" })
+	public boolean gzip;
+
+	private StubServer server;
+	private String getUrl;
+	private String postUrl;
+	private String body;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		server = StubServer.http();
+		getUrl = server.url("/json?size=" + payloadSize + "&gzip=" + gzip);
+		postUrl = server.url("/echo");
+		body = StubServer.payload(payloadSize);
+
+		HttpClientPool.Config config = new HttpClientPool.Config();
+		config.setMaxPerRoute(200);
+		config.setRequestCompressThreshold(gzip ? 1024 : -1);
+		HttpClientPool.configure(config);
+		AsyncHttpClient.configure(config);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		AsyncHttpClient.shutdown();
+		HttpClientPool.shutdown();
+		server.close();
+	}
+
+	@Benchmark
+	public String getJson() throws Exception {
+		return HttpClient.getJson(getUrl);
+	}
+
+	@Benchmark
+	public Response getByte() throws Exception {
+		return HttpClient.getByte(getUrl, null, null);
+	}
+
+	@Benchmark
+	public String postJson() throws Exception {
+		return HttpClient.postJson(postUrl, body);
+	}
+
+	@Benchmark
+	public Response asyncGetString() throws Exception {
+		return AsyncHttpClient.getInstance().getString(getUrl, null, null, null).get();
+	}
+
+}
@@ -0,0 +1,108 @@
+package com.huangwei.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.huangwei.http.HttpRequest;
+
+/**
+ * HttpRequest基准测试（HTTPS双向认证，XML请求体；按请求体大小及是否分块传输）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpRequestBenchmark {
+
+	/** 请求体（XML）约字节数 */
+	@Param({ "256", "16384", "262144" })
+	public int payloadSize;
+
+	/** 是否分块传输（false：先序列化到缓冲区以设置Content-Length） */
+	@Param({ "true", "false" })
+	public boolean chunked;
+
+	private StubServer server;
+	private HttpRequest request;
+	private String url;
+	private Order order;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		StubServer.trustStubCertificate();// HttpRequest按系统信任库校验服务端证书
+		server = StubServer.https(true);
+		url = server.url("/echo");
+		request = new HttpRequest(StubServer.keyStoreFile().toString(), StubServer.KEY_STORE_PASSWORD);
+		request.setChunked(chunked);
+		request.setMaxPerRoute(200);
+		order = Order.of(payloadSize);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		request.close();
+		server.close();
+	}
+
+	@Benchmark
+	public String sendPost() throws Exception {
+		return request.sendPost(url, order);
+	}
+
+	/**
+	 * 订单（XML数据对象）
+	 */
+	public static class Order {
+
+		private String orderNo;
+		private String merchant_id;
+		private List<Item> items = new ArrayList<Item>();
+
+		/** 约指定字节数的订单 */
+		static Order of(int size) {
+			Order order = new Order();
+			order.orderNo = "ORDER-0000000001";
+			order.merchant_id = "MERCHANT-0001";
+			for (int i = 0, length = 200; length < size; i++, length += 220) {
+				Item item = new Item();
+				item.sku = "SKU-" + i;
+				item.name = "商品-" + i;
+				item.quantity = i % 10 + 1;
+				item.price = i % 100 * 100 + 99;
+				order.items.add(item);
+			}
+			return order;
+		}
+
+	}
+
+	/**
+	 * 订单明细
+	 */
+	public static class Item {
+
+		private String sku;
+		private String name;
+		private int quantity;
+		private long price;
+
+	}
+
+}
@@ -0,0 +1,238 @@
+package com.huangwei.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.bootstrap.HttpServer;
+import org.apache.http.impl.bootstrap.ServerBootstrap;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * 进程内桩服务器（仅监听回环地址，供基准测试使用）<br>
+ * <br>
+ * 1. GET /json?size=N[&amp;gzip=true]：返回约N字节的JSON（gzip=true且客户端支持时以gzip压缩返回）；<br>
+ * 2. POST /echo：原样返回请求体（保留Content-Type及Content-Encoding）；<br>
+ * 3. HTTPS：使用类路径中的自签名证书（CN=localhost，SAN=127.0.0.1），可选要求客户端证书（双向认证）。<br>
+ * 说明：基于httpcore的阻塞式服务器，已开启TCP_NODELAY，避免Nagle算法与延迟确认叠加造成的固定延迟干扰测量。
+ */
+public final class StubServer implements Closeable {
+
+	/** 证书（类路径；PKCS12，服务端及客户端共用） */
+	public static final String KEY_STORE = "/stub.p12";
+	/** 证书密码 */
+	public static final String KEY_STORE_PASSWORD = "changeit";
+
+	/** 证书文件（从类路径释放到临时文件） */
+	private static volatile Path keyStoreFile;
+	/** 响应数据（字节数 -&gt; JSON） */
+	private static final ConcurrentHashMap<Integer, byte[]> payloads = new ConcurrentHashMap<Integer, byte[]>();
+	/** 响应数据（字节数 -&gt; gzip压缩后的JSON） */
+	private static final ConcurrentHashMap<Integer, byte[]> gzipPayloads = new ConcurrentHashMap<Integer, byte[]>();
+
+	/** 服务器 */
+	private final HttpServer server;
+	/** 根地址（如：http://127.0.0.1:8080） */
+	private final String baseUrl;
+
+	private StubServer(SSLContext sslContext, boolean needClientAuth) throws IOException {
+		ServerBootstrap bootstrap = ServerBootstrap.bootstrap().setLocalAddress(InetAddress.getLoopbackAddress())
+				.setListenerPort(0).setServerInfo("StubServer/1.0")
+				.setSocketConfig(SocketConfig.custom().setTcpNoDelay(true).setSoKeepAlive(true).build())
+				.registerHandler("/json", StubServer::json).registerHandler("/echo", StubServer::echo);
+		if (sslContext != null) {
+			bootstrap.setSslContext(sslContext);
+			if (needClientAuth) {
+				bootstrap.setSslSetupHandler(socket -> socket.setNeedClientAuth(true));
+			}
+		}
+		this.server = bootstrap.create();
+		server.start();
+		this.baseUrl = (sslContext == null ? "http" : "https") + "://127.0.0.1:" + server.getLocalPort();
+	}
+
+	/** 启动HTTP桩服务器 */
+	public static StubServer http() throws IOException {
+		return new StubServer(null, false);
+	}
+
+	/**
+	 * 启动HTTPS桩服务器
+	 *
+	 * @param needClientAuth
+	 *            是否要求客户端证书（客户端使用同一证书）
+	 */
+	public static StubServer https(boolean needClientAuth) throws Exception {
+		Path file = keyStoreFile();
+		char[] password = KEY_STORE_PASSWORD.toCharArray();
+		SSLContext sslContext = SSLContexts.custom().loadKeyMaterial(file.toFile(), password, password)
+				.loadTrustMaterial(file.toFile(), password).build();
+		return new StubServer(sslContext, needClientAuth);
+	}
+
+	/**
+	 * 将JVM默认信任库指向桩服务器证书（用于按系统信任库校验证书的客户端，如{@link com.huangwei.http.HttpRequest}）<br>
+	 * 注意：须在首次创建使用系统信任库的SSLContext之前调用。
+	 */
+	public static void trustStubCertificate() throws IOException {
+		System.setProperty("javax.net.ssl.trustStore", keyStoreFile().toString());
+		System.setProperty("javax.net.ssl.trustStorePassword", KEY_STORE_PASSWORD);
+		System.setProperty("javax.net.ssl.trustStoreType", "PKCS12");
+	}
+
+	/** 证书文件（首次调用时从类路径释放到临时文件） */
+	public static Path keyStoreFile() throws IOException {
+		Path file = keyStoreFile;
+		if (file == null) {
+			synchronized (StubServer.class) {
+				file = keyStoreFile;
+				if (file == null) {
+					file = Files.createTempFile("stub", ".p12");
+					file.toFile().deleteOnExit();
+					try (InputStream in = StubServer.class.getResourceAsStream(KEY_STORE)) {
+						if (in == null) {
+							throw new IOException("证书不存在！path:" + KEY_STORE);
+						}
+						Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+					}
+					keyStoreFile = file;
+				}
+			}
+		}
+		return file;
+	}
+
+	/** 根地址（如：http://127.0.0.1:8080） */
+	public String getBaseUrl() {
+		return baseUrl;
+	}
+
+	/**
+	 * 完整地址
+	 *
+	 * @param path
+	 *            路径（如：/json?size=256）
+	 */
+	public String url(String path) {
+		return baseUrl + path;
+	}
+
+	@Override
+	public void close() {
+		server.shutdown(1, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * 约指定字节数的JSON（内容可压缩，接近真实接口的数据）
+	 *
+	 * @param size
+	 *            字节数（大于零）
+	 */
+	public static String payload(int size) {
+		return new String(payloadBytes(size), StandardCharsets.UTF_8);
+	}
+
+	/** 约指定字节数的JSON（缓存复用） */
+	private static byte[] payloadBytes(int size) {
+		return payloads.computeIfAbsent(size, s -> {
+			StringBuilder builder = new StringBuilder(s + 64);
+			builder.append("{\"items\":[");
+			for (int i = 0; builder.length() < s - 2; i++) {
+				if (i > 0) {
+					builder.append(',');
+				}
+				builder.append("{\"id\":").append(i).append(",\"name\":\"item-").append(i)
+						.append("\",\"price\":").append(i % 100).append(".99}");
+			}
+			builder.append("]}");
+			return builder.toString().getBytes(StandardCharsets.UTF_8);
+		});
+	}
+
+	/** 约指定字节数的JSON（gzip压缩；缓存复用） */
+	private static byte[] gzipPayloadBytes(int size) {
+		return gzipPayloads.computeIfAbsent(size, s -> {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+				gzip.write(payloadBytes(s));
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return out.toByteArray();
+		});
+	}
+
+	/** GET /json?size=N[&amp;gzip=true] */
+	private static void json(HttpRequest request, HttpResponse response, HttpContext context) {
+		String uri = request.getRequestLine().getUri();
+		int size = 256;
+		String value = queryParameter(uri, "size");
+		if (value != null) {
+			size = Math.max(Integer.parseInt(value), 16);
+		}
+		Header accept = request.getFirstHeader(HttpHeaders.ACCEPT_ENCODING);
+		if ("true".equals(queryParameter(uri, "gzip")) && accept != null && accept.getValue().contains("gzip")) {
+			response.setEntity(new ByteArrayEntity(gzipPayloadBytes(size), ContentType.APPLICATION_JSON));
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+		} else {
+			response.setEntity(new ByteArrayEntity(payloadBytes(size), ContentType.APPLICATION_JSON));
+		}
+	}
+
+	/** POST /echo */
+	private static void echo(HttpRequest request, HttpResponse response, HttpContext context) throws IOException {
+		if (!(request instanceof HttpEntityEnclosingRequest)) {
+			response.setStatusCode(HttpStatus.SC_METHOD_NOT_ALLOWED);
+			return;
+		}
+		HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+		byte[] body = entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+		Header contentType = request.getFirstHeader(HttpHeaders.CONTENT_TYPE);
+		ByteArrayEntity result = new ByteArrayEntity(body,
+				contentType == null ? ContentType.APPLICATION_OCTET_STREAM : ContentType.parse(contentType.getValue()));
+		response.setEntity(result);
+		Header contentEncoding = request.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+		if (contentEncoding != null) {
+			response.setHeader(HttpHeaders.CONTENT_ENCODING, contentEncoding.getValue());
+		}
+	}
+
+	/** 查询参数（不解码；不存在时为NULL） */
+	private static String queryParameter(String uri, String name) {
+		int query = uri.indexOf('?');
+		if (query < 0) {
+			return null;
+		}
+		for (String pair : uri.substring(query + 1).split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq > 0 && name.equals(pair.substring(0, eq))) {
+				return pair.substring(eq + 1);
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.huangwei.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.huangwei.http.HttpClient;
+import com.huangwei.http.HttpClientPool;
+import com.huangwei.http.HttpTls;
+
+/**
+ * TLS握手基准测试（新建连接的HTTPS请求耗时）<br>
+ * <br>
+ * 1. freshContext：每次请求新建SSLContext（{@link HttpTls}之前的做法，每次完整握手）；<br>
+ * 2. cachedContext：复用{@link HttpTls}缓存的SSLContext（会话缓存，可简化握手），每次请求仍新建连接；<br>
+ * 3. pooledConnection：连接池复用已建立的连接（无握手，作为下限）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TlsHandshakeBenchmark {
+
+	private StubServer server;
+	private String url;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		server = StubServer.https(false);
+		url = server.url("/json?size=256");
+		HttpClientPool.configure(new HttpClientPool.Config());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		HttpClientPool.shutdown();
+		HttpTls.clear();
+		server.close();
+	}
+
+	@Benchmark
+	public String freshContext() throws Exception {
+		SSLConnectionSocketFactory socketFactory = new SSLConnectionSocketFactory(
+				SSLContextBuilder.create().loadTrustMaterial(TrustAllStrategy.INSTANCE).build(),
+				NoopHostnameVerifier.INSTANCE);
+		try (CloseableHttpClient client = HttpClients.custom().setSSLSocketFactory(socketFactory).build()) {
+			return execute(client);
+		}
+	}
+
+	@Benchmark
+	public String cachedContext() throws Exception {
+		try (CloseableHttpClient client = HttpClient.createInsecureSSLClient()) {
+			return execute(client);
+		}
+	}
+
+	@Benchmark
+	public String pooledConnection() throws Exception {
+		return execute(HttpClientPool.getClient());
+	}
+
+	private String execute(CloseableHttpClient client) throws Exception {
+		try (CloseableHttpResponse response = client.execute(new HttpGet(url))) {
+			return EntityUtils.toString(response.getEntity());
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.huangwei.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.utils.URIBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.huangwei.http.HttpClient;
+import com.huangwei.http.UrlTemplate;
+
+/**
+ * 含参URL构造基准测试（每次新建URIBuilder / 缓存的URL模板 / 预先持有的URL模板）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlBuildBenchmark {
+
+	private static final String URL = "https://api.example.com/v1/products/search";
+	private static final UrlTemplate TEMPLATE = UrlTemplate.of(URL);
+
+	private final Map<String, String> parameter = new LinkedHashMap<String, String>();
+
+	{
+		parameter.put("appId", "wx1234567890");
+		parameter.put("timestamp", "1634567890123");
+		parameter.put("nonce", "abcDEF123");
+		parameter.put("sign", "3F2A9C7B1D");
+		parameter.put("keyword", "手机 壳");
+	}
+
+	@Benchmark
+	public String uriBuilder() throws Exception {
+		URIBuilder uri = new URIBuilder(URL);
+		for (Map.Entry<String, String> e : parameter.entrySet()) {
+			uri.addParameter(e.getKey(), e.getValue());
+		}
+		return uri.build().toString();
+	}
+
+	@Benchmark
+	public String buildUrl() {
+		return HttpClient.buildUrl(URL, parameter);
+	}
+
+	@Benchmark
+	public String template() {
+		return TEMPLATE.expand(parameter);
+	}
+
+}
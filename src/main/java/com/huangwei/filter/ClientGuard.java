@@ -0,0 +1,400 @@
+package com.huangwei.filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.util.HttpUtil;
+import com.huangwei.util.TokenBucket;
+
+/**
+ * 客户端防护（按客户端IP的速率限制及攻击计数）<br>
+ * <br>
+ * 1. 限流：在包装请求（{@link SecurityRequestWrapper}读取、解析请求内容）之前调用{@link #tryAcquire(HttpServletRequest)}，
+ * 返回false时直接拒绝（例如：响应429），被拒绝的请求不消耗解析及过滤的CPU；<br>
+ * 2. 计数：{@link SecurityRequestWrapper}过滤时按类别（特殊字符、XSS、反射攻击、SQL注入）记录每个IP的疑似攻击次数；<br>
+ * 3. 容量：IP统计表为ConcurrentHashMap（获取许可、计数均无锁），新增IP时按需清理：超过统计窗口未访问的IP被淘汰，
+ * 超出上限时淘汰最久未访问的IP（近似LRU：一次清理到上限的90%；同一时间只有一个线程清理，其它线程不等待）；<br>
+ * 4. 监控：{@link #getTopOffenders(int)}返回疑似攻击次数最多的IP。<br>
+ * 说明：默认不启用；未启用时每个请求只有一次volatile读。客户端IP按{@link HttpUtil#getRealIp}识别，
+ * 请确保反向代理覆盖X-Real-IP等请求头，否则客户端可伪造IP绕过限制。<br>
+ * 用法：
+ *
+ * <pre>
+ * if (!ClientGuard.tryAcquire(request)) {
+ * 	response.setStatus(429);
+ * 	return;
+ * }
+ * chain.doFilter(new SecurityRequestWrapper(request), response);
+ * </pre>
+ */
+public final class ClientGuard {
+	private static final Logger logger = LoggerFactory.getLogger(ClientGuard.class);
+
+	/** 过滤类别数（下标即{@link SanitizerEngine}的过滤类别） */
+	private static final int CATEGORIES = SanitizerEngine.SQL_INJECT + 1;
+
+	/** 策略（为空：未启用） */
+	private static volatile ClientGuardPolicy policy;
+	/** IP统计表（IP -&gt; 统计） */
+	private static volatile ConcurrentHashMap<String, ClientStats> clients =
+			new ConcurrentHashMap<String, ClientStats>();
+	/** 是否正在清理IP统计表 */
+	private static final AtomicBoolean sweeping = new AtomicBoolean();
+	/** 上次清理过期IP的时间（毫秒） */
+	private static volatile long lastSweep;
+	/** 拒绝次数 - 超出速率（所有IP） */
+	private static final LongAdder rateLimited = new LongAdder();
+	/** 拒绝次数 - 疑似攻击次数达到上限（所有IP） */
+	private static final LongAdder blocked = new LongAdder();
+	/** 淘汰的IP数 */
+	private static final LongAdder evicted = new LongAdder();
+
+	private ClientGuard() {
+	}
+
+	/**
+	 * 设置策略（替换策略时清空IP统计表）
+	 *
+	 * @param policy
+	 *            策略（为空：关闭）
+	 */
+	public static synchronized void setPolicy(ClientGuardPolicy policy) {
+		final ClientGuardPolicy p = policy == null ? null : policy.copy();
+		clients = new ConcurrentHashMap<String, ClientStats>();
+		lastSweep = System.currentTimeMillis();
+		ClientGuard.policy = p;
+		logger.info("[客户端防护]设置策略！policy:" + p);
+	}
+
+	/** 策略（为空：未启用） */
+	public static ClientGuardPolicy getPolicy() {
+		final ClientGuardPolicy p = policy;
+		return p == null ? null : p.copy();
+	}
+
+	/** 是否已启用 */
+	public static boolean isEnabled() {
+		return policy != null;
+	}
+
+	/**
+	 * 获取许可（包装请求之前调用；按{@link HttpUtil#getRealIp}识别客户端）
+	 *
+	 * @param request
+	 *            请求（不能为空）
+	 * @return true:允许 false:拒绝（超出速率 或 疑似攻击次数达到上限）
+	 */
+	public static boolean tryAcquire(HttpServletRequest request) {
+		if (policy == null) {
+			return true;
+		}
+		return tryAcquire(HttpUtil.getRealIp(request));
+	}
+
+	/**
+	 * 获取许可
+	 *
+	 * @param ip
+	 *            客户端IP（为空：不限制）
+	 * @return true:允许 false:拒绝（超出速率 或 疑似攻击次数达到上限）
+	 */
+	public static boolean tryAcquire(String ip) {
+		final ClientGuardPolicy p = policy;
+		if (p == null || ip == null || ip.isEmpty()) {
+			return true;
+		}
+		final ClientStats stats = touch(p, ip);
+		stats.requests.increment();
+		if (p.getMaxViolations() > 0 && stats.windowViolations.get() >= p.getMaxViolations()) {
+			stats.rejected.increment();
+			blocked.increment();
+			return false;
+		}
+		if (stats.bucket != null && !stats.bucket.tryAcquire()) {
+			stats.rejected.increment();
+			rateLimited.increment();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 记录疑似攻击（由{@link SecurityRequestWrapper}在过滤规则改变请求参数时调用）
+	 *
+	 * @param ip
+	 *            客户端IP（为空：不记录）
+	 * @param category
+	 *            过滤类别（{@link SanitizerEngine#SPECIAL_CHARACTER}等）
+	 */
+	static void recordViolation(String ip, int category) {
+		final ClientGuardPolicy p = policy;
+		if (p == null || ip == null || ip.isEmpty()) {
+			return;
+		}
+		final ClientStats stats = touch(p, ip);
+		stats.violations.incrementAndGet(category > 0 && category < CATEGORIES ? category : 0);
+		if (stats.windowViolations.incrementAndGet() == p.getMaxViolations()) {
+			logger.warn("[客户端防护]疑似攻击次数达到上限，统计窗口结束前拒绝该IP的请求！ip:" + ip + " stats:" + stats);
+		}
+	}
+
+	/** 获取IP的统计（不存在时创建并按需清理；统计窗口结束时重新计数） */
+	private static ClientStats touch(ClientGuardPolicy p, String ip) {
+		final ConcurrentHashMap<String, ClientStats> table = clients;
+		ClientStats stats = table.get(ip);
+		if (stats == null) {
+			stats = table.computeIfAbsent(ip, k -> new ClientStats(k, p));
+			sweep(p, table);
+		}
+		final long now = System.currentTimeMillis();
+		stats.lastSeen = now;
+		if (now - stats.windowStart >= p.getWindow()) {
+			stats.rollWindow(now, p.getWindow());
+		}
+		return stats;
+	}
+
+	/**
+	 * 清理IP统计表（新增IP时调用；同一时间只有一个线程清理，其它线程直接返回）<br>
+	 * 1. 距上次清理超过统计窗口：淘汰超过统计窗口未访问的IP；<br>
+	 * 2. 超出上限：淘汰最久未访问的IP，直至上限的90%（减少清理次数）。
+	 */
+	private static void sweep(ClientGuardPolicy p, ConcurrentHashMap<String, ClientStats> table) {
+		final long now = System.currentTimeMillis();
+		final boolean expired = now - lastSweep > p.getWindow();
+		if (!expired && table.size() <= p.getMaxClients()) {
+			return;
+		}
+		if (!sweeping.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			if (expired) {
+				lastSweep = now;
+				for (Iterator<ClientStats> it = table.values().iterator(); it.hasNext();) {
+					if (now - it.next().lastSeen > p.getWindow()) {
+						it.remove();
+						evicted.increment();
+					}
+				}
+			}
+			final int size = table.size();
+			if (size > p.getMaxClients()) {
+				final int target = Math.max(1, p.getMaxClients() / 10 * 9);
+				long[] lastSeen = new long[size];
+				int n = 0;
+				for (ClientStats stats : table.values()) {
+					if (n == lastSeen.length) {
+						break;
+					}
+					lastSeen[n++] = stats.lastSeen;
+				}
+				if (n > target) {
+					Arrays.sort(lastSeen, 0, n);
+					final long cutoff = lastSeen[n - target - 1];// 早于该时间访问的IP被淘汰，等于该时间的按需淘汰
+					int remaining = n - target;
+					for (Iterator<ClientStats> it = table.values().iterator(); it.hasNext() && remaining > 0;) {
+						if (it.next().lastSeen < cutoff) {
+							it.remove();
+							evicted.increment();
+							remaining--;
+						}
+					}
+					for (Iterator<ClientStats> it = table.values().iterator(); it.hasNext() && remaining > 0;) {
+						if (it.next().lastSeen == cutoff) {
+							it.remove();
+							evicted.increment();
+							remaining--;
+						}
+					}
+				}
+			}
+		} finally {
+			sweeping.set(false);
+		}
+	}
+
+	/**
+	 * 获取IP的统计
+	 *
+	 * @param ip
+	 *            客户端IP
+	 * @return NULL（未启用 或 未记录/已淘汰） 或 统计
+	 */
+	public static ClientStats getStats(String ip) {
+		return ip == null ? null : clients.get(ip);
+	}
+
+	/**
+	 * 获取疑似攻击次数最多的IP（用于监控；次数相同时按拒绝次数排列）
+	 *
+	 * @param n
+	 *            数量上限
+	 * @return IP统计（非NULL；只读；不含没有疑似攻击也没有被拒绝的IP）
+	 */
+	public static List<ClientStats> getTopOffenders(int n) {
+		final List<ClientStats> result = new ArrayList<ClientStats>();
+		if (n <= 0) {
+			return Collections.unmodifiableList(result);
+		}
+		for (ClientStats stats : clients.values()) {// 弱一致的遍历，不影响并发访问
+			if (stats.getViolations() > 0 || stats.getRejected() > 0) {
+				result.add(stats);
+			}
+		}
+		result.sort(Comparator.comparingLong((ClientStats stats) -> stats.getViolations())
+				.thenComparingLong(ClientStats::getRejected).reversed());
+		return Collections.unmodifiableList(result.size() > n ? new ArrayList<ClientStats>(result.subList(0, n))
+				: result);
+	}
+
+	/** 记录的IP数 */
+	public static int size() {
+		return clients.size();
+	}
+
+	/** 拒绝次数 - 超出速率（所有IP） */
+	public static long getRateLimited() {
+		return rateLimited.sum();
+	}
+
+	/** 拒绝次数 - 疑似攻击次数达到上限（所有IP） */
+	public static long getBlocked() {
+		return blocked.sum();
+	}
+
+	/** 淘汰的IP数 */
+	public static long getEvicted() {
+		return evicted.sum();
+	}
+
+	/** 统计信息 */
+	public static String stats() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=ClientGuard, enabled=").append(isEnabled()).append(", clients=").append(size())
+				.append(", rateLimited=").append(getRateLimited()).append(", blocked=").append(getBlocked())
+				.append(", evicted=").append(getEvicted()).append(", topOffenders=").append(getTopOffenders(10))
+				.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * IP统计（单个客户端IP）<br>
+	 * 说明：计数均为原子操作；请求数、拒绝数及各类疑似攻击次数为累计值（IP被淘汰时清零），用于判断是否拒绝的疑似攻击次数按统计窗口重新计数。
+	 */
+	public static class ClientStats {
+
+		/** 客户端IP */
+		private final String ip;
+		/** 令牌桶（为空：不限速率） */
+		private final TokenBucket bucket;
+		/** 请求数（含被拒绝的请求） */
+		private final LongAdder requests = new LongAdder();
+		/** 拒绝次数 */
+		private final LongAdder rejected = new LongAdder();
+		/** 按类别的疑似攻击次数（下标即过滤类别） */
+		private final AtomicLongArray violations = new AtomicLongArray(CATEGORIES);
+		/** 当前统计窗口内的疑似攻击次数 */
+		private final AtomicInteger windowViolations = new AtomicInteger();
+		/** 当前统计窗口的开始时间（毫秒） */
+		private volatile long windowStart;
+		/** 最近访问时间（毫秒；并发写入时允许丢失更新，仅用于淘汰） */
+		private volatile long lastSeen;
+
+		ClientStats(String ip, ClientGuardPolicy policy) {
+			this.ip = ip;
+			this.bucket = policy.getPermitsPerSecond() > 0
+					? new TokenBucket(policy.getPermitsPerSecond(), policy.effectiveBurst())
+					: null;
+			this.windowStart = this.lastSeen = System.currentTimeMillis();
+		}
+
+		/** 开始新的统计窗口（并发时只有一个线程重新计数） */
+		private synchronized void rollWindow(long now, long window) {
+			if (now - windowStart >= window) {
+				windowStart = now;
+				windowViolations.set(0);
+			}
+		}
+
+		/** 客户端IP */
+		public String getIp() {
+			return ip;
+		}
+
+		/** 请求数（含被拒绝的请求） */
+		public long getRequests() {
+			return requests.sum();
+		}
+
+		/** 拒绝次数 */
+		public long getRejected() {
+			return rejected.sum();
+		}
+
+		/** 疑似攻击次数（所有类别） */
+		public long getViolations() {
+			long sum = 0;
+			for (int i = 0; i < CATEGORIES; i++) {
+				sum += violations.get(i);
+			}
+			return sum;
+		}
+
+		/**
+		 * 疑似攻击次数（单个类别）
+		 *
+		 * @param category
+		 *            过滤类别（{@link SanitizerEngine#SPECIAL_CHARACTER}等）
+		 * @return 次数
+		 */
+		public long getViolations(int category) {
+			return category > 0 && category < CATEGORIES ? violations.get(category) : 0;
+		}
+
+		/** 当前统计窗口内的疑似攻击次数 */
+		public int getWindowViolations() {
+			return windowViolations.get();
+		}
+
+		/** 当前可用令牌数（近似值；-1：不限速率） */
+		public int getAvailablePermits() {
+			return bucket == null ? -1 : bucket.getAvailablePermits();
+		}
+
+		/** 最近访问时间（毫秒） */
+		public long getLastSeen() {
+			return lastSeen;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("[clazz=ClientStats, ip=").append(ip).append(", requests=").append(getRequests())
+					.append(", rejected=").append(getRejected()).append(", specialCharacter=")
+					.append(violations.get(SanitizerEngine.SPECIAL_CHARACTER)).append(", xss=")
+					.append(violations.get(SanitizerEngine.XSS)).append(", reflect=")
+					.append(violations.get(SanitizerEngine.REFLECT)).append(", sqlInject=")
+					.append(violations.get(SanitizerEngine.SQL_INJECT)).append(", windowViolations=")
+					.append(getWindowViolations()).append(", availablePermits=").append(getAvailablePermits())
+					.append("]");
+			return builder.toString();
+		}
+
+	}
+
+}
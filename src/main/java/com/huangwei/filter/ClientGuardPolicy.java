@@ -0,0 +1,102 @@
+package com.huangwei.filter;
+
+/**
+ * 客户端防护策略（按客户端IP的速率限制及攻击计数）<br>
+ * <br>
+ * 1. 速率：每个IP一个令牌桶，限制每秒请求数（允许一定突发），超出时拒绝；<br>
+ * 2. 攻击：统计窗口内疑似攻击次数（请求参数被过滤改变的次数）达到上限的IP，在窗口结束前拒绝其全部请求；<br>
+ * 3. 容量：最多记录的IP数（超出时淘汰最久未访问的IP），超过统计窗口未访问的IP同样被淘汰。<br>
+ * 说明：策略在{@link ClientGuard#setPolicy}时生效，之后修改策略对象不影响已生效的配置，需重新设置。
+ */
+public class ClientGuardPolicy {
+
+	/** 速率（每个IP的请求数/秒；小于等于零：不限制） */
+	private double permitsPerSecond = 0;
+	/** 突发数（令牌桶容量；小于等于零：与每秒请求数相同，至少为1） */
+	private int burst = 0;
+	/** 统计窗口内允许的疑似攻击次数（达到后拒绝请求直至窗口结束；小于等于零：不限制） */
+	private int maxViolations = 0;
+	/** 统计窗口（单位：毫秒；窗口结束时重新计数；最小1000） */
+	private long window = 60 * 1000;
+	/** 最多记录的IP数（超出时淘汰最久未访问的IP；最小1） */
+	private int maxClients = 10000;
+
+	/** 实际使用的突发数 */
+	int effectiveBurst() {
+		if (burst > 0) {
+			return burst;
+		}
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.ceil(permitsPerSecond)));
+	}
+
+	/** 复制（生效的策略不受之后的修改影响） */
+	ClientGuardPolicy copy() {
+		ClientGuardPolicy policy = new ClientGuardPolicy();
+		policy.permitsPerSecond = permitsPerSecond;
+		policy.burst = burst;
+		policy.maxViolations = maxViolations;
+		policy.window = window;
+		policy.maxClients = maxClients;
+		return policy;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=ClientGuardPolicy, permitsPerSecond=").append(permitsPerSecond).append(", burst=")
+				.append(burst).append(", maxViolations=").append(maxViolations).append(", window=").append(window)
+				.append(", maxClients=").append(maxClients).append("]");
+		return builder.toString();
+	}
+
+	/** 速率（每个IP的请求数/秒；小于等于零：不限制） */
+	public double getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	/** 速率（每个IP的请求数/秒；小于等于零：不限制） */
+	public void setPermitsPerSecond(double permitsPerSecond) {
+		this.permitsPerSecond = permitsPerSecond > 0 ? permitsPerSecond : 0;
+	}
+
+	/** 突发数（令牌桶容量；小于等于零：与每秒请求数相同，至少为1） */
+	public int getBurst() {
+		return burst;
+	}
+
+	/** 突发数（令牌桶容量；小于等于零：与每秒请求数相同，至少为1） */
+	public void setBurst(int burst) {
+		this.burst = Math.max(burst, 0);
+	}
+
+	/** 统计窗口内允许的疑似攻击次数（达到后拒绝请求直至窗口结束；小于等于零：不限制） */
+	public int getMaxViolations() {
+		return maxViolations;
+	}
+
+	/** 统计窗口内允许的疑似攻击次数（达到后拒绝请求直至窗口结束；小于等于零：不限制） */
+	public void setMaxViolations(int maxViolations) {
+		this.maxViolations = Math.max(maxViolations, 0);
+	}
+
+	/** 统计窗口（单位：毫秒；窗口结束时重新计数；最小1000） */
+	public long getWindow() {
+		return window;
+	}
+
+	/** 统计窗口（单位：毫秒；窗口结束时重新计数；最小1000） */
+	public void setWindow(long window) {
+		this.window = Math.max(window, 1000);
+	}
+
+	/** 最多记录的IP数（超出时淘汰最久未访问的IP；最小1） */
+	public int getMaxClients() {
+		return maxClients;
+	}
+
+	/** 最多记录的IP数（超出时淘汰最久未访问的IP；最小1） */
+	public void setMaxClients(int maxClients) {
+		this.maxClients = Math.max(maxClients, 1);
+	}
+
+}
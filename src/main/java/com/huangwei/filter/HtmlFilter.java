@@ -5,11 +5,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  *
@@ -19,17 +15,17 @@ import java.util.regex.Pattern;
  *
  * This code is a Java port of the original work in PHP by Cal Hendersen. http://code.iamcal.com/php/lib_filter/
  *
- * The trickiest part of the translation was handling the differences in regex handling between PHP and Java. These
- * resources were helpful in the process:
- *
- * http://java.sun.com/j2se/1.4.2/docs/api/java/util/regex/Pattern.html
- * http://us2.php.net/manual/en/reference.pcre.pattern.modifiers.php http://www.regular-expressions.info/modifiers.html
+ * The original port ran a chain of regular expressions over the whole input (escapeComments, balanceHTML, checkTags,
+ * processRemoveBlanks, validateEntities). This version produces the same output with hand-written scanners: one
+ * tokenizer pass balances the angle brackets and processes the tags, and one final pass validates the entities and
+ * encodes the quotes. Input without any of the characters &lt; &gt; &amp; &quot; is returned as is.
  *
  * A note on naming conventions: instance variables are prefixed with a "v"; global constants are in all caps.
  *
  * Sample use: String input = ... String clean = new HTMLFilter().filter( input );
  *
- * The class is not thread safe. Create a new instance if in doubt.
+ * The class is thread safe: the configuration is immutable and all state of a call lives on its own stack, so a single
+ * instance may be shared.
  *
  * If you find bugs or have suggestions on improvement (especially regarding performance), please contact us. The latest
  * version of this source, and our contact details, can be found at http://xss-html-filter.sf.net
@@ -40,40 +36,8 @@ import java.util.regex.Pattern;
  */
 public final class HtmlFilter {
 
-	/** regex flag union representing /si modifiers in php **/
-	private static final int REGEX_FLAGS_SI = Pattern.CASE_INSENSITIVE | Pattern.DOTALL;
-	private static final Pattern P_COMMENTS = Pattern.compile("<!--(.*?)-->", Pattern.DOTALL);
-	private static final Pattern P_COMMENT = Pattern.compile("^!--(.*)--$", REGEX_FLAGS_SI);
-	private static final Pattern P_TAGS = Pattern.compile("<(.*?)>", Pattern.DOTALL);
-	private static final Pattern P_END_TAG = Pattern.compile("^/([a-z0-9]+)", REGEX_FLAGS_SI);
-	private static final Pattern P_START_TAG = Pattern.compile("^([a-z0-9]+)(.*?)(/?)$", REGEX_FLAGS_SI);
-	private static final Pattern P_QUOTED_ATTRIBUTES = Pattern.compile("([a-z0-9]+)=([\"'])(.*?)\\2", REGEX_FLAGS_SI);
-	private static final Pattern P_UNQUOTED_ATTRIBUTES = Pattern.compile("([a-z0-9]+)(=)([^\"\\s']+)", REGEX_FLAGS_SI);
-	private static final Pattern P_PROTOCOL = Pattern.compile("^([^:]+):", REGEX_FLAGS_SI);
-	private static final Pattern P_ENTITY = Pattern.compile("&#(\\d+);?");
-	private static final Pattern P_ENTITY_UNICODE = Pattern.compile("&#x([0-9a-f]+);?");
-	private static final Pattern P_ENCODE = Pattern.compile("%([0-9a-f]{2});?");
-	private static final Pattern P_VALID_ENTITIES = Pattern.compile("&([^&;]*)(?=(;|&|$))");
-	private static final Pattern P_VALID_QUOTES = Pattern.compile("(>|^)([^<]+?)(<|$)", Pattern.DOTALL);
-	private static final Pattern P_END_ARROW = Pattern.compile("^>");
-	private static final Pattern P_BODY_TO_END = Pattern.compile("<([^>]*?)(?=<|$)");
-	private static final Pattern P_XML_CONTENT = Pattern.compile("(^|>)([^<]*?)(?=>)");
-	private static final Pattern P_STRAY_LEFT_ARROW = Pattern.compile("<([^>]*?)(?=<|$)");
-	private static final Pattern P_STRAY_RIGHT_ARROW = Pattern.compile("(^|>)([^<]*?)(?=>)");
-	private static final Pattern P_AMP = Pattern.compile("&");
-	private static final Pattern P_QUOTE = Pattern.compile("\"");
-	private static final Pattern P_LEFT_ARROW = Pattern.compile("<");
-	private static final Pattern P_RIGHT_ARROW = Pattern.compile(">");
-	private static final Pattern P_BOTH_ARROWS = Pattern.compile("<>");
-
-	// @xxx could grow large... maybe use sesat's ReferenceMap
-	private static final ConcurrentMap<String, Pattern> P_REMOVE_PAIR_BLANKS = new ConcurrentHashMap<String, Pattern>();
-	private static final ConcurrentMap<String, Pattern> P_REMOVE_SELF_BLANKS = new ConcurrentHashMap<String, Pattern>();
-
 	/** set of allowed html elements, along with allowed attributes for each element **/
 	private final Map<String, List<String>> vAllowed;
-	/** counts of open tags for each (allowable) html element **/
-	private final Map<String, Integer> vTagCounts = new HashMap<String, Integer>();
 
 	/** html elements which must always be self-closing (e.g. "<img />") **/
 	private final String[] vSelfClosingTags;
@@ -92,7 +56,7 @@ public final class HtmlFilter {
 	/** flag determining whether comments are allowed in input String. */
 	private final boolean stripComment;
 	private final boolean encodeQuotes;
-	private boolean vDebug = false;
+	private final boolean vDebug;
 	/**
 	 * flag determining whether to try to make tags when presented with "unbalanced" angle brackets (e.g. "<b text </b>"
 	 * becomes "<b> text </b>"). If set to false, unbalanced angle brackets will be html escaped.
@@ -104,6 +68,16 @@ public final class HtmlFilter {
 	 *
 	 */
 	public HtmlFilter() {
+		this(false);
+	}
+
+	/**
+	 * Set debug flag to true. Otherwise use default settings. See the default constructor.
+	 *
+	 * @param debug
+	 *            turn debug on with a true argument
+	 */
+	public HtmlFilter(final boolean debug) {
 		vAllowed = new HashMap<String, List<String>>();
 
 		final ArrayList<String> a_atts = new ArrayList<String>();
@@ -134,16 +108,6 @@ public final class HtmlFilter {
 		stripComment = true;
 		encodeQuotes = true;
 		alwaysMakeTags = true;
-	}
-
-	/**
-	 * Set debug flag to true. Otherwise use default settings. See the default constructor.
-	 *
-	 * @param debug
-	 *            turn debug on with a true argument
-	 */
-	public HtmlFilter(final boolean debug) {
-		this();
 		vDebug = debug;
 	}
 
@@ -175,10 +139,7 @@ public final class HtmlFilter {
 		stripComment = conf.containsKey("stripComment") ? (Boolean) conf.get("stripComment") : true;
 		encodeQuotes = conf.containsKey("encodeQuotes") ? (Boolean) conf.get("encodeQuotes") : true;
 		alwaysMakeTags = conf.containsKey("alwaysMakeTags") ? (Boolean) conf.get("alwaysMakeTags") : true;
-	}
-
-	private void reset() {
-		vTagCounts.clear();
+		vDebug = false;
 	}
 
 	private void debug(final String msg) {
@@ -194,12 +155,34 @@ public final class HtmlFilter {
 	}
 
 	public static String htmlSpecialChars(final String s) {
-		String result = s;
-		result = regexReplace(P_AMP, "&amp;", result);
-		result = regexReplace(P_QUOTE, "&quot;", result);
-		result = regexReplace(P_LEFT_ARROW, "&lt;", result);
-		result = regexReplace(P_RIGHT_ARROW, "&gt;", result);
-		return result;
+		StringBuilder buf = null;
+		for (int i = 0; i < s.length(); i++) {
+			final String replacement;
+			switch (s.charAt(i)) {
+			case '&':
+				replacement = "&amp;";
+				break;
+			case '"':
+				replacement = "&quot;";
+				break;
+			case '<':
+				replacement = "&lt;";
+				break;
+			case '>':
+				replacement = "&gt;";
+				break;
+			default:
+				if (buf != null) {
+					buf.append(s.charAt(i));
+				}
+				continue;
+			}
+			if (buf == null) {
+				buf = new StringBuilder(s.length() + 16).append(s, 0, i);
+			}
+			buf.append(replacement);
+		}
+		return buf == null ? s : buf.toString();
 	}
 
 	// ---------------------------------------------------------------
@@ -211,26 +194,27 @@ public final class HtmlFilter {
 	 * @return "clean" version of input, with only valid, whitelisted html elements allowed
 	 */
 	public String filter(final String input) {
-		reset();
-		String s = input;
-
 		debug("************************************************");
 		debug("              INPUT: " + input);
 
-		s = escapeComments(s);
-		debug("     escapeComments: " + s);
-
-		s = balanceHTML(s);
-		debug("        balanceHTML: " + s);
-
-		s = checkTags(s);
-		debug("          checkTags: " + s);
-
-		s = processRemoveBlanks(s);
-		debug("processRemoveBlanks: " + s);
+		String s = input;
+		if (needsFiltering(s)) {
+			s = escapeComments(s);
+			debug("     escapeComments: " + s);
+
+			final Context ctx = new Context(s.length());
+			checkTags(s, ctx);
+			s = ctx.out.toString();
+			debug("          checkTags: " + s);
+
+			if (ctx.tags) {
+				s = processRemoveBlanks(s);
+				debug("processRemoveBlanks: " + s);
+			}
 
-		s = validateEntities(s);
-		debug("    validateEntites: " + s);
+			s = validateEntities(s);
+			debug("    validateEntites: " + s);
+		}
 
 		debug("************************************************\n\n");
 		return s;
@@ -244,98 +228,163 @@ public final class HtmlFilter {
 		return stripComment;
 	}
 
-	private String escapeComments(final String s) {
-		final Matcher m = P_COMMENTS.matcher(s);
-		final StringBuffer buf = new StringBuffer();
-		if (m.find()) {
-			final String match = m.group(1); // (.*?)
-			m.appendReplacement(buf, Matcher.quoteReplacement("<!--" + htmlSpecialChars(match) + "-->"));
-		}
-		m.appendTail(buf);
-
-		return buf.toString();
-	}
-
-	private String balanceHTML(String s) {
-		if (alwaysMakeTags) {
-			//
-			// try and form html
-			//
-			s = regexReplace(P_END_ARROW, "", s);
-			s = regexReplace(P_BODY_TO_END, "<$1>", s);
-			s = regexReplace(P_XML_CONTENT, "$1<$2", s);
-		} else {
-			//
-			// escape stray brackets
-			//
-			s = regexReplace(P_STRAY_LEFT_ARROW, "&lt;$1", s);
-			s = regexReplace(P_STRAY_RIGHT_ARROW, "$1$2&gt;<", s);
-
-			//
-			// the last regexp causes '<>' entities to appear
-			// (we need to do a lookahead assertion so that the last bracket can
-			// be used in the next pass of the regexp)
-			//
-			s = regexReplace(P_BOTH_ARROWS, "", s);
+	/** Only the characters &lt; &gt; &amp; and (when encoding quotes) &quot; can change the input. */
+	private boolean needsFiltering(final String s) {
+		for (int i = 0, length = s.length(); i < length; i++) {
+			final char c = s.charAt(i);
+			if (c == '<' || c == '>' || c == '&' || (c == '"' && encodeQuotes)) {
+				return true;
+			}
 		}
-
-		return s;
+		return false;
 	}
 
-	private String checkTags(String s) {
-		Matcher m = P_TAGS.matcher(s);
-
-		final StringBuffer buf = new StringBuffer();
-		while (m.find()) {
-			String replaceStr = m.group(1);
-			replaceStr = processTag(replaceStr);
-			m.appendReplacement(buf, Matcher.quoteReplacement(replaceStr));
+	/** html-escapes the content of the first comment */
+	private static String escapeComments(final String s) {
+		final int start = s.indexOf("<!--");
+		if (start < 0) {
+			return s;
 		}
-		m.appendTail(buf);
-
-		s = buf.toString();
+		final int end = s.indexOf("-->", start + 4);
+		if (end < 0) {
+			return s;
+		}
+		return s.substring(0, start + 4) + htmlSpecialChars(s.substring(start + 4, end)) + s.substring(end);
+	}
 
-		// these get tallied in processTag
-		// (remember to reset before subsequent calls to filter method)
-		for (String key : vTagCounts.keySet()) {
-			for (int ii = 0; ii < vTagCounts.get(key); ii++) {
-				s += "</" + key + ">";
+	/**
+	 * Tokenizes the input into text and tags, balancing unpaired angle brackets on the way, and writes the processed
+	 * tags to the output, followed by the closing tags of elements left open.
+	 * <ul>
+	 * <li>a '&lt;' without a '&gt;' before the next '&lt;' (or the end) is closed there, or escaped when
+	 * alwaysMakeTags is off;</li>
+	 * <li>text which starts the input or follows a '&gt;' and runs up to another '&gt;' without a '&lt;' becomes a
+	 * tag, or has that '&gt;' escaped when alwaysMakeTags is off;</li>
+	 * <li>with alwaysMakeTags on, a leading '&gt;' is dropped.</li>
+	 * </ul>
+	 */
+	private void checkTags(final String s, final Context ctx) {
+		final StringBuilder out = ctx.out;
+		final int length = s.length();
+		final int start = alwaysMakeTags && length > 0 && s.charAt(0) == '>' ? 1 : 0;
+		int i = start;
+		int run = start;// start of the current run of text
+		boolean canTag = true;// whether a '>' ending the current run makes it a tag
+		while (i < length) {
+			final char c = s.charAt(i);
+			if (c == '<') {
+				int k = i + 1;
+				while (k < length && s.charAt(k) != '>' && s.charAt(k) != '<' && !isDollar(s, 0, length, k)) {
+					k++;
+				}
+				out.append(s, run, i);
+				if (k < length && s.charAt(k) == '>') {// a complete tag
+					out.append(processTag(s.substring(i + 1, k), ctx));
+					i = k + 1;
+				} else if (alwaysMakeTags) {// an unclosed tag, closed right here
+					out.append(processTag(s.substring(i + 1, k), ctx));
+					i = k;
+				} else {// a stray '<'
+					out.append("&lt;");
+					i++;
+				}
+				run = i;
+				canTag = true;
+			} else if (c == '>') {
+				if (canTag) {
+					if (alwaysMakeTags) {
+						out.append(processTag(s.substring(run, i), ctx));
+					} else {
+						out.append(s, run, i).append("&gt;");
+					}
+					canTag = i != start;// an empty run at the start does not make the '>' usable again
+				} else {
+					out.append(s, run, i + 1);
+					canTag = true;
+				}
+				run = ++i;
+			} else {
+				i++;
 			}
 		}
+		out.append(s, run, length);
 
-		return s;
+		// close the elements left open
+		if (ctx.tagCounts != null) {
+			for (Map.Entry<String, Integer> e : ctx.tagCounts.entrySet()) {
+				for (int ii = 0; ii < e.getValue(); ii++) {
+					out.append("</").append(e.getKey()).append('>');
+				}
+			}
+		}
 	}
 
 	private String processRemoveBlanks(final String s) {
 		String result = s;
 		for (String tag : vRemoveBlanks) {
-			if (!P_REMOVE_PAIR_BLANKS.containsKey(tag)) {
-				P_REMOVE_PAIR_BLANKS.putIfAbsent(tag, Pattern.compile("<" + tag + "(\\s[^>]*)?></" + tag + ">"));
-			}
-			result = regexReplace(P_REMOVE_PAIR_BLANKS.get(tag), "", result);
-			if (!P_REMOVE_SELF_BLANKS.containsKey(tag)) {
-				P_REMOVE_SELF_BLANKS.putIfAbsent(tag, Pattern.compile("<" + tag + "(\\s[^>]*)?/>"));
-			}
-			result = regexReplace(P_REMOVE_SELF_BLANKS.get(tag), "", result);
+			result = removeBlanks(result, tag, false);
+			result = removeBlanks(result, tag, true);
 		}
 
 		return result;
 	}
 
-	private static String regexReplace(final Pattern regex_pattern, final String replacement, final String s) {
-		Matcher m = regex_pattern.matcher(s);
-		return m.replaceAll(replacement);
+	/**
+	 * Removes the empty elements "&lt;tag&gt;&lt;/tag&gt;" (or the self-closed "&lt;tag/&gt;"), with or without
+	 * attributes.
+	 */
+	private static String removeBlanks(final String s, final String tag, final boolean self) {
+		final String open = "<" + tag;
+		final String close = "></" + tag + ">";
+		final int length = s.length();
+		StringBuilder buf = null;
+		int last = 0;
+		int i = s.indexOf(open);
+		while (i >= 0) {
+			int q = i + open.length();
+			int end = -1;
+			if (q < length) {
+				if (isSpace(s.charAt(q))) {// attributes: "\s[^>]*"
+					final int gt = s.indexOf('>', q + 1);
+					if (self) {
+						end = gt > 0 && s.charAt(gt - 1) == '/' && gt - 1 > q ? gt + 1 : -1;
+					} else {
+						end = gt > 0 && s.startsWith(close, gt) ? gt + close.length() : -1;
+					}
+				} else if (self) {
+					end = s.startsWith("/>", q) ? q + 2 : -1;
+				} else {
+					end = s.startsWith(close, q) ? q + close.length() : -1;
+				}
+			}
+			if (end < 0) {
+				i = s.indexOf(open, i + 1);
+				continue;
+			}
+			if (buf == null) {
+				buf = new StringBuilder(length);
+			}
+			buf.append(s, last, i);
+			last = end;
+			i = s.indexOf(open, end);
+		}
+		if (buf == null) {
+			return s;
+		}
+		return buf.append(s, last, length).toString();
 	}
 
-	private String processTag(final String s) {
+	private String processTag(final String s, final Context ctx) {
+		final int length = s.length();
+
 		// ending tags
-		Matcher m = P_END_TAG.matcher(s);
-		if (m.find()) {
-			final String name = m.group(1).toLowerCase();
+		if (length > 1 && s.charAt(0) == '/' && isAlnum(s.charAt(1))) {
+			final String name = s.substring(1, alnumEnd(s, 1)).toLowerCase();
 			if (allowed(name)) {
 				if (!inArray(name, vSelfClosingTags)) {
-					if (vTagCounts.containsKey(name)) {
-						vTagCounts.put(name, vTagCounts.get(name) - 1);
+					if (ctx.tagCounts != null && ctx.tagCounts.containsKey(name)) {
+						ctx.tagCounts.put(name, ctx.tagCounts.get(name) - 1);
+						ctx.tags = true;
 						return "</" + name + ">";
 					}
 				}
@@ -343,43 +392,42 @@ public final class HtmlFilter {
 		}
 
 		// starting tags
-		m = P_START_TAG.matcher(s);
-		if (m.find()) {
-			final String name = m.group(1).toLowerCase();
-			final String body = m.group(2);
-			String ending = m.group(3);
+		if (length > 0 && isAlnum(s.charAt(0))) {
+			final int nameEnd = alnumEnd(s, 0);
+			final String name = s.substring(0, nameEnd).toLowerCase();
+
+			// the body runs up to an optional '/' at the end (or before a final line terminator)
+			int bodyEnd = Math.max(nameEnd, length - 3);
+			String ending = "";
+			while (true) {
+				if (bodyEnd < length && s.charAt(bodyEnd) == '/' && isDollar(s, 0, length, bodyEnd + 1)) {
+					ending = "/";
+					break;
+				}
+				if (isDollar(s, 0, length, bodyEnd)) {
+					break;
+				}
+				bodyEnd++;
+			}
 
 			// debug( "in a starting tag, name='" + name + "'; body='" + body + "'; ending='" + ending + "'" );
 			if (allowed(name)) {
-				String params = "";
-
-				final Matcher m2 = P_QUOTED_ATTRIBUTES.matcher(body);
-				final Matcher m3 = P_UNQUOTED_ATTRIBUTES.matcher(body);
+				final StringBuilder params = new StringBuilder();
 				final List<String> paramNames = new ArrayList<String>();
 				final List<String> paramValues = new ArrayList<String>();
-				while (m2.find()) {
-					paramNames.add(m2.group(1)); // ([a-z0-9]+)
-					paramValues.add(m2.group(3)); // (.*?)
-				}
-				while (m3.find()) {
-					paramNames.add(m3.group(1)); // ([a-z0-9]+)
-					paramValues.add(m3.group(3)); // ([^\"\\s']+)
-				}
+				quotedAttributes(s, nameEnd, bodyEnd, paramNames, paramValues);
+				unquotedAttributes(s, nameEnd, bodyEnd, paramNames, paramValues);
 
 				String paramName, paramValue;
 				for (int ii = 0; ii < paramNames.size(); ii++) {
 					paramName = paramNames.get(ii).toLowerCase();
 					paramValue = paramValues.get(ii);
 
-//         debug( "paramName='" + paramName + "'" );
-//         debug( "paramValue='" + paramValue + "'" );
-//         debug( "allowed? " + vAllowed.get( name ).contains( paramName ) );
-
 					if (allowedAttribute(name, paramName)) {
 						if (inArray(paramName, vProtocolAtts)) {
 							paramValue = processParamProtocol(paramValue);
 						}
-						params += " " + paramName + "=\"" + paramValue + "\"";
+						params.append(' ').append(paramName).append("=\"").append(paramValue).append('"');
 					}
 				}
 
@@ -392,34 +440,86 @@ public final class HtmlFilter {
 				}
 
 				if (ending == null || ending.length() < 1) {
-					if (vTagCounts.containsKey(name)) {
-						vTagCounts.put(name, vTagCounts.get(name) + 1);
-					} else {
-						vTagCounts.put(name, 1);
+					if (ctx.tagCounts == null) {
+						ctx.tagCounts = new HashMap<String, Integer>();
 					}
+					final Integer count = ctx.tagCounts.get(name);
+					ctx.tagCounts.put(name, count == null ? 1 : count + 1);
 				} else {
 					ending = " /";
 				}
+				ctx.tags = true;
 				return "<" + name + params + ending + ">";
 			} else {
 				return "";
 			}
 		}
 
-		// comments
-		m = P_COMMENT.matcher(s);
-		if (!stripComment && m.find()) {
-			return "<" + m.group() + ">";
+		// comments: "!--(.*)--" up to the end (or before a final line terminator)
+		if (!stripComment && s.startsWith("!--")) {
+			for (int end = length; end >= Math.max(5, length - 2); end--) {
+				if (s.startsWith("--", end - 2) && isDollar(s, 0, length, end)) {
+					ctx.tags = true;
+					return "<" + s.substring(0, end) + ">";
+				}
+			}
 		}
 
 		return "";
 	}
 
+	/** attributes in the form name="value" or name='value' */
+	private static void quotedAttributes(final String s, final int from, final int to, final List<String> names,
+			final List<String> values) {
+		int i = from;
+		while (i < to) {
+			if (!isAlnum(s.charAt(i))) {
+				i++;
+				continue;
+			}
+			final int e = alnumEnd(s, i, to);
+			if (e + 1 < to && s.charAt(e) == '=' && (s.charAt(e + 1) == '"' || s.charAt(e + 1) == '\'')) {
+				final int close = s.indexOf(s.charAt(e + 1), e + 2);
+				if (close >= 0 && close < to) {
+					names.add(s.substring(i, e));
+					values.add(s.substring(e + 2, close));
+					i = close + 1;
+					continue;
+				}
+			}
+			i = e;
+		}
+	}
+
+	/** attributes in the form name=value */
+	private static void unquotedAttributes(final String s, final int from, final int to, final List<String> names,
+			final List<String> values) {
+		int i = from;
+		while (i < to) {
+			if (!isAlnum(s.charAt(i))) {
+				i++;
+				continue;
+			}
+			final int e = alnumEnd(s, i, to);
+			if (e + 1 < to && s.charAt(e) == '=' && !isQuoteOrSpace(s.charAt(e + 1))) {
+				int v = e + 2;
+				while (v < to && !isQuoteOrSpace(s.charAt(v))) {
+					v++;
+				}
+				names.add(s.substring(i, e));
+				values.add(s.substring(e + 1, v));
+				i = v;
+				continue;
+			}
+			i = e;
+		}
+	}
+
 	private String processParamProtocol(String s) {
 		s = decodeEntities(s);
-		final Matcher m = P_PROTOCOL.matcher(s);
-		if (m.find()) {
-			final String protocol = m.group(1);
+		final int colon = s.indexOf(':');
+		if (colon > 0) {
+			final String protocol = s.substring(0, colon);
 			if (!inArray(protocol, vAllowedProtocols)) {
 				// bad protocol, turn into local anchor link instead
 				s = "#" + s.substring(protocol.length() + 1, s.length());
@@ -432,81 +532,126 @@ public final class HtmlFilter {
 		return s;
 	}
 
+	/**
+	 * Decodes "&amp;#ddd;", then "&amp;#xhhh;", then "%hh" (each ";" optional), and validates the entities of the
+	 * result. Numeric entities beyond the int range are left as they are.
+	 */
 	private String decodeEntities(String s) {
-		StringBuffer buf = new StringBuffer();
-
-		Matcher m = P_ENTITY.matcher(s);
-		while (m.find()) {
-			final String match = m.group(1);
-			final int decimal = Integer.decode(match).intValue();
-			m.appendReplacement(buf, Matcher.quoteReplacement(chr(decimal)));
-		}
-		m.appendTail(buf);
-		s = buf.toString();
-
-		buf = new StringBuffer();
-		m = P_ENTITY_UNICODE.matcher(s);
-		while (m.find()) {
-			final String match = m.group(1);
-			final int decimal = Integer.valueOf(match, 16).intValue();
-			m.appendReplacement(buf, Matcher.quoteReplacement(chr(decimal)));
-		}
-		m.appendTail(buf);
-		s = buf.toString();
-
-		buf = new StringBuffer();
-		m = P_ENCODE.matcher(s);
-		while (m.find()) {
-			final String match = m.group(1);
-			final int decimal = Integer.valueOf(match, 16).intValue();
-			m.appendReplacement(buf, Matcher.quoteReplacement(chr(decimal)));
-		}
-		m.appendTail(buf);
-		s = buf.toString();
-
+		s = decodeNumbers(s, "&#", 10);
+		s = decodeNumbers(s, "&#x", 16);
+		s = decodeNumbers(s, "%", 2);
 		s = validateEntities(s);
 		return s;
 	}
 
-	private String validateEntities(final String s) {
-		StringBuffer buf = new StringBuffer();
-
-		// validate entities throughout the string
-		Matcher m = P_VALID_ENTITIES.matcher(s);
-		while (m.find()) {
-			final String one = m.group(1); // ([^&;]*)
-			final String two = m.group(2); // (?=(;|&|$))
-			m.appendReplacement(buf, Matcher.quoteReplacement(checkEntity(one, two)));
+	/**
+	 * @param kind
+	 *            10: "&amp;#" followed by decimal digits (a leading 0 means octal); 16: "&amp;#x" followed by lower case
+	 *            hex digits; 2: "%" followed by exactly two lower case hex digits
+	 */
+	private static String decodeNumbers(final String s, final String prefix, final int kind) {
+		final int length = s.length();
+		StringBuilder buf = null;
+		int last = 0;
+		int i = s.indexOf(prefix);
+		while (i >= 0) {
+			final int from = i + prefix.length();
+			int e = from;
+			while (e < length && (kind == 10 ? isDigit(s.charAt(e)) : isLowerHex(s.charAt(e)))
+					&& (kind != 2 || e - from < 2)) {
+				e++;
+			}
+			if (e == from || (kind == 2 && e - from < 2)) {
+				i = s.indexOf(prefix, i + 1);
+				continue;
+			}
+			final long value = kind == 10 ? parseDecimal(s, from, e) : parseHex(s, from, e);
+			final int end = e < length && s.charAt(e) == ';' ? e + 1 : e;
+			if (value >= 0) {
+				if (buf == null) {
+					buf = new StringBuilder(length);
+				}
+				buf.append(s, last, i).append((char) value);
+				last = end;
+			}
+			i = s.indexOf(prefix, end);
 		}
-		m.appendTail(buf);
-
-		return encodeQuotes(buf.toString());
+		if (buf == null) {
+			return s;
+		}
+		return buf.append(s, last, length).toString();
 	}
 
-	private String encodeQuotes(final String s) {
-		if (encodeQuotes) {
-			StringBuffer buf = new StringBuffer();
-			Matcher m = P_VALID_QUOTES.matcher(s);
-			while (m.find()) {
-				final String one = m.group(1); // (>|^)
-				final String two = m.group(2); // ([^<]+?)
-				final String three = m.group(3); // (<|$)
-				m.appendReplacement(buf, Matcher.quoteReplacement(one + regexReplace(P_QUOTE, "&quot;", two) + three));
+	/** same as Integer.decode (a leading 0 means octal); -1: not an int */
+	private static long parseDecimal(final String s, final int from, final int to) {
+		final int radix = to - from > 1 && s.charAt(from) == '0' ? 8 : 10;
+		long value = 0;
+		for (int i = radix == 8 ? from + 1 : from; i < to; i++) {
+			final int digit = s.charAt(i) - '0';
+			if (digit >= radix || (value = value * radix + digit) > Integer.MAX_VALUE) {
+				return -1;
 			}
-			m.appendTail(buf);
-			return buf.toString();
-		} else {
-			return s;
 		}
+		return value;
 	}
 
-	private String checkEntity(final String preamble, final String term) {
+	/** -1: not an int */
+	private static long parseHex(final String s, final int from, final int to) {
+		long value = 0;
+		for (int i = from; i < to; i++) {
+			final char c = s.charAt(i);
+			if ((value = (value << 4) + (c <= '9' ? c - '0' : c - 'a' + 10)) > Integer.MAX_VALUE) {
+				return -1;
+			}
+		}
+		return value;
+	}
 
-		return ";".equals(term) && isValidEntity(preamble) ? '&' + preamble : "&amp;" + preamble;
+	/**
+	 * Escapes each '&amp;' which does not start an allowed entity, then (when enabled) encodes the quotes outside of
+	 * the tags.
+	 */
+	private String validateEntities(final String s) {
+		final int length = s.length();
+		StringBuilder buf = null;
+		boolean inTag = false;
+		for (int i = 0; i < length; i++) {
+			final char c = s.charAt(i);
+			String replacement = null;
+			if (c == '&') {
+				int k = i + 1;
+				while (k < length && s.charAt(k) != '&' && s.charAt(k) != ';') {
+					k++;
+				}
+				if (k >= length || s.charAt(k) != ';' || !isValidEntity(s, i + 1, k)) {
+					replacement = "&amp;";
+				}
+			} else if (c == '<') {
+				inTag = true;
+			} else if (c == '>') {
+				inTag = false;
+			} else if (c == '"' && encodeQuotes && !inTag) {
+				replacement = "&quot;";
+			}
+			if (replacement != null) {
+				if (buf == null) {
+					buf = new StringBuilder(length + 16).append(s, 0, i);
+				}
+				buf.append(replacement);
+			} else if (buf != null) {
+				buf.append(c);
+			}
+		}
+		return buf == null ? s : buf.toString();
 	}
 
-	private boolean isValidEntity(final String entity) {
-		return inArray(entity, vAllowedEntities);
+	private boolean isValidEntity(final String s, final int from, final int to) {
+		for (String item : vAllowedEntities) {
+			if (item != null && item.length() == to - from && s.startsWith(item, from)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	private static boolean inArray(final String s, final String[] array) {
@@ -526,4 +671,79 @@ public final class HtmlFilter {
 		return allowed(name) && (vAllowed.isEmpty() || vAllowed.get(name).contains(paramName));
 	}
 
+	// ---------------------------------------------------------------
+	// character classes (ASCII only, as in the regular expressions without UNICODE_CASE)
+
+	private static boolean isAlnum(final char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+	}
+
+	private static int alnumEnd(final String s, final int from) {
+		return alnumEnd(s, from, s.length());
+	}
+
+	private static int alnumEnd(final String s, int from, final int to) {
+		while (from < to && isAlnum(s.charAt(from))) {
+			from++;
+		}
+		return from;
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isLowerHex(final char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+	}
+
+	/** \s */
+	private static boolean isSpace(final char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+	}
+
+	/** ["'\s] */
+	private static boolean isQuoteOrSpace(final char c) {
+		return c == '"' || c == '\'' || isSpace(c);
+	}
+
+	/**
+	 * Whether "$" (without MULTILINE) matches at the index: at the end, or before a line terminator which ends the
+	 * input.
+	 */
+	private static boolean isDollar(final String s, final int from, final int to, final int i) {
+		if (i >= to) {
+			return true;
+		}
+		if (i < to - 2) {
+			return false;
+		}
+		final char c = s.charAt(i);
+		if (i == to - 2) {
+			return c == '\r' && s.charAt(i + 1) == '\n';
+		}
+		if (c == '\n') {
+			return i == from || s.charAt(i - 1) != '\r';
+		}
+		return c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	/**
+	 * State of a single call of {@link #filter(String)}.
+	 */
+	private static final class Context {
+
+		/** output */
+		final StringBuilder out;
+		/** counts of open tags for each (allowable) html element (created on the first open tag) **/
+		Map<String, Integer> tagCounts;
+		/** whether any tag has been written */
+		boolean tags;
+
+		Context(int length) {
+			this.out = new StringBuilder(length + 16);
+		}
+
+	}
+
 }
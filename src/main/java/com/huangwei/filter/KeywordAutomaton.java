@@ -0,0 +1,195 @@
+package com.huangwei.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 关键字自动机（Aho-Corasick，构建为DFA）<br>
+ * <br>
+ * 1. 一次扫描即可得到字符串中出现过的所有关键字（最多64个，以位掩码表示）；<br>
+ * 2. 忽略大小写仅限ASCII字母（与正则表达式的(?i)一致，不含UNICODE_CASE）；<br>
+ * 3. 非ASCII字符及关键字中未出现的字符归为同一字符类，转移表大小为：状态数 × 字符类数。<br>
+ * 说明：构建后不可变，线程安全；扫描过程不分配内存。
+ */
+final class KeywordAutomaton {
+
+	/** 关键字（小写） */
+	private final String[] keywords;
+	/** 字符类（ASCII字符 -&gt; 字符类；0：其它字符） */
+	private final int[] charClass = new int[128];
+	/** 字符类数 */
+	private final int classCount;
+	/** 转移表（状态 * 字符类数 + 字符类 -&gt; 状态） */
+	private final int[] next;
+	/** 输出（状态 -&gt; 以该状态结尾的关键字位掩码，含后缀链接） */
+	private final long[] output;
+
+	/**
+	 * 关键字自动机
+	 *
+	 * @param keywords
+	 *            关键字（不能为空；ASCII字符；最多64个；位掩码中的位序号即数组下标）
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	KeywordAutomaton(String... keywords) {
+		if (keywords == null || keywords.length == 0 || keywords.length > 64) {
+			throw new IllegalArgumentException("关键字数量必须在1到64之间！");
+		}
+		this.keywords = new String[keywords.length];
+		int classes = 1;
+		for (int i = 0; i < keywords.length; i++) {
+			String keyword = keywords[i];
+			if (keyword == null || keyword.isEmpty()) {
+				throw new IllegalArgumentException("关键字不能为空！");
+			}
+			keyword = toLowerAscii(keyword);
+			this.keywords[i] = keyword;
+			for (int j = 0; j < keyword.length(); j++) {
+				char c = keyword.charAt(j);
+				if (c >= 128) {
+					throw new IllegalArgumentException("关键字只能含有ASCII字符！keyword:" + keyword);
+				}
+				if (charClass[c] == 0) {
+					charClass[c] = classes++;
+					if (c >= 'a' && c <= 'z') {
+						charClass[c - 32] = charClass[c];// 大写字母与小写字母同类
+					}
+				}
+			}
+		}
+		this.classCount = classes;
+
+		// 1. 字典树
+		List<int[]> goTo = new ArrayList<int[]>();
+		List<Long> out = new ArrayList<Long>();
+		goTo.add(newRow(classes));
+		out.add(0L);
+		for (int i = 0; i < this.keywords.length; i++) {
+			int state = 0;
+			for (int j = 0; j < this.keywords[i].length(); j++) {
+				int c = charClass[this.keywords[i].charAt(j)];
+				if (goTo.get(state)[c] < 0) {
+					goTo.get(state)[c] = goTo.size();
+					goTo.add(newRow(classes));
+					out.add(0L);
+				}
+				state = goTo.get(state)[c];
+			}
+			out.set(state, out.get(state) | (1L << i));
+		}
+
+		// 2. 按广度优先补全失配转移（DFA）并合并后缀的输出
+		final int states = goTo.size();
+		this.next = new int[states * classes];
+		this.output = new long[states];
+		int[] fail = new int[states];
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		for (int c = 0; c < classes; c++) {
+			int s = goTo.get(0)[c];
+			next[c] = s < 0 ? 0 : s;
+			if (s > 0) {
+				fail[s] = 0;
+				queue.add(s);
+			}
+		}
+		output[0] = out.get(0);
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			output[state] = out.get(state) | output[fail[state]];
+			for (int c = 0; c < classes; c++) {
+				int s = goTo.get(state)[c];
+				if (s < 0) {
+					next[state * classes + c] = next[fail[state] * classes + c];
+				} else {
+					next[state * classes + c] = s;
+					fail[s] = next[fail[state] * classes + c];
+					queue.add(s);
+				}
+			}
+		}
+	}
+
+	private static int[] newRow(int classes) {
+		int[] row = new int[classes];
+		Arrays.fill(row, -1);
+		return row;
+	}
+
+	/**
+	 * 扫描字符串
+	 *
+	 * @param s
+	 *            字符串（不能为空）
+	 * @return 出现过的关键字的位掩码（0：未出现任何关键字）
+	 */
+	long scan(String s) {
+		final int[] next = this.next;
+		final long[] output = this.output;
+		final int classes = classCount;
+		long found = 0;
+		int state = 0;
+		for (int i = 0, length = s.length(); i < length; i++) {
+			char c = s.charAt(i);
+			state = next[state * classes + (c < 128 ? charClass[c] : 0)];
+			found |= output[state];
+		}
+		return found;
+	}
+
+	/** 关键字数量 */
+	int size() {
+		return keywords.length;
+	}
+
+	/** 关键字（小写） */
+	String keyword(int index) {
+		return keywords[index];
+	}
+
+	/**
+	 * 查找关键字（忽略ASCII字母的大小写）
+	 *
+	 * @param s
+	 *            字符串（不能为空）
+	 * @param keyword
+	 *            关键字（小写；不能为空）
+	 * @param from
+	 *            起始位置
+	 * @return 位置（-1：未找到）
+	 */
+	static int indexOfIgnoreCase(String s, String keyword, int from) {
+		final int length = keyword.length();
+		final char first = keyword.charAt(0);
+		for (int i = Math.max(from, 0), last = s.length() - length; i <= last; i++) {
+			if (toLowerAscii(s.charAt(i)) != first) {
+				continue;
+			}
+			int j = 1;
+			while (j < length && toLowerAscii(s.charAt(i + j)) == keyword.charAt(j)) {
+				j++;
+			}
+			if (j == length) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/** 小写（仅ASCII字母） */
+	static char toLowerAscii(char c) {
+		return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+	}
+
+	/** 小写（仅ASCII字母） */
+	static String toLowerAscii(String s) {
+		StringBuilder builder = new StringBuilder(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			builder.append(toLowerAscii(s.charAt(i)));
+		}
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,602 @@
+package com.huangwei.filter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求参数过滤引擎（规则集预先编译，单遍扫描）<br>
+ * <br>
+ * 1. 规则：特殊字符、XSS（{@link HtmlFilter}）、反射攻击、SQL注入，依次执行，结果与逐条执行替换/正则替换完全一致；<br>
+ * 2. 预扫描：按128位ASCII位图（特殊字符及关键字首字母）检查，可证明不会命中任何规则时直接返回原字符串（占绝大多数的数字、编号、日期等）；<br>
+ * 3. 扫描：一次遍历同时得到出现过的特殊字符（查表）及关键字（{@link KeywordAutomaton}），只执行可能命中的规则；<br>
+ * 4. 分配：未命中任何规则时返回原字符串（去掉首尾空白后），不分配内存；规则命中时才生成新字符串。<br>
+ * 说明：引擎的规则不可变，线程安全（{@link HtmlFilter}线程安全）。
+ */
+public final class SanitizerEngine {
+
+	/** 过滤类别 - 特殊字符 */
+	public static final int SPECIAL_CHARACTER = 1;
+	/** 过滤类别 - XSS攻击 */
+	public static final int XSS = 2;
+	/** 过滤类别 - 反射攻击 */
+	public static final int REFLECT = 3;
+	/** 过滤类别 - SQL注入 */
+	public static final int SQL_INJECT = 4;
+
+	/** 空字符串 */
+	private static final String EMPTY_STRING = "";
+
+	/** 反射攻击 - 协议（删除至本行最后一个"//"） */
+	private static final String[] REFLECT_PROTOCOLS = { "jndi:", "jdbc:" };
+	/** 反射攻击 - 包名（删除至本行最后一个'.'） */
+	private static final String[] REFLECT_PACKAGES = { "java.", "javax.", "javassist.", "com.sun.", "com.mysql.",
+			"com.github.", "com.google.", "com.oracle.", "com.alibaba.", "com.netflix.", "com.facebook.",
+			"com.fasterxml.", "com.microsoft.", "dm.jdbc.", "net.sf.", "net.bytebuddy.", "org.w3c.", "org.jdom.",
+			"org.json.", "org.dom4j.", "org.jboss.", "org.junit.", "org.slf4j.", "org.apache.", "org.sqlite.",
+			"org.mariadb.", "org.hibernate.", "org.objectweb.", "org.postgresql.", "org.bouncycastle.",
+			"org.springframework.", "oracle.jdbc." };
+	/** SQL注入 - 关键字（替换为"FORBIDDEN_关键字"） */
+	private static final String[] SQL_KEYWORDS = { "master", "declare", "create", "alter", "drop", "truncate",
+			"select", "insert", "update", "delete", "union all" };
+
+	/** 反射攻击规则数 */
+	private static final int REFLECT_RULES = REFLECT_PROTOCOLS.length + REFLECT_PACKAGES.length;
+	/** 反射攻击规则的位掩码 */
+	private static final long REFLECT_MASK = (1L << REFLECT_RULES) - 1;
+	/** SQL注入规则的位掩码 */
+	private static final long SQL_MASK = ((1L << SQL_KEYWORDS.length) - 1) << REFLECT_RULES;
+
+	/** 字符标志 - 直接删除的字符：' " % ^ ~ */
+	private static final int F_DELETE = 1;
+	/** 字符标志 - '\' */
+	private static final int F_BACKSLASH = 1 << 1;
+	/** 字符标志 - '.' */
+	private static final int F_DOT = 1 << 2;
+	/** 字符标志 - '/' */
+	private static final int F_SLASH = 1 << 3;
+	/** 字符标志 - '-' */
+	private static final int F_HYPHEN = 1 << 4;
+	/** 字符标志 - '*' */
+	private static final int F_STAR = 1 << 5;
+	/** 字符标志 - '$' */
+	private static final int F_DOLLAR = 1 << 6;
+	/** 字符标志 - HTML字符：&lt; &gt; &amp; */
+	private static final int F_HTML = 1 << 7;
+	/** 字符标志（ASCII字符 -&gt; 标志） */
+	private static final int[] CHAR_FLAGS = new int[128];
+
+	static {
+		for (char c : "'\"%^~".toCharArray()) {
+			CHAR_FLAGS[c] = F_DELETE;
+		}
+		CHAR_FLAGS['\\'] = F_BACKSLASH;
+		CHAR_FLAGS['.'] = F_DOT;
+		CHAR_FLAGS['/'] = F_SLASH;
+		CHAR_FLAGS['-'] = F_HYPHEN;
+		CHAR_FLAGS['*'] = F_STAR;
+		CHAR_FLAGS['$'] = F_DOLLAR;
+		CHAR_FLAGS['<'] = F_HTML;
+		CHAR_FLAGS['>'] = F_HTML;
+		CHAR_FLAGS['&'] = F_HTML;
+	}
+
+	/** 预扫描位图（字符 -&gt; 是否可能命中规则：特殊字符、关键字首字母（忽略大小写）；ASCII 0~63、64~127） */
+	private static final long INTERESTING_LO;
+	private static final long INTERESTING_HI;
+	/** 预扫描位图 - 相邻时才可能命中规则的字符：- . / *（"--"、"/."、"./"、"/*"、"*&#47;"；均小于64） */
+	private static final long PAIRED = 1L << '-' | 1L << '.' | 1L << '/' | 1L << '*';
+
+	static {
+		long lo = 0, hi = 0;
+		for (char c : "'\"%^~\\$<>&".toCharArray()) {
+			if (c < 64) {
+				lo |= 1L << c;
+			} else {
+				hi |= 1L << c;
+			}
+		}
+		for (String[] keywords : new String[][] { REFLECT_PROTOCOLS, REFLECT_PACKAGES, SQL_KEYWORDS }) {
+			for (String keyword : keywords) {
+				char c = keyword.charAt(0);// 关键字首字母均为小写字母（64~127）
+				hi |= 1L << c | 1L << Character.toUpperCase(c);
+			}
+		}
+		INTERESTING_LO = lo;
+		INTERESTING_HI = hi;
+	}
+
+	/** 关键字自动机（反射攻击规则在前，SQL注入规则在后；位序号即规则序号） */
+	private final KeywordAutomaton keywords;
+	/** SQL注入关键字的替换值 */
+	private final String[] sqlReplacements;
+	/** HTML过滤器 */
+	private final HtmlFilter htmlFilter;
+	/** 预扫描命中次数（直接返回原字符串） */
+	private final LongAdder fastPathHits = new LongAdder();
+	/** 预扫描未命中次数（执行完整扫描） */
+	private final LongAdder fastPathMisses = new LongAdder();
+
+	/**
+	 * 请求参数过滤引擎
+	 *
+	 * @param htmlFilter
+	 *            HTML过滤器（不能为空；用于XSS过滤）
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	public SanitizerEngine(HtmlFilter htmlFilter) {
+		if (htmlFilter == null) {
+			throw new IllegalArgumentException("HTML过滤器不能为空！");
+		}
+		this.htmlFilter = htmlFilter;
+		String[] all = new String[REFLECT_RULES + SQL_KEYWORDS.length];
+		System.arraycopy(REFLECT_PROTOCOLS, 0, all, 0, REFLECT_PROTOCOLS.length);
+		System.arraycopy(REFLECT_PACKAGES, 0, all, REFLECT_PROTOCOLS.length, REFLECT_PACKAGES.length);
+		System.arraycopy(SQL_KEYWORDS, 0, all, REFLECT_RULES, SQL_KEYWORDS.length);
+		this.keywords = new KeywordAutomaton(all);
+		this.sqlReplacements = new String[SQL_KEYWORDS.length];
+		for (int i = 0; i < SQL_KEYWORDS.length; i++) {
+			sqlReplacements[i] = "FORBIDDEN_" + SQL_KEYWORDS[i].toUpperCase().replace(' ', '_');
+		}
+	}
+
+	/**
+	 * 过滤（依次执行：特殊字符、XSS、反射攻击、SQL注入）
+	 *
+	 * @param input
+	 *            待过滤的字符串
+	 * @return NULL 或 过滤后的字符串（未命中任何规则时为去掉首尾空白后的原字符串）
+	 */
+	public String filter(String input) {
+		return filter(input, null);
+	}
+
+	/**
+	 * 过滤（依次执行：特殊字符、XSS、反射攻击、SQL注入）
+	 *
+	 * @param input
+	 *            待过滤的字符串
+	 * @param listener
+	 *            过滤监听器（可为空；某一类规则改变了字符串时回调）
+	 * @return NULL 或 过滤后的字符串（未命中任何规则时为去掉首尾空白后的原字符串）
+	 */
+	public String filter(String input, Listener listener) {
+		if (input == null) {
+			return null;
+		}
+		if ("".equals(input = input.trim())) {
+			return EMPTY_STRING;
+		}
+		if (isClean(input)) {
+			fastPathHits.increment();
+			return input;
+		}
+		fastPathMisses.increment();
+
+		final long scan = scan(input);
+		final int flags = (int) (scan >>> 56);
+		if (scan == 0) {
+			return input;
+		}
+
+		// 1. 特殊字符（只删除字符，不会产生新的特殊字符，因此可沿用首次扫描的字符标志）
+		String value = specialCharacter(input, flags);
+		notify(listener, SPECIAL_CHARACTER, input, value);
+
+		// 2. XSS
+		if (isBlank(value)) {
+			return EMPTY_STRING;
+		}
+		String before = value;
+		if ((flags & F_HTML) != 0) {
+			value = htmlFilter.filter(value);
+			notify(listener, XSS, before, value);
+		}
+
+		// 3. 反射攻击（字符串已改变时重新扫描关键字）
+		if (isBlank(value)) {
+			return EMPTY_STRING;
+		}
+		long found = value == input ? scan : keywords.scan(value);
+		if ((found & REFLECT_MASK) != 0) {
+			before = value;
+			value = reflect(value, found);
+			notify(listener, REFLECT, before, value);
+			found = value == before ? found : keywords.scan(value);
+		}
+
+		// 4. SQL注入
+		if (isBlank(value)) {
+			return EMPTY_STRING;
+		}
+		if ((found & SQL_MASK) != 0) {
+			before = value;
+			value = sqlInject(value, found);
+			notify(listener, SQL_INJECT, before, value);
+		}
+		return value;
+	}
+
+	/**
+	 * SQL注入过滤（仅执行SQL注入规则）
+	 *
+	 * @param input
+	 *            待过滤的字符串
+	 * @param listener
+	 *            过滤监听器（可为空）
+	 * @return NULL 或 过滤后的字符串（空白字符串返回空字符串）
+	 */
+	public String sqlInjectFilter(String input, Listener listener) {
+		if (input == null) {
+			return null;
+		}
+		if (isBlank(input)) {
+			return EMPTY_STRING;
+		}
+
+		long found = keywords.scan(input);
+		if ((found & SQL_MASK) == 0) {
+			return input;
+		}
+		String value = sqlInject(input, found);
+		notify(listener, SQL_INJECT, input, value);
+		return value;
+	}
+
+	/**
+	 * 预扫描（查位图，循环内无分配、无查表以外的分支）
+	 *
+	 * @param s
+	 *            字符串（不能为空）
+	 * @return true:不会命中任何规则 false:可能命中规则（需完整扫描）
+	 */
+	static boolean isClean(String s) {
+		final long lo = INTERESTING_LO;
+		final long hi = INTERESTING_HI;
+		long previous = 0;// 上一个字符是否为相邻时才可能命中规则的字符（0或1）
+		for (int i = 0, length = s.length(); i < length; i++) {
+			final char c = s.charAt(i);
+			if (c >= 128) {// 非ASCII字符不会命中任何规则
+				previous = 0;
+				continue;
+			}
+			if ((((c < 64 ? lo : hi) >>> c) & 1) != 0) {// 移位只取低6位
+				return false;
+			}
+			final long paired = c < 64 ? (PAIRED >>> c) & 1 : 0;
+			if ((paired & previous) != 0) {
+				return false;
+			}
+			previous = paired;
+		}
+		return true;
+	}
+
+	/** 预扫描命中次数（直接返回原字符串） */
+	public long getFastPathHits() {
+		return fastPathHits.sum();
+	}
+
+	/** 预扫描未命中次数（执行完整扫描） */
+	public long getFastPathMisses() {
+		return fastPathMisses.sum();
+	}
+
+	/** 预扫描命中率（0~1；尚未过滤时为0） */
+	public double getFastPathHitRatio() {
+		long hits = getFastPathHits();
+		long total = hits + getFastPathMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=SanitizerEngine, rules=").append(keywords.size()).append(", fastPathHits=")
+				.append(getFastPathHits()).append(", fastPathMisses=").append(getFastPathMisses())
+				.append(", fastPathHitRatio=").append(getFastPathHitRatio()).append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * 扫描（一次遍历）
+	 *
+	 * @return 高8位：字符标志；低位：出现过的关键字（规则序号）
+	 */
+	private long scan(String s) {
+		int flags = 0;
+		for (int i = 0, length = s.length(); i < length; i++) {
+			char c = s.charAt(i);
+			if (c < 128) {
+				flags |= CHAR_FLAGS[c];
+			}
+		}
+		return keywords.scan(s) | ((long) flags << 56);
+	}
+
+	/** 特殊字符过滤（规则顺序与原实现一致） */
+	private static String specialCharacter(String value, int flags) {
+		if ((flags & F_DELETE) != 0) {
+			value = deleteChars(value, "'\"%^~");// 引号、百分号、'^'、'~'
+		}
+		if ((flags & F_BACKSLASH) != 0) {
+			value = removeUnicodeEscapes(value);// Unicode字符：(?i)\\u[0-9a-z]{4}
+		}
+		if ((flags & F_DOT) != 0 && (flags & F_SLASH) != 0) {
+			value = removeSlashRuns(value, '.');// 路径：\/\.{1,}|\.{1,}/
+		}
+		if ((flags & F_HYPHEN) != 0) {
+			value = removeHyphenRuns(value);// "--"注释：-{2,}
+		}
+		if ((flags & F_STAR) != 0 && (flags & F_SLASH) != 0) {
+			value = removeSlashRuns(value, '*');// "/* */"注释：\/\*{1,}|\*{1,}\/
+		}
+		if ((flags & F_BACKSLASH) != 0) {
+			value = deleteChars(value, "\\");// '\'字符
+		}
+		if ((flags & F_DOLLAR) != 0 && value.contains("${")) {// "${}"标签
+			value = value.replace("${", "").replace("}", "");
+		}
+		return value;
+	}
+
+	/** 反射攻击过滤（仅执行出现过关键字的规则；字符串改变后重新扫描，保证与逐条执行一致） */
+	private String reflect(String value, long found) {
+		for (int rule = 0; rule < REFLECT_RULES; rule++) {
+			if ((found & (1L << rule)) == 0) {
+				continue;
+			}
+			String keyword = keywords.keyword(rule);
+			String result = rule < REFLECT_PROTOCOLS.length ? removeToLastSlashes(value, keyword)
+					: removeToLastDot(value, keyword);
+			if (result != value) {
+				value = result;
+				found = keywords.scan(value);
+			}
+		}
+		return value;
+	}
+
+	/** SQL注入过滤（仅执行出现过关键字的规则；字符串改变后重新扫描，保证与逐条执行一致） */
+	private String sqlInject(String value, long found) {
+		for (int i = 0; i < SQL_KEYWORDS.length; i++) {
+			final int rule = REFLECT_RULES + i;
+			if ((found & (1L << rule)) == 0) {
+				continue;
+			}
+			String result = replaceIgnoreCase(value, keywords.keyword(rule), sqlReplacements[i]);
+			if (result != value) {
+				value = result;
+				found = keywords.scan(value);
+			}
+		}
+		return value;
+	}
+
+	// ------ 以下方法未命中时返回原字符串 ------
+
+	/** 删除字符 */
+	static String deleteChars(String s, String chars) {
+		final int length = s.length();
+		int i = 0;
+		while (i < length && chars.indexOf(s.charAt(i)) < 0) {
+			i++;
+		}
+		if (i == length) {
+			return s;
+		}
+		StringBuilder builder = new StringBuilder(length);
+		builder.append(s, 0, i);
+		for (; i < length; i++) {
+			char c = s.charAt(i);
+			if (chars.indexOf(c) < 0) {
+				builder.append(c);
+			}
+		}
+		return builder.toString();
+	}
+
+	/** 删除Unicode转义：(?i)\\u[0-9a-z]{4} */
+	static String removeUnicodeEscapes(String s) {
+		final int length = s.length();
+		StringBuilder builder = null;
+		int copied = 0;
+		for (int i = s.indexOf('\\'); i >= 0 && i + 6 <= length; i = s.indexOf('\\', i)) {
+			char u = s.charAt(i + 1);
+			if ((u == 'u' || u == 'U') && isAsciiLetterOrDigit(s.charAt(i + 2))
+					&& isAsciiLetterOrDigit(s.charAt(i + 3)) && isAsciiLetterOrDigit(s.charAt(i + 4))
+					&& isAsciiLetterOrDigit(s.charAt(i + 5))) {
+				if (builder == null) {
+					builder = new StringBuilder(length);
+				}
+				builder.append(s, copied, i);
+				copied = i + 6;
+				i += 6;
+			} else {
+				i++;
+			}
+		}
+		return builder == null ? s : builder.append(s, copied, length).toString();
+	}
+
+	/**
+	 * 删除路径/注释：\/X{1,}|X{1,}\/（X为'.'或'*'）
+	 */
+	static String removeSlashRuns(String s, char x) {
+		final int length = s.length();
+		StringBuilder builder = null;
+		int copied = 0;
+		int i = 0;
+		while (i < length) {
+			char c = s.charAt(i);
+			int end = -1;
+			if (c == '/') {
+				if (i + 1 < length && s.charAt(i + 1) == x) {// "/X..."
+					end = i + 2;
+					while (end < length && s.charAt(end) == x) {
+						end++;
+					}
+				}
+			} else if (c == x) {
+				int j = i + 1;
+				while (j < length && s.charAt(j) == x) {
+					j++;
+				}
+				if (j < length && s.charAt(j) == '/') {// "X.../"
+					end = j + 1;
+				} else {
+					i = j;// 该段之后没有'/'，段内各位置均不匹配
+					continue;
+				}
+			}
+			if (end < 0) {
+				i++;
+				continue;
+			}
+			if (builder == null) {
+				builder = new StringBuilder(length);
+			}
+			builder.append(s, copied, i);
+			copied = end;
+			i = end;
+		}
+		return builder == null ? s : builder.append(s, copied, length).toString();
+	}
+
+	/** 删除连续的'-'：-{2,} */
+	static String removeHyphenRuns(String s) {
+		final int length = s.length();
+		StringBuilder builder = null;
+		int copied = 0;
+		for (int i = s.indexOf('-'); i >= 0; i = s.indexOf('-', i)) {
+			int j = i + 1;
+			while (j < length && s.charAt(j) == '-') {
+				j++;
+			}
+			if (j - i >= 2) {
+				if (builder == null) {
+					builder = new StringBuilder(length);
+				}
+				builder.append(s, copied, i);
+				copied = j;
+			}
+			i = j;
+		}
+		return builder == null ? s : builder.append(s, copied, length).toString();
+	}
+
+	/** 删除协议至本行最后一个"//"（即：(?i)keyword，任意字符，"//"；贪婪匹配） */
+	static String removeToLastSlashes(String s, String keyword) {
+		final int length = s.length();
+		StringBuilder builder = null;
+		int copied = 0;
+		int i = KeywordAutomaton.indexOfIgnoreCase(s, keyword, 0);
+		while (i >= 0) {
+			final int from = i + keyword.length();
+			int lineEnd = from;
+			while (lineEnd < length && !isLineTerminator(s.charAt(lineEnd))) {
+				lineEnd++;
+			}
+			int slashes = lineEnd - 2 < from ? -1 : s.lastIndexOf("//", lineEnd - 2);
+			if (slashes < from) {
+				i = KeywordAutomaton.indexOfIgnoreCase(s, keyword, i + 1);
+				continue;
+			}
+			if (builder == null) {
+				builder = new StringBuilder(length);
+			}
+			builder.append(s, copied, i);
+			copied = slashes + 2;
+			i = KeywordAutomaton.indexOfIgnoreCase(s, keyword, copied);
+		}
+		return builder == null ? s : builder.append(s, copied, length).toString();
+	}
+
+	/** 删除包名至本行最后一个'.'：(?i)keyword(.*\.)* */
+	static String removeToLastDot(String s, String keyword) {
+		final int length = s.length();
+		StringBuilder builder = null;
+		int copied = 0;
+		int i = KeywordAutomaton.indexOfIgnoreCase(s, keyword, 0);
+		while (i >= 0) {
+			int end = i + keyword.length();
+			for (int k = end; k < length; k++) {
+				char c = s.charAt(k);
+				if (isLineTerminator(c)) {
+					break;
+				}
+				if (c == '.') {
+					end = k + 1;
+				}
+			}
+			if (builder == null) {
+				builder = new StringBuilder(length);
+			}
+			builder.append(s, copied, i);
+			copied = end;
+			i = KeywordAutomaton.indexOfIgnoreCase(s, keyword, end);
+		}
+		return builder == null ? s : builder.append(s, copied, length).toString();
+	}
+
+	/** 替换关键字（忽略ASCII字母的大小写）：(?i)keyword */
+	static String replaceIgnoreCase(String s, String keyword, String replacement) {
+		int i = KeywordAutomaton.indexOfIgnoreCase(s, keyword, 0);
+		if (i < 0) {
+			return s;
+		}
+		StringBuilder builder = new StringBuilder(s.length() + replacement.length());
+		int copied = 0;
+		while (i >= 0) {
+			builder.append(s, copied, i).append(replacement);
+			copied = i + keyword.length();
+			i = KeywordAutomaton.indexOfIgnoreCase(s, keyword, copied);
+		}
+		return builder.append(s, copied, s.length()).toString();
+	}
+
+	/** 行结束符（正则表达式中'.'不匹配的字符） */
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	private static boolean isAsciiLetterOrDigit(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	/** 是否为空白字符串（与StringUtil.isBlank一致） */
+	private static boolean isBlank(String s) {
+		for (int i = 0, length = s.length(); i < length; i++) {
+			if (s.charAt(i) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void notify(Listener listener, int category, String input, String filtered) {
+		if (listener != null && input != filtered && !input.equals(filtered)) {
+			listener.onFiltered(category, input, filtered);
+		}
+	}
+
+	/**
+	 * 过滤监听器（用于记录疑似攻击）
+	 */
+	public interface Listener {
+
+		/**
+		 * 某一类规则改变了字符串
+		 *
+		 * @param category
+		 *            过滤类别（{@link SanitizerEngine#SPECIAL_CHARACTER}、{@link SanitizerEngine#XSS}、
+		 *            {@link SanitizerEngine#REFLECT}、{@link SanitizerEngine#SQL_INJECT}）
+		 * @param input
+		 *            该类规则的输入
+		 * @param filtered
+		 *            该类规则的输出
+		 */
+		void onFiltered(int category, String input, String filtered);
+
+	}
+
+}
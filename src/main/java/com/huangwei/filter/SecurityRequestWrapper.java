@@ -6,11 +6,18 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.servlet.ReadListener;
 import javax.servlet.ServletInputStream;
@@ -23,27 +30,51 @@ import org.slf4j.LoggerFactory;
 import com.huangwei.util.HttpUtil;
 import com.huangwei.util.JacksonUtil;
 import com.huangwei.util.StringUtil;
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
 
 /**
- * 安全请求包装器 - 防SQL注入及XSS
+ * 安全请求包装器 - 防SQL注入及XSS<br>
+ * <br>
+ * 说明：POST JSON请求的内容默认在构造时以阻塞方式读取并过滤；异步Servlet请使用非阻塞模式（见构造方法的nonBlocking参数），
+ * 请求内容在下游注册ReadListener后以非阻塞方式读取并增量过滤。<br>
+ * 疑似攻击按客户端IP计入{@link ClientGuard}（已启用时）；限流请在包装请求之前调用{@link ClientGuard#tryAcquire(HttpServletRequest)}。
  */
 public class SecurityRequestWrapper extends HttpServletRequestWrapper {
 	protected static final Logger logger = LoggerFactory.getLogger(SecurityRequestWrapper.class);
 
-	/** 最小缓冲区大小 */
-	private static final int MIN_BUFFER_SIZE = 32;
+	/** 默认的请求内容大小上限（字节） */
+	public static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024 * 2;
+	/** 默认的JSON嵌套层数上限 */
+	public static final int DEFAULT_MAX_DEPTH = 64;
+	/** JSON数值的整数位数上限（超出double的范围，与原先按double解析时一致：视为错误） */
+	private static final int MAX_NUMBER_INTEGER_DIGITS = 309;
+	/** JSON数值的小数位数上限（防止按普通格式输出极小的数值时生成超长字符串） */
+	private static final int MAX_NUMBER_SCALE = 1024;
 	/** 默认缓冲区大小 */
-//	private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
+	private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
+	/** 复用的缓冲区（每个线程一个；超过该容量时不再复用） */
+	private static final int BUFFER_LIMIT = 1024 * 64;
+	private static final ThreadLocal<Buffer> inputBuffers = ThreadLocal.withInitial(Buffer::new);
+	private static final ThreadLocal<Buffer> outputBuffers = ThreadLocal.withInitial(Buffer::new);
+	/** 过滤过的请求参数值的数量（所有请求） */
+	private static final LongAdder sanitizedValues = new LongAdder();
+	/** 被过滤改变的请求参数值的数量（所有请求） */
+	private static final LongAdder modifiedValues = new LongAdder();
+	/** JSON工厂（线程安全，全局共享；BigDecimal按普通格式输出） */
+	private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+			.enable(StreamWriteFeature.WRITE_BIGDECIMAL_AS_PLAIN).build();
 	private static final String CONTENT_TYPE = "Content-Type";
 	private static final String APPLICATION_JSON = "application/json";
-	/** 空字符串 */
-	private static final String EMPTY_STRING = "";
 	/** HTML过滤 */
 	private static final HtmlFilter HTML_FILTER = new HtmlFilter();
+	/** 过滤引擎（规则集预先编译，单遍扫描） */
+	private static final SanitizerEngine SANITIZER = new SanitizerEngine(HTML_FILTER);
 
 	/** 原始HttpRequest（未被包装的HttpRequest，适用于需要自行处理的特殊场景） */
 	private HttpServletRequest originalRequest;
@@ -51,8 +82,24 @@ public class SecurityRequestWrapper extends HttpServletRequestWrapper {
 	private String requestCharset;
 	/** (当前请求)是否为POST方法提交的JSON请求 */
 	private boolean isPostJsonRequest = false;
-	/** (POST方法)请求内容 */
-	private final byte[] body;
+	/** 请求内容大小上限（字节） */
+	private final int maxBodySize;
+	/** JSON嵌套层数上限 */
+	private final int maxDepth;
+	/** (POST方法)请求内容（为空：非阻塞模式，尚未读取完毕） */
+	private volatile byte[] body;
+	/** (非阻塞模式)请求内容输入流（首次调用getInputStream()时创建） */
+	private NonBlockingBody nonBlockingBody;
+	/** 过滤监听器（记录疑似攻击） */
+	private final SanitizerEngine.Listener listener = this::onFiltered;
+	/** 过滤后的请求参数（参数名 -&gt; 过滤后的参数值；按需过滤，每个参数只过滤一次） */
+	private final Map<String, String[]> sanitizedParameters = new HashMap<String, String[]>();
+	/** 过滤后的请求参数Map（不可修改；首次调用getParameterMap()时生成） */
+	private Map<String, String[]> sanitizedParameterMap;
+	/** 本次请求中被过滤改变的请求参数值的数量 */
+	private int modifiedCount;
+	/** 客户端真实IP（首次记录疑似攻击时获取） */
+	private String realIp;
 
 	/**
 	 * 安全请求包装器 - 防SQL注入及XSS
@@ -63,11 +110,54 @@ public class SecurityRequestWrapper extends HttpServletRequestWrapper {
 	 *             参数错误
 	 */
 	public SecurityRequestWrapper(HttpServletRequest request) {
+		this(request, DEFAULT_MAX_BODY_SIZE, DEFAULT_MAX_DEPTH);
+	}
+
+	/**
+	 * 安全请求包装器 - 防SQL注入及XSS
+	 * 
+	 * @param request
+	 *            请求（不能为空）
+	 * @param maxBodySize
+	 *            (POST JSON)请求内容大小上限（字节；超出时请求内容置为空）
+	 * @param maxDepth
+	 *            JSON嵌套层数上限（超出时请求内容置为空）
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	public SecurityRequestWrapper(HttpServletRequest request, int maxBodySize, int maxDepth) {
+		this(request, maxBodySize, maxDepth, false);
+	}
+
+	/**
+	 * 安全请求包装器 - 防SQL注入及XSS
+	 * 
+	 * @param request
+	 *            请求（不能为空）
+	 * @param maxBodySize
+	 *            (POST JSON)请求内容大小上限（字节；超出时请求内容置为空）
+	 * @param maxDepth
+	 *            JSON嵌套层数上限（超出时请求内容置为空）
+	 * @param nonBlocking
+	 *            是否为非阻塞模式（Servlet 3.1 非阻塞IO；true：构造时不读取请求内容，下游调用ServletInputStream.setReadListener()后
+	 *            以非阻塞方式读取并增量过滤，过滤完成后再通知下游；未设置ReadListener时，首次读取按阻塞方式读取）
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	public SecurityRequestWrapper(HttpServletRequest request, int maxBodySize, int maxDepth, boolean nonBlocking) {
 		super(request);
+		if (maxBodySize < 1) {
+			throw new IllegalArgumentException("请求内容大小上限必须大于0！");
+		}
+		if (maxDepth < 1) {
+			throw new IllegalArgumentException("JSON嵌套层数上限必须大于0！");
+		}
+		this.maxBodySize = maxBodySize;
+		this.maxDepth = maxDepth;
 		this.requestCharset = StringUtil.ifEmpty(request.getCharacterEncoding(), StandardCharsets.UTF_8.name());
 		this.isPostJsonRequest = isPostJsonRequest(request);
 		if (isPostJsonRequest) {
-			this.body = readBody(request);
+			this.body = nonBlocking ? null : readBody(request);
 		} else {
 			this.body = new byte[0];
 		}
@@ -98,7 +188,7 @@ public class SecurityRequestWrapper extends HttpServletRequestWrapper {
 	}
 
 	/**
-	 * 读取请求内容
+	 * 读取并过滤请求内容
 	 * 
 	 * @param request
 	 *            请求（不能为空）
@@ -110,68 +200,170 @@ public class SecurityRequestWrapper extends HttpServletRequestWrapper {
 		}
 
 		final int contentLength = request.getContentLength();
-		String value = null;
+		final Charset charset = charset();
+		final Buffer input = Buffer.acquire(inputBuffers);
+		final Buffer output = Buffer.acquire(outputBuffers);
 		try {
-			value = toString(request.getInputStream(), requestCharset, contentLength);
-			final String filtered = filterJson(value);
-			logger.debug("[读取请求内容]uri:" + request.getRequestURI() + " requestCharset:" + requestCharset
-					+ " contentLength:" + contentLength + " value:" + value + " filtered:" + filtered);
-			return filtered.getBytes(requestCharset);
+			if (contentLength > maxBodySize) {
+				throw new IOException("请求内容超过上限！maxBodySize:" + maxBodySize);
+			}
+			input.readFrom(request.getInputStream(), maxBodySize);
+			filterBody(input, output, charset);
+			final byte[] filtered = output.toByteArray();
+			if (logger.isDebugEnabled()) {
+				logger.debug("[读取请求内容]uri:" + request.getRequestURI() + " requestCharset:" + requestCharset
+						+ " contentLength:" + contentLength + " value:" + input.decode(charset) + " filtered:"
+						+ new String(filtered, charset));
+			}
+			return filtered;
 		} catch (Exception e) {
 			logger.error("[读取请求内容]出错！uri:" + request.getRequestURI() + " requestCharset:" + requestCharset
 					+ " contentLength:" + contentLength + " remoteIp:" + getRemoteAddr() + " realIp:"
-					+ HttpUtil.getRealIp(originalRequest) + " value:" + value + " error:" + e.getMessage(), e);
+					+ HttpUtil.getRealIp(originalRequest) + " value:" + input.decode(charset) + " error:"
+					+ e.getMessage(), e);
 			return new byte[0];
+		} finally {
+			Buffer.release(inputBuffers, input);
+			Buffer.release(outputBuffers, output);
 		}
 	}
 
 	@Override
 	public String getParameter(String name) {
 		final String value = super.getParameter(name);
-		String filtered = value;
-		if (StringUtil.isNotBlank(filtered)) {
-			filtered = filter(filtered);
+		if (StringUtil.isBlank(value)) {
+			return value;
+		}
+		final String filtered = sanitizedValues(name)[0];
+		if (logger.isDebugEnabled()) {
+			logger.debug("[请求过滤-Parameter]uri:" + getRequestURI() + " name:" + name + " value:" + value
+					+ " filtered:" + filtered);
 		}
-		logger.debug("[请求过滤-Parameter]uri:" + getRequestURI() + " name:" + name + " value:" + value + " filtered:"
-				+ filtered);
 		return filtered;
 	}
 
+	/** 过滤后的参数值（每次返回新数组，调用方修改不影响其它调用） */
 	@Override
 	public String[] getParameterValues(String name) {
-		final String[] values = super.getParameterValues(name);
-		String[] filtered = values;
-		if (filtered != null && filtered.length > 0) {
-			for (int i = 0; i < filtered.length; i++) {
-				filtered[i] = filter(filtered[i]);
-			}
+		final String[] filtered = copy(sanitizedValues(name));
+		if (logger.isDebugEnabled()) {
+			logger.debug("[请求过滤-ParameterValues]uri:" + getRequestURI() + " name:" + name + " values:"
+					+ JacksonUtil.toString(super.getParameterValues(name)) + " filtered:"
+					+ JacksonUtil.toString(filtered));
 		}
-		logger.debug("[请求过滤-ParameterValues]uri:" + getRequestURI() + " name:" + name + " values:"
-				+ JacksonUtil.toString(values) + " filtered:" + JacksonUtil.toString(filtered));
 		return filtered;
 	}
 
+	/**
+	 * 过滤后的参数Map（不可修改；首次调用时生成，之后返回同一实例）<br>
+	 * 注意：与Servlet容器的实现一致，Map中的数组在多次调用间共享，请勿修改；
+	 * Map中的数组是缓存的副本，即使被修改也不影响getParameter()及getParameterValues()的结果。
+	 */
 	@Override
 	public Map<String, String[]> getParameterMap() {
+		if (sanitizedParameterMap != null) {
+			return sanitizedParameterMap;
+		}
+
 		final Map<String, String[]> parameterMap = super.getParameterMap();
-		Map<String, String[]> filtered = null;
+		Map<String, String[]> filtered = Collections.emptyMap();
 		if (parameterMap != null && parameterMap.size() > 0) {
-			filtered = new LinkedHashMap<String, String[]>(parameterMap.size());
+			filtered = new LinkedHashMap<String, String[]>(parameterMap.size() * 4 / 3 + 1);
 			for (String key : parameterMap.keySet()) {
-				String[] values = parameterMap.get(key);
-				if (values != null && values.length > 0) {
-					for (int i = 0; i < values.length; i++) {
-						values[i] = filter(values[i]);
-					}
+				filtered.put(filter(key), copy(sanitizedValues(key, parameterMap.get(key))));
+			}
+			filtered = Collections.unmodifiableMap(filtered);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("[请求过滤-ParameterMap]uri:" + getRequestURI() + " parameterMap:"
+					+ JacksonUtil.toString(parameterMap) + " filtered:" + JacksonUtil.toString(filtered));
+		}
+		sanitizedParameterMap = filtered;
+		return filtered;
+	}
+
+	/** 复制参数值（缓存的数组不对外暴露） */
+	private static String[] copy(String[] values) {
+		return values == null ? null : values.clone();
+	}
+
+	/**
+	 * 获取过滤后的参数值（每个参数只过滤一次）
+	 * 
+	 * @param name
+	 *            参数名
+	 * @return NULL 或 过滤后的参数值（缓存的数组，不能修改、不能对外返回）
+	 */
+	private String[] sanitizedValues(String name) {
+		if (sanitizedParameters.containsKey(name)) {
+			return sanitizedParameters.get(name);
+		}
+		return sanitizedValues(name, super.getParameterValues(name));
+	}
+
+	/**
+	 * 获取过滤后的参数值（每个参数只过滤一次）
+	 * 
+	 * @param name
+	 *            参数名
+	 * @param values
+	 *            原始参数值
+	 * @return NULL 或 过滤后的参数值（新数组，不修改原始参数值）
+	 */
+	private String[] sanitizedValues(String name, String[] values) {
+		if (sanitizedParameters.containsKey(name)) {
+			return sanitizedParameters.get(name);
+		}
+		String[] filtered = values;
+		if (values != null && values.length > 0) {
+			filtered = new String[values.length];
+			int modified = 0;
+			for (int i = 0; i < values.length; i++) {
+				filtered[i] = filter(values[i]);
+				if (!Objects.equals(values[i], filtered[i])) {
+					modified++;
 				}
-				filtered.put(filter(key), values);
+			}
+			sanitizedValues.add(values.length);
+			if (modified > 0) {
+				modifiedValues.add(modified);
+				modifiedCount += modified;
 			}
 		}
-		logger.debug("[请求过滤-ParameterMap]uri:" + getRequestURI() + " parameterMap:" + JacksonUtil.toString(parameterMap)
-				+ " filtered:" + JacksonUtil.toString(filtered));
+		sanitizedParameters.put(name, filtered);
 		return filtered;
 	}
 
+	/** 本次请求中被过滤改变的请求参数值的数量 */
+	public int getModifiedCount() {
+		return modifiedCount;
+	}
+
+	/** 过滤过的请求参数值的数量（所有请求） */
+	public static long getSanitizedValues() {
+		return sanitizedValues.sum();
+	}
+
+	/** 被过滤改变的请求参数值的数量（所有请求） */
+	public static long getModifiedValues() {
+		return modifiedValues.sum();
+	}
+
+	/** 过滤预扫描的命中率（0~1；所有请求；命中时直接返回原字符串） */
+	public static double getFastPathHitRatio() {
+		return SANITIZER.getFastPathHitRatio();
+	}
+
+	/** 统计信息 */
+	public static String stats() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=SecurityRequestWrapper, sanitizedValues=").append(getSanitizedValues())
+				.append(", modifiedValues=").append(getModifiedValues()).append(", fastPathHits=")
+				.append(SANITIZER.getFastPathHits()).append(", fastPathMisses=").append(SANITIZER.getFastPathMisses())
+				.append(", fastPathHitRatio=").append(getFastPathHitRatio()).append("]");
+		return builder.toString();
+	}
+
 //	@Override
 //	public String getHeader(String name) {
 //		final String value = super.getHeader(name);
@@ -194,6 +386,13 @@ public class SecurityRequestWrapper extends HttpServletRequestWrapper {
 		if (!isPostJsonRequest) {
 			return super.getInputStream();
 		}
+		final byte[] body = this.body;
+		if (body == null) {// 非阻塞模式：尚未读取完毕
+			if (nonBlockingBody == null) {
+				nonBlockingBody = new NonBlockingBody(super.getInputStream());
+			}
+			return nonBlockingBody;
+		}
 
 		final ByteArrayInputStream bais = new ByteArrayInputStream(body);
 		return new ServletInputStream() {
@@ -236,7 +435,8 @@ public class SecurityRequestWrapper extends HttpServletRequestWrapper {
 		if (!isPostJsonRequest) {
 			return super.getContentLength();
 		} else {
-			return body.length;
+			final byte[] body = this.body;
+			return body == null ? -1 : body.length;// 非阻塞模式下读取完毕前长度未知
 		}
 	}
 
@@ -245,265 +445,182 @@ public class SecurityRequestWrapper extends HttpServletRequestWrapper {
 		if (!isPostJsonRequest) {
 			return super.getContentLengthLong();
 		} else {
-			return body.length;
+			final byte[] body = this.body;
+			return body == null ? -1 : body.length;
 		}
 	}
 
 	// ------ 请重写以上两个方法以避免出现“Content-length different from byte array length!”异常！ ------
 
 	/**
-	 * 过滤
+	 * 过滤（特殊字符、XSS、反射攻击、SQL注入）
 	 * 
 	 * @param input
 	 *            待过滤的字符串
 	 * @return NULL 或 过滤后的字符串
 	 */
 	private String filter(String input) {
-		if (input == null) {
-			return null;
-		}
-		if ("".equals(input = input.trim())) {
-			return EMPTY_STRING;
-		}
-
-		String value = input;
-		value = specialCharacterFilter(value);
-		value = xssFilter(value);
-		value = reflectFilter(value);
-		value = sqlInjectFilter(value);
-		return value;
+		return SANITIZER.filter(input, listener);
 	}
 
 	/**
-	 * 特殊字符过滤
+	 * SQL注入过滤
 	 * 
 	 * @param input
 	 *            待过滤的字符串
 	 * @return NULL 或 过滤后的字符串
 	 */
-	private String specialCharacterFilter(final String input) {
-		if (input == null) {
-			return null;
-		}
-		if (StringUtil.isBlank(input)) {
-			return EMPTY_STRING;
-		}
-
-		String value = input;
-		value = value.replace("'", "");// 单引号
-		value = value.replace("\"", "");// 双引号
-		// value = value.replace(";", "");// 分号（业务中用到了英文分号，不过滤）
-		value = value.replace("%", "");// 百分号
-		value = value.replace("^", "");// '^'字符
-		value = value.replace("~", "");// '~'字符
-		value = value.replaceAll("(?i)\\\\u[0-9a-z]{4}", "");// Unicode字符
-		value = value.replaceAll("\\/\\.{1,}|\\.{1,}/", "");// 路径
-		value = value.replaceAll("-{2,}", "");// "--"注释
-		value = value.replaceAll("\\/\\*{1,}|\\*{1,}\\/", "");// "/* */"注释
-		// value = value.replaceAll("\\.{2,}", "");// 多个'.'（影响英文省略号的使用，不过滤）
-		value = value.replace("\\", "");// '\'字符
-		// value = value.replace("/", "");// '/'字符（影响类似“URL地址”的参数的使用，不过滤）
-		if (value.contains("${")) {// "${}"标签
-			value = value.replace("${", "").replace("}", "");
-		}
-		if (logger.isWarnEnabled() && !input.equals(value)) {
-			logger.warn("[请求过滤]请求参数含有特殊字符！uri:" + getRequestURI() + " remoteIp:" + getRemoteAddr() + " realIp:"
-					+ HttpUtil.getRealIp(originalRequest) + " input:" + input + " filtered:" + value);
-		}
-		return value;
+	public String sqlInjectFilter(final String input) {
+		return SANITIZER.sqlInjectFilter(input, listener);
 	}
 
 	/**
-	 * XSS攻击过滤
+	 * 记录疑似攻击（某一类规则改变了请求参数）
 	 * 
+	 * @param category
+	 *            过滤类别
 	 * @param input
-	 *            待过滤的字符串
-	 * @return NULL 或 过滤后的字符串
+	 *            该类规则的输入
+	 * @param filtered
+	 *            该类规则的输出
 	 */
-	private String xssFilter(final String input) {
-		if (input == null) {
-			return null;
+	private void onFiltered(int category, String input, String filtered) {
+		if (ClientGuard.isEnabled()) {
+			ClientGuard.recordViolation(getRealIp(), category);
 		}
-		if (StringUtil.isBlank(input)) {
-			return EMPTY_STRING;
+		if (!logger.isWarnEnabled()) {
+			return;
 		}
-
-		String value = HTML_FILTER.filter(input);
-		if (logger.isWarnEnabled() && !input.equals(value)) {
-			logger.warn("[请求过滤]疑似XSS攻击！uri:" + getRequestURI() + " remoteIp:" + getRemoteAddr() + " realIp:"
-					+ HttpUtil.getRealIp(originalRequest) + " input:" + input + " filtered:" + value);
+		final String message;
+		switch (category) {
+		case SanitizerEngine.SPECIAL_CHARACTER:
+			message = "请求参数含有特殊字符！";
+			break;
+		case SanitizerEngine.XSS:
+			message = "疑似XSS攻击！";
+			break;
+		case SanitizerEngine.REFLECT:
+			message = "疑似反射攻击！";
+			break;
+		default:
+			message = "疑似SQL注入攻击！";
+			break;
 		}
-		return value;
+		logger.warn("[请求过滤]" + message + "uri:" + getRequestURI() + " remoteIp:" + getRemoteAddr() + " realIp:"
+				+ getRealIp() + " input:" + input + " filtered:" + filtered);
 	}
 
-	/**
-	 * 反射攻击过滤
-	 * 
-	 * @param input
-	 *            待过滤的字符串
-	 * @return NULL 或 过滤后的字符串
-	 */
-	private String reflectFilter(final String input) {
-		if (input == null) {
-			return null;
+	/** 客户端真实IP（每个请求只解析一次） */
+	private String getRealIp() {
+		if (realIp == null) {
+			realIp = HttpUtil.getRealIp(originalRequest != null ? originalRequest : (HttpServletRequest) getRequest());
 		}
-		if (StringUtil.isBlank(input)) {
-			return EMPTY_STRING;
-		}
-
-		String value = input;
-		value = value.replaceAll("(?i)jndi:.*//", "");// JNDI
-		value = value.replaceAll("(?i)jdbc:.*//", "");// JDBC
-		value = value.replaceAll("(?i)java\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)javax\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)javassist\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)com\\.sun\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)com\\.mysql\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)com\\.github\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)com\\.google\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)com\\.oracle\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)com\\.alibaba\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)com\\.netflix\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)com\\.facebook\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)com\\.fasterxml\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)com\\.microsoft\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)dm\\.jdbc\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)net\\.sf\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)net\\.bytebuddy\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.w3c\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.jdom\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.json\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.dom4j\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.jboss\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.junit\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.slf4j\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.apache\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.sqlite\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.mariadb\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.hibernate\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.objectweb\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.postgresql\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.bouncycastle\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)org\\.springframework\\.(.*\\.)*", "");
-		value = value.replaceAll("(?i)oracle\\.jdbc\\.(.*\\.)*", "");
-		if (logger.isWarnEnabled() && !input.equals(value)) {
-			logger.warn("[请求过滤]疑似反射攻击！uri:" + getRequestURI() + " remoteIp:" + getRemoteAddr() + " realIp:"
-					+ HttpUtil.getRealIp(originalRequest) + " input:" + input + " filtered:" + value);
-		}
-		return value;
+		return realIp;
 	}
 
-	/**
-	 * SQL注入过滤
-	 * 
-	 * @param input
-	 *            待过滤的字符串
-	 * @return NULL 或 过滤后的字符串
-	 */
-	public String sqlInjectFilter(final String input) {
-		if (input == null) {
-			return null;
-		}
-		if (StringUtil.isBlank(input)) {
-			return EMPTY_STRING;
-		}
-
-		String value = input;
-		value = value.replaceAll("(?i)master", "FORBIDDEN_MASTER");
-		value = value.replaceAll("(?i)declare", "FORBIDDEN_DECLARE");
-		value = value.replaceAll("(?i)create", "FORBIDDEN_CREATE");
-		value = value.replaceAll("(?i)alter", "FORBIDDEN_ALTER");
-		value = value.replaceAll("(?i)drop", "FORBIDDEN_DROP");
-		value = value.replaceAll("(?i)truncate", "FORBIDDEN_TRUNCATE");
-		value = value.replaceAll("(?i)select", "FORBIDDEN_SELECT");
-		value = value.replaceAll("(?i)insert", "FORBIDDEN_INSERT");
-		value = value.replaceAll("(?i)update", "FORBIDDEN_UPDATE");
-		value = value.replaceAll("(?i)delete", "FORBIDDEN_DELETE");
-//		value = value.replaceAll("(?i)and", "FORBIDDEN_AND");
-//		value = value.replaceAll("(?i)or", "FORBIDDEN_OR");
-//		value = value.replaceAll("(?i)union", "FORBIDDEN_UNION");
-		value = value.replaceAll("(?i)union all", "FORBIDDEN_UNION_ALL");
-		if (logger.isWarnEnabled() && !input.equals(value)) {
-			logger.warn("[请求过滤]疑似SQL注入攻击！uri:" + getRequestURI() + " remoteIp:" + getRemoteAddr() + " realIp:"
-					+ HttpUtil.getRealIp(originalRequest) + " input:" + input + " filtered:" + value);
-		}
-		return value;
+	/** 请求使用的字符集（不支持时使用UTF-8） */
+	private Charset charset() {
+		return Charset.isSupported(requestCharset) ? Charset.forName(requestCharset) : StandardCharsets.UTF_8;
 	}
 
 	/**
-	 * 过滤JSON字符串
+	 * 过滤请求内容<br>
+	 * 1. 以"{"或"["开头：按JSON流式过滤（只过滤字符串值，不过滤字段名；只处理第一个根节点）；<br>
+	 * 2. 其它：去掉换行符后按普通字符串过滤。
 	 * 
 	 * @param input
-	 *            待过滤的JSON字符串
-	 * @return 过滤后的JSON字符串（非NULL）
+	 *            请求内容（不能为空）
+	 * @param output
+	 *            过滤后的请求内容（不能为空）
+	 * @param charset
+	 *            字符集（不能为空）
 	 * @throws IOException
-	 *             IO异常
+	 *             IO异常 或 JSON格式错误 或 超出上限
 	 */
-	private String filterJson(String input) throws IOException {
-		if (input == null || "".equals(input = input.trim())) {
-			return EMPTY_STRING;
-		}
-		if (input.startsWith("{") || input.startsWith("[")) {
-			JsonNode node = new ObjectMapper().readTree(input);
-			JsonFactory factory = new JsonFactory();
-			factory.configure(JsonGenerator.Feature.WRITE_BIGDECIMAL_AS_PLAIN, true);
-			ByteArrayOutputStream output = new ByteArrayOutputStream(1024 * 4);
-			try (JsonGenerator generator = factory.createGenerator(output)) {
-				loopJson(node, generator);
-			}
-			String filtered = output.toString(requestCharset);
-			output.close();
-			return filtered;
+	private void filterBody(Buffer input, Buffer output, Charset charset) throws IOException {
+		final boolean utf8 = StandardCharsets.UTF_8.equals(charset);
+		final String text = utf8 ? null : input.decode(charset);
+		final int first = utf8 ? input.firstNonBlank() : firstNonBlank(text);
+		if (first < 0) {
+			return;
+		}
+		if (first != '{' && first != '[') {
+			String value = text != null ? text : input.decode(charset);
+			value = filter(value.replace("\r", "").replace("\n", ""));// 与按行读取后拼接一致
+			output.write(value.getBytes(charset));
+			return;
+		}
+
+		if (utf8) {// 直接解析及生成UTF-8字节，不产生中间字符串
+			try (JsonParser parser = JSON_FACTORY.createParser(input.array(), 0, input.size());
+					JsonGenerator generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+				filterJson(parser, generator, 0);
+			}
 		} else {
-			return filter(input);
+			try (JsonParser parser = JSON_FACTORY.createParser(text);
+					JsonGenerator generator = JSON_FACTORY.createGenerator(new OutputStreamWriter(output, charset))) {
+				filterJson(parser, generator, 0);
+			}
 		}
 	}
 
 	/**
-	 * 遍历并过滤JSON节点
+	 * 流式过滤JSON（逐个复制词法单元，只过滤字符串值；非阻塞解析器的数据不足时返回，数据到达后可继续）
 	 * 
-	 * @param node
-	 *            JSON节点（不能为空）
+	 * @param parser
+	 *            JSON解析器（不能为空）
 	 * @param generator
 	 *            JSON生成器（不能为空）
+	 * @param depth
+	 *            当前嵌套层数（首次调用时为0）
+	 * @return -1:第一个根节点已结束 其它:当前嵌套层数（数据不足 或 内容已结束但根节点不完整）
 	 * @throws IOException
-	 *             IO异常
+	 *             IO异常 或 JSON格式错误 或 超出上限
 	 */
-	private void loopJson(JsonNode node, JsonGenerator generator) throws IOException {
-		if (node == null || generator == null) {
-			throw new IllegalArgumentException("参数不能为空！");
-		}
-		if (node.isValueNode()) {
-			if (node.isNull()) {
-				generator.writeNull();
-			} else if (node.isNumber()) {
-				generator.writeNumber(node.decimalValue());
-			} else if (node.isBoolean()) {
-				generator.writeBoolean(node.booleanValue());
-			} else if (node.isBinary()) {
-				generator.writeBinary(node.binaryValue());
-			} else if (node.isTextual()) {
-				generator.writeString(filter(node.textValue()));
-			} else {
-				generator.writeString(filter(node.toString()));
-			}
-		} else if (node.isObject()) {
-			generator.writeStartObject();
-			Iterator<Map.Entry<String, JsonNode>> it = node.fields();
-			while (it.hasNext()) {
-				Map.Entry<String, JsonNode> e = it.next();
-				generator.writeFieldName(e.getKey());
-				loopJson(e.getValue(), generator);
+	private int filterJson(JsonParser parser, JsonGenerator generator, int depth) throws IOException {
+		JsonToken token;
+		while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+			switch (token) {
+			case START_OBJECT:
+			case START_ARRAY:
+				if (++depth > maxDepth) {
+					throw new IOException("JSON嵌套层数超过上限！maxDepth:" + maxDepth);
+				}
+				generator.copyCurrentEvent(parser);
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				generator.copyCurrentEvent(parser);
+				if (--depth == 0) {
+					return -1;// 只处理第一个根节点，忽略其后的内容
+				}
+				break;
+			case VALUE_STRING:
+				generator.writeString(filter(parser.getText()));
+				break;
+			case VALUE_NUMBER_FLOAT:
+				BigDecimal number = parser.getDecimalValue();// 按原文精度输出，不经过double
+				if (number.precision() - number.scale() > MAX_NUMBER_INTEGER_DIGITS || number.scale() > MAX_NUMBER_SCALE) {
+					throw new IOException("JSON数值超出范围！value:" + parser.getText());
+				}
+				generator.writeNumber(number);
+				break;
+			default:// 字段名、整数、布尔值、null
+				generator.copyCurrentEvent(parser);
+				break;
 			}
-			generator.writeEndObject();
-		} else if (node.isArray()) {
-			generator.writeStartArray();
-			Iterator<JsonNode> it = node.iterator();
-			while (it.hasNext()) {
-				loopJson(it.next(), generator);
+		}
+		return depth;
+	}
+
+	/** 第一个非空白字符（与String.trim()一致：小于等于' '的字符均视为空白；-1：全部为空白） */
+	private static int firstNonBlank(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) > ' ') {
+				return s.charAt(i);
 			}
-			generator.writeEndArray();
 		}
+		return -1;
 	}
 
 	/**
@@ -533,47 +650,410 @@ public class SecurityRequestWrapper extends HttpServletRequestWrapper {
 	}
 
 	/**
-	 * 输入流 -> 字符串
-	 * 
-	 * @param input
-	 *            输入流（不能为空）
-	 * @param charsetName
-	 *            字符集名称
-	 * @param contentLength
-	 *            内容长度
-	 * @return NULL 或 内容
-	 * @throws IOException
-	 *             IO异常
+	 * 非阻塞读取的请求内容（Servlet 3.1 非阻塞IO）<br>
+	 * 1. 下游调用setReadListener()时向原始输入流注册监听器，数据到达时读取（不占用容器线程等待慢速客户端）；<br>
+	 * 2. UTF-8编码的JSON随数据到达增量过滤（非阻塞JSON解析器）；其它内容读取完毕后再过滤；<br>
+	 * 3. 过滤完成前isReady()返回false，完成后依次通知下游onDataAvailable()、onAllDataRead()；<br>
+	 * 4. onAllDataRead()（或onError()）只通知一次：下游在onDataAvailable()之外（如其它线程）读取完毕时同样会通知；<br>
+	 * 5. 回调在容器线程（原始输入流的回调）或{@link javax.servlet.AsyncContext#start(Runnable)}的线程中执行，
+	 * 不在setReadListener()、read()的调用线程中执行；<br>
+	 * 6. 出错时与阻塞模式一致：记录日志，请求内容置为空；原始输入流的错误转交下游onError()；<br>
+	 * 7. 未设置ReadListener时，首次读取按阻塞方式读取全部请求内容（与阻塞模式一致）。
 	 */
-	private static String toString(InputStream input, String charsetName, int contentLength) throws IOException {
-		if (input == null) {
-			return null;
+	private final class NonBlockingBody extends ServletInputStream implements ReadListener {
+
+		/** 模式 - 尚未读到非空白字节 */
+		private static final int MODE_UNKNOWN = 0;
+		/** 模式 - 缓存全部内容，读取完毕后再过滤（非JSON 或 非UTF-8） */
+		private static final int MODE_BUFFER = 1;
+		/** 模式 - 增量过滤JSON */
+		private static final int MODE_JSON = 2;
+		/** 模式 - 第一个根节点已结束，忽略其后的内容 */
+		private static final int MODE_DRAIN = 3;
+
+		/** 原始输入流 */
+		private final ServletInputStream source;
+		/** 字符集 */
+		private final Charset charset = charset();
+		/** 读取缓冲区 */
+		private final byte[] chunk = new byte[DEFAULT_BUFFER_SIZE];
+		/** 过滤后的请求内容 */
+		private final Buffer output = new Buffer();
+		/** 原始请求内容（MODE_UNKNOWN、MODE_BUFFER） */
+		private Buffer raw = new Buffer();
+		/** 模式 */
+		private int mode;
+		/** 已读取的字节数 */
+		private long total;
+		/** JSON解析器（非阻塞）、数据输入及JSON生成器（MODE_JSON） */
+		private JsonParser parser;
+		private ByteArrayFeeder feeder;
+		private JsonGenerator generator;
+		/** JSON当前嵌套层数 */
+		private int depth;
+		/** 是否已结束（完成 或 出错） */
+		private boolean completed;
+		/** 下游监听器 */
+		private volatile ReadListener readListener;
+		/** 是否正在通知下游（通知期间读取完毕时由通知方补发onAllDataRead()） */
+		private volatile boolean delivering;
+		/** 是否已通知下游onAllDataRead()或onError()（只通知一次） */
+		private final AtomicBoolean notified = new AtomicBoolean();
+		/** 过滤后的请求内容（为空：尚未完成） */
+		private volatile ByteArrayInputStream filtered;
+
+		NonBlockingBody(ServletInputStream source) {
+			this.source = source;
+			this.mode = StandardCharsets.UTF_8.equals(charset) ? MODE_UNKNOWN : MODE_BUFFER;
+		}
+
+		@Override
+		public boolean isReady() {
+			return filtered != null;
 		}
-		if (charsetName == null || "".equals(charsetName = charsetName.trim()) || !Charset.isSupported(charsetName)) {
-			charsetName = StandardCharsets.UTF_8.name();
+
+		@Override
+		public boolean isFinished() {
+			final ByteArrayInputStream in = filtered;
+			return in != null && in.available() < 1;
 		}
-		if (contentLength < MIN_BUFFER_SIZE) {
-			contentLength = MIN_BUFFER_SIZE;
+
+		@Override
+		public int available() throws IOException {
+			final ByteArrayInputStream in = filtered;
+			return in == null ? 0 : in.available();
 		}
 
-		// 方案一
-		try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, charsetName))) {
-			StringBuilder sb = new StringBuilder();
-			String line;
-			while ((line = reader.readLine()) != null) {
-				sb.append(line);
+		@Override
+		public void setReadListener(ReadListener listener) {
+			if (listener == null) {
+				throw new NullPointerException("ReadListener不能为空！");
+			}
+			if (readListener != null) {
+				throw new IllegalStateException("ReadListener已设置！");
+			}
+			if (!originalRequest.isAsyncStarted()) {
+				throw new IllegalStateException("非阻塞读取须先开启异步模式！（request.startAsync()）");
+			}
+			readListener = listener;
+			if (filtered == null && originalRequest.getContentLength() > maxBodySize) {
+				logError(new IOException("请求内容超过上限！maxBodySize:" + maxBodySize));
+				finish(new byte[0]);
+			}
+			if (filtered != null) {// 已按阻塞方式读取 或 超过上限：在容器线程中通知下游
+				dispatch(this::deliver);
+				return;
 			}
-			return sb.toString();
+			source.setReadListener(this);
 		}
-//		// 方案二
-//		byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-//		try (ByteArrayOutputStream output = new ByteArrayOutputStream(Math.min(buffer.length, contentLength))) {
-//			int n = 0;
-//			while ((n = input.read(buffer)) > 0) {
-//				output.write(buffer, 0, n);
-//			}
-//			return output.toString(charsetName);
-//		}
+
+		@Override
+		public int read() throws IOException {
+			final ByteArrayInputStream in = stream();
+			final int b = in.read();
+			onRead(in);
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			final ByteArrayInputStream in = stream();
+			final int n = in.read(b, off, len);
+			onRead(in);
+			return n;
+		}
+
+		/** 读取后：下游在通知之外读取完毕时，补发onAllDataRead() */
+		private void onRead(ByteArrayInputStream in) {
+			if (in.available() < 1 && readListener != null && !delivering && !notified.get()) {
+				dispatch(this::deliver);
+			}
+		}
+
+		/** 过滤后的请求内容（未设置ReadListener时按阻塞方式读取） */
+		private ByteArrayInputStream stream() {
+			ByteArrayInputStream in = filtered;
+			if (in != null) {
+				return in;
+			}
+			if (readListener != null) {
+				throw new IllegalStateException("请求内容尚未就绪！（isReady()返回false时不能读取）");
+			}
+			completed = true;
+			final byte[] bytes = readBody(originalRequest);
+			body = bytes;
+			filtered = in = new ByteArrayInputStream(bytes);
+			return in;
+		}
+
+		@Override
+		public void onDataAvailable() throws IOException {
+			if (completed) {
+				return;
+			}
+			try {
+				int n;
+				while (source.isReady() && (n = source.read(chunk)) != -1) {
+					accept(n);
+				}
+			} catch (Exception e) {
+				fail(e);
+			}
+		}
+
+		@Override
+		public void onAllDataRead() throws IOException {
+			if (completed) {
+				return;
+			}
+			try {
+				switch (mode) {
+				case MODE_JSON:
+					feeder.endOfInput();
+					if (filterJson(parser, generator, depth) >= 0) {
+						throw new IOException("JSON格式错误：内容不完整！");
+					}
+					generator.close();
+					break;
+				case MODE_DRAIN:
+					generator.close();
+					break;
+				default:// 空白内容 或 缓存的全部内容
+					filterBody(raw, output, charset);
+					break;
+				}
+				final byte[] bytes = output.toByteArray();
+				if (logger.isDebugEnabled()) {
+					logger.debug("[读取请求内容]uri:" + getRequestURI() + " requestCharset:" + requestCharset
+							+ " contentLength:" + total + " nonBlocking:true filtered:" + new String(bytes, charset));
+				}
+				complete(bytes);
+			} catch (Exception e) {
+				fail(e);
+			}
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			logger.error("[读取请求内容]出错！uri:" + getRequestURI() + " requestCharset:" + requestCharset
+					+ " contentLength:" + total + " remoteIp:" + getRemoteAddr() + " realIp:"
+					+ HttpUtil.getRealIp(originalRequest) + " nonBlocking:true error:" + t.getMessage(), t);
+			completed = true;
+			closeJson(parser, generator);
+			final ReadListener listener = readListener;
+			if (listener != null && notified.compareAndSet(false, true)) {
+				listener.onError(t);
+			}
+		}
+
+		/**
+		 * 处理读取到的数据（chunk中的前n个字节）
+		 * 
+		 * @throws IOException
+		 *             超过上限 或 JSON格式错误
+		 */
+		private void accept(int n) throws IOException {
+			if ((total += n) > maxBodySize) {
+				throw new IOException("请求内容超过上限！maxBodySize:" + maxBodySize);
+			}
+			switch (mode) {
+			case MODE_UNKNOWN:
+				int i = 0;
+				while (i < n && (chunk[i] & 0xFF) <= ' ') {
+					i++;
+				}
+				if (i == n) {
+					raw.write(chunk, 0, n);// 空白字节
+				} else if (chunk[i] == '{' || chunk[i] == '[') {
+					raw = null;
+					parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+					feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+					generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8);
+					mode = MODE_JSON;
+					feed(i, n);
+				} else {
+					raw.write(chunk, 0, n);
+					mode = MODE_BUFFER;
+				}
+				break;
+			case MODE_BUFFER:
+				raw.write(chunk, 0, n);
+				break;
+			case MODE_JSON:
+				feed(0, n);
+				break;
+			default:// MODE_DRAIN
+				break;
+			}
+		}
+
+		/** 增量过滤JSON（解析器在返回前消费全部数据，之后chunk可复用） */
+		private void feed(int offset, int end) throws IOException {
+			feeder.feedInput(chunk, offset, end);
+			if ((depth = filterJson(parser, generator, depth)) < 0) {
+				mode = MODE_DRAIN;
+			}
+		}
+
+		/** 过滤出错（与阻塞模式一致：请求内容置为空） */
+		private void fail(Exception e) {
+			logError(e);
+			complete(new byte[0]);
+		}
+
+		/** 记录过滤错误 */
+		private void logError(Exception e) {
+			logger.error("[读取请求内容]出错！uri:" + getRequestURI() + " requestCharset:" + requestCharset
+					+ " contentLength:" + total + " remoteIp:" + getRemoteAddr() + " realIp:"
+					+ HttpUtil.getRealIp(originalRequest) + " nonBlocking:true error:" + e.getMessage(), e);
+			closeJson(parser, generator);
+		}
+
+		/** 完成并通知下游（原始输入流的回调线程） */
+		private void complete(byte[] bytes) {
+			finish(bytes);
+			deliver();
+		}
+
+		/** 完成（请求内容就绪） */
+		private void finish(byte[] bytes) {
+			completed = true;
+			raw = null;
+			parser = null;
+			generator = null;
+			body = bytes;
+			filtered = new ByteArrayInputStream(bytes);
+		}
+
+		/**
+		 * 通知下游（数据已全部就绪：下游每次读取后仍有数据时继续通知，读取完毕后通知onAllDataRead()；<br>
+		 * 下游暂停读取时不再通知，之后读取完毕时由{@link #onRead}补发onAllDataRead()）
+		 */
+		private void deliver() {
+			final ReadListener listener = readListener;
+			if (listener == null || notified.get()) {
+				return;
+			}
+			delivering = true;
+			try {
+				int remaining;
+				while ((remaining = filtered.available()) > 0) {
+					listener.onDataAvailable();
+					if (filtered.available() == remaining) {
+						break;// 下游未读取（暂停读取）
+					}
+				}
+			} catch (Throwable t) {
+				delivering = false;
+				if (notified.compareAndSet(false, true)) {
+					listener.onError(t);
+				}
+				return;
+			}
+			delivering = false;
+			// 读取完毕（含通知期间在其它线程读取完毕、onRead()因正在通知而未补发的情况）
+			if (filtered.available() < 1 && notified.compareAndSet(false, true)) {
+				try {
+					listener.onAllDataRead();
+				} catch (Throwable t) {
+					listener.onError(t);
+				}
+			}
+		}
+
+		/** 在容器线程中执行回调（异步上下文已结束时记录日志） */
+		private void dispatch(Runnable task) {
+			try {
+				originalRequest.getAsyncContext().start(task);
+			} catch (IllegalStateException e) {
+				logger.warn("[读取请求内容]异步上下文不可用，无法通知下游！uri:" + getRequestURI() + " error:" + e.getMessage());
+			}
+		}
+
+	}
+
+	/** 关闭JSON解析器及生成器（忽略异常） */
+	private static void closeJson(JsonParser parser, JsonGenerator generator) {
+		try {
+			if (parser != null) {
+				parser.close();
+			}
+			if (generator != null) {
+				generator.close();
+			}
+		} catch (IOException e) {
+			logger.debug("[关闭JSON解析器]出错！error:" + e.getMessage());
+		}
+	}
+
+	/**
+	 * 可复用的字节缓冲区
+	 */
+	private static final class Buffer extends ByteArrayOutputStream {
+
+		Buffer() {
+			super(DEFAULT_BUFFER_SIZE);
+		}
+
+		/** 获取当前线程的缓冲区（已清空） */
+		static Buffer acquire(ThreadLocal<Buffer> buffers) {
+			Buffer buffer = buffers.get();
+			buffer.reset();
+			return buffer;
+		}
+
+		/** 归还缓冲区（容量过大时丢弃，避免长期占用内存） */
+		static void release(ThreadLocal<Buffer> buffers, Buffer buffer) {
+			if (buffer.buf.length > BUFFER_LIMIT) {
+				buffers.remove();
+			} else {
+				buffer.reset();
+			}
+		}
+
+		/**
+		 * 读取输入流（直到结束）
+		 * 
+		 * @param input
+		 *            输入流（不能为空）
+		 * @param limit
+		 *            大小上限（字节）
+		 * @throws IOException
+		 *             IO异常 或 超过上限
+		 */
+		void readFrom(InputStream input, int limit) throws IOException {
+			int n;
+			do {
+				if (count == buf.length) {
+					buf = Arrays.copyOf(buf, (int) Math.min((long) buf.length << 1, (long) limit + 1));
+				}
+				n = input.read(buf, count, buf.length - count);
+				if (n > 0 && (count += n) > limit) {
+					throw new IOException("请求内容超过上限！maxBodySize:" + limit);
+				}
+			} while (n >= 0);
+		}
+
+		/** 第一个非空白字节（小于等于' '的字节均视为空白；-1：全部为空白） */
+		int firstNonBlank() {
+			for (int i = 0; i < count; i++) {
+				if ((buf[i] & 0xFF) > ' ') {
+					return buf[i] & 0xFF;
+				}
+			}
+			return -1;
+		}
+
+		/** 内部数组（只读；有效长度为size()） */
+		byte[] array() {
+			return buf;
+		}
+
+		/** 解码为字符串 */
+		String decode(Charset charset) {
+			return new String(buf, 0, count, charset);
+		}
+
 	}
 
 }
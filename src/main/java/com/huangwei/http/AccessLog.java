@@ -0,0 +1,77 @@
+package com.huangwei.http;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.slf4j.Logger;
+
+/**
+ * HTTP访问日志<br>
+ * <br>
+ * 1. 成功日志按采样率打印（默认：全部打印），出错日志始终打印；<br>
+ * 2. 日志使用SLF4J占位符，仅在需要打印时才格式化（请求头等参数不会被提前转换为字符串）；<br>
+ * 3. 打印的URL不含查询参数及片段（可能含有敏感信息），每个请求只计算一次。
+ */
+public final class AccessLog {
+
+	/** 成功日志采样率（0 ~ 1） */
+	private static volatile double sampleRate = 1;
+
+	private AccessLog() {
+	}
+
+	/**
+	 * 设置成功日志采样率
+	 *
+	 * @param rate
+	 *            采样率（0 ~ 1；0：不打印成功日志 1：全部打印）
+	 * @throws IllegalArgumentException
+	 *             采样率超出范围
+	 */
+	public static void setSampleRate(double rate) {
+		if (!(rate >= 0 && rate <= 1)) {
+			throw new IllegalArgumentException("采样率必须在0到1之间！rate:" + rate);
+		}
+		sampleRate = rate;
+	}
+
+	/** 成功日志采样率（0 ~ 1） */
+	public static double getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * 是否打印本次成功日志（INFO级别已启用且命中采样）
+	 *
+	 * @param logger
+	 *            日志（不能为空）
+	 * @return true:打印 false:不打印
+	 */
+	static boolean isSuccessEnabled(Logger logger) {
+		if (!logger.isInfoEnabled()) {
+			return false;
+		}
+		final double rate = sampleRate;
+		return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+	}
+
+	/**
+	 * 去除URL中的查询参数及片段（不使用正则表达式；无需去除时返回原字符串）
+	 *
+	 * @param url
+	 *            请求地址（可为空）
+	 * @return 用于打印的URL
+	 */
+	static String sanitize(String url) {
+		if (url == null) {
+			return null;
+		}
+		for (int i = 0, length = url.length(); i < length; i++) {
+			char c = url.charAt(i);
+			if (c == '?' || c == '#') {
+				return url.substring(0, i);
+			}
+		}
+		return url;
+	}
+
+}
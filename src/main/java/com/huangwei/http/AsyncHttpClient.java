@@ -0,0 +1,497 @@
+package com.huangwei.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.ContentTooLongException;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.ByteArrayBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.http.HttpClient.Response;
+import com.huangwei.util.ExceptionUtil;
+
+/**
+ * 异步HttpClient<br>
+ * <br>
+ * 基于Apache HttpAsyncClient4.x（非阻塞I/O），少量I/O线程即可驱动大量并发请求。<br>
+ * 请求头、超时时间、字符集及响应（{@link HttpClient.Response}）的处理方式与{@link HttpClient}一致。<br>
+ * 1. 线程：I/O线程只负责收发数据；响应的解码及返回的CompletableFuture的完成（含调用方的thenApply等后续阶段）在回调线程池中执行，
+ * 不会阻塞I/O线程；耗时的后续处理请使用*Async方法并指定自己的线程池；<br>
+ * 2. 大小：接收响应体时即按{@link HttpClientPool.Config#getMaxBodySize()}限制，超出时中止请求，不会先完整缓存到内存；<br>
+ * 3. 线程均为守护线程，不阻止JVM退出；{@link HttpClientPool#shutdown()}（含JVM关闭钩子）同时关闭异步客户端。<br>
+ * 说明：通过{@link HttpClient#async()}获取实例；连接数、超时时间等沿用{@link HttpClientPool.Config}。
+ */
+public final class AsyncHttpClient {
+	private static final Logger logger = LoggerFactory.getLogger(AsyncHttpClient.class);
+
+	/** 当前实例 */
+	private static volatile AsyncHttpClient instance;
+
+	/** 异步客户端 */
+	private final CloseableHttpAsyncClient client;
+	/** 连接管理器 */
+	private final PoolingNHttpClientConnectionManager connectionManager;
+	/** 空闲连接回收线程 */
+	private final ScheduledExecutorService evictor;
+	/** 回调线程池（解码响应并完成CompletableFuture，不占用I/O线程） */
+	private final ExecutorService callbackExecutor;
+	/** 默认请求配置 */
+	private final RequestConfig requestConfig;
+	/** 响应体最大字节数（小于等于零：不限制） */
+	private final long maxBodySize;
+
+	/**
+	 * 异步HttpClient
+	 *
+	 * @param config
+	 *            配置（不能为空）
+	 * @throws Exception
+	 *             创建I/O反应器出错
+	 */
+	private AsyncHttpClient(final HttpClientPool.Config config) throws Exception {
+		IOReactorConfig ioReactorConfig = IOReactorConfig.custom().setIoThreadCount(config.getIoThreadCount())
+				.setConnectTimeout(config.getConnectTimeout()).setSoTimeout(config.getSocketTimeout()).build();
+		this.connectionManager = new PoolingNHttpClientConnectionManager(
+				new DefaultConnectingIOReactor(ioReactorConfig, daemonThreadFactory("AsyncHttpClient-dispatcher")), null, sessionStrategyRegistry(config.getTls()), null,
+				config.getDnsResolver(), -1, TimeUnit.MILLISECONDS);
+		connectionManager.setMaxTotal(config.getMaxTotal());
+		connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+		this.requestConfig = RequestConfig.custom().setConnectTimeout(config.getConnectTimeout())
+				.setSocketTimeout(config.getSocketTimeout())
+				.setConnectionRequestTimeout(config.getConnectionRequestTimeout()).build();
+		this.maxBodySize = config.getMaxBodySize();
+		this.client = HttpAsyncClients.custom().setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig).setThreadFactory(daemonThreadFactory("AsyncHttpClient-reactor"))
+				.build();
+		this.callbackExecutor = Executors.newFixedThreadPool(Math.max(2, config.getIoThreadCount()),
+				daemonThreadFactory("AsyncHttpClient-callback"));
+		this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "AsyncHttpClient-evictor");
+			t.setDaemon(true);
+			return t;
+		});
+		final long maxIdleTime = config.getMaxIdleTime();
+		evictor.scheduleWithFixedDelay(() -> {
+			connectionManager.closeExpiredConnections();
+			connectionManager.closeIdleConnections(maxIdleTime, TimeUnit.MILLISECONDS);
+		}, maxIdleTime, maxIdleTime, TimeUnit.MILLISECONDS);
+		client.start();
+	}
+
+	/**
+	 * 获取实例（未初始化时以连接池当前配置初始化）
+	 *
+	 * @return 实例（非空）
+	 * @throws IllegalStateException
+	 *             初始化失败
+	 */
+	public static AsyncHttpClient getInstance() {
+		AsyncHttpClient c = instance;
+		if (c == null) {
+			synchronized (AsyncHttpClient.class) {
+				c = instance;
+				if (c == null) {
+					c = create(HttpClientPool.getInstance().getConfig());
+				}
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * 配置异步客户端（替换当前实例，并关闭旧实例）
+	 *
+	 * @param config
+	 *            配置（不能为空）
+	 * @throws IllegalArgumentException
+	 *             配置为空
+	 * @throws IllegalStateException
+	 *             初始化失败
+	 */
+	public static void configure(HttpClientPool.Config config) {
+		if (config == null) {
+			throw new IllegalArgumentException("配置不能为空！");
+		}
+
+		AsyncHttpClient old;
+		synchronized (AsyncHttpClient.class) {
+			old = instance;
+			create(config.copy());
+		}
+		if (old != null) {
+			old.close();
+		}
+	}
+
+	/**
+	 * 关闭异步客户端（之后再次使用时将重新初始化）
+	 */
+	public static void shutdown() {
+		AsyncHttpClient old;
+		synchronized (AsyncHttpClient.class) {
+			old = instance;
+			instance = null;
+		}
+		if (old != null) {
+			old.close();
+		}
+	}
+
+	/** 创建实例（调用方须持有类锁） */
+	private static AsyncHttpClient create(HttpClientPool.Config config) {
+		try {
+			AsyncHttpClient c = new AsyncHttpClient(config);
+			instance = c;
+			logger.info("[异步HttpClient]初始化完成！config:" + config);
+			return c;
+		} catch (Exception e) {
+			throw new IllegalStateException("初始化异步HttpClient出错！", e);
+		}
+	}
+
+	/** 关闭当前实例 */
+	private void close() {
+		evictor.shutdownNow();
+		try {
+			client.close();
+		} catch (Exception e) {
+			logger.error("[异步HttpClient]关闭出错！exception: [" + ExceptionUtil.detail(e) + "]");
+		}
+		callbackExecutor.shutdown();// 已提交的回调执行完毕后退出
+	}
+
+	/** 守护线程工厂（名称：前缀-序号） */
+	private static ThreadFactory daemonThreadFactory(final String prefix) {
+		final AtomicInteger count = new AtomicInteger();
+		return r -> {
+			Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	/** I/O会话策略注册表（HTTPS按TLS配置；SSLContext由{@link HttpTls}缓存复用） */
+	private static Registry<SchemeIOSessionStrategy> sessionStrategyRegistry(HttpTls.Config tls) {
+		return RegistryBuilder.<SchemeIOSessionStrategy> create().register("http", NoopIOSessionStrategy.INSTANCE)
+				.register("https", new SSLIOSessionStrategy(HttpTls.sslContext(tls), tls.getSupportedProtocols(), null,
+						HttpTls.hostnameVerifier(tls)))
+				.build();
+	}
+
+	/**
+	 * GET请求 - 字符串数据
+	 *
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param parameter
+	 *            参数（可为空）
+	 * @param charset
+	 *            字符集（用于响应解码；为空：UTF-8）
+	 * @return 响应
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	public CompletableFuture<Response> getString(String url, Map<String, String> headers,
+			Map<String, String> parameter, Charset charset) {
+		return doGet(url, headers, parameter, true, charset);
+	}
+
+	/**
+	 * GET请求 - 字节数据
+	 *
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param parameter
+	 *            参数（可为空）
+	 * @return 响应
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	public CompletableFuture<Response> getByte(String url, Map<String, String> headers,
+			Map<String, String> parameter) {
+		return doGet(url, headers, parameter, false, null);
+	}
+
+	/**
+	 * POST请求 - 字符串数据
+	 *
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param parameter
+	 *            参数（可为空；允许的类型为：String, List&lt;NameValuePair&gt;, Map&lt;String, Object&gt;）
+	 * @param requestCharset
+	 *            请求字符集（用于参数编码；为空：UTF-8）
+	 * @param responseCharset
+	 *            响应字符集（用于响应解码；为空：与请求字符集相同）
+	 * @return 响应
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	public CompletableFuture<Response> postString(String url, Map<String, String> headers, Object parameter,
+			Charset requestCharset, Charset responseCharset) {
+		return doPost(url, headers, parameter, requestCharset, true, responseCharset);
+	}
+
+	/**
+	 * POST请求 - 字节数据
+	 *
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param parameter
+	 *            参数（可为空；允许的类型为：String, List&lt;NameValuePair&gt;, Map&lt;String, Object&gt;）
+	 * @param requestCharset
+	 *            请求字符集（用于参数编码；为空：UTF-8）
+	 * @return 响应
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	public CompletableFuture<Response> postByte(String url, Map<String, String> headers, Object parameter,
+			Charset requestCharset) {
+		return doPost(url, headers, parameter, requestCharset, false, null);
+	}
+
+	/** GET请求 */
+	private CompletableFuture<Response> doGet(String url, Map<String, String> headers,
+			Map<String, String> parameter, boolean decode, Charset charset) {
+		HttpClient.checkUrl(url);
+		HttpGet get = new HttpGet(HttpClient.buildUrl(url, parameter));// GET方法实例
+		HttpClient.setRequestHeader(get, headers);// 设置请求头
+		return execute("[异步GET请求]", AccessLog.sanitize(url), get, headers, decode,
+				charset == null ? HttpClient.CHARSET_UTF8 : charset);
+	}
+
+	/** POST请求 */
+	private CompletableFuture<Response> doPost(String url, Map<String, String> headers, Object parameter,
+			Charset requestCharset, boolean decode, Charset responseCharset) {
+		HttpClient.checkUrl(url);
+		if (requestCharset == null) {
+			requestCharset = HttpClient.CHARSET_UTF8;
+		}
+		if (responseCharset == null) {
+			responseCharset = requestCharset;
+		}
+		// 参数处理
+		HttpEntity parameterEntity = null;
+		if (parameter != null) {
+			try {
+				parameterEntity = HttpClient.parameterHandle(parameter, requestCharset);
+			} catch (Exception e) {
+				throw new IllegalArgumentException("参数错误：" + e.getMessage());
+			}
+		}
+
+		HttpPost post = new HttpPost(url);// POST方法实例
+		HttpClient.setRequestHeader(post, headers);// 设置请求头
+		if (parameterEntity != null) {
+			post.setEntity(parameterEntity);
+		}
+		return execute("[异步POST请求]", AccessLog.sanitize(url), post, headers, decode, responseCharset);
+	}
+
+	/**
+	 * 执行请求
+	 *
+	 * @param tag
+	 *            日志标签
+	 * @param logUrl
+	 *            用于打印的URL（不含敏感信息）
+	 * @param request
+	 *            请求（不能为空）
+	 * @param headers
+	 *            请求头（用于打印）
+	 * @param decode
+	 *            是否将响应解码为字符串（true:解码 false:不解码）
+	 * @param charset
+	 *            字符集（用于响应解码；不能为空）
+	 * @return 响应（取消时将中止请求）
+	 */
+	private CompletableFuture<Response> execute(final String tag, final String logUrl, final HttpRequestBase request,
+			final Map<String, String> headers, final boolean decode, final Charset charset) {
+		request.setConfig(requestConfig);// 设置超时时间
+		final CompletableFuture<Response> result = new CompletableFuture<Response>();
+		final long timestamp = System.nanoTime();
+		// 注意：参数和响应可能存在敏感信息，不能打印！
+		final Future<HttpResponse> future = client.execute(HttpAsyncMethods.create(request),
+				new LimitedResponseConsumer(maxBodySize), new FutureCallback<HttpResponse>() {
+					@Override
+					public void completed(final HttpResponse response) {
+						dispatch(result, () -> {
+							int statusCode = -1;// HTTP状态码
+							try {
+								statusCode = response.getStatusLine().getStatusCode();
+								Response r;
+								if (decode) {
+									r = new Response(statusCode,
+											HttpClient.getStringResponse(response.getEntity(), charset));
+								} else {
+									r = new Response(statusCode, HttpClient.getByteResponse(response.getEntity()));
+								}
+								if (AccessLog.isSuccessEnabled(logger)) {
+									logger.info("{}url:{} headers:{} parameter:... charset:{} statusCode:{} elapsedMilliseconds:{} response:...",
+											tag, logUrl, headers, charset, statusCode,
+											HttpClient.elapsedMilliseconds(timestamp));
+								}
+								result.complete(r);
+							} catch (Exception e) {
+								logger.error(
+										"{}处理响应出错！url:{} headers:{} parameter:... charset:{} statusCode:{} elapsedMilliseconds:{} exception: [{}]",
+										tag, logUrl, headers, charset, statusCode,
+										HttpClient.elapsedMilliseconds(timestamp), ExceptionUtil.detail(e));
+								result.completeExceptionally(e);
+							}
+						});
+					}
+
+					@Override
+					public void failed(final Exception e) {
+						logger.error("{}出错！url:{} headers:{} parameter:... charset:{} elapsedMilliseconds:{} exception: [{}]",
+								tag, logUrl, headers, charset, HttpClient.elapsedMilliseconds(timestamp),
+								ExceptionUtil.detail(e));
+						dispatch(result, () -> result.completeExceptionally(e));
+					}
+
+					@Override
+					public void cancelled() {
+						dispatch(result, () -> result.cancel(false));
+					}
+				});
+		// 调用方取消时中止请求
+		result.whenComplete((r, e) -> {
+			if (result.isCancelled()) {
+				future.cancel(true);
+			}
+		});
+		return result;
+	}
+
+	/** 在回调线程池中执行（线程池已关闭时直接以异常完成，不在I/O线程中执行后续阶段以外的处理） */
+	private void dispatch(CompletableFuture<Response> result, Runnable task) {
+		try {
+			callbackExecutor.execute(task);
+		} catch (RejectedExecutionException e) {
+			result.completeExceptionally(new IOException("异步HttpClient已关闭！", e));
+		}
+	}
+
+	/** 连接池统计信息（总计） */
+	public PoolStats getTotalStats() {
+		return connectionManager.getTotalStats();
+	}
+
+	/**
+	 * 限制大小的响应消费者（接收时计数，超出上限立即中止请求，避免超大响应体先完整缓存到内存）
+	 */
+	private static final class LimitedResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+
+		/** 响应体最大字节数（小于等于零：不限制） */
+		private final long maxBodySize;
+		/** 读取缓冲区（每次最多读取该大小后检查上限） */
+		private final ByteBuffer chunk = ByteBuffer.allocate(8192);
+		private volatile HttpResponse response;
+		private volatile ContentType contentType;
+		private volatile ByteArrayBuffer buffer;
+
+		LimitedResponseConsumer(long maxBodySize) {
+			this.maxBodySize = maxBodySize;
+		}
+
+		@Override
+		protected void onResponseReceived(HttpResponse response) {
+			this.response = response;
+		}
+
+		@Override
+		protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) throws IOException {
+			long length = entity.getContentLength();
+			if (maxBodySize > 0 && length > maxBodySize) {
+				throw new ContentTooLongException(
+						"响应体超出最大限制！maxBodySize:" + maxBodySize + " contentLength:" + length);
+			}
+			if (length > Integer.MAX_VALUE) {
+				throw new ContentTooLongException("响应体过大！contentLength:" + length);
+			}
+			// 初始容量不超过上限（与同步请求一致），不按服务端声明的长度一次性分配
+			this.buffer = new ByteArrayBuffer(
+					length < 0 ? 4096 : (int) Math.min(HttpClient.MAX_INITIAL_BUFFER_SIZE, Math.max(length, 1)));
+			this.contentType = contentType;
+			response.setEntity(entity);
+		}
+
+		@Override
+		protected void onContentReceived(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+			int n;
+			while ((n = decoder.read(chunk)) > 0) {
+				if (maxBodySize > 0 && (long) buffer.length() + n > maxBodySize) {
+					throw new ContentTooLongException("响应体超出最大限制！maxBodySize:" + maxBodySize);
+				}
+				buffer.append(chunk.array(), 0, n);
+				chunk.clear();
+			}
+		}
+
+		@Override
+		protected HttpResponse buildResult(HttpContext context) {
+			if (buffer != null) {
+				final HttpEntity original = response.getEntity();
+				final ByteArrayEntity entity = new ByteArrayEntity(buffer.buffer(), 0, buffer.length(), contentType);
+				entity.setContentEncoding(original.getContentEncoding());
+				response.setEntity(entity);
+			}
+			return response;
+		}
+
+		@Override
+		protected void releaseResources() {
+			response = null;
+			contentType = null;
+			buffer = null;
+		}
+
+	}
+
+}
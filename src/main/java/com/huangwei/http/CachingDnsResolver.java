@@ -0,0 +1,354 @@
+package com.huangwei.http;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.util.ExceptionUtil;
+
+/**
+ * DNS缓存解析器<br>
+ * <br>
+ * 1. 缓存：解析结果按TTL缓存，期间不再调用底层解析器；<br>
+ * 2. 后台刷新：缓存超过刷新时间（未过期）时仍返回缓存，同时在后台线程重新解析，热点域名不会因过期而阻塞请求；<br>
+ * 3. 容错：缓存过期后（过期宽限时间内）立即返回过期的缓存并在后台重新解析，DNS故障或变慢时请求不会被阻塞；<br>
+ * 4. 合并解析：同一主机的同步解析同时只调用一次底层解析器，其余线程等待同一结果；<br>
+ * 5. 轮询/故障转移：每次返回的地址列表按轮询顺序旋转，连接时依次尝试各地址（连接失败自动尝试下一个）；<br>
+ * 6. 统计：命中/未命中/刷新/失败次数及底层解析耗时分布。<br>
+ * 说明：底层解析器可替换（例如测试时使用进程内的假解析器）；通过{@link HttpClientPool.Config#setDnsResolver}启用。
+ */
+public class CachingDnsResolver implements DnsResolver {
+	private static final Logger logger = LoggerFactory.getLogger(CachingDnsResolver.class);
+
+	/** 后台刷新执行器（共享，守护线程） */
+	private static final ExecutorService REFRESHER;
+
+	static {
+		final AtomicInteger counter = new AtomicInteger();
+		REFRESHER = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(1024), r -> {
+			Thread t = new Thread(r, "CachingDnsResolver-" + counter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});// 队列已满时放弃刷新（见refreshAsync），下次访问时再尝试
+		((ThreadPoolExecutor) REFRESHER).allowCoreThreadTimeOut(true);
+	}
+
+	/** 底层解析器 */
+	private final DnsResolver delegate;
+	/** 缓存时间（纳秒） */
+	private final long ttlNanos;
+	/** 刷新时间（纳秒；缓存超过该时间后在后台刷新） */
+	private final long refreshNanos;
+	/** 过期宽限时间（纳秒；缓存过期后继续使用的最长时间，期间在后台重新解析） */
+	private final long staleNanos;
+
+	/** 缓存（主机 -&gt; 解析结果） */
+	private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+	/** 正在进行的同步解析（主机 -&gt; 解析结果） */
+	private final ConcurrentHashMap<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<String, CompletableFuture<Entry>>();
+
+	/** 底层解析耗时分布 */
+	private final LatencyHistogram resolveTime = new LatencyHistogram();
+	/** 命中次数 */
+	private final LongAdder hits = new LongAdder();
+	/** 未命中次数（同步解析） */
+	private final LongAdder misses = new LongAdder();
+	/** 后台刷新次数 */
+	private final LongAdder refreshes = new LongAdder();
+	/** 解析失败次数 */
+	private final LongAdder failures = new LongAdder();
+	/** 使用过期缓存的次数 */
+	private final LongAdder staleHits = new LongAdder();
+
+	/**
+	 * DNS缓存解析器（系统解析器；缓存60秒，48秒后后台刷新，过期宽限5分钟）
+	 */
+	public CachingDnsResolver() {
+		this(SystemDefaultDnsResolver.INSTANCE, 1000 * 60, 1000 * 60 * 5);
+	}
+
+	/**
+	 * DNS缓存解析器（缓存时间的80%后后台刷新）
+	 *
+	 * @param delegate
+	 *            底层解析器（不能为空）
+	 * @param ttl
+	 *            缓存时间（单位：毫秒；大于零）
+	 * @param staleTtl
+	 *            过期宽限时间（单位：毫秒；0：不使用过期缓存）
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	public CachingDnsResolver(DnsResolver delegate, long ttl, long staleTtl) {
+		if (delegate == null) {
+			throw new IllegalArgumentException("底层解析器不能为空！");
+		}
+		if (ttl <= 0) {
+			throw new IllegalArgumentException("缓存时间必须大于零！ttl:" + ttl);
+		}
+		this.delegate = delegate;
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+		this.refreshNanos = ttlNanos / 5 * 4;
+		this.staleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(staleTtl, 0));
+	}
+
+	@Override
+	public InetAddress[] resolve(String host) throws UnknownHostException {
+		final String key = host.toLowerCase();
+		final Entry entry = cache.get(key);
+		if (entry != null) {
+			final long age = System.nanoTime() - entry.resolvedAt;
+			if (age < ttlNanos) {
+				hits.increment();
+				if (age >= refreshNanos && entry.refreshing.compareAndSet(false, true)) {
+					refreshAsync(key, entry);
+				}
+				return entry.next();
+			}
+			if (age < ttlNanos + staleNanos) {// 过期宽限时间内：返回过期的缓存，后台重新解析
+				staleHits.increment();
+				if (entry.refreshing.compareAndSet(false, true)) {
+					refreshAsync(key, entry);
+				}
+				return entry.next();
+			}
+		}
+
+		misses.increment();
+		return loadShared(key).next();
+	}
+
+	/**
+	 * 同步解析（同一主机同时只调用一次底层解析器，其余线程等待同一结果）
+	 *
+	 * @throws UnknownHostException
+	 *             解析失败
+	 */
+	private Entry loadShared(String host) throws UnknownHostException {
+		final CompletableFuture<Entry> future = new CompletableFuture<Entry>();
+		final CompletableFuture<Entry> existing = loading.putIfAbsent(host, future);
+		if (existing != null) {
+			return await(host, existing);
+		}
+		try {
+			final Entry cached = cache.get(host);
+			final Entry entry = cached != null && System.nanoTime() - cached.resolvedAt < ttlNanos ? cached
+					: load(host);// 其它线程刚完成解析时不再重复解析
+			future.complete(entry);
+			return entry;
+		} catch (UnknownHostException | RuntimeException | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			loading.remove(host, future);
+		}
+	}
+
+	/**
+	 * 等待其它线程的解析结果
+	 *
+	 * @throws UnknownHostException
+	 *             解析失败
+	 */
+	private static Entry await(String host, CompletableFuture<Entry> future) throws UnknownHostException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return future.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					final Throwable cause = e.getCause();
+					if (cause instanceof UnknownHostException) {
+						UnknownHostException copy = new UnknownHostException(cause.getMessage());
+						copy.initCause(cause);
+						throw copy;
+					}
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IllegalStateException("解析失败！host:" + host, cause);
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * 调用底层解析器并更新缓存
+	 *
+	 * @throws UnknownHostException
+	 *             解析失败（不更新缓存）
+	 */
+	private Entry load(String host) throws UnknownHostException {
+		final long timestamp = System.nanoTime();
+		final InetAddress[] addresses;
+		try {
+			addresses = delegate.resolve(host);
+		} catch (UnknownHostException e) {
+			failures.increment();
+			throw e;
+		} finally {
+			resolveTime.record(System.nanoTime() - timestamp);
+		}
+		if (addresses == null || addresses.length == 0) {
+			failures.increment();
+			throw new UnknownHostException("解析结果为空！host:" + host);
+		}
+		final Entry entry = new Entry(addresses.clone(), System.nanoTime());
+		cache.put(host, entry);
+		return entry;
+	}
+
+	/** 后台刷新（失败时保留原缓存，超过过期宽限时间后再同步解析） */
+	private void refreshAsync(final String host, final Entry entry) {
+		try {
+			REFRESHER.execute(() -> {
+				try {
+					load(host);
+					refreshes.increment();
+				} catch (Exception e) {
+					logger.warn("[DNS缓存]后台刷新失败，继续使用原缓存！host:{} addresses:{} exception: [{}]", host,
+							Arrays.toString(entry.addresses), ExceptionUtil.detail(e));
+				} finally {
+					entry.refreshing.set(false);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			entry.refreshing.set(false);// 队列已满：放弃本次刷新
+		}
+	}
+
+	/**
+	 * 移除主机的缓存
+	 *
+	 * @param host
+	 *            主机（不能为空）
+	 */
+	public void invalidate(String host) {
+		cache.remove(host.toLowerCase());
+	}
+
+	/** 清空缓存 */
+	public void clear() {
+		cache.clear();
+	}
+
+	/** 缓存的主机数 */
+	public int size() {
+		return cache.size();
+	}
+
+	/**
+	 * 获取主机的缓存地址（不触发解析）
+	 *
+	 * @param host
+	 *            主机（不能为空）
+	 * @return NULL 或 地址列表（解析时的顺序）
+	 */
+	public InetAddress[] getCached(String host) {
+		Entry entry = cache.get(host.toLowerCase());
+		return entry == null ? null : entry.addresses.clone();
+	}
+
+	/** 底层解析耗时分布 */
+	public LatencyHistogram getResolveTime() {
+		return resolveTime;
+	}
+
+	/** 命中次数 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/** 未命中次数（同步解析） */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/** 后台刷新次数 */
+	public long getRefreshes() {
+		return refreshes.sum();
+	}
+
+	/** 解析失败次数 */
+	public long getFailures() {
+		return failures.sum();
+	}
+
+	/** 使用过期缓存的次数 */
+	public long getStaleHits() {
+		return staleHits.sum();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=CachingDnsResolver, delegate=").append(delegate.getClass().getSimpleName())
+				.append(", ttl=").append(TimeUnit.NANOSECONDS.toMillis(ttlNanos)).append(", staleTtl=")
+				.append(TimeUnit.NANOSECONDS.toMillis(staleNanos)).append(", size=").append(size())
+				.append(", hits=").append(getHits()).append(", misses=").append(getMisses())
+				.append(", refreshes=").append(getRefreshes()).append(", failures=").append(getFailures())
+				.append(", staleHits=").append(getStaleHits()).append(", resolveTime=").append(resolveTime)
+				.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * 解析结果
+	 */
+	private static class Entry {
+
+		/** 地址列表 */
+		final InetAddress[] addresses;
+		/** 解析时间（纳秒，System.nanoTime()） */
+		final long resolvedAt;
+		/** 轮询位置 */
+		final AtomicInteger cursor = new AtomicInteger();
+		/** 是否正在后台刷新 */
+		final AtomicBoolean refreshing = new AtomicBoolean();
+
+		Entry(InetAddress[] addresses, long resolvedAt) {
+			this.addresses = addresses;
+			this.resolvedAt = resolvedAt;
+		}
+
+		/** 按轮询顺序旋转的地址列表（新数组；连接失败时依次尝试后续地址） */
+		InetAddress[] next() {
+			final int length = addresses.length;
+			if (length == 1) {
+				return new InetAddress[] { addresses[0] };
+			}
+			final int start = (cursor.getAndIncrement() & Integer.MAX_VALUE) % length;
+			final InetAddress[] result = new InetAddress[length];
+			System.arraycopy(addresses, start, result, 0, length - start);
+			System.arraycopy(addresses, 0, result, length - start, start);
+			return result;
+		}
+
+	}
+
+}
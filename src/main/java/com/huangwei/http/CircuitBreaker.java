@@ -0,0 +1,190 @@
+package com.huangwei.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 熔断器（单个主机）<br>
+ * <br>
+ * 状态：关闭（CLOSED，正常放行） -&gt; 打开（OPEN，快速失败） -&gt; 半开（HALF_OPEN，放行少量探测请求）。<br>
+ * 说明：状态均保存在原子变量中（无锁），关闭状态下的放行判断仅需一次volatile读。
+ */
+public class CircuitBreaker {
+	private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	/**
+	 * 熔断器状态
+	 */
+	public enum State {
+		/** 关闭（正常放行） */
+		CLOSED,
+		/** 打开（快速失败） */
+		OPEN,
+		/** 半开（放行少量探测请求） */
+		HALF_OPEN
+	}
+
+	/** 主机 */
+	private final String host;
+	/** 状态 */
+	private final AtomicReference<State> state = new AtomicReference<State>(State.CLOSED);
+	/** 连续失败次数 */
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+	/** 半开状态下剩余的探测请求数 */
+	private final AtomicInteger halfOpenPermits = new AtomicInteger();
+	/** 打开时间（System.nanoTime()） */
+	private volatile long openedAt;
+	/** 打开次数 */
+	private final LongAdder openCount = new LongAdder();
+	/** 成功次数 */
+	private final LongAdder successCount = new LongAdder();
+	/** 失败次数 */
+	private final LongAdder failureCount = new LongAdder();
+	/** 拒绝（快速失败）次数 */
+	private final LongAdder rejectedCount = new LongAdder();
+
+	/**
+	 * 熔断器
+	 *
+	 * @param host
+	 *            主机（不能为空）
+	 */
+	CircuitBreaker(String host) {
+		this.host = host;
+	}
+
+	/**
+	 * 请求放行
+	 *
+	 * @param policy
+	 *            容错策略（不能为空）
+	 * @return true:放行 false:拒绝（熔断中）
+	 */
+	boolean tryAcquire(ResiliencePolicy policy) {
+		State s = state.get();
+		if (s == State.CLOSED) {
+			return true;
+		}
+		if (s == State.OPEN) {
+			if (System.nanoTime() - openedAt < TimeUnit.MILLISECONDS.toNanos(policy.getOpenDuration())) {
+				rejectedCount.increment();
+				return false;
+			}
+			if (state.compareAndSet(State.OPEN, State.HALF_OPEN)) {
+				halfOpenPermits.set(policy.getHalfOpenPermits());
+				logger.info("[熔断器]进入半开状态！host:" + host);
+			}
+		}
+		// 半开：仅放行有限的探测请求
+		for (;;) {
+			int n = halfOpenPermits.get();
+			if (n <= 0 || state.get() != State.HALF_OPEN) {
+				rejectedCount.increment();
+				return false;
+			}
+			if (halfOpenPermits.compareAndSet(n, n - 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * 记录成功
+	 */
+	void onSuccess() {
+		successCount.increment();
+		if (consecutiveFailures.get() != 0) {
+			consecutiveFailures.set(0);
+		}
+		if (state.get() == State.HALF_OPEN && state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+			logger.info("[熔断器]已恢复！host:" + host);
+		}
+	}
+
+	/**
+	 * 记录失败
+	 *
+	 * @param policy
+	 *            容错策略（不能为空）
+	 */
+	void onFailure(ResiliencePolicy policy) {
+		failureCount.increment();
+		final int failures = consecutiveFailures.incrementAndGet();
+		final State s = state.get();
+		if (s == State.HALF_OPEN) {
+			open(State.HALF_OPEN, failures);
+		} else if (s == State.CLOSED && policy.getFailureThreshold() > 0 && failures >= policy.getFailureThreshold()) {
+			open(State.CLOSED, failures);
+		}
+	}
+
+	/**
+	 * 忽略本次结果（非上游原因导致的异常；半开状态下归还探测名额）
+	 */
+	void onIgnored() {
+		if (state.get() == State.HALF_OPEN) {
+			halfOpenPermits.incrementAndGet();
+		}
+	}
+
+	/** 打开熔断器 */
+	private void open(State expect, int failures) {
+		openedAt = System.nanoTime();// 先于状态写入，保证读到OPEN的线程能看到打开时间
+		if (state.compareAndSet(expect, State.OPEN)) {
+			openCount.increment();
+			logger.warn("[熔断器]已熔断！host:" + host + " from:" + expect + " consecutiveFailures:" + failures);
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=CircuitBreaker, host=").append(host).append(", state=").append(state.get())
+				.append(", consecutiveFailures=").append(consecutiveFailures.get()).append(", openCount=")
+				.append(openCount.sum()).append(", successCount=").append(successCount.sum())
+				.append(", failureCount=").append(failureCount.sum()).append(", rejectedCount=")
+				.append(rejectedCount.sum()).append("]");
+		return builder.toString();
+	}
+
+	/** 主机 */
+	public String getHost() {
+		return host;
+	}
+
+	/** 状态 */
+	public State getState() {
+		return state.get();
+	}
+
+	/** 连续失败次数 */
+	public int getConsecutiveFailures() {
+		return consecutiveFailures.get();
+	}
+
+	/** 打开次数 */
+	public long getOpenCount() {
+		return openCount.sum();
+	}
+
+	/** 成功次数 */
+	public long getSuccessCount() {
+		return successCount.sum();
+	}
+
+	/** 失败次数 */
+	public long getFailureCount() {
+		return failureCount.sum();
+	}
+
+	/** 拒绝（快速失败）次数 */
+	public long getRejectedCount() {
+		return rejectedCount.sum();
+	}
+
+}
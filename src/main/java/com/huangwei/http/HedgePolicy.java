@@ -0,0 +1,88 @@
+package com.huangwei.http;
+
+/**
+ * 对冲策略（降低长尾延迟）<br>
+ * <br>
+ * 1. 对冲：幂等请求（GET）在等待一段时间仍未响应时，再发出一个相同的请求，取先返回的响应并中止另一个；<br>
+ * 2. 等待时间：固定值，或按该主机已观测到的P95耗时（样本数不足时不对冲）；<br>
+ * 3. 预算：对冲请求数不超过请求数的指定百分比（允许少量突发），避免上游变慢时对冲请求加剧负载。
+ */
+public class HedgePolicy {
+
+	/** 对冲等待时间（单位：毫秒；小于等于零：按主机的P95耗时） */
+	private long delay = 0;
+	/** 最小等待时间（单位：毫秒；用于P95） */
+	private long minDelay = 5;
+	/** 使用P95所需的最少样本数（请求数） */
+	private long minSamples = 100;
+	/** 预算：对冲请求数占请求数的百分比（0 ~ 100） */
+	private double budgetPercent = 5;
+	/** 预算：允许的突发对冲请求数 */
+	private int budgetBurst = 10;
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=HedgePolicy, delay=").append(delay).append(", minDelay=").append(minDelay)
+				.append(", minSamples=").append(minSamples).append(", budgetPercent=").append(budgetPercent)
+				.append(", budgetBurst=").append(budgetBurst).append("]");
+		return builder.toString();
+	}
+
+	/** 对冲等待时间（单位：毫秒；小于等于零：按主机的P95耗时） */
+	public long getDelay() {
+		return delay;
+	}
+
+	/** 对冲等待时间（单位：毫秒；小于等于零：按主机的P95耗时） */
+	public void setDelay(long delay) {
+		this.delay = Math.max(delay, 0);
+	}
+
+	/** 最小等待时间（单位：毫秒；用于P95） */
+	public long getMinDelay() {
+		return minDelay;
+	}
+
+	/** 最小等待时间（单位：毫秒；用于P95） */
+	public void setMinDelay(long minDelay) {
+		this.minDelay = Math.max(minDelay, 0);
+	}
+
+	/** 使用P95所需的最少样本数（请求数） */
+	public long getMinSamples() {
+		return minSamples;
+	}
+
+	/** 使用P95所需的最少样本数（请求数） */
+	public void setMinSamples(long minSamples) {
+		this.minSamples = Math.max(minSamples, 1);
+	}
+
+	/** 预算：对冲请求数占请求数的百分比（0 ~ 100） */
+	public double getBudgetPercent() {
+		return budgetPercent;
+	}
+
+	/** 预算：对冲请求数占请求数的百分比（0 ~ 100） */
+	public void setBudgetPercent(double budgetPercent) {
+		if (!(budgetPercent >= 0 && budgetPercent <= 100)) {
+			throw new IllegalArgumentException("预算百分比必须在0到100之间！budgetPercent:" + budgetPercent);
+		}
+		this.budgetPercent = budgetPercent;
+	}
+
+	/** 预算：允许的突发对冲请求数 */
+	public int getBudgetBurst() {
+		return budgetBurst;
+	}
+
+	/** 预算：允许的突发对冲请求数（大于零） */
+	public void setBudgetBurst(int budgetBurst) {
+		if (budgetBurst < 1) {
+			throw new IllegalArgumentException("突发对冲请求数必须大于零！budgetBurst:" + budgetBurst);
+		}
+		this.budgetBurst = budgetBurst;
+	}
+
+}
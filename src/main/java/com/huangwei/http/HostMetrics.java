@@ -0,0 +1,184 @@
+package com.huangwei.http;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求统计（单个主机）<br>
+ * <br>
+ * 包含：请求数、按状态码计数、失败数（未收到响应）、耗时直方图、发送/接收字节数（请求体/响应体的传输字节数）及进行中的请求数。<br>
+ * 说明：记录操作均为原子自增（无锁、不分配对象）。
+ */
+public class HostMetrics {
+
+	/** 状态码上限（不含） */
+	private static final int MAX_STATUS_CODE = 600;
+
+	/** 主机 */
+	private final String host;
+	/** 按状态码计数（下标即状态码） */
+	private final AtomicLongArray statusCounts = new AtomicLongArray(MAX_STATUS_CODE);
+	/** 请求数 */
+	private final LongAdder requests = new LongAdder();
+	/** 失败数（未收到响应） */
+	private final LongAdder errors = new LongAdder();
+	/** 进行中的请求数 */
+	private final LongAdder inFlight = new LongAdder();
+	/** 取消数（对冲请求中被取消的一方，不计入请求数及耗时） */
+	private final LongAdder cancelled = new LongAdder();
+	/** 发送字节数（请求体） */
+	final LongAdder bytesSent = new LongAdder();
+	/** 接收字节数（响应体，解压前） */
+	final LongAdder bytesReceived = new LongAdder();
+	/** 耗时直方图（从发出请求到响应处理完毕） */
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * 请求统计
+	 *
+	 * @param host
+	 *            主机（不能为空）
+	 */
+	HostMetrics(String host) {
+		this.host = host;
+	}
+
+	/**
+	 * 记录请求开始
+	 */
+	void begin() {
+		inFlight.increment();
+		HttpMetrics.inFlight.increment();
+	}
+
+	/**
+	 * 记录请求结束（每次{@link #begin()}之后必须调用且仅调用一次）
+	 *
+	 * @param statusCode
+	 *            HTTP状态码（小于零：未收到响应）
+	 * @param timestamp
+	 *            请求开始的时间戳（System.nanoTime()；为零：请求未发出，耗时计为零）
+	 */
+	void end(int statusCode, long timestamp) {
+		final long elapsedNanos = timestamp == 0 ? 0 : System.nanoTime() - timestamp;
+		inFlight.decrement();
+		HttpMetrics.inFlight.decrement();
+		requests.increment();
+		if (statusCode < 0) {
+			errors.increment();
+		} else {
+			statusCounts.incrementAndGet(statusCode < MAX_STATUS_CODE ? statusCode : 0);
+		}
+		latency.record(elapsedNanos);
+		HttpMetrics.fireRequestCompleted(this, statusCode, elapsedNanos);
+	}
+
+	/**
+	 * 记录请求被取消（代替{@link #end(int, long)}；对冲请求中落败的一方被中止，不计入请求数、失败数及耗时）
+	 */
+	void cancel() {
+		inFlight.decrement();
+		HttpMetrics.inFlight.decrement();
+		cancelled.increment();
+	}
+
+	/** 主机 */
+	public String getHost() {
+		return host;
+	}
+
+	/** 请求数 */
+	public long getRequests() {
+		return requests.sum();
+	}
+
+	/** 失败数（未收到响应） */
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	/** 进行中的请求数 */
+	public long getInFlight() {
+		return inFlight.sum();
+	}
+
+	/** 取消数（对冲请求中被取消的一方，不计入请求数及耗时） */
+	public long getCancelled() {
+		return cancelled.sum();
+	}
+
+	/** 发送字节数（请求体） */
+	public long getBytesSent() {
+		return bytesSent.sum();
+	}
+
+	/** 接收字节数（响应体，解压前） */
+	public long getBytesReceived() {
+		return bytesReceived.sum();
+	}
+
+	/** 耗时直方图 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	/**
+	 * 指定状态码的请求数
+	 *
+	 * @param statusCode
+	 *            HTTP状态码
+	 * @return 请求数
+	 */
+	public long getStatusCount(int statusCode) {
+		return statusCode < 0 || statusCode >= MAX_STATUS_CODE ? 0 : statusCounts.get(statusCode);
+	}
+
+	/**
+	 * 指定类别的请求数
+	 *
+	 * @param statusClass
+	 *            状态码类别（1 ~ 5，例如：5 表示5xx）
+	 * @return 请求数
+	 */
+	public long getStatusClassCount(int statusClass) {
+		if (statusClass < 1 || statusClass > 5) {
+			return 0;
+		}
+		long total = 0;
+		for (int i = statusClass * 100, end = i + 100; i < end; i++) {
+			total += statusCounts.get(i);
+		}
+		return total;
+	}
+
+	/**
+	 * 按状态码计数
+	 *
+	 * @return 状态码 -&gt; 请求数（仅含出现过的状态码）
+	 */
+	public Map<Integer, Long> getStatusCounts() {
+		Map<Integer, Long> counts = new TreeMap<Integer, Long>();
+		for (int i = 0; i < MAX_STATUS_CODE; i++) {
+			long n = statusCounts.get(i);
+			if (n > 0) {
+				counts.put(i, n);
+			}
+		}
+		return counts;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=HostMetrics, host=").append(host).append(", requests=").append(getRequests())
+				.append(", errors=").append(getErrors()).append(", cancelled=").append(getCancelled())
+				.append(", inFlight=").append(getInFlight())
+				.append(", statusCounts=").append(getStatusCounts()).append(", bytesSent=").append(getBytesSent())
+				.append(", bytesReceived=").append(getBytesReceived()).append(", latency=").append(latency)
+				.append("]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,489 @@
+package com.huangwei.http;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.http.HttpClient.Response;
+
+/**
+ * 批量请求<br>
+ * <br>
+ * 1. 并发：按并发数上限并行执行（请求经由{@link HttpClient}发出，共享连接池、容错及统计）；<br>
+ * 2. 截止时间：到达截止时间后不再发出新请求，未完成的请求计为超时；<br>
+ * 3. 结果：与请求列表顺序一致，每个请求单独记录响应或异常（部分失败不影响其他请求）；<br>
+ * 4. 线程：所有批次共享执行线程池，线程数上限为连接池的最大连接数（见{@link HttpClientPool.Config#getMaxTotal()}），
+ * 线程全忙时请求排队等待空闲线程（不拒绝；排队的请求数不超过各批次并发数之和）。<br>
+ * 注意：超时的请求仅被放弃（线程被中断），已发出的同步请求可能持续到读取超时才释放连接。
+ */
+public final class HttpBatch {
+	private static final Logger logger = LoggerFactory.getLogger(HttpBatch.class);
+
+	/** 默认并发数 */
+	public static final int DEFAULT_CONCURRENCY = 16;
+
+	/** 执行线程池（共享；并发数由每个批次自行限制，线程数上限见{@link #executor()}，线程全忙时排队） */
+	private static final ThreadPoolExecutor EXECUTOR;
+
+	static {
+		final AtomicInteger counter = new AtomicInteger();
+		EXECUTOR = new ThreadPoolExecutor(DEFAULT_CONCURRENCY, DEFAULT_CONCURRENCY, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), r -> {
+					Thread t = new Thread(r, "HttpBatch-" + counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		EXECUTOR.allowCoreThreadTimeOut(true);// 空闲时不保留线程
+	}
+
+	private HttpBatch() {
+	}
+
+	/**
+	 * 获取执行线程池（线程数上限与连接池的最大连接数保持一致：更多的线程只会阻塞在租借连接上）
+	 *
+	 * @return 执行线程池
+	 */
+	private static ThreadPoolExecutor executor() {
+		final int max = HttpClientPool.getInstance().getMaxTotal();
+		if (EXECUTOR.getMaximumPoolSize() != max) {
+			synchronized (EXECUTOR) {
+				// 核心线程数不能大于最大线程数：扩大时先调整最大值，缩小时先调整核心值
+				if (max > EXECUTOR.getMaximumPoolSize()) {
+					EXECUTOR.setMaximumPoolSize(max);
+					EXECUTOR.setCorePoolSize(max);
+				} else if (max < EXECUTOR.getMaximumPoolSize()) {
+					EXECUTOR.setCorePoolSize(max);
+					EXECUTOR.setMaximumPoolSize(max);
+				}
+			}
+		}
+		return EXECUTOR;
+	}
+
+	/**
+	 * 批量执行（默认并发数，无截止时间）
+	 *
+	 * @param requests
+	 *            请求列表（不能为空）
+	 * @return 批量结果
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	public static BatchResult execute(List<Request> requests) {
+		return execute(requests, DEFAULT_CONCURRENCY, 0);
+	}
+
+	/**
+	 * 批量执行
+	 *
+	 * @param requests
+	 *            请求列表（不能为空；元素不能为空）
+	 * @param concurrency
+	 *            并发数（大于零）
+	 * @param deadline
+	 *            截止时间：从开始执行起计算（单位：毫秒；小于等于零：不限制）
+	 * @return 批量结果（与请求列表顺序一致）
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	public static BatchResult execute(List<Request> requests, int concurrency, long deadline) {
+		if (requests == null) {
+			throw new IllegalArgumentException("请求列表不能为空！");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("并发数必须大于零！concurrency:" + concurrency);
+		}
+		for (Request request : requests) {
+			if (request == null) {
+				throw new IllegalArgumentException("请求不能为空！");
+			}
+		}
+
+		final int size = requests.size();
+		final long timestamp = System.nanoTime();
+		final long deadlineAt = deadline > 0 ? timestamp + TimeUnit.MILLISECONDS.toNanos(deadline) : 0;
+		final AtomicReferenceArray<Result> results = new AtomicReferenceArray<Result>(size);
+		final Future<?>[] futures = new Future<?>[size];
+		final Semaphore permits = new Semaphore(concurrency);
+		final CountDownLatch done = new CountDownLatch(size);
+		final LatencyHistogram latency = new LatencyHistogram();
+
+		int submitted = 0;
+		try {
+			for (; submitted < size; submitted++) {
+				if (!acquire(permits, deadlineAt)) {
+					break;// 已到截止时间
+				}
+				final int index = submitted;
+				final Request request = requests.get(index);
+				try {
+					futures[index] = executor().submit(() -> {
+						try {
+							results.compareAndSet(index, null, run(index, request, latency));
+						} finally {
+							permits.release();
+							done.countDown();
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					results.compareAndSet(index, null, new Result(index, request, null, e, 0));
+					permits.release();
+					done.countDown();
+				}
+			}
+			await(done, size - submitted, deadlineAt);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();// 调用方被中断：未完成的请求按超时处理
+		}
+
+		// 未完成（含未发出）的请求计为超时
+		int timeouts = 0;
+		for (int i = 0; i < size; i++) {
+			if (results.get(i) == null && results.compareAndSet(i, null, new Result(i, requests.get(i), null,
+					new TimeoutException("批量请求已超时！deadline:" + deadline), 0))) {
+				timeouts++;
+				if (futures[i] != null) {
+					futures[i].cancel(true);
+				}
+			}
+		}
+		List<Result> list = new ArrayList<Result>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(results.get(i));
+		}
+		BatchResult batch = new BatchResult(list, timeouts, HttpClient.elapsedMilliseconds(timestamp), latency);
+		logger.info("[批量请求]执行完成！concurrency:{} deadline:{} result:{}", concurrency, deadline, batch);
+		return batch;
+	}
+
+	/** 执行单个请求 */
+	private static Result run(int index, Request request, LatencyHistogram latency) {
+		final long timestamp = System.nanoTime();
+		try {
+			Response response = request.execute();
+			latency.record(System.nanoTime() - timestamp);
+			return new Result(index, request, response, null, HttpClient.elapsedMilliseconds(timestamp));
+		} catch (Exception e) {
+			latency.record(System.nanoTime() - timestamp);
+			return new Result(index, request, null, e, HttpClient.elapsedMilliseconds(timestamp));
+		}
+	}
+
+	/**
+	 * 获取并发许可
+	 *
+	 * @return true:成功 false:已到截止时间
+	 */
+	private static boolean acquire(Semaphore permits, long deadlineAt) throws InterruptedException {
+		if (deadlineAt == 0) {
+			permits.acquire();
+			return true;
+		}
+		return permits.tryAcquire(deadlineAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * 等待全部完成
+	 *
+	 * @param unsubmitted
+	 *            未发出的请求数（不再等待）
+	 */
+	private static void await(CountDownLatch done, int unsubmitted, long deadlineAt) throws InterruptedException {
+		for (int i = 0; i < unsubmitted; i++) {
+			done.countDown();
+		}
+		if (deadlineAt == 0) {
+			done.await();
+		} else {
+			done.await(deadlineAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * 批量请求中的单个请求
+	 */
+	public static class Request {
+
+		/** 请求方法（GET/POST） */
+		private final String method;
+		/** 请求地址 */
+		private final String url;
+		/** 请求头 */
+		private final Map<String, String> headers;
+		/** 参数（GET：Map&lt;String, String&gt;；POST：String, List&lt;NameValuePair&gt;, Map&lt;String, Object&gt;） */
+		private final Object parameter;
+		/** 字符集（请求参数编码及响应解码） */
+		private final Charset charset;
+		/** 是否将响应解码为字符串 */
+		private boolean decode = true;
+
+		private Request(String method, String url, Map<String, String> headers, Object parameter, Charset charset) {
+			HttpClient.checkUrl(url);
+			this.method = method;
+			this.url = url;
+			this.headers = headers;
+			this.parameter = parameter;
+			this.charset = charset == null ? HttpClient.CHARSET_UTF8 : charset;
+		}
+
+		/**
+		 * GET请求
+		 *
+		 * @param url
+		 *            请求地址（不能为空）
+		 * @param headers
+		 *            请求头（可为空）
+		 * @param parameter
+		 *            参数（可为空）
+		 * @return 请求
+		 * @throws IllegalArgumentException
+		 *             参数错误
+		 */
+		public static Request get(String url, Map<String, String> headers, Map<String, String> parameter) {
+			return new Request("GET", url, headers, parameter, HttpClient.CHARSET_UTF8);
+		}
+
+		/**
+		 * POST请求 - JSON数据（UTF-8编码）
+		 *
+		 * @param url
+		 *            请求地址（不能为空）
+		 * @param headers
+		 *            请求头（可为空）
+		 * @param parameter
+		 *            参数（可为空；允许的类型为：String, List&lt;NameValuePair&gt;, Map&lt;String, Object&gt;）
+		 * @return 请求
+		 * @throws IllegalArgumentException
+		 *             参数错误
+		 */
+		public static Request postJson(String url, Map<String, String> headers, Object parameter) {
+			return new Request("POST", url, HttpClient.header4Json(headers), parameter, HttpClient.CHARSET_UTF8);
+		}
+
+		/**
+		 * POST请求
+		 *
+		 * @param url
+		 *            请求地址（不能为空）
+		 * @param headers
+		 *            请求头（可为空）
+		 * @param parameter
+		 *            参数（可为空；允许的类型为：String, List&lt;NameValuePair&gt;, Map&lt;String, Object&gt;）
+		 * @param charset
+		 *            字符集（用于参数编码及响应解码；为空：UTF-8）
+		 * @return 请求
+		 * @throws IllegalArgumentException
+		 *             参数错误
+		 */
+		public static Request post(String url, Map<String, String> headers, Object parameter, Charset charset) {
+			return new Request("POST", url, headers, parameter, charset);
+		}
+
+		/** 发出请求 */
+		@SuppressWarnings("unchecked")
+		private Response execute() throws Exception {
+			if ("GET".equals(method)) {
+				Map<String, String> params = (Map<String, String>) parameter;
+				return decode ? HttpClient.getString(url, headers, params, charset)
+						: HttpClient.getByte(url, headers, params);
+			}
+			return decode ? HttpClient.postString(url, headers, parameter, charset, charset)
+					: HttpClient.postByte(url, headers, parameter, charset);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("[clazz=Request, method=").append(method).append(", url=")
+					.append(AccessLog.sanitize(url)).append(", decode=").append(decode).append("]");
+			return builder.toString();
+		}
+
+		/** 请求方法（GET/POST） */
+		public String getMethod() {
+			return method;
+		}
+
+		/** 请求地址 */
+		public String getUrl() {
+			return url;
+		}
+
+		/** 是否将响应解码为字符串（默认：是） */
+		public boolean isDecode() {
+			return decode;
+		}
+
+		/** 是否将响应解码为字符串（false：以字节返回响应体） */
+		public void setDecode(boolean decode) {
+			this.decode = decode;
+		}
+
+	}
+
+	/**
+	 * 单个请求的结果
+	 */
+	public static class Result {
+
+		/** 序号（在请求列表中的下标） */
+		private final int index;
+		/** 请求 */
+		private final Request request;
+		/** 响应（出错时为空） */
+		private final Response response;
+		/** 异常（成功时为空） */
+		private final Exception exception;
+		/** 耗时（单位：毫秒） */
+		private final long elapsedMilliseconds;
+
+		Result(int index, Request request, Response response, Exception exception, long elapsedMilliseconds) {
+			this.index = index;
+			this.request = request;
+			this.response = response;
+			this.exception = exception;
+			this.elapsedMilliseconds = elapsedMilliseconds;
+		}
+
+		/** 是否成功（收到响应，不论状态码） */
+		public boolean isSuccess() {
+			return exception == null;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("[clazz=Result, index=").append(index).append(", request=").append(request)
+					.append(", code=").append(response == null ? null : response.getCode()).append(", exception=")
+					.append(exception).append(", elapsedMilliseconds=").append(elapsedMilliseconds).append("]");
+			return builder.toString();
+		}
+
+		/** 序号（在请求列表中的下标） */
+		public int getIndex() {
+			return index;
+		}
+
+		/** 请求 */
+		public Request getRequest() {
+			return request;
+		}
+
+		/** 响应（出错时为空） */
+		public Response getResponse() {
+			return response;
+		}
+
+		/** 异常（成功时为空） */
+		public Exception getException() {
+			return exception;
+		}
+
+		/** 耗时（单位：毫秒） */
+		public long getElapsedMilliseconds() {
+			return elapsedMilliseconds;
+		}
+
+	}
+
+	/**
+	 * 批量结果
+	 */
+	public static class BatchResult {
+
+		/** 结果列表（与请求列表顺序一致） */
+		private final List<Result> results;
+		/** 成功数 */
+		private final int successCount;
+		/** 超时数（含未发出的请求） */
+		private final int timeoutCount;
+		/** 总耗时（单位：毫秒） */
+		private final long elapsedMilliseconds;
+		/** 单个请求的耗时分布 */
+		private final LatencyHistogram latency;
+
+		BatchResult(List<Result> results, int timeoutCount, long elapsedMilliseconds, LatencyHistogram latency) {
+			this.results = Collections.unmodifiableList(results);
+			int success = 0;
+			for (Result result : results) {
+				if (result.isSuccess()) {
+					success++;
+				}
+			}
+			this.successCount = success;
+			this.timeoutCount = timeoutCount;
+			this.elapsedMilliseconds = elapsedMilliseconds;
+			this.latency = latency;
+		}
+
+		/** 是否全部完成（无超时） */
+		public boolean isComplete() {
+			return timeoutCount == 0;
+		}
+
+		/** 吞吐量：每秒完成的请求数（不含超时） */
+		public double getThroughput() {
+			final int completed = results.size() - timeoutCount;
+			return elapsedMilliseconds <= 0 ? completed * 1000.0 : completed * 1000.0 / elapsedMilliseconds;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("[clazz=BatchResult, size=").append(results.size()).append(", successCount=")
+					.append(successCount).append(", failureCount=").append(getFailureCount())
+					.append(", timeoutCount=").append(timeoutCount).append(", elapsedMilliseconds=")
+					.append(elapsedMilliseconds).append(", throughput=").append(String.format("%.1f", getThroughput()))
+					.append(", latency=").append(latency).append("]");
+			return builder.toString();
+		}
+
+		/** 结果列表（与请求列表顺序一致；只读） */
+		public List<Result> getResults() {
+			return results;
+		}
+
+		/** 成功数 */
+		public int getSuccessCount() {
+			return successCount;
+		}
+
+		/** 失败数（含超时） */
+		public int getFailureCount() {
+			return results.size() - successCount;
+		}
+
+		/** 超时数（含未发出的请求） */
+		public int getTimeoutCount() {
+			return timeoutCount;
+		}
+
+		/** 总耗时（单位：毫秒） */
+		public long getElapsedMilliseconds() {
+			return elapsedMilliseconds;
+		}
+
+		/** 单个请求的耗时分布（单位：微秒） */
+		public LatencyHistogram getLatency() {
+			return latency;
+		}
+
+	}
+
+}
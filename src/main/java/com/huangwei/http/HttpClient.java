@@ -1,15 +1,24 @@
 package com.huangwei.http;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
-import javax.net.ssl.SSLContext;
-
 import com.huangwei.util.ExceptionUtil;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
@@ -17,15 +26,11 @@ import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.client.utils.URIBuilder;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,7 +38,13 @@ import org.slf4j.LoggerFactory;
 /**
  * HttpClient工具<br>
  * <br>
- * 基于Apache HttpClient4.x
+ * 基于Apache HttpClient4.x<br>
+ * 说明：请求使用共享的连接池（{@link HttpClientPool}），连接数、超时时间等可通过{@link HttpClientPool#configure}配置。<br>
+ * 响应按Content-Encoding自动解压，请求体可按阈值gzip压缩（见{@link HttpCompression}）。<br>
+ * 请求耗时、状态码、字节数等统计见{@link HttpMetrics}，请求日志（可采样）见{@link AccessLog}。<br>
+ * 大文件/输入流/multipart上传（流式发送、进度回调）见{@link HttpUpload}。<br>
+ * JSON对象方法（getJsonObject/postJsonObject）直接在连接的流上序列化/解析，需要Jackson依赖。<br>
+ * 按主机的客户端限流（速率及并发数）见{@link HttpThrottle}，GET请求的对冲（降低长尾延迟）见{@link HttpHedging}。
  */
 public class HttpClient {
 	protected static Logger logger = LoggerFactory.getLogger(HttpClient.class);
@@ -42,10 +53,13 @@ public class HttpClient {
 	private static final int MIN_BUFFER_SIZE = 32;
 	/** 默认缓冲区大小 */
 	private static final int DEFAULT_BUFFER_SIZE = 1024 * 4;
-	/** 连接超时时间（单位：毫秒） */
-	private static final int CONNECT_TIMEOUT = 1000 * 10;
-	/** 读取数据超时时间（单位：毫秒） */
-	private static final int SOCKET_TIMEOUT = 1000 * 60 * 3;
+	/** 最大初始缓冲区大小（ContentLength不可信，不能据此分配过大的缓冲区） */
+	static final int MAX_INITIAL_BUFFER_SIZE = 1024 * 1024 * 8;
+	/** 下载缓冲区大小 */
+	private static final int DOWNLOAD_BUFFER_SIZE = 1024 * 64;
+
+	/** TLS配置 - 信任所有证书，不校验主机名 */
+	private static final HttpTls.Config INSECURE_TLS = HttpTls.Config.trustAll();
 
 	/** 字符集 - UTF-8 */
 	public static final Charset CHARSET_UTF8 = StandardCharsets.UTF_8;
@@ -73,6 +87,17 @@ public class HttpClient {
 		};
 	}
 
+	/**
+	 * 异步（非阻塞）客户端
+	 * 
+	 * @return 异步客户端（非空；方法返回CompletableFuture&lt;Response&gt;）
+	 * @throws IllegalStateException
+	 *             初始化失败
+	 */
+	public static AsyncHttpClient async() {
+		return AsyncHttpClient.getInstance();
+	}
+
 	/**
 	 * GET请求 - JSON数据（UTF-8编码）
 	 * 
@@ -127,6 +152,50 @@ public class HttpClient {
 		return response == null ? null : response.getData();
 	}
 
+	/**
+	 * GET请求 - JSON对象（响应体直接流式解析，不解码为中间字符串）
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param type
+	 *            对象类型（不能为空）
+	 * @return NULL（响应体为空） 或 对象
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws org.apache.http.client.HttpResponseException
+	 *             HTTP状态码非2xx
+	 * @throws Exception
+	 *             通信异常/IO错误/JSON解析错误
+	 */
+	public static <T> T getJsonObject(String url, Class<T> type) throws Exception {
+		return getJsonObject(url, null, null, type);
+	}
+
+	/**
+	 * GET请求 - JSON对象（响应体直接流式解析，不解码为中间字符串）
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param parameter
+	 *            参数（可为空）
+	 * @param type
+	 *            对象类型（不能为空）
+	 * @return NULL（响应体为空） 或 对象
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws org.apache.http.client.HttpResponseException
+	 *             HTTP状态码非2xx
+	 * @throws Exception
+	 *             通信异常/IO错误/JSON解析错误
+	 */
+	public static <T> T getJsonObject(String url, Map<String, String> headers, Map<String, String> parameter,
+			Class<T> type) throws Exception {
+		return getStream(url, header4Json(headers), parameter, HttpClientPool.getInstance().getMaxBodySize(),
+				HttpJson.handler(type));
+	}
+
 	/**
 	 * GET请求 - 字符串数据
 	 * 
@@ -205,6 +274,292 @@ public class HttpClient {
 		return doGet(url, headers, parameter, false, null);
 	}
 
+	/**
+	 * GET请求 - 下载到文件（流式写入，不缓冲到内存）<br>
+	 * <br>
+	 * 说明：仅当状态码为2xx时写入文件（已存在则覆盖），否则丢弃响应体且不创建文件；下载出错时删除不完整的文件。
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param file
+	 *            目标文件（不能为空）
+	 * @return HTTP状态码
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws Exception
+	 *             通信异常/IO错误/响应体超出最大限制
+	 */
+	public static int download(String url, Path file) throws Exception {
+		return download(url, null, null, file);
+	}
+
+	/**
+	 * GET请求 - 下载到文件（流式写入，不缓冲到内存）<br>
+	 * <br>
+	 * 说明：仅当状态码为2xx时写入文件（已存在则覆盖），否则丢弃响应体且不创建文件；下载出错时删除不完整的文件。
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param parameter
+	 *            参数（可为空）
+	 * @param file
+	 *            目标文件（不能为空）
+	 * @return HTTP状态码
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws Exception
+	 *             通信异常/IO错误/响应体超出最大限制
+	 */
+	public static int download(String url, Map<String, String> headers, Map<String, String> parameter,
+			final Path file) throws Exception {
+		if (file == null) {
+			throw new IllegalArgumentException("目标文件不能为空！");
+		}
+
+		return getStream(url, headers, parameter, HttpClientPool.getInstance().getMaxBodySize(),
+				new BodyHandler<Integer>() {
+					@Override
+					public Integer handle(int statusCode, InputStream body) throws Exception {
+						if (statusCode < 200 || statusCode >= 300) {
+							return statusCode;
+						}
+						try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+								StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+							final byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+							final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+							int n = 0;
+							while ((n = body.read(buffer)) != -1) {
+								byteBuffer.clear().limit(n);
+								while (byteBuffer.hasRemaining()) {
+									channel.write(byteBuffer);
+								}
+							}
+						} catch (Exception e) {
+							Files.deleteIfExists(file);
+							throw e;
+						}
+						return statusCode;
+					}
+				});
+	}
+
+	/**
+	 * GET请求 - 写入输出流（流式写入，不缓冲到内存）
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param output
+	 *            输出流（不能为空；不会被关闭）
+	 * @return HTTP状态码
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws Exception
+	 *             通信异常/IO错误/响应体超出最大限制
+	 */
+	public static int getTo(String url, OutputStream output) throws Exception {
+		return getTo(url, null, null, output);
+	}
+
+	/**
+	 * GET请求 - 写入输出流（流式写入，不缓冲到内存）
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param parameter
+	 *            参数（可为空）
+	 * @param output
+	 *            输出流（不能为空；不会被关闭）
+	 * @return HTTP状态码
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws Exception
+	 *             通信异常/IO错误/响应体超出最大限制
+	 */
+	public static int getTo(String url, Map<String, String> headers, Map<String, String> parameter,
+			final OutputStream output) throws Exception {
+		if (output == null) {
+			throw new IllegalArgumentException("输出流不能为空！");
+		}
+
+		return getStream(url, headers, parameter, HttpClientPool.getInstance().getMaxBodySize(),
+				new BodyHandler<Integer>() {
+					@Override
+					public Integer handle(int statusCode, InputStream body) throws Exception {
+						final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+						int n = 0;
+						while ((n = body.read(buffer)) != -1) {
+							output.write(buffer, 0, n);
+						}
+						return statusCode;
+					}
+				});
+	}
+
+	/**
+	 * GET请求 - 流式处理响应体<br>
+	 * <br>
+	 * 说明：响应体以输入流的形式交给处理器，处理器返回（或抛出异常）后自动关闭响应并释放连接。
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param parameter
+	 *            参数（可为空）
+	 * @param maxBodySize
+	 *            响应体最大字节数（小于等于零：不限制；超出时读取将抛出IOException）
+	 * @param handler
+	 *            响应体处理器（不能为空）
+	 * @return 处理器的返回值
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws Exception
+	 *             通信异常/IO错误/处理器抛出的异常
+	 */
+	public static <T> T getStream(String url, Map<String, String> headers, Map<String, String> parameter,
+			long maxBodySize, BodyHandler<T> handler) throws Exception {
+		checkUrl(url);
+		if (handler == null) {
+			throw new IllegalArgumentException("响应体处理器不能为空！");
+		}
+
+		long timestamp = 0;// 时间戳（用于计算请求耗时）
+		final String logUrl = AccessLog.sanitize(url);// 不打印URL中可能含有敏感信息的部分
+		final HttpClientPool pool = HttpClientPool.getInstance();
+		final HttpThrottle.Limiter limiter = HttpThrottle.acquire(url);// 限流（可能排队等待）
+		final HostMetrics metrics = HttpMetrics.begin(url);// 请求统计
+		CloseableHttpResponse response = null;
+		try {
+			HttpGet get = new HttpGet(buildUrl(url, parameter));// GET方法实例
+			setRequestHeader(get, headers);// 设置请求头
+			get.setConfig(pool.getRequestConfig());// 设置超时时间
+
+			timestamp = System.nanoTime();
+			response = HttpClientPool.getClient().execute(get, HttpMetrics.context(metrics));
+		} catch (Exception e) {
+			metrics.end(-1, timestamp);
+			limiter.release();
+			logger.error("[GET请求-流式]出错！url:{} headers:{} parameter:... maxBodySize:{} elapsedMilliseconds:{} exception: [{}]",
+					logUrl, headers, maxBodySize, elapsedMilliseconds(timestamp), ExceptionUtil.detail(e));
+			closeResponse(response);
+			throw e;
+		}
+		// 注意：参数和响应可能存在敏感信息，不能打印！
+		int statusCode = -1;// HTTP状态码
+		try {
+			statusCode = response.getStatusLine().getStatusCode();
+			HttpEntity entity = response.getEntity();
+			InputStream body = entity == null ? null : entity.getContent();
+			if (body == null) {
+				body = new ByteArrayInputStream(new byte[0]);
+			}
+			if (maxBodySize > 0) {
+				body = new LimitedInputStream(body, maxBodySize);
+			}
+			T result = handler.handle(statusCode, body);
+			if (AccessLog.isSuccessEnabled(logger)) {
+				logger.info("[GET请求-流式]url:{} headers:{} parameter:... maxBodySize:{} statusCode:{} elapsedMilliseconds:{} response:...",
+						logUrl, headers, maxBodySize, statusCode, elapsedMilliseconds(timestamp));
+			}
+			return result;
+		} catch (Exception e) {
+			logger.error(
+					"[GET请求-流式]处理响应出错！url:{} headers:{} parameter:... maxBodySize:{} statusCode:{} elapsedMilliseconds:{} exception: [{}]",
+					logUrl, headers, maxBodySize, statusCode, elapsedMilliseconds(timestamp), ExceptionUtil.detail(e));
+			throw e;
+		} finally {
+			closeResponse(response);// 未读完的响应体不再读取，直接关闭连接
+			metrics.end(statusCode, timestamp);
+			limiter.release();
+		}
+	}
+
+	/**
+	 * POST请求 - 流式处理响应体<br>
+	 * <br>
+	 * 说明：响应体以输入流的形式交给处理器，处理器返回（或抛出异常）后自动关闭响应并释放连接。
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param entity
+	 *            请求体（可为空）
+	 * @param maxBodySize
+	 *            响应体最大字节数（小于等于零：不限制；超出时读取将抛出IOException）
+	 * @param handler
+	 *            响应体处理器（不能为空）
+	 * @return 处理器的返回值
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws Exception
+	 *             通信异常/IO错误/处理器抛出的异常
+	 */
+	static <T> T postStream(String url, Map<String, String> headers, HttpEntity entity, long maxBodySize,
+			BodyHandler<T> handler) throws Exception {
+		checkUrl(url);
+		if (handler == null) {
+			throw new IllegalArgumentException("响应体处理器不能为空！");
+		}
+
+		long timestamp = 0;// 时间戳（用于计算请求耗时）
+		final String logUrl = AccessLog.sanitize(url);// 不打印URL中可能含有敏感信息的部分
+		final HttpClientPool pool = HttpClientPool.getInstance();
+		final HttpThrottle.Limiter limiter = HttpThrottle.acquire(url);// 限流（可能排队等待）
+		final HostMetrics metrics = HttpMetrics.begin(url);// 请求统计
+		CloseableHttpResponse response = null;
+		try {
+			HttpPost post = new HttpPost(url);// POST方法实例
+			setRequestHeader(post, headers);// 设置请求头
+			post.setConfig(pool.getRequestConfig());// 设置超时时间
+			if (entity != null) {
+				post.setEntity(entity);
+			}
+
+			timestamp = System.nanoTime();
+			response = HttpClientPool.getClient().execute(post, HttpMetrics.context(metrics));
+		} catch (Exception e) {
+			metrics.end(-1, timestamp);
+			limiter.release();
+			logger.error("[POST请求-流式]出错！url:{} headers:{} parameter:... maxBodySize:{} elapsedMilliseconds:{} exception: [{}]",
+					logUrl, headers, maxBodySize, elapsedMilliseconds(timestamp), ExceptionUtil.detail(e));
+			closeResponse(response);
+			throw e;
+		}
+		// 注意：参数和响应可能存在敏感信息，不能打印！
+		int statusCode = -1;// HTTP状态码
+		try {
+			statusCode = response.getStatusLine().getStatusCode();
+			HttpEntity responseEntity = response.getEntity();
+			InputStream body = responseEntity == null ? null : responseEntity.getContent();
+			if (body == null) {
+				body = new ByteArrayInputStream(new byte[0]);
+			}
+			if (maxBodySize > 0) {
+				body = new LimitedInputStream(body, maxBodySize);
+			}
+			T result = handler.handle(statusCode, body);
+			if (AccessLog.isSuccessEnabled(logger)) {
+				logger.info("[POST请求-流式]url:{} headers:{} parameter:... maxBodySize:{} statusCode:{} elapsedMilliseconds:{} response:...",
+						logUrl, headers, maxBodySize, statusCode, elapsedMilliseconds(timestamp));
+			}
+			return result;
+		} catch (Exception e) {
+			logger.error(
+					"[POST请求-流式]处理响应出错！url:{} headers:{} parameter:... maxBodySize:{} statusCode:{} elapsedMilliseconds:{} exception: [{}]",
+					logUrl, headers, maxBodySize, statusCode, elapsedMilliseconds(timestamp), ExceptionUtil.detail(e));
+			throw e;
+		} finally {
+			closeResponse(response);// 未读完的响应体不再读取，直接关闭连接
+			metrics.end(statusCode, timestamp);
+			limiter.release();
+		}
+	}
+
 	/**
 	 * GET请求
 	 * 
@@ -224,28 +579,64 @@ public class HttpClient {
 	 * @throws Exception
 	 *             通信异常/IO错误
 	 */
-	private static Response doGet(String url, Map<String, String> headers, Map<String, String> parameter,
-			boolean decode, Charset charset) throws Exception {
+	private static Response doGet(final String url, final Map<String, String> headers, Map<String, String> parameter,
+			final boolean decode, Charset charset) throws Exception {
 		checkUrl(url);
-		if (charset == null) {
-			charset = CHARSET_UTF8;
-		}
+		final Charset _charset = charset == null ? CHARSET_UTF8 : charset;
+		final String requestUrl = buildUrl(url, parameter);
+		final String logUrl = AccessLog.sanitize(url);// 不打印URL中可能含有敏感信息的部分
+		return HttpResponseCache.get(requestUrl, headers, decode, _charset,
+				(requestHeaders) -> HttpResilience.execute(url, true, () -> HttpHedging.execute(requestUrl,
+						(attempt) -> executeGet(logUrl, requestUrl, requestHeaders, decode, _charset, attempt))));
+	}
 
+	/**
+	 * GET请求（单次执行）
+	 * 
+	 * @param logUrl
+	 *            用于打印的URL（不含敏感信息）
+	 * @param requestUrl
+	 *            含参请求地址
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param decode
+	 *            是否将响应解码为字符串（true:解码 false:不解码）
+	 * @param charset
+	 *            字符集（用于响应解码；不能为空）
+	 * @param attempt
+	 *            对冲中的本次请求（可为空：未对冲；被取消时不打印错误日志，不计入请求数）
+	 * @return 响应（字符串或字节）
+	 * @throws Exception
+	 *             通信异常/IO错误
+	 */
+	private static Response executeGet(String logUrl, String requestUrl, Map<String, String> headers,
+			boolean decode, Charset charset, HttpHedging.Attempt attempt) throws Exception {
 		long timestamp = 0;// 时间戳（用于计算请求耗时）
-		CloseableHttpClient client = getClientInstance(url);// HttpClient实例
+		final HttpClientPool pool = HttpClientPool.getInstance();
+		final HttpThrottle.Limiter limiter = HttpThrottle.acquire(requestUrl);// 限流（可能排队等待）
+		final HostMetrics metrics = HttpMetrics.begin(requestUrl);// 请求统计
 		CloseableHttpResponse response = null;
 		try {
-			HttpGet get = new HttpGet(buildUrl(url, parameter));// GET方法实例
+			HttpGet get = new HttpGet(requestUrl);// GET方法实例
 			setRequestHeader(get, headers);// 设置请求头
-			setTimeout(get, CONNECT_TIMEOUT, SOCKET_TIMEOUT);// 设置超时时间
+			get.setConfig(pool.getRequestConfig());// 设置超时时间
+			if (attempt != null) {
+				attempt.bind(get);// 对冲落败时中止
+			}
 
 			timestamp = System.nanoTime();
-			response = client.execute(get);
+			response = HttpClientPool.getClient().execute(get, HttpMetrics.context(metrics));
 		} catch (Exception e) {
-			logger.error("[GET请求]出错！url:" + url + " headers:" + headers + " parameter:..." + " charset:" + charset
-					+ " elapsedMilliseconds:" + elapsedMilliseconds(timestamp) + " exception: ["
-					+ ExceptionUtil.detail(e) + "]");
-			closeClient(client, response);
+			limiter.release();
+			if (attempt != null && attempt.isCancelled()) {
+				metrics.cancel();
+				closeResponse(response);
+				throw e;
+			}
+			metrics.end(-1, timestamp);
+			logger.error("[GET请求]出错！url:{} headers:{} parameter:... charset:{} elapsedMilliseconds:{} exception: [{}]",
+					logUrl, headers, charset, elapsedMilliseconds(timestamp), ExceptionUtil.detail(e));
+			closeResponse(response);
 			throw e;
 		}
 		// 注意：参数和响应可能存在敏感信息，不能打印！
@@ -258,17 +649,30 @@ public class HttpClient {
 			} else {
 				result = new Response(statusCode, getByteResponse(response.getEntity()));
 			}
-			logger.info("[GET请求]url:" + url + " headers:" + headers + " parameter:..." + " charset:" + charset
-					+ " statusCode:" + statusCode + " elapsedMilliseconds:" + elapsedMilliseconds(timestamp)
-					+ " response:...");
+			if (HttpResponseCache.isEnabled()) {
+				result.eTag = headerValue(response, HttpHeaders.ETAG);
+				result.cacheControl = headerValue(response, HttpHeaders.CACHE_CONTROL);
+			}
+			if (AccessLog.isSuccessEnabled(logger)) {
+				logger.info("[GET请求]url:{} headers:{} parameter:... charset:{} statusCode:{} elapsedMilliseconds:{} response:...",
+						logUrl, headers, charset, statusCode, elapsedMilliseconds(timestamp));
+			}
 			return result;
 		} catch (Exception e) {
-			logger.info("[GET请求]处理响应出错！url:" + url + " headers:" + headers + " parameter:..." + " charset:" + charset
-					+ " statusCode:" + statusCode + " elapsedMilliseconds:" + elapsedMilliseconds(timestamp)
-					+ " exception: [" + ExceptionUtil.detail(e) + "]");
+			if (attempt == null || !attempt.isCancelled()) {
+				logger.error(
+						"[GET请求]处理响应出错！url:{} headers:{} parameter:... charset:{} statusCode:{} elapsedMilliseconds:{} exception: [{}]",
+						logUrl, headers, charset, statusCode, elapsedMilliseconds(timestamp), ExceptionUtil.detail(e));
+			}
 			throw e;
 		} finally {
-			closeClient(client, response);
+			closeResponse(response);
+			if (attempt != null && attempt.isCancelled()) {
+				metrics.cancel();
+			} else {
+				metrics.end(statusCode, timestamp);
+			}
+			limiter.release();
 		}
 	}
 
@@ -325,6 +729,52 @@ public class HttpClient {
 		return response == null ? null : response.getData();
 	}
 
+	/**
+	 * POST请求 - JSON对象（请求体直接序列化到输出流，响应体直接流式解析）
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param body
+	 *            请求数据（可为空；String视为已序列化的JSON）
+	 * @param type
+	 *            对象类型（不能为空）
+	 * @return NULL（响应体为空） 或 对象
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws org.apache.http.client.HttpResponseException
+	 *             HTTP状态码非2xx
+	 * @throws Exception
+	 *             通信异常/IO错误/JSON解析错误
+	 */
+	public static <T> T postJsonObject(String url, Object body, Class<T> type) throws Exception {
+		return postJsonObject(url, null, body, type);
+	}
+
+	/**
+	 * POST请求 - JSON对象（请求体直接序列化到输出流，响应体直接流式解析）
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param body
+	 *            请求数据（可为空；String视为已序列化的JSON）
+	 * @param type
+	 *            对象类型（不能为空）
+	 * @return NULL（响应体为空） 或 对象
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws org.apache.http.client.HttpResponseException
+	 *             HTTP状态码非2xx
+	 * @throws Exception
+	 *             通信异常/IO错误/JSON解析错误
+	 */
+	public static <T> T postJsonObject(String url, Map<String, String> headers, Object body, Class<T> type)
+			throws Exception {
+		return postStream(url, header4Json(headers), HttpJson.entity(body),
+				HttpClientPool.getInstance().getMaxBodySize(), HttpJson.handler(type));
+	}
+
 	/**
 	 * POST请求 - 字符串数据
 	 * 
@@ -412,6 +862,131 @@ public class HttpClient {
 		return doPost(url, headers, parameter, requestCharset, false, null);
 	}
 
+	/**
+	 * POST请求 - 上传文件（经FileChannel流式读取，分块传输，不缓冲到内存）
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param file
+	 *            文件（不能为空）
+	 * @param contentType
+	 *            内容类型（为空：application/octet-stream）
+	 * @param responseCharset
+	 *            响应字符集（用于响应解码；为空：UTF-8）
+	 * @param listener
+	 *            进度回调（可为空）
+	 * @return 响应
+	 * @throws IllegalArgumentException
+	 *             参数错误 或 文件不存在
+	 * @throws Exception
+	 *             通信异常/IO错误
+	 */
+	public static Response postFile(String url, Map<String, String> headers, Path file, String contentType,
+			Charset responseCharset, HttpUpload.ProgressListener listener) throws Exception {
+		checkUrl(url);
+		return doUpload(url, headers, HttpUpload.fileEntity(file, contentType), responseCharset, listener);
+	}
+
+	/**
+	 * POST请求 - 上传输入流（流式读取，分块传输，不缓冲到内存）<br>
+	 * <br>
+	 * 说明：输入流只能发送一次，请求体发出后出错不会重试；输入流由本方法负责关闭（发送完成、出错或未发送均关闭；参数错误时除外）。
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param input
+	 *            输入流（不能为空；调用方在本方法返回前不应关闭）
+	 * @param length
+	 *            长度（字节数；小于零：未知；仅用于进度计算）
+	 * @param contentType
+	 *            内容类型（为空：application/octet-stream）
+	 * @param responseCharset
+	 *            响应字符集（用于响应解码；为空：UTF-8）
+	 * @param listener
+	 *            进度回调（可为空）
+	 * @return 响应
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws Exception
+	 *             通信异常/IO错误
+	 */
+	public static Response postStream(String url, Map<String, String> headers, InputStream input, long length,
+			String contentType, Charset responseCharset, HttpUpload.ProgressListener listener) throws Exception {
+		checkUrl(url);
+		return doUpload(url, headers, HttpUpload.streamEntity(input, length, contentType), responseCharset, listener);
+	}
+
+	/**
+	 * POST请求 - 上传multipart/form-data（文件及输入流部件流式读取，分块传输，不缓冲到内存）<br>
+	 * 说明：输入流部件由本方法负责关闭（发送完成、出错或未发送均关闭）。
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param multipart
+	 *            multipart内容（不能为空）
+	 * @param responseCharset
+	 *            响应字符集（用于响应解码；为空：UTF-8）
+	 * @param listener
+	 *            进度回调（可为空）
+	 * @return 响应
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws Exception
+	 *             通信异常/IO错误
+	 */
+	public static Response postMultipart(String url, Map<String, String> headers, HttpUpload.Multipart multipart,
+			Charset responseCharset, HttpUpload.ProgressListener listener) throws Exception {
+		checkUrl(url);
+		if (multipart == null) {
+			throw new IllegalArgumentException("multipart内容不能为空！");
+		}
+		return doUpload(url, headers, multipart.build(), responseCharset, listener);
+	}
+
+	/**
+	 * POST请求 - 上传（请求体不压缩）
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param uploadEntity
+	 *            请求体（不能为空）
+	 * @param responseCharset
+	 *            响应字符集（用于响应解码；为空：UTF-8）
+	 * @param listener
+	 *            进度回调（可为空）
+	 * @return 响应
+	 * @throws Exception
+	 *             通信异常/IO错误
+	 */
+	private static Response doUpload(final String url, final Map<String, String> headers, HttpEntity uploadEntity,
+			Charset responseCharset, HttpUpload.ProgressListener listener) throws Exception {
+		final String _url = AccessLog.sanitize(url);// 不打印URL中可能含有敏感信息的部分
+		final Charset _charset = responseCharset == null ? CHARSET_UTF8 : responseCharset;
+		final HttpUpload.ProgressEntity entity = HttpUpload.progress(uploadEntity, listener);
+		final long timestamp = System.nanoTime();
+		final Response response;
+		try {
+			response = HttpResilience.execute(url, false,
+					() -> executePost(url, _url, headers, entity, _charset, true, _charset));
+		} finally {
+			HttpUpload.release(uploadEntity);// 请求体未发送（熔断、获取连接超时等）时输入流未被读取，在此关闭
+		}
+		if (AccessLog.isSuccessEnabled(logger)) {
+			logger.info("[POST请求-上传]url:{} contentType:{} bytes:{} bytesPerSecond:{} statusCode:{} elapsedMilliseconds:{}",
+					_url, uploadEntity.getContentType(), entity.getTransferred(), entity.getBytesPerSecond(),
+					response.getCode(), elapsedMilliseconds(timestamp));
+		}
+		return response;
+	}
+
 	/**
 	 * POST请求
 	 * 
@@ -433,10 +1008,10 @@ public class HttpClient {
 	 * @throws Exception
 	 *             通信异常/IO错误
 	 */
-	private static Response doPost(String url, Map<String, String> headers, Object parameter, Charset requestCharset,
-			boolean decode, Charset responseCharset) throws Exception {
+	private static Response doPost(final String url, final Map<String, String> headers, Object parameter,
+			Charset requestCharset, final boolean decode, Charset responseCharset) throws Exception {
 		checkUrl(url);
-		final String _url = url.replaceAll("\\?.*", "");// 不打印URL中可能含有敏感信息的部分
+		final String _url = AccessLog.sanitize(url);// 不打印URL中可能含有敏感信息的部分
 		if (requestCharset == null) {
 			requestCharset = CHARSET_UTF8;
 		}
@@ -452,26 +1027,64 @@ public class HttpClient {
 				throw new IllegalArgumentException("参数错误：" + e.getMessage());
 			}
 		}
+		// 请求体压缩（可选）
+		parameterEntity = HttpCompression.compress(parameterEntity,
+				HttpClientPool.getInstance().getRequestCompressThreshold());
+
+		final HttpEntity entity = parameterEntity;
+		final Charset _requestCharset = requestCharset, _responseCharset = responseCharset;
+		return HttpResilience.execute(url, false, () -> executePost(url, _url, headers, entity, _requestCharset,
+				decode, _responseCharset));
+	}
 
+	/**
+	 * POST请求（单次执行）
+	 * 
+	 * @param url
+	 *            请求地址
+	 * @param _url
+	 *            用于打印的请求地址（不含敏感信息）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param parameterEntity
+	 *            请求体（可为空；须可重复读取）
+	 * @param requestCharset
+	 *            请求字符集（用于打印）
+	 * @param decode
+	 *            是否将响应解码为字符串（true:解码 false:不解码）
+	 * @param responseCharset
+	 *            响应字符集（用于响应解码；不能为空）
+	 * @return 响应
+	 * @throws Exception
+	 *             通信异常/IO错误
+	 */
+	private static Response executePost(String url, String _url, Map<String, String> headers,
+			HttpEntity parameterEntity, Charset requestCharset, boolean decode, Charset responseCharset)
+			throws Exception {
 		long timestamp = 0;// 时间戳（用于计算请求耗时）
-		CloseableHttpClient client = getClientInstance(url);// HttpClient实例
+		final HttpClientPool pool = HttpClientPool.getInstance();
+		final HttpThrottle.Limiter limiter = HttpThrottle.acquire(url);// 限流（可能排队等待）
+		final HostMetrics metrics = HttpMetrics.begin(url);// 请求统计
 		CloseableHttpResponse response = null;
 		try {
 			HttpPost post = new HttpPost(url);// POST方法实例
 			setRequestHeader(post, headers);// 设置请求头
-			setTimeout(post, CONNECT_TIMEOUT, SOCKET_TIMEOUT);// 设置超时时间
+			post.setConfig(pool.getRequestConfig());// 设置超时时间
 			// 设置参数
 			if (parameterEntity != null) {
 				post.setEntity(parameterEntity);
 			}
 
 			timestamp = System.nanoTime();
-			response = client.execute(post);
+			response = HttpClientPool.getClient().execute(post, HttpMetrics.context(metrics));
 		} catch (Exception e) {
-			logger.error("[POST请求]出错！url:" + _url + " headers:" + headers + " parameter:..." + " requestCharset:"
-					+ requestCharset + " responseCharset:" + responseCharset + " elapsedMilliseconds:"
-					+ elapsedMilliseconds(timestamp) + " exception: [" + ExceptionUtil.detail(e) + "]");
-			closeClient(client, response);
+			metrics.end(-1, timestamp);
+			limiter.release();
+			logger.error(
+					"[POST请求]出错！url:{} headers:{} parameter:... requestCharset:{} responseCharset:{} elapsedMilliseconds:{} exception: [{}]",
+					_url, headers, requestCharset, responseCharset, elapsedMilliseconds(timestamp),
+					ExceptionUtil.detail(e));
+			closeResponse(response);
 			throw e;
 		}
 		// 注意：参数和响应可能存在敏感信息，不能打印！
@@ -484,18 +1097,22 @@ public class HttpClient {
 			} else {
 				result = new Response(statusCode, getByteResponse(response.getEntity()));
 			}
-			logger.info("[POST请求]url:" + _url + " headers:" + headers + " parameter:..." + " requestCharset:"
-					+ requestCharset + " responseCharset:" + responseCharset + " statusCode:" + statusCode
-					+ " elapsedMilliseconds:" + elapsedMilliseconds(timestamp) + " response:...");
+			if (AccessLog.isSuccessEnabled(logger)) {
+				logger.info(
+						"[POST请求]url:{} headers:{} parameter:... requestCharset:{} responseCharset:{} statusCode:{} elapsedMilliseconds:{} response:...",
+						_url, headers, requestCharset, responseCharset, statusCode, elapsedMilliseconds(timestamp));
+			}
 			return result;
 		} catch (Exception e) {
-			logger.error("[POST请求]处理响应出错！url:" + _url + " headers:" + headers + " parameter:..." + " requestCharset:"
-					+ requestCharset + " responseCharset:" + responseCharset + " statusCode:" + statusCode
-					+ " elapsedMilliseconds:" + elapsedMilliseconds(timestamp) + " exception: ["
-					+ ExceptionUtil.detail(e) + "]");
+			logger.error(
+					"[POST请求]处理响应出错！url:{} headers:{} parameter:... requestCharset:{} responseCharset:{} statusCode:{} elapsedMilliseconds:{} exception: [{}]",
+					_url, headers, requestCharset, responseCharset, statusCode, elapsedMilliseconds(timestamp),
+					ExceptionUtil.detail(e));
 			throw e;
 		} finally {
-			closeClient(client, response);
+			closeResponse(response);
+			metrics.end(statusCode, timestamp);
+			limiter.release();
 		}
 	}
 
@@ -508,11 +1125,11 @@ public class HttpClient {
 	 * @throws IllegalArgumentException
 	 *             URL为空 或 非HTTP协议地址
 	 */
-	private static boolean checkUrl(String url) {
+	static boolean checkUrl(String url) {
 		if (url == null || "".equals(url = url.trim())) {
 			throw new IllegalArgumentException("请求地址不能为空！");
 		}
-		if (!url.matches("(?i)http(s)?://.*")) {
+		if (!url.regionMatches(true, 0, "http://", 0, 7) && !url.regionMatches(true, 0, "https://", 0, 8)) {
 			throw new IllegalArgumentException("非HTTP协议地址！");
 		}
 
@@ -520,7 +1137,33 @@ public class HttpClient {
 	}
 
 	/**
-	 * 构造含参URL
+	 * 获取URL中的主机（含端口；小写）
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @return 主机（非空；格式：host 或 host:port）
+	 */
+	static String hostOf(String url) {
+		int start = url.indexOf("://");
+		start = start < 0 ? 0 : start + 3;
+		int end = start;
+		final int length = url.length();
+		while (end < length) {
+			char c = url.charAt(end);
+			if (c == '/' || c == '?' || c == '#') {
+				break;
+			}
+			end++;
+		}
+		int at = url.lastIndexOf('@', end - 1);// 去掉用户信息
+		if (at >= start) {
+			start = at + 1;
+		}
+		return url.substring(start, end).toLowerCase();
+	}
+
+	/**
+	 * 构造含参URL（按地址缓存预解析的{@link UrlTemplate}，参数以UTF-8表单格式编码）
 	 * 
 	 * @param url
 	 *            请求地址（不能为空）
@@ -534,22 +1177,11 @@ public class HttpClient {
 		if (url == null || "".equals(url = url.trim())) {
 			throw new IllegalArgumentException("请求地址不能为空！");
 		}
-		try {
-			URIBuilder uri = new URIBuilder(url);
-			// 设置参数
-			if (parameter != null && !parameter.isEmpty()) {
-				for (Map.Entry<String, String> e : parameter.entrySet()) {
-					uri.addParameter(e.getKey(), e.getValue());
-				}
-			}
-			return uri.build().toString();
-		} catch (Exception e) {
-			throw new IllegalArgumentException("构造含参URL出错！", e);
-		}
+		return UrlTemplate.cached(url).expand(parameter);
 	}
 
 	/**
-	 * 获取HttpClient实例
+	 * 获取HttpClient实例（每次新建，不使用连接池；使用完毕后须由调用方关闭；沿用连接池配置的DNS解析器）
 	 * 
 	 * @param url
 	 *            请求地址（不能为空）
@@ -563,30 +1195,24 @@ public class HttpClient {
 		if (url.toLowerCase().startsWith("https://")) {
 			return createInsecureSSLClient();
 		} else {
-			return HttpClients.createDefault();
+			return HttpClients.custom().setDnsResolver(HttpClientPool.dnsResolver()).build();
 		}
 	}
 
-	/** 创建一个不安全的SSL客户端（未载入SSL证书） */
+	/** 创建一个不安全的SSL客户端（未载入SSL证书；SSLContext缓存复用） */
 	public static CloseableHttpClient createInsecureSSLClient() {
 		try {
 			/* 未载入SSL证书，不安全 */
-			SSLContext sslContext = SSLContextBuilder.create().loadTrustMaterial(TrustAllStrategy.INSTANCE).build();
-			// SSLContext sslContext = new SSLContextBuilder().loadTrustMaterial(null, new TrustStrategy() {
-			// public boolean isTrusted(X509Certificate[] chain, String authType) throws CertificateException {
-			// return true;/* 未进行客户认证，信任所有 */
-			// }
-			// }).build();
-			return HttpClients.custom().setSSLSocketFactory(
-					new SSLConnectionSocketFactory(sslContext, NoopHostnameVerifier.INSTANCE)).build();
+			return HttpClients.custom().setSSLSocketFactory(HttpTls.socketFactory(INSECURE_TLS))
+					.setDnsResolver(HttpClientPool.dnsResolver()).build();
 		} catch (Exception e) {
 			logger.error("创建SSL客户端出现异常：" + ExceptionUtil.detail(e));
 			return HttpClients.createDefault();
 		}
 	}
 
-	/** 关闭HttpClient */
-	private static void closeClient(CloseableHttpClient client, CloseableHttpResponse response) {
+	/** 关闭HttpResponse（连接归还连接池） */
+	private static void closeResponse(CloseableHttpResponse response) {
 		if (response != null) {
 			try {
 				response.close();
@@ -594,13 +1220,6 @@ public class HttpClient {
 				logger.error("关闭HttpResponse出错！exception: [" + ExceptionUtil.detail(e) + "]");
 			}
 		}
-		if (client != null) {
-			try {
-				client.close();
-			} catch (Exception e) {
-				logger.error("关闭HttpClient出错！exception: [" + ExceptionUtil.detail(e) + "]");
-			}
-		}
 	}
 
 	/**
@@ -662,7 +1281,7 @@ public class HttpClient {
 		Map<String, String> headers = header4NoCache();
 		headers.put("User-Agent", BROWSER_AGENT[0]);
 		headers.put("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,image/webp,*/*;q=0.8");
-		headers.put("Accept-Encoding", "gzip, deflate, br");
+		headers.put("Accept-Encoding", "gzip, deflate");// 响应解压仅支持gzip、deflate
 		headers.put("Accept-Language", "zh-CN,zh;q=0.8,zh-TW;q=0.7,zh-HK;q=0.5,en-US;q=0.3,en;q=0.2");
 		// headers.put("Connection", "keep-alive");
 		return headers;
@@ -715,7 +1334,7 @@ public class HttpClient {
 	 *             错误原因
 	 */
 	@SuppressWarnings("unchecked")
-	private static HttpEntity parameterHandle(Object parameter, Charset charset) throws Exception {
+	static HttpEntity parameterHandle(Object parameter, Charset charset) throws Exception {
 		if (parameter == null) {
 			return null;
 		}
@@ -766,7 +1385,7 @@ public class HttpClient {
 	 * @throws Exception
 	 *             异常
 	 */
-	private static String getStringResponse(HttpEntity entity, Charset charset) throws Exception {
+	static String getStringResponse(HttpEntity entity, Charset charset) throws Exception {
 		if (entity == null) {
 			logger.warn("[获取响应-字符串]响应实体为空...responseEntity:" + entity + " charset:" + charset);
 			return null;
@@ -775,7 +1394,7 @@ public class HttpClient {
 			charset = CHARSET_UTF8;
 		}
 
-		String result = EntityUtils.toString(entity, charset);
+		String result = EntityUtils.toString(limitEntity(entity), charset);
 		return result.length() == 0 ? null : result;
 	}
 
@@ -788,23 +1407,24 @@ public class HttpClient {
 	 * @throws Exception
 	 *             异常
 	 */
-	private static byte[] getByteResponse(HttpEntity entity) throws Exception {
+	static byte[] getByteResponse(HttpEntity entity) throws Exception {
 		if (entity == null) {
 			logger.warn("[获取响应-字符串]响应实体为空...responseEntity:" + entity);
 			return null;
 		}
-		final InputStream input = entity.getContent();
+		final InputStream input = limitEntity(entity).getContent();
 		if (input == null) {
 			return null;
 		}
 
-		int contentLength = (int) entity.getContentLength();
+		long contentLength = entity.getContentLength();
 		if (contentLength < MIN_BUFFER_SIZE) {
 			contentLength = MIN_BUFFER_SIZE;
 		}
 		final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
-		// ContentLength不可信，不能作为判断数据是否完整的依据
-		try (ByteArrayOutputStream output = new ByteArrayOutputStream(Math.min(buffer.length, contentLength))) {
+		// ContentLength不可信，不能作为判断数据是否完整的依据（仅用于预分配缓冲区，避免扩容复制）
+		try (ByteArrayOutputStream output = new ByteArrayOutputStream(
+				(int) Math.min(MAX_INITIAL_BUFFER_SIZE, contentLength + 1))) {
 			int n = 0;
 			while ((n = input.read(buffer)) > 0) {
 				output.write(buffer, 0, n);
@@ -821,6 +1441,33 @@ public class HttpClient {
 		}
 	}
 
+	/**
+	 * 限制响应体大小（超出{@link HttpClientPool.Config#getMaxBodySize()}时读取将抛出IOException）
+	 * 
+	 * @param entity
+	 *            响应实体（不能为空）
+	 * @return 响应实体
+	 * @throws IOException
+	 *             响应体（ContentLength）超出最大限制
+	 */
+	private static HttpEntity limitEntity(HttpEntity entity) throws IOException {
+		final long maxBodySize = HttpClientPool.getInstance().getMaxBodySize();
+		if (maxBodySize <= 0) {
+			return entity;
+		}
+		if (entity.getContentLength() > maxBodySize) {
+			throw new IOException(
+					"响应体超出最大限制！maxBodySize:" + maxBodySize + " contentLength:" + entity.getContentLength());
+		}
+		return new HttpEntityWrapper(entity) {
+			@Override
+			public InputStream getContent() throws IOException {
+				InputStream input = super.getContent();
+				return input == null ? null : new LimitedInputStream(input, maxBodySize);
+			}
+		};
+	}
+
 	/**
 	 * 耗时计算 - 毫秒
 	 * 
@@ -832,6 +1479,20 @@ public class HttpClient {
 		return Math.abs(System.nanoTime() - nanoTimestamp) / 1000000L;
 	}
 
+	/**
+	 * 获取响应头的值
+	 *
+	 * @param response
+	 *            响应（不能为空）
+	 * @param name
+	 *            响应头名称
+	 * @return NULL 或 响应头的值（多个同名响应头时取第一个）
+	 */
+	private static String headerValue(HttpResponse response, String name) {
+		Header header = response.getFirstHeader(name);
+		return header == null ? null : header.getValue();
+	}
+
 	/**
 	 * HTTP响应
 	 */
@@ -843,6 +1504,10 @@ public class HttpClient {
 		private String data;
 		/** (字节)响应体 */
 		private byte[] body;
+		/** 响应头 - ETag（仅在启用{@link HttpResponseCache}时记录） */
+		private String eTag;
+		/** 响应头 - Cache-Control（仅在启用{@link HttpResponseCache}时记录） */
+		private String cacheControl;
 
 		/**
 		 * HTTP响应
@@ -896,6 +1561,47 @@ public class HttpClient {
 			return body;
 		}
 
+		/** 响应头 - ETag（仅在启用{@link HttpResponseCache}时记录） */
+		public String getETag() {
+			return eTag;
+		}
+
+		/** 响应头 - Cache-Control（仅在启用{@link HttpResponseCache}时记录） */
+		public String getCacheControl() {
+			return cacheControl;
+		}
+
+		/** 复制（字节响应体为副本，用于共享的缓存响应） */
+		Response copy() {
+			Response r = body == null ? new Response(code, data) : new Response(code, body.clone());
+			r.eTag = eTag;
+			r.cacheControl = cacheControl;
+			return r;
+		}
+
+	}
+
+	/**
+	 * 响应体处理器（流式）
+	 * 
+	 * @param <T>
+	 *            返回值类型
+	 */
+	public interface BodyHandler<T> {
+
+		/**
+		 * 处理响应体
+		 * 
+		 * @param statusCode
+		 *            HTTP状态码
+		 * @param body
+		 *            响应体输入流（非空；无响应体时为空流；无需关闭）
+		 * @return 处理结果
+		 * @throws Exception
+		 *             处理出错
+		 */
+		T handle(int statusCode, InputStream body) throws Exception;
+
 	}
 
 	public static void main(String[] args) {
@@ -3,15 +3,11 @@ package com.huangwei.http;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
-import java.security.cert.CertificateException;
-import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import javax.net.ssl.SSLContext;
-
 import org.apache.http.HttpEntity;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
@@ -20,13 +16,10 @@ import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpRequestBase;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -41,6 +34,12 @@ public class HttpClient4 {
 	private static final int CONNECT_TIMEOUT = 1000 * 5;
 	/** 读取数据超时时间 */
 	private static final int SOCKET_TIMEOUT = 1000 * 180;
+	/** TLS配置 - 信任所有证书（校验主机名） */
+	private static final HttpTls.Config INSECURE_TLS = HttpTls.Config.trustAll();
+
+	static {
+		INSECURE_TLS.setVerifyHostname(true);
+	}
 
 	/**
 	 * GET请求
@@ -278,18 +277,11 @@ public class HttpClient4 {
 		}
 	}
 
-	/** 创建一个不安全的SSL客户端（未载入SSL证书） */
+	/** 创建一个不安全的SSL客户端（未载入SSL证书；SSLContext缓存复用） */
 	public static CloseableHttpClient createInsecureSSLClient() {
 		try {
 			/* 未载入本地SSL证书，不安全 */
-			SSLContext sslContext = new SSLContextBuilder().loadTrustMaterial(null, new TrustStrategy() {
-				@Override
-				public boolean isTrusted(X509Certificate[] chain, String authType) throws CertificateException {
-					return true;/* 未进行客户认证，信任所有 */
-				}
-			}).build();
-
-			return HttpClients.custom().setSSLSocketFactory(new SSLConnectionSocketFactory(sslContext)).build();
+			return HttpClients.custom().setSSLSocketFactory(HttpTls.socketFactory(INSECURE_TLS)).build();
 		} catch (Exception e) {
 			log.error("创建SSL客户端出现异常：" + e);
 			return HttpClients.createDefault();
@@ -0,0 +1,542 @@
+package com.huangwei.http;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.HttpRequestRetryHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.util.ExceptionUtil;
+
+/**
+ * HttpClient连接池<br>
+ * <br>
+ * 为{@link HttpClient}的静态方法提供长期存活、可复用的连接（Keep-Alive），避免每次请求都重新进行TCP/TLS握手。<br>
+ * 说明：首次使用时以默认配置初始化；可通过{@link #configure(Config)}替换配置，通过{@link #shutdown()}关闭。
+ */
+public final class HttpClientPool {
+	private static final Logger logger = LoggerFactory.getLogger(HttpClientPool.class);
+
+	/** 重试处理器（请求的主机适用{@link HttpResilience}策略时由其负责重试，不再自动重试；其它主机保留默认的重试） */
+	private static final HttpRequestRetryHandler RETRY_HANDLER = (exception, executionCount, context) -> {
+		if (HttpResilience.isEnabled() && HttpResilience.getPolicy(hostOf(context)) != null) {
+			return false;
+		}
+		return DefaultHttpRequestRetryHandler.INSTANCE.retryRequest(exception, executionCount, context);
+	};
+
+	/** 旧连接池的最长保留时间（单位：毫秒；超过后即使仍有租借中的连接也关闭） */
+	private static final long MAX_RETIRE_WAIT = 1000 * 60 * 5;
+	/** 旧连接池检查租借连接的间隔（单位：毫秒） */
+	private static final long RETIRE_CHECK_INTERVAL = 100;
+
+	/** 当前实例 */
+	private static volatile HttpClientPool instance;
+	/** JVM关闭钩子是否已注册 */
+	private static boolean shutdownHookRegistered = false;
+
+	/** 配置 */
+	private final Config config;
+	/** 连接管理器 */
+	private final PoolingHttpClientConnectionManager connectionManager;
+	/** HttpClient实例（共享连接管理器） */
+	private final CloseableHttpClient client;
+	/** 默认请求配置 */
+	private final RequestConfig requestConfig;
+
+	/**
+	 * HttpClient连接池
+	 *
+	 * @param config
+	 *            配置（不能为空）
+	 */
+	private HttpClientPool(Config config) {
+		this.config = config;
+		this.connectionManager = new MeteredConnectionManager(socketFactoryRegistry(config), config.getDnsResolver(),
+				config.getTimeToLive());
+		connectionManager.setMaxTotal(config.getMaxTotal());
+		connectionManager.setDefaultMaxPerRoute(config.getMaxPerRoute());
+		connectionManager.setValidateAfterInactivity(config.getValidateAfterInactivity());
+		this.requestConfig = RequestConfig.custom().setConnectTimeout(config.getConnectTimeout())
+				.setSocketTimeout(config.getSocketTimeout())
+				.setConnectionRequestTimeout(config.getConnectionRequestTimeout()).build();
+		this.client = HttpClients.custom().setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig).setRetryHandler(RETRY_HANDLER).disableContentCompression()
+				.addInterceptorLast(HttpCompression.REQUEST_INTERCEPTOR)
+				.addInterceptorLast(HttpMetrics.REQUEST_INTERCEPTOR)
+				.addInterceptorFirst(HttpMetrics.RESPONSE_INTERCEPTOR)// 先于解压，统计传输字节数
+				.addInterceptorLast(HttpCompression.RESPONSE_INTERCEPTOR).evictExpiredConnections()
+				.evictIdleConnections(config.getMaxIdleTime(), TimeUnit.MILLISECONDS).build();
+	}
+
+	/**
+	 * 获取连接池实例（未初始化时以默认配置初始化）
+	 *
+	 * @return 连接池实例（非空）
+	 */
+	public static HttpClientPool getInstance() {
+		HttpClientPool pool = instance;
+		if (pool == null) {
+			synchronized (HttpClientPool.class) {
+				pool = instance;
+				if (pool == null) {
+					pool = create(new Config());
+				}
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * 获取共享的HttpClient实例<br>
+	 * <br>
+	 * 注意：该实例由连接池管理，使用者只能关闭响应（CloseableHttpResponse），不能关闭客户端！
+	 *
+	 * @return HttpClient实例（非空）
+	 */
+	public static CloseableHttpClient getClient() {
+		return getInstance().client;
+	}
+
+	/**
+	 * 配置连接池（替换当前连接池；旧连接池立即关闭空闲连接，待租借中的连接全部归还后关闭，
+	 * 最长等待“租借超时 + 读取超时”（不超过5分钟），不影响进行中的请求）
+	 *
+	 * @param config
+	 *            配置（不能为空）
+	 * @throws IllegalArgumentException
+	 *             配置为空
+	 */
+	public static void configure(Config config) {
+		if (config == null) {
+			throw new IllegalArgumentException("连接池配置不能为空！");
+		}
+
+		HttpClientPool old;
+		synchronized (HttpClientPool.class) {
+			old = instance;
+			create(config.copy());
+		}
+		if (old != null) {
+			old.retire();
+		}
+	}
+
+	/**
+	 * 关闭连接池（释放所有连接；同时关闭异步客户端{@link AsyncHttpClient}；之后再次使用时将以默认配置重新初始化）
+	 */
+	public static void shutdown() {
+		HttpClientPool old;
+		synchronized (HttpClientPool.class) {
+			old = instance;
+			instance = null;
+		}
+		if (old != null) {
+			old.close();
+		}
+		AsyncHttpClient.shutdown();
+	}
+
+	/**
+	 * 当前连接池配置的DNS解析器（不初始化连接池；用于{@link HttpClient#getClientInstance}新建的客户端）
+	 *
+	 * @return NULL（系统解析器） 或 DNS解析器
+	 */
+	static DnsResolver dnsResolver() {
+		HttpClientPool pool = instance;
+		return pool == null ? null : pool.config.getDnsResolver();
+	}
+
+	/** 创建连接池实例（调用方须持有类锁） */
+	private static HttpClientPool create(Config config) {
+		HttpClientPool pool = new HttpClientPool(config);
+		instance = pool;
+		if (config.isRegisterShutdownHook() && !shutdownHookRegistered) {
+			Runtime.getRuntime().addShutdownHook(new Thread(HttpClientPool::shutdown, "HttpClientPool-shutdown"));
+			shutdownHookRegistered = true;
+		}
+		logger.info("[HttpClient连接池]初始化完成！config:" + config);
+		return pool;
+	}
+
+	/**
+	 * 退役（已被新连接池替换：立即关闭空闲连接，后台等待租借中的连接归还后关闭）
+	 */
+	private void retire() {
+		connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+		final long timeout = config.getConnectionRequestTimeout() > 0 && config.getSocketTimeout() > 0
+				? Math.min(MAX_RETIRE_WAIT, (long) config.getConnectionRequestTimeout() + config.getSocketTimeout())
+				: MAX_RETIRE_WAIT;
+		final Thread t = new Thread(() -> {
+			final long deadline = System.currentTimeMillis() + timeout;
+			try {
+				do {
+					Thread.sleep(RETIRE_CHECK_INTERVAL);// 至少等待一次：替换前已取得旧客户端的请求可能尚未租借连接
+					PoolStats stats = connectionManager.getTotalStats();
+					if (stats.getLeased() == 0 && stats.getPending() == 0) {
+						break;
+					}
+					connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);// 已归还的连接不再复用
+				} while (System.currentTimeMillis() < deadline);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			close();
+		}, "HttpClientPool-retire");
+		t.setDaemon(true);
+		t.start();
+	}
+
+	/** 关闭当前实例 */
+	private void close() {
+		try {
+			client.close();// 同时关闭连接管理器及空闲连接回收线程
+			logger.info("[HttpClient连接池]已关闭！stats:" + connectionManager.getTotalStats());
+		} catch (Exception e) {
+			logger.error("[HttpClient连接池]关闭出错！exception: [" + ExceptionUtil.detail(e) + "]");
+		}
+	}
+
+	/**
+	 * 请求的主机（格式同{@link HttpClient#hostOf}：取自请求统计；没有时取目标主机）
+	 *
+	 * @param context
+	 *            请求上下文（不能为空）
+	 * @return 主机（未知时为空字符串）
+	 */
+	private static String hostOf(HttpContext context) {
+		final Object metrics = context.getAttribute(HttpMetrics.CONTEXT_ATTRIBUTE);
+		if (metrics instanceof HostMetrics) {
+			return ((HostMetrics) metrics).getHost();
+		}
+		final HttpHost target = HttpClientContext.adapt(context).getTargetHost();
+		if (target == null) {
+			return "";
+		}
+		final String host = target.getHostName().toLowerCase();
+		return target.getPort() < 0 ? host : host + ":" + target.getPort();
+	}
+
+	/** 连接工厂注册表（HTTPS按TLS配置；SSLContext由{@link HttpTls}缓存复用） */
+	private static Registry<ConnectionSocketFactory> socketFactoryRegistry(Config config) {
+		return RegistryBuilder.<ConnectionSocketFactory> create()
+				.register("http", PlainConnectionSocketFactory.getSocketFactory())
+				.register("https", HttpTls.socketFactory(config.getTls())).build();
+	}
+
+	/** 配置（副本） */
+	public Config getConfig() {
+		return config.copy();
+	}
+
+	/** 默认请求配置（含连接/读取/租借超时时间） */
+	public RequestConfig getRequestConfig() {
+		return requestConfig;
+	}
+
+	/** 最大连接数 */
+	public int getMaxTotal() {
+		return config.getMaxTotal();
+	}
+
+	/** 响应体最大字节数（小于等于零：不限制） */
+	public long getMaxBodySize() {
+		return config.getMaxBodySize();
+	}
+
+	/** 请求体压缩阈值（小于等于零：不压缩） */
+	public long getRequestCompressThreshold() {
+		return config.getRequestCompressThreshold();
+	}
+
+	/** 连接池统计信息（总计） */
+	public PoolStats getTotalStats() {
+		return connectionManager.getTotalStats();
+	}
+
+	/** 连接管理器 */
+	PoolingHttpClientConnectionManager getConnectionManager() {
+		return connectionManager;
+	}
+
+	/**
+	 * 连接管理器（统计租借连接的等待耗时）
+	 */
+	private static class MeteredConnectionManager extends PoolingHttpClientConnectionManager {
+
+		MeteredConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry, DnsResolver dnsResolver,
+				long timeToLive) {
+			super(socketFactoryRegistry, null, null, dnsResolver, timeToLive, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+			final ConnectionRequest request = super.requestConnection(route, state);
+			return new ConnectionRequest() {
+
+				@Override
+				public boolean cancel() {
+					return request.cancel();
+				}
+
+				@Override
+				public HttpClientConnection get(long timeout, TimeUnit timeUnit)
+						throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+					final long timestamp = System.nanoTime();
+					try {
+						return request.get(timeout, timeUnit);
+					} finally {
+						HttpMetrics.recordLeaseWait(System.nanoTime() - timestamp);
+					}
+				}
+			};
+		}
+
+	}
+
+	/**
+	 * 连接池配置
+	 */
+	public static class Config {
+
+		/** 最大连接数 */
+		private int maxTotal = 200;
+		/** 单路由（主机）最大连接数 */
+		private int maxPerRoute = 50;
+		/** 连接超时时间（单位：毫秒） */
+		private int connectTimeout = 1000 * 10;
+		/** 读取数据超时时间（单位：毫秒） */
+		private int socketTimeout = 1000 * 60 * 3;
+		/** 从连接池获取连接的超时时间（单位：毫秒） */
+		private int connectionRequestTimeout = 1000 * 10;
+		/** 连接最大空闲时间，超时后由后台线程回收（单位：毫秒） */
+		private long maxIdleTime = 1000 * 60;
+		/** 连接最大存活时间（小于等于零：不限制）（单位：毫秒） */
+		private long timeToLive = -1;
+		/** 空闲多久后复用前需校验连接（单位：毫秒） */
+		private int validateAfterInactivity = 1000 * 2;
+		/** 是否注册JVM关闭钩子 */
+		private boolean registerShutdownHook = true;
+		/** 响应体最大字节数（小于等于零：不限制） */
+		private long maxBodySize = -1;
+		/** 请求体压缩阈值：请求体达到该字节数时以gzip压缩发送（小于等于零：不压缩；需服务端支持） */
+		private long requestCompressThreshold = -1;
+		/** I/O线程数（仅用于异步客户端{@link AsyncHttpClient}） */
+		private int ioThreadCount = Runtime.getRuntime().availableProcessors();
+		/** TLS配置（默认沿用原有行为：信任所有证书，不校验主机名） */
+		private HttpTls.Config tls = HttpTls.Config.trustAll();
+		/** DNS解析器（为空：系统解析器；例如：{@link CachingDnsResolver}） */
+		private DnsResolver dnsResolver;
+
+		/** 复制 */
+		Config copy() {
+			Config c = new Config();
+			c.maxTotal = maxTotal;
+			c.maxPerRoute = maxPerRoute;
+			c.connectTimeout = connectTimeout;
+			c.socketTimeout = socketTimeout;
+			c.connectionRequestTimeout = connectionRequestTimeout;
+			c.maxIdleTime = maxIdleTime;
+			c.timeToLive = timeToLive;
+			c.validateAfterInactivity = validateAfterInactivity;
+			c.registerShutdownHook = registerShutdownHook;
+			c.maxBodySize = maxBodySize;
+			c.requestCompressThreshold = requestCompressThreshold;
+			c.ioThreadCount = ioThreadCount;
+			c.tls = tls.copy();
+			c.dnsResolver = dnsResolver;// 共享（含缓存及统计）
+			return c;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("[clazz=Config, maxTotal=").append(maxTotal).append(", maxPerRoute=").append(maxPerRoute)
+					.append(", connectTimeout=").append(connectTimeout).append(", socketTimeout=")
+					.append(socketTimeout).append(", connectionRequestTimeout=").append(connectionRequestTimeout)
+					.append(", maxIdleTime=").append(maxIdleTime).append(", timeToLive=").append(timeToLive)
+					.append(", validateAfterInactivity=").append(validateAfterInactivity)
+					.append(", registerShutdownHook=").append(registerShutdownHook).append(", maxBodySize=")
+					.append(maxBodySize).append(", requestCompressThreshold=").append(requestCompressThreshold)
+					.append(", ioThreadCount=").append(ioThreadCount).append(", tls=").append(tls)
+					.append(", dnsResolver=").append(dnsResolver).append("]");
+			return builder.toString();
+		}
+
+		/** 最大连接数 */
+		public int getMaxTotal() {
+			return maxTotal;
+		}
+
+		/** 最大连接数（大于零） */
+		public void setMaxTotal(int maxTotal) {
+			if (maxTotal < 1) {
+				throw new IllegalArgumentException("最大连接数必须大于零！maxTotal:" + maxTotal);
+			}
+			this.maxTotal = maxTotal;
+		}
+
+		/** 单路由（主机）最大连接数 */
+		public int getMaxPerRoute() {
+			return maxPerRoute;
+		}
+
+		/** 单路由（主机）最大连接数（大于零） */
+		public void setMaxPerRoute(int maxPerRoute) {
+			if (maxPerRoute < 1) {
+				throw new IllegalArgumentException("单路由最大连接数必须大于零！maxPerRoute:" + maxPerRoute);
+			}
+			this.maxPerRoute = maxPerRoute;
+		}
+
+		/** 连接超时时间（单位：毫秒） */
+		public int getConnectTimeout() {
+			return connectTimeout;
+		}
+
+		/** 连接超时时间（单位：毫秒） */
+		public void setConnectTimeout(int connectTimeout) {
+			this.connectTimeout = connectTimeout;
+		}
+
+		/** 读取数据超时时间（单位：毫秒） */
+		public int getSocketTimeout() {
+			return socketTimeout;
+		}
+
+		/** 读取数据超时时间（单位：毫秒） */
+		public void setSocketTimeout(int socketTimeout) {
+			this.socketTimeout = socketTimeout;
+		}
+
+		/** 从连接池获取连接的超时时间（单位：毫秒） */
+		public int getConnectionRequestTimeout() {
+			return connectionRequestTimeout;
+		}
+
+		/** 从连接池获取连接的超时时间（单位：毫秒） */
+		public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+			this.connectionRequestTimeout = connectionRequestTimeout;
+		}
+
+		/** 连接最大空闲时间（单位：毫秒） */
+		public long getMaxIdleTime() {
+			return maxIdleTime;
+		}
+
+		/** 连接最大空闲时间（大于零）（单位：毫秒） */
+		public void setMaxIdleTime(long maxIdleTime) {
+			if (maxIdleTime < 1) {
+				throw new IllegalArgumentException("连接最大空闲时间必须大于零！maxIdleTime:" + maxIdleTime);
+			}
+			this.maxIdleTime = maxIdleTime;
+		}
+
+		/** 连接最大存活时间（小于等于零：不限制）（单位：毫秒） */
+		public long getTimeToLive() {
+			return timeToLive;
+		}
+
+		/** 连接最大存活时间（小于等于零：不限制）（单位：毫秒） */
+		public void setTimeToLive(long timeToLive) {
+			this.timeToLive = timeToLive;
+		}
+
+		/** 空闲多久后复用前需校验连接（单位：毫秒） */
+		public int getValidateAfterInactivity() {
+			return validateAfterInactivity;
+		}
+
+		/** 空闲多久后复用前需校验连接（单位：毫秒） */
+		public void setValidateAfterInactivity(int validateAfterInactivity) {
+			this.validateAfterInactivity = validateAfterInactivity;
+		}
+
+		/** 是否注册JVM关闭钩子 */
+		public boolean isRegisterShutdownHook() {
+			return registerShutdownHook;
+		}
+
+		/** 是否注册JVM关闭钩子 */
+		public void setRegisterShutdownHook(boolean registerShutdownHook) {
+			this.registerShutdownHook = registerShutdownHook;
+		}
+
+		/** 响应体最大字节数（小于等于零：不限制） */
+		public long getMaxBodySize() {
+			return maxBodySize;
+		}
+
+		/** 响应体最大字节数（小于等于零：不限制） */
+		public void setMaxBodySize(long maxBodySize) {
+			this.maxBodySize = maxBodySize;
+		}
+
+		/** 请求体压缩阈值（小于等于零：不压缩）（单位：字节） */
+		public long getRequestCompressThreshold() {
+			return requestCompressThreshold;
+		}
+
+		/** 请求体压缩阈值（小于等于零：不压缩；需服务端支持gzip请求体）（单位：字节） */
+		public void setRequestCompressThreshold(long requestCompressThreshold) {
+			this.requestCompressThreshold = requestCompressThreshold;
+		}
+
+		/** I/O线程数（仅用于异步客户端） */
+		public int getIoThreadCount() {
+			return ioThreadCount;
+		}
+
+		/** I/O线程数（大于零）（仅用于异步客户端） */
+		public void setIoThreadCount(int ioThreadCount) {
+			if (ioThreadCount < 1) {
+				throw new IllegalArgumentException("I/O线程数必须大于零！ioThreadCount:" + ioThreadCount);
+			}
+			this.ioThreadCount = ioThreadCount;
+		}
+
+		/** TLS配置 */
+		public HttpTls.Config getTls() {
+			return tls;
+		}
+
+		/** TLS配置（不能为空；例如：{@link HttpTls.Config#system()}） */
+		public void setTls(HttpTls.Config tls) {
+			if (tls == null) {
+				throw new IllegalArgumentException("TLS配置不能为空！");
+			}
+			this.tls = tls.copy();
+		}
+
+		/** DNS解析器（为空：系统解析器） */
+		public DnsResolver getDnsResolver() {
+			return dnsResolver;
+		}
+
+		/** DNS解析器（为空：系统解析器；例如：new {@link CachingDnsResolver}()） */
+		public void setDnsResolver(DnsResolver dnsResolver) {
+			this.dnsResolver = dnsResolver;
+		}
+
+	}
+
+}
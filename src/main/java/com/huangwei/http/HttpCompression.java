@@ -0,0 +1,408 @@
+package com.huangwei.http;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.entity.DecompressingEntity;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.client.entity.InputStreamFactory;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+
+/**
+ * HTTP压缩（gzip/deflate）<br>
+ * <br>
+ * 1. 请求：自动声明Accept-Encoding；请求体达到阈值（{@link HttpClientPool.Config#getRequestCompressThreshold()}）时以gzip流式压缩发送；<br>
+ * 2. 响应：按Content-Encoding自动流式解压；<br>
+ * 3. 统计：压缩前后的字节数（传输字节数/解码字节数），用于观察压缩效果。
+ */
+public final class HttpCompression {
+
+	/** 请求头 - Accept-Encoding */
+	private static final Header ACCEPT_ENCODING = new BasicHeader(HttpHeaders.ACCEPT_ENCODING, "gzip,deflate");
+	/** 请求头 - Content-Encoding: gzip */
+	private static final Header CONTENT_ENCODING_GZIP = new BasicHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+	/** 压缩的请求数 */
+	private static final LongAdder compressedRequests = new LongAdder();
+	/** 请求体 - 压缩前字节数 */
+	private static final LongAdder requestDecodedBytes = new LongAdder();
+	/** 请求体 - 传输字节数（压缩后） */
+	private static final LongAdder requestWireBytes = new LongAdder();
+	/** 压缩的响应数 */
+	private static final LongAdder compressedResponses = new LongAdder();
+	/** 响应体 - 传输字节数（解压前） */
+	private static final LongAdder responseWireBytes = new LongAdder();
+	/** 响应体 - 解码字节数（解压后） */
+	private static final LongAdder responseDecodedBytes = new LongAdder();
+
+	/** 解压工厂 - gzip */
+	private static final InputStreamFactory GZIP = new InputStreamFactory() {
+		@Override
+		public InputStream create(InputStream input) throws IOException {
+			return new CountingInputStream(new GZIPInputStream(new CountingInputStream(input, responseWireBytes)),
+					responseDecodedBytes);
+		}
+	};
+	/** 解压工厂 - deflate（兼容zlib格式及原始deflate格式） */
+	private static final InputStreamFactory DEFLATE = new InputStreamFactory() {
+		@Override
+		public InputStream create(InputStream input) throws IOException {
+			return new CountingInputStream(new DeflateInputStream(new CountingInputStream(input, responseWireBytes)),
+					responseDecodedBytes);
+		}
+	};
+
+	/** 请求拦截器 - 声明支持的压缩格式（已设置Accept-Encoding的请求不做修改） */
+	static final HttpRequestInterceptor REQUEST_INTERCEPTOR = (request, context) -> {
+		if (!request.containsHeader(HttpHeaders.ACCEPT_ENCODING)) {
+			request.addHeader(ACCEPT_ENCODING);
+		}
+	};
+
+	/** 响应拦截器 - 按Content-Encoding解压（不支持的压缩格式保持原样） */
+	static final HttpResponseInterceptor RESPONSE_INTERCEPTOR = (response, context) -> decompress(response);
+
+	private HttpCompression() {
+	}
+
+	/**
+	 * 解压响应
+	 *
+	 * @param response
+	 *            响应（不能为空）
+	 */
+	private static void decompress(HttpResponse response) {
+		final HttpEntity entity = response.getEntity();
+		if (entity == null || entity.getContentLength() == 0) {
+			return;
+		}
+		final Header contentEncoding = entity.getContentEncoding();
+		if (contentEncoding == null) {
+			return;
+		}
+		for (HeaderElement element : contentEncoding.getElements()) {
+			final String codec = element.getName().toLowerCase();
+			InputStreamFactory factory;
+			if ("gzip".equals(codec) || "x-gzip".equals(codec)) {
+				factory = GZIP;
+			} else if ("deflate".equals(codec)) {
+				factory = DEFLATE;
+			} else {
+				continue;// identity或不支持的格式
+			}
+			compressedResponses.increment();
+			response.setEntity(new DecompressingEntity(entity, factory));
+			response.removeHeaders(HttpHeaders.CONTENT_LENGTH);
+			response.removeHeaders(HttpHeaders.CONTENT_ENCODING);
+			response.removeHeaders("Content-MD5");
+			return;
+		}
+	}
+
+	/**
+	 * 压缩请求体（gzip，流式压缩，不缓冲到内存）
+	 *
+	 * @param entity
+	 *            请求体（可为空）
+	 * @param threshold
+	 *            阈值（字节数；小于等于零：不压缩；请求体长度未知或小于阈值时不压缩）
+	 * @return 请求体（压缩后 或 原请求体）
+	 */
+	static HttpEntity compress(HttpEntity entity, long threshold) {
+		if (entity == null || threshold <= 0 || entity.getContentEncoding() != null) {
+			return entity;
+		}
+		if (entity.getContentLength() < threshold) {
+			return entity;
+		}
+		return new GzipRequestEntity(entity);
+	}
+
+	/** 压缩的请求数 */
+	public static long getCompressedRequests() {
+		return compressedRequests.sum();
+	}
+
+	/** 请求体 - 压缩前字节数 */
+	public static long getRequestDecodedBytes() {
+		return requestDecodedBytes.sum();
+	}
+
+	/** 请求体 - 传输字节数（压缩后） */
+	public static long getRequestWireBytes() {
+		return requestWireBytes.sum();
+	}
+
+	/** 压缩的响应数 */
+	public static long getCompressedResponses() {
+		return compressedResponses.sum();
+	}
+
+	/** 响应体 - 传输字节数（解压前） */
+	public static long getResponseWireBytes() {
+		return responseWireBytes.sum();
+	}
+
+	/** 响应体 - 解码字节数（解压后） */
+	public static long getResponseDecodedBytes() {
+		return responseDecodedBytes.sum();
+	}
+
+	/** 统计信息 */
+	public static String stats() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=HttpCompression, compressedRequests=").append(getCompressedRequests())
+				.append(", requestDecodedBytes=").append(getRequestDecodedBytes()).append(", requestWireBytes=")
+				.append(getRequestWireBytes()).append(", compressedResponses=").append(getCompressedResponses())
+				.append(", responseWireBytes=").append(getResponseWireBytes()).append(", responseDecodedBytes=")
+				.append(getResponseDecodedBytes()).append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * gzip压缩的请求体（分块传输）
+	 */
+	private static class GzipRequestEntity extends HttpEntityWrapper {
+
+		GzipRequestEntity(HttpEntity entity) {
+			super(entity);
+		}
+
+		@Override
+		public Header getContentEncoding() {
+			return CONTENT_ENCODING_GZIP;
+		}
+
+		@Override
+		public long getContentLength() {
+			return -1;
+		}
+
+		@Override
+		public boolean isChunked() {
+			return true;
+		}
+
+		/** 压缩后的内容（读取时流式压缩；与{@link #writeTo}的输出等价） */
+		@Override
+		public InputStream getContent() throws IOException {
+			return new GzipCompressingInputStream(wrappedEntity.getContent());
+		}
+
+		@Override
+		public void writeTo(OutputStream output) throws IOException {
+			final CountingOutputStream wire = new CountingOutputStream(output);
+			final ReleasableGzipOutputStream gzip = new ReleasableGzipOutputStream(wire, 1024 * 8);
+			final CountingOutputStream decoded = new CountingOutputStream(gzip);
+			try {
+				wrappedEntity.writeTo(decoded);
+				gzip.finish();// 不能关闭底层输出流
+			} finally {
+				gzip.release();
+			}
+			compressedRequests.increment();
+			requestDecodedBytes.add(decoded.count);
+			requestWireBytes.add(wire.count);
+		}
+
+	}
+
+	/**
+	 * 可释放压缩器的gzip输出流（finish()不释放压缩器的本地内存，close()会关闭底层输出流）
+	 */
+	private static class ReleasableGzipOutputStream extends GZIPOutputStream {
+
+		ReleasableGzipOutputStream(OutputStream output, int size) throws IOException {
+			super(output, size);
+		}
+
+		/** 释放压缩器（不关闭底层输出流；之后不能再写入） */
+		void release() {
+			def.end();
+		}
+
+	}
+
+	/**
+	 * gzip压缩输入流（读取时从原始输入流拉取并压缩：头部 + deflate数据 + CRC32及长度尾部；读取完毕时计入统计）
+	 */
+	static class GzipCompressingInputStream extends InputStream {
+
+		/** gzip头部（与GZIPOutputStream一致） */
+		private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+		/** 原始输入流（计算CRC32） */
+		private final CheckedInputStream source;
+		/** 压缩器（原始deflate格式，头部及尾部由本类输出） */
+		private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		/** deflate数据 */
+		private final DeflaterInputStream body;
+		/** 尾部（CRC32 + 原始长度，小端序） */
+		private final byte[] trailer = new byte[8];
+		/** 阶段（0：头部 1：deflate数据 2：尾部 3：结束） */
+		private int stage;
+		/** 头部/尾部的读取位置 */
+		private int position;
+		/** 已输出字节数（压缩后） */
+		private long wireCount;
+
+		GzipCompressingInputStream(InputStream input) {
+			this.source = new CheckedInputStream(input, new CRC32());
+			this.body = new DeflaterInputStream(source, deflater, 1024 * 8);
+		}
+
+		@Override
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			for (;;) {
+				switch (stage) {
+				case 0:
+					if (position < HEADER.length) {
+						return copy(HEADER, b, off, len);
+					}
+					stage = 1;
+					break;
+				case 1:
+					final int n = body.read(b, off, len);
+					if (n > 0) {
+						wireCount += n;
+						return n;
+					}
+					if (n == 0) {
+						continue;
+					}
+					writeTrailer();
+					stage = 2;
+					position = 0;
+					break;
+				case 2:
+					if (position < trailer.length) {
+						return copy(trailer, b, off, len);
+					}
+					stage = 3;
+					compressedRequests.increment();
+					requestDecodedBytes.add(deflater.getBytesRead());
+					requestWireBytes.add(wireCount);
+					break;
+				default:
+					return -1;
+				}
+			}
+		}
+
+		/** 复制头部/尾部 */
+		private int copy(byte[] src, byte[] b, int off, int len) {
+			final int n = Math.min(len, src.length - position);
+			System.arraycopy(src, position, b, off, n);
+			position += n;
+			wireCount += n;
+			return n;
+		}
+
+		/** 生成尾部 */
+		private void writeTrailer() {
+			final long crc = source.getChecksum().getValue();
+			final long size = deflater.getBytesRead();
+			for (int i = 0; i < 4; i++) {
+				trailer[i] = (byte) (crc >>> (i * 8));
+				trailer[i + 4] = (byte) (size >>> (i * 8));
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				source.close();
+			} finally {
+				deflater.end();
+			}
+		}
+
+	}
+
+	/**
+	 * 计数输入流（读取时累加到计数器）
+	 */
+	static class CountingInputStream extends FilterInputStream {
+
+		/** 计数器 */
+		private final LongAdder counter;
+
+		CountingInputStream(InputStream input, LongAdder counter) {
+			super(input);
+			this.counter = counter;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				counter.increment();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				counter.add(n);
+			}
+			return n;
+		}
+
+	}
+
+	/**
+	 * 计数输出流
+	 */
+	static class CountingOutputStream extends FilterOutputStream {
+
+		/** 已写入字节数 */
+		long count;
+
+		CountingOutputStream(OutputStream output) {
+			super(output);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+	}
+
+}
@@ -0,0 +1,492 @@
+package com.huangwei.http;
+
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.client.methods.HttpRequestBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.http.HttpClient.Response;
+
+/**
+ * HTTP对冲请求（降低幂等请求的长尾延迟）<br>
+ * <br>
+ * 1. 首个请求在调用线程中执行；超过等待时间（见{@link HedgePolicy}）仍未完成时，在后台线程发出对冲请求；<br>
+ * 2. 取先完成的响应，另一个请求被中止（连接关闭，不计入请求数及耗时，见{@link HostMetrics#getCancelled()}）；<br>
+ * 3. 两个请求都失败时抛出首个请求的异常；<br>
+ * 4. 对冲请求受预算限制（按主机），预算不足时只等待首个请求；<br>
+ * 5. 对冲请求线程数上限为连接池的最大连接数（见{@link HttpClientPool.Config#getMaxTotal()}），超出时不发出对冲请求（归还预算）。<br>
+ * 说明：默认不启用；仅用于GET请求（{@link HttpClient#getString}、{@link HttpClient#getJson}等），适用于有多个副本的上游。
+ */
+public final class HttpHedging {
+	private static final Logger logger = LoggerFactory.getLogger(HttpHedging.class);
+
+	/** 状态 - 等待中 */
+	private static final int PENDING = 0;
+	/** 状态 - 已发出对冲请求 */
+	private static final int LAUNCHED = 1;
+	/** 状态 - 已结束（不再发出对冲请求） */
+	private static final int CLOSED = 2;
+	/** 预算精度（1个对冲请求 = 1000） */
+	private static final long TOKEN = 1000;
+
+	/** 定时器（触发对冲请求） */
+	private static final ScheduledThreadPoolExecutor TIMER;
+	/** 对冲请求执行器（共享，守护线程；线程数上限见{@link #executor()}，超出时拒绝） */
+	private static final ThreadPoolExecutor EXECUTOR;
+
+	static {
+		TIMER = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread t = new Thread(r, "HttpHedging-timer");
+			t.setDaemon(true);
+			return t;
+		});
+		TIMER.setRemoveOnCancelPolicy(true);// 首个请求按时完成时取消定时任务，不在队列中堆积
+		final AtomicInteger counter = new AtomicInteger();
+		EXECUTOR = new ThreadPoolExecutor(0, 16, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), r -> {
+			Thread t = new Thread(r, "HttpHedging-" + counter.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/** 默认策略（为空：未启用） */
+	private static volatile HedgePolicy defaultPolicy;
+	/** 主机策略（主机 -&gt; 策略） */
+	private static final Map<String, HedgePolicy> hostPolicies = new ConcurrentHashMap<String, HedgePolicy>();
+	/** 对冲统计及预算（主机 -&gt; 统计） */
+	private static final ConcurrentHashMap<String, Stats> hosts = new ConcurrentHashMap<String, Stats>();
+
+	private HttpHedging() {
+	}
+
+	/**
+	 * 获取对冲请求执行器（线程数上限与连接池的最大连接数保持一致：更多的线程只会阻塞在租借连接上）
+	 *
+	 * @return 对冲请求执行器
+	 */
+	private static ThreadPoolExecutor executor() {
+		final int max = HttpClientPool.getInstance().getMaxTotal();
+		if (EXECUTOR.getMaximumPoolSize() != max) {
+			EXECUTOR.setMaximumPoolSize(max);
+		}
+		return EXECUTOR;
+	}
+
+	/**
+	 * 设置默认策略
+	 *
+	 * @param policy
+	 *            对冲策略（为空：关闭默认策略）
+	 */
+	public static void setPolicy(HedgePolicy policy) {
+		defaultPolicy = policy;
+		logger.info("[HTTP对冲]设置默认策略！policy:" + policy);
+	}
+
+	/**
+	 * 设置主机策略（优先于默认策略）
+	 *
+	 * @param host
+	 *            主机（不能为空；格式：host 或 host:port）
+	 * @param policy
+	 *            对冲策略（为空：移除该主机的策略）
+	 * @throws IllegalArgumentException
+	 *             主机为空
+	 */
+	public static void setPolicy(String host, HedgePolicy policy) {
+		if (host == null || "".equals(host = host.trim())) {
+			throw new IllegalArgumentException("主机不能为空！");
+		}
+
+		if (policy == null) {
+			hostPolicies.remove(host.toLowerCase());
+		} else {
+			hostPolicies.put(host.toLowerCase(), policy);
+		}
+		logger.info("[HTTP对冲]设置主机策略！host:" + host + " policy:" + policy);
+	}
+
+	/**
+	 * 获取主机适用的策略
+	 *
+	 * @param host
+	 *            主机（不能为空）
+	 * @return NULL（未启用） 或 策略
+	 */
+	public static HedgePolicy getPolicy(String host) {
+		if (!hostPolicies.isEmpty()) {
+			HedgePolicy policy = hostPolicies.get(host);
+			if (policy != null) {
+				return policy;
+			}
+		}
+		return defaultPolicy;
+	}
+
+	/** 是否已启用（存在默认策略或主机策略） */
+	public static boolean isEnabled() {
+		return defaultPolicy != null || !hostPolicies.isEmpty();
+	}
+
+	/**
+	 * 获取所有主机的对冲统计（用于监控）
+	 *
+	 * @return 主机 -&gt; 统计（只读）
+	 */
+	public static Map<String, Stats> getStats() {
+		return Collections.unmodifiableMap(new TreeMap<String, Stats>(hosts));
+	}
+
+	/**
+	 * 获取主机的对冲统计
+	 *
+	 * @param host
+	 *            主机（格式：host 或 host:port）
+	 * @return NULL 或 统计
+	 */
+	public static Stats getStats(String host) {
+		return host == null ? null : hosts.get(host.toLowerCase());
+	}
+
+	/** 清空统计及预算 */
+	public static void reset() {
+		hosts.clear();
+	}
+
+	/** 统计信息 */
+	public static String stats() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=HttpHedging, enabled=").append(isEnabled()).append(", hosts=")
+				.append(getStats().values()).append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * 执行请求（按策略对冲）
+	 *
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param call
+	 *            单次请求（不能为空；可在不同线程中同时调用两次）
+	 * @return 先完成的响应
+	 * @throws Exception
+	 *             首个请求的异常（两个请求都失败时）
+	 */
+	static Response execute(String url, Call call) throws Exception {
+		if (!isEnabled()) {
+			return call.call(null);
+		}
+		final String host = HttpClient.hostOf(url);
+		final HedgePolicy policy = getPolicy(host);
+		if (policy == null) {
+			return call.call(null);
+		}
+
+		Stats stats = hosts.get(host);
+		if (stats == null) {
+			stats = hosts.computeIfAbsent(host, Stats::new);
+		}
+		stats.onRequest(policy);
+		final long delay = delayOf(policy, host);
+		if (delay < 0) {
+			return call.call(null);// 样本数不足
+		}
+		return new Hedge(call, stats).run(delay);
+	}
+
+	/**
+	 * 计算对冲等待时间
+	 *
+	 * @return -1（样本数不足，不对冲） 或 等待时间（单位：微秒）
+	 */
+	private static long delayOf(HedgePolicy policy, String host) {
+		if (policy.getDelay() > 0) {
+			return TimeUnit.MILLISECONDS.toMicros(policy.getDelay());
+		}
+		final HostMetrics metrics = HttpMetrics.getHostMetrics(host);
+		if (metrics == null || metrics.getLatency().getCount() < policy.getMinSamples()) {
+			return -1;
+		}
+		return Math.max(TimeUnit.MILLISECONDS.toMicros(policy.getMinDelay()), metrics.getLatency().getP95());
+	}
+
+	/**
+	 * 单次请求
+	 */
+	interface Call {
+
+		/**
+		 * 执行请求
+		 *
+		 * @param attempt
+		 *            本次请求（可为空：未对冲；不为空时须通过{@link Attempt#bind}绑定请求，以便中止）
+		 * @return 响应
+		 * @throws Exception
+		 *             通信异常/IO错误
+		 */
+		Response call(Attempt attempt) throws Exception;
+
+	}
+
+	/**
+	 * 对冲中的一次请求（用于中止落败的一方）
+	 */
+	static final class Attempt {
+
+		/** HTTP请求 */
+		private volatile HttpRequestBase request;
+		/** 是否已取消 */
+		private volatile boolean cancelled;
+
+		/**
+		 * 绑定HTTP请求（已取消时立即中止）
+		 *
+		 * @param request
+		 *            HTTP请求（不能为空）
+		 */
+		void bind(HttpRequestBase request) {
+			this.request = request;
+			if (cancelled) {
+				request.abort();
+			}
+		}
+
+		/** 取消（中止HTTP请求，关闭连接） */
+		void cancel() {
+			cancelled = true;
+			final HttpRequestBase r = request;
+			if (r != null) {
+				r.abort();
+			}
+		}
+
+		/** 是否已取消 */
+		boolean isCancelled() {
+			return cancelled;
+		}
+
+	}
+
+	/**
+	 * 一次对冲（首个请求 + 最多一个对冲请求）
+	 */
+	private static class Hedge {
+
+		private final Call call;
+		private final Stats stats;
+		/** 首个请求 */
+		private final Attempt primary = new Attempt();
+		/** 对冲请求 */
+		private final Attempt hedge = new Attempt();
+		/** 先完成的响应（两个请求都失败时异常完成） */
+		private final CompletableFuture<Response> result = new CompletableFuture<Response>();
+		/** 状态 */
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+		/** 失败的请求数 */
+		private final AtomicInteger failures = new AtomicInteger();
+
+		Hedge(Call call, Stats stats) {
+			this.call = call;
+			this.stats = stats;
+		}
+
+		/**
+		 * 执行
+		 *
+		 * @param delay
+		 *            对冲等待时间（单位：微秒）
+		 */
+		Response run(long delay) throws Exception {
+			final ScheduledFuture<?> timer = TIMER.schedule(this::launch, delay, TimeUnit.MICROSECONDS);
+			final Response response;
+			try {
+				response = call.call(primary);
+			} catch (Exception e) {
+				if (state.compareAndSet(PENDING, CLOSED)) {
+					timer.cancel(false);
+					throw e;
+				}
+				// 已发出对冲请求：等待对冲请求的结果
+				if (failures.incrementAndGet() == 2) {
+					throw e;
+				}
+				try {
+					return result.get();
+				} catch (ExecutionException ignore) {
+					throw e;
+				} catch (InterruptedException ie) {
+					hedge.cancel();
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("对冲等待被中断！");
+				}
+			}
+			if (state.compareAndSet(PENDING, CLOSED)) {
+				timer.cancel(false);
+				return response;
+			}
+			if (result.complete(response)) {
+				hedge.cancel();
+				return response;
+			}
+			return result.join();// 对冲请求先完成
+		}
+
+		/** 发出对冲请求（定时器线程） */
+		private void launch() {
+			if (state.get() != PENDING) {
+				return;
+			}
+			if (!stats.tryAcquire()) {
+				stats.budgetRejected.increment();
+				return;
+			}
+			if (!state.compareAndSet(PENDING, LAUNCHED)) {
+				stats.refund();
+				return;
+			}
+			stats.hedges.increment();
+			try {
+				executor().execute(() -> {
+					try {
+						Response response = call.call(hedge);
+						if (result.complete(response)) {
+							stats.hedgeWins.increment();
+							primary.cancel();
+						}
+					} catch (Exception e) {
+						if (failures.incrementAndGet() == 2) {
+							result.completeExceptionally(e);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// 线程数已达上限：不发出对冲请求，视为对冲请求失败（只等待首个请求）
+				stats.hedges.decrement();
+				stats.refund();
+				stats.executorRejected.increment();
+				logger.warn("[HTTP对冲]对冲线程数已达上限，未发出对冲请求！host:{}", stats.host);
+				if (failures.incrementAndGet() == 2) {
+					result.completeExceptionally(e);
+				}
+				return;
+			}
+			logger.debug("[HTTP对冲]发出对冲请求！host:{}", stats.host);
+		}
+
+	}
+
+	/**
+	 * 对冲统计及预算（单个主机）
+	 */
+	public static class Stats {
+
+		/** 主机 */
+		private final String host;
+		/** 预算（对冲请求数 * 1000） */
+		private final AtomicLong budget = new AtomicLong();
+		/** 请求数（适用对冲策略的请求） */
+		private final LongAdder requests = new LongAdder();
+		/** 对冲请求数 */
+		private final LongAdder hedges = new LongAdder();
+		/** 对冲请求先完成的次数 */
+		private final LongAdder hedgeWins = new LongAdder();
+		/** 因预算不足未发出的对冲请求数 */
+		private final LongAdder budgetRejected = new LongAdder();
+		/** 因线程数已达上限未发出的对冲请求数 */
+		private final LongAdder executorRejected = new LongAdder();
+
+		Stats(String host) {
+			this.host = host;
+		}
+
+		/** 记录请求（按百分比增加预算，不超过突发数） */
+		void onRequest(HedgePolicy policy) {
+			requests.increment();
+			final long add = (long) (policy.getBudgetPercent() * TOKEN / 100);
+			final long max = policy.getBudgetBurst() * TOKEN;
+			for (;;) {
+				long current = budget.get();
+				long next = Math.min(max, current + add);
+				if (next == current || budget.compareAndSet(current, next)) {
+					return;
+				}
+			}
+		}
+
+		/** 占用一个对冲请求的预算 */
+		boolean tryAcquire() {
+			for (;;) {
+				long current = budget.get();
+				if (current < TOKEN) {
+					return false;
+				}
+				if (budget.compareAndSet(current, current - TOKEN)) {
+					return true;
+				}
+			}
+		}
+
+		/** 归还预算 */
+		void refund() {
+			budget.addAndGet(TOKEN);
+		}
+
+		/** 主机 */
+		public String getHost() {
+			return host;
+		}
+
+		/** 请求数（适用对冲策略的请求） */
+		public long getRequests() {
+			return requests.sum();
+		}
+
+		/** 对冲请求数 */
+		public long getHedges() {
+			return hedges.sum();
+		}
+
+		/** 对冲请求先完成的次数 */
+		public long getHedgeWins() {
+			return hedgeWins.sum();
+		}
+
+		/** 因预算不足未发出的对冲请求数 */
+		public long getBudgetRejected() {
+			return budgetRejected.sum();
+		}
+
+		/** 因线程数已达上限未发出的对冲请求数 */
+		public long getExecutorRejected() {
+			return executorRejected.sum();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("[clazz=Stats, host=").append(host).append(", requests=").append(getRequests())
+					.append(", hedges=").append(getHedges()).append(", hedgeWins=").append(getHedgeWins())
+					.append(", budgetRejected=").append(getBudgetRejected()).append(", executorRejected=")
+					.append(getExecutorRejected()).append("]");
+			return builder.toString();
+		}
+
+	}
+
+}
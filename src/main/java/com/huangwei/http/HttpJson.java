@@ -0,0 +1,209 @@
+package com.huangwei.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.HttpResponseException;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.huangwei.http.HttpClient.BodyHandler;
+import com.huangwei.util.JacksonUtil;
+
+/**
+ * JSON请求体/响应体（Jackson流式读写）<br>
+ * <br>
+ * 1. 请求体：对象直接序列化到连接的输出流（UTF-8，分块传输），不生成中间字符串；<br>
+ * 2. 响应体：从响应流直接解析为对象（按字节自动识别UTF-8/16/32），不解码为中间字符串。<br>
+ * 3. 泛型：需要TypeReference的请求方法放在本类（{@link #getObject}、{@link #postObject}），{@link HttpClient}的方法签名中不出现Jackson类型。<br>
+ * 说明：使用{@link JacksonUtil#getObjectMapper()}的配置；Jackson为provided依赖，仅在使用JSON对象方法时需要。
+ */
+public final class HttpJson {
+
+	/** 内容类型 - JSON（UTF-8） */
+	private static final ContentType APPLICATION_JSON = ContentType.APPLICATION_JSON;
+
+	private HttpJson() {
+	}
+
+	/**
+	 * GET请求 - JSON对象（泛型；响应体直接流式解析，不解码为中间字符串）
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param parameter
+	 *            参数（可为空）
+	 * @param type
+	 *            对象类型（不能为空；如：new TypeReference&lt;List&lt;Bean&gt;&gt;() {}）
+	 * @return NULL（响应体为空） 或 对象
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws org.apache.http.client.HttpResponseException
+	 *             HTTP状态码非2xx
+	 * @throws Exception
+	 *             通信异常/IO错误/JSON解析错误
+	 * @see HttpClient#getJsonObject(String, Map, Map, Class)
+	 */
+	public static <T> T getObject(String url, Map<String, String> headers, Map<String, String> parameter,
+			TypeReference<T> type) throws Exception {
+		return HttpClient.getStream(url, HttpClient.header4Json(headers), parameter,
+				HttpClientPool.getInstance().getMaxBodySize(), handler(type));
+	}
+
+	/**
+	 * POST请求 - JSON对象（泛型；请求体直接序列化到输出流，响应体直接流式解析）
+	 * 
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param body
+	 *            请求数据（可为空；String视为已序列化的JSON）
+	 * @param type
+	 *            对象类型（不能为空；如：new TypeReference&lt;List&lt;Bean&gt;&gt;() {}）
+	 * @return NULL（响应体为空） 或 对象
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 * @throws org.apache.http.client.HttpResponseException
+	 *             HTTP状态码非2xx
+	 * @throws Exception
+	 *             通信异常/IO错误/JSON解析错误
+	 * @see HttpClient#postJsonObject(String, Map, Object, Class)
+	 */
+	public static <T> T postObject(String url, Map<String, String> headers, Object body, TypeReference<T> type)
+			throws Exception {
+		return HttpClient.postStream(url, HttpClient.header4Json(headers), entity(body),
+				HttpClientPool.getInstance().getMaxBodySize(), handler(type));
+	}
+
+	/**
+	 * 生成请求体
+	 *
+	 * @param body
+	 *            请求数据（可为空；String视为已序列化的JSON）
+	 * @return NULL 或 请求体（可重复发送）
+	 */
+	static HttpEntity entity(Object body) {
+		if (body == null) {
+			return null;
+		}
+		if (body instanceof String) {
+			return new StringEntity((String) body, APPLICATION_JSON);
+		}
+		return new JacksonEntity(JacksonUtil.getObjectMapper(), body);
+	}
+
+	/**
+	 * 响应体处理器 - 解析为指定类型
+	 *
+	 * @param type
+	 *            对象类型（不能为空）
+	 * @return 响应体处理器
+	 */
+	static <T> BodyHandler<T> handler(Class<T> type) {
+		if (type == null) {
+			throw new IllegalArgumentException("对象类型不能为空！");
+		}
+		return handler(JacksonUtil.getObjectMapper().constructType(type));
+	}
+
+	/**
+	 * 响应体处理器 - 解析为指定类型（泛型）
+	 *
+	 * @param type
+	 *            对象类型（不能为空）
+	 * @return 响应体处理器
+	 */
+	static <T> BodyHandler<T> handler(TypeReference<T> type) {
+		if (type == null) {
+			throw new IllegalArgumentException("对象类型不能为空！");
+		}
+		return handler(JacksonUtil.getObjectMapper().getTypeFactory().constructType(type));
+	}
+
+	/**
+	 * 响应体处理器<br>
+	 * <br>
+	 * 说明：状态码非2xx时抛出HttpResponseException；响应体为空时返回NULL。
+	 */
+	private static <T> BodyHandler<T> handler(final JavaType type) {
+		return new BodyHandler<T>() {
+			@Override
+			public T handle(int statusCode, InputStream body) throws Exception {
+				if (statusCode < 200 || statusCode >= 300) {
+					throw new HttpResponseException(statusCode, "HTTP状态码异常！statusCode:" + statusCode);
+				}
+				final ObjectMapper mapper = JacksonUtil.getObjectMapper();
+				try (JsonParser parser = mapper.getFactory().createParser(body)) {
+					if (parser.nextToken() == null) {
+						return null;// 响应体为空
+					}
+					return mapper.readValue(parser, type);
+				}
+			}
+		};
+	}
+
+	/**
+	 * JSON请求体（写出时直接序列化到输出流）
+	 */
+	private static class JacksonEntity extends AbstractHttpEntity {
+
+		private final ObjectMapper mapper;
+		/** 请求数据 */
+		private final Object body;
+
+		JacksonEntity(ObjectMapper mapper, Object body) {
+			this.mapper = mapper;
+			this.body = body;
+			setContentType(APPLICATION_JSON.toString());
+			setChunked(true);
+		}
+
+		@Override
+		public boolean isRepeatable() {
+			return true;// 可重新序列化
+		}
+
+		@Override
+		public long getContentLength() {
+			return -1;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+			writeTo(buffer);
+			return new ByteArrayInputStream(buffer.toByteArray());
+		}
+
+		@Override
+		public void writeTo(OutputStream output) throws IOException {
+			// 不能关闭连接的输出流
+			try (JsonGenerator generator = mapper.getFactory().createGenerator(output)
+					.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+				mapper.writeValue(generator, body);
+			}
+		}
+
+		@Override
+		public boolean isStreaming() {
+			return false;
+		}
+
+	}
+
+}
@@ -0,0 +1,323 @@
+package com.huangwei.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.util.ExceptionUtil;
+
+/**
+ * HTTP请求统计<br>
+ * <br>
+ * 1. 按主机统计：请求数、状态码、耗时直方图（p50/p99/p999）、发送/接收字节数、进行中的请求数（见{@link HostMetrics}）；<br>
+ * 2. 连接池：租借连接的等待耗时；<br>
+ * 3. 输出：监听器（{@link #addListener(HttpMetricsListener)}）或JMX（{@link #registerMBean()}）。<br>
+ * 说明：统计{@link HttpClient}经由连接池发出的同步请求。
+ */
+public final class HttpMetrics {
+	private static final Logger logger = LoggerFactory.getLogger(HttpMetrics.class);
+
+	/** JMX ObjectName */
+	public static final String OBJECT_NAME = "com.huangwei.http:type=HttpMetrics";
+	/** 上下文属性名（当前请求的主机统计） */
+	static final String CONTEXT_ATTRIBUTE = "com.huangwei.http.HostMetrics";
+
+	/** 主机统计（主机 -&gt; 统计） */
+	private static final ConcurrentHashMap<String, HostMetrics> hosts = new ConcurrentHashMap<String, HostMetrics>();
+	/** 连接池租借等待耗时 */
+	private static final LatencyHistogram leaseWait = new LatencyHistogram();
+	/** 进行中的请求数（所有主机） */
+	static final LongAdder inFlight = new LongAdder();
+	/** 监听器 */
+	private static final CopyOnWriteArrayList<HttpMetricsListener> listeners = new CopyOnWriteArrayList<HttpMetricsListener>();
+	/** 是否已注册JMX */
+	private static boolean mbeanRegistered = false;
+
+	/** 请求拦截器 - 统计请求体的传输字节数（长度已知时直接累加，不包装实体） */
+	static final HttpRequestInterceptor REQUEST_INTERCEPTOR = (request, context) -> {
+		final HostMetrics metrics = (HostMetrics) context.getAttribute(CONTEXT_ATTRIBUTE);
+		if (metrics == null || !(request instanceof HttpEntityEnclosingRequest)) {
+			return;
+		}
+		final HttpEntityEnclosingRequest enclosing = (HttpEntityEnclosingRequest) request;
+		final HttpEntity entity = enclosing.getEntity();
+		if (entity == null || entity instanceof CountingEntity) {// 重试时不重复包装
+			return;
+		}
+		final long length = entity.getContentLength();
+		if (length >= 0) {
+			metrics.bytesSent.add(length);
+		} else {
+			enclosing.setEntity(new CountingEntity(entity, metrics.bytesSent));
+		}
+	};
+
+	/** 响应拦截器 - 统计响应体的传输字节数（须先于解压执行） */
+	static final HttpResponseInterceptor RESPONSE_INTERCEPTOR = (response, context) -> {
+		final HostMetrics metrics = (HostMetrics) context.getAttribute(CONTEXT_ATTRIBUTE);
+		final HttpEntity entity = response.getEntity();
+		if (metrics != null && entity != null) {
+			response.setEntity(new CountingEntity(entity, metrics.bytesReceived));
+		}
+	};
+
+	private HttpMetrics() {
+	}
+
+	/**
+	 * 开始统计一次请求
+	 *
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @return 主机统计（请求结束时须调用{@link HostMetrics#end(int, long)}）
+	 */
+	static HostMetrics begin(String url) {
+		final String host = HttpClient.hostOf(url);
+		HostMetrics metrics = hosts.get(host);
+		if (metrics == null) {
+			metrics = hosts.computeIfAbsent(host, HostMetrics::new);
+		}
+		metrics.begin();
+		return metrics;
+	}
+
+	/**
+	 * 创建请求上下文（供拦截器统计字节数；未指定上下文时HttpClient同样会为每次请求创建一个，不额外分配对象）
+	 *
+	 * @param metrics
+	 *            主机统计（不能为空）
+	 * @return 请求上下文
+	 */
+	static HttpClientContext context(HostMetrics metrics) {
+		HttpClientContext context = HttpClientContext.create();
+		context.setAttribute(CONTEXT_ATTRIBUTE, metrics);
+		return context;
+	}
+
+	/**
+	 * 记录连接池租借等待耗时
+	 *
+	 * @param elapsedNanos
+	 *            耗时（单位：纳秒）
+	 */
+	static void recordLeaseWait(long elapsedNanos) {
+		leaseWait.record(elapsedNanos);
+	}
+
+	/** 通知监听器 */
+	static void fireRequestCompleted(HostMetrics metrics, int statusCode, long elapsedNanos) {
+		if (listeners.isEmpty()) {
+			return;
+		}
+		for (HttpMetricsListener listener : listeners) {
+			try {
+				listener.onRequestCompleted(metrics, statusCode, elapsedNanos);
+			} catch (Exception e) {
+				logger.warn("[HTTP请求统计]监听器出错！listener:" + listener + " exception: [" + ExceptionUtil.detail(e) + "]");
+			}
+		}
+	}
+
+	/**
+	 * 获取主机统计
+	 *
+	 * @param host
+	 *            主机（格式：host 或 host:port）
+	 * @return NULL（无请求记录） 或 主机统计
+	 */
+	public static HostMetrics getHostMetrics(String host) {
+		return host == null ? null : hosts.get(host.toLowerCase());
+	}
+
+	/**
+	 * 获取所有主机统计
+	 *
+	 * @return 主机 -&gt; 统计（只读视图）
+	 */
+	public static Map<String, HostMetrics> getAllHostMetrics() {
+		return Collections.unmodifiableMap(hosts);
+	}
+
+	/** 连接池租借等待耗时 */
+	public static LatencyHistogram getLeaseWait() {
+		return leaseWait;
+	}
+
+	/** 进行中的请求数（所有主机） */
+	public static long getInFlightRequests() {
+		return inFlight.sum();
+	}
+
+	/** 请求总数（所有主机） */
+	public static long getTotalRequests() {
+		long total = 0;
+		for (HostMetrics metrics : hosts.values()) {
+			total += metrics.getRequests();
+		}
+		return total;
+	}
+
+	/**
+	 * 添加监听器
+	 *
+	 * @param listener
+	 *            监听器（不能为空）
+	 * @throws IllegalArgumentException
+	 *             监听器为空
+	 */
+	public static void addListener(HttpMetricsListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("监听器不能为空！");
+		}
+		listeners.addIfAbsent(listener);
+	}
+
+	/**
+	 * 移除监听器
+	 *
+	 * @param listener
+	 *            监听器
+	 */
+	public static void removeListener(HttpMetricsListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * 清空统计（进行中的请求数除外）
+	 */
+	public static void reset() {
+		hosts.clear();
+		leaseWait.reset();
+	}
+
+	/**
+	 * 注册JMX（重复调用无副作用）
+	 *
+	 * @return true:成功 false:失败
+	 */
+	public static synchronized boolean registerMBean() {
+		if (mbeanRegistered) {
+			return true;
+		}
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			server.registerMBean(new MBean(), new ObjectName(OBJECT_NAME));
+			mbeanRegistered = true;
+			logger.info("[HTTP请求统计]已注册JMX！objectName:" + OBJECT_NAME);
+			return true;
+		} catch (Exception e) {
+			logger.error("[HTTP请求统计]注册JMX出错！exception: [" + ExceptionUtil.detail(e) + "]");
+			return false;
+		}
+	}
+
+	/**
+	 * 注销JMX
+	 */
+	public static synchronized void unregisterMBean() {
+		if (!mbeanRegistered) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+		} catch (Exception e) {
+			logger.error("[HTTP请求统计]注销JMX出错！exception: [" + ExceptionUtil.detail(e) + "]");
+		}
+		mbeanRegistered = false;
+	}
+
+	/** 统计信息 */
+	public static String stats() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=HttpMetrics, inFlight=").append(getInFlightRequests()).append(", leaseWait=")
+				.append(leaseWait).append(", hosts=").append(hosts.values()).append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * JMX实现
+	 */
+	private static class MBean implements HttpMetricsMXBean {
+
+		@Override
+		public long getInFlightRequests() {
+			return HttpMetrics.getInFlightRequests();
+		}
+
+		@Override
+		public long getTotalRequests() {
+			return HttpMetrics.getTotalRequests();
+		}
+
+		@Override
+		public long getLeaseWaitP99() {
+			return leaseWait.getP99();
+		}
+
+		@Override
+		public long getLeaseWaitMax() {
+			return leaseWait.getMax();
+		}
+
+		@Override
+		public HostMetrics[] getHostMetrics() {
+			return hosts.values().toArray(new HostMetrics[0]);
+		}
+
+		@Override
+		public void reset() {
+			HttpMetrics.reset();
+		}
+
+	}
+
+	/**
+	 * 计数实体（读取/写出时累加传输字节数）
+	 */
+	private static class CountingEntity extends HttpEntityWrapper {
+
+		/** 计数器 */
+		private final LongAdder counter;
+
+		CountingEntity(HttpEntity entity, LongAdder counter) {
+			super(entity);
+			this.counter = counter;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			final InputStream content = wrappedEntity.getContent();
+			return content == null ? null : new HttpCompression.CountingInputStream(content, counter);
+		}
+
+		@Override
+		public void writeTo(OutputStream output) throws IOException {
+			final HttpCompression.CountingOutputStream counting = new HttpCompression.CountingOutputStream(output);
+			try {
+				wrappedEntity.writeTo(counting);
+			} finally {
+				counter.add(counting.count);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,22 @@
+package com.huangwei.http;
+
+/**
+ * 请求统计监听器（用于接入外部监控系统）<br>
+ * <br>
+ * 注意：在请求线程中同步回调，实现必须快速返回且不能抛出异常（异常将被忽略）。
+ */
+public interface HttpMetricsListener {
+
+	/**
+	 * 请求完成
+	 *
+	 * @param metrics
+	 *            主机统计（已包含本次请求）
+	 * @param statusCode
+	 *            HTTP状态码（小于零：未收到响应）
+	 * @param elapsedNanos
+	 *            耗时（单位：纳秒）
+	 */
+	void onRequestCompleted(HostMetrics metrics, int statusCode, long elapsedNanos);
+
+}
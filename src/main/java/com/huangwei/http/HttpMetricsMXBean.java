@@ -0,0 +1,28 @@
+package com.huangwei.http;
+
+/**
+ * 请求统计（JMX）<br>
+ * <br>
+ * 通过{@link HttpMetrics#registerMBean()}注册，ObjectName：{@value HttpMetrics#OBJECT_NAME}。
+ */
+public interface HttpMetricsMXBean {
+
+	/** 进行中的请求数 */
+	long getInFlightRequests();
+
+	/** 请求总数 */
+	long getTotalRequests();
+
+	/** 连接池租借等待耗时 - 99百分位数（单位：微秒） */
+	long getLeaseWaitP99();
+
+	/** 连接池租借等待耗时 - 最大值（单位：微秒） */
+	long getLeaseWaitMax();
+
+	/** 各主机统计 */
+	HostMetrics[] getHostMetrics();
+
+	/** 清空统计 */
+	void reset();
+
+}
@@ -1,47 +1,71 @@
 package com.huangwei.http;
 
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.SocketTimeoutException;
+import java.nio.file.Paths;
 import java.security.KeyManagementException;
-import java.security.KeyStore;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.UnrecoverableKeyException;
-import java.security.cert.CertificateException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.SSLContext;
 
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.config.RegistryBuilder;
 import org.apache.http.conn.ConnectTimeoutException;
 import org.apache.http.conn.ConnectionPoolTimeoutException;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.ssl.SSLContexts;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.util.EntityUtils;
 
+import com.huangwei.util.ExceptionUtil;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.io.xml.DomDriver;
 import com.thoughtworks.xstream.io.xml.XmlFriendlyNameCoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-
-public class HttpRequest {
+/**
+ * XML接口请求器（客户端证书双向认证）<br>
+ * <br>
+ * 1. 连接：每个实例持有一个连接池（Keep-Alive），SSLContext按证书由{@link HttpTls}缓存复用；<br>
+ * 2. 协议：TLSv1.2 / TLSv1.3（取JDK支持的版本）；<br>
+ * 3. 序列化：XStream按数据对象的类型缓存复用（线程安全），XML直接写入请求体输出流，不生成中间字符串；<br>
+ * 4. 日志：请求报文仅在DEBUG级别打印。<br>
+ * 说明：实例是线程安全的，应长期持有并复用；不再使用时调用{@link #close()}释放连接。
+ */
+public class HttpRequest implements Closeable {
 	private static final Logger log = LoggerFactory.getLogger(HttpRequest.class);
 
+	/** 优先使用的协议版本 */
+	private static final String[] MODERN_PROTOCOLS = { "TLSv1.3", "TLSv1.2" };
+	/** XML序列化器（数据对象类型 -&gt; XStream） */
+	private static final ConcurrentHashMap<Class<?>, XStream> marshallers = new ConcurrentHashMap<Class<?>, XStream>();
+
 	public interface ResultListener {
 		void onConnectionPoolTimeoutError();
 	}
 
 	/** 表示请求器是否已经做了初始化工作 */
-	private boolean hasInit = false;
+	private volatile boolean hasInit = false;
 
 	/** 连接超时时间，默认10秒 */
 	private int socketTimeout = 10000;
@@ -49,8 +73,23 @@ public class HttpRequest {
 	/** 传输超时时间，默认30秒 */
 	private int connectTimeout = 30000;
 
+	/** 从连接池获取连接的超时时间，默认10秒（未设置时连接池耗尽后无限等待） */
+	private int connectionRequestTimeout = 10000;
+
+	/** 最大连接数 */
+	private int maxTotal = 100;
+
+	/** 单路由（主机）最大连接数 */
+	private int maxPerRoute = 50;
+
+	/** 是否以分块传输发送请求体（false：先序列化到缓冲区以设置Content-Length） */
+	private boolean chunked = true;
+
 	/** 请求器的配置 */
-	private RequestConfig requestConfig;
+	private volatile RequestConfig requestConfig;
+
+	/** 连接管理器 */
+	private PoolingHttpClientConnectionManager connectionManager;
 
 	/** HTTP请求器 */
 	private CloseableHttpClient httpClient;
@@ -67,34 +106,69 @@ public class HttpRequest {
 		init();
 	}
 
-	private void init() throws IOException, KeyStoreException, UnrecoverableKeyException, NoSuchAlgorithmException,
-			KeyManagementException {
-		KeyStore keyStore = KeyStore.getInstance("PKCS12");
-		// 加载本地的证书进行https加密传输
-		FileInputStream instream = new FileInputStream(new File(certpath));
+	private synchronized void init() throws IOException {
+		if (hasInit) {
+			return;
+		}
+		HttpTls.Config tls = HttpTls.Config.system();// JDK默认信任库 + 本地证书（双向认证）
+		tls.setKeyStore(Paths.get(certpath));
+		tls.setKeyStorePassword(password.toCharArray());
+		tls.setSupportedProtocols(supportedProtocols());
 		try {
-			// 设置证书密码
-			keyStore.load(instream, password.toCharArray());
-		} catch (CertificateException | NoSuchAlgorithmException e) {
-			log.error("设置证书密码出错", e);
-		} finally {
-			instream.close();
-		}
-
-		// Trust own CA and all self-signed certs
-		SSLContext sslContext = SSLContexts.custom()
-				.loadKeyMaterial(keyStore, password.toCharArray()).build();
-		// Allow TLSv1 protocol only
-		SSLConnectionSocketFactory sslConnectionSocketFactory = new SSLConnectionSocketFactory(sslContext,
-				new String[] { "TLSv1" }, null, SSLConnectionSocketFactory.getDefaultHostnameVerifier());
-		httpClient = HttpClients.custom().setSSLSocketFactory(sslConnectionSocketFactory).build();
+			connectionManager = new PoolingHttpClientConnectionManager(RegistryBuilder
+					.<ConnectionSocketFactory> create().register("http", PlainConnectionSocketFactory.getSocketFactory())
+					.register("https", HttpTls.socketFactory(tls)).build());
+		} catch (IllegalStateException e) {
+			log.error("加载证书出错！certpath:" + certpath + " exception: [" + ExceptionUtil.detail(e) + "]");
+			throw new IOException("加载证书出错！certpath:" + certpath, e.getCause());
+		}
+		connectionManager.setMaxTotal(maxTotal);
+		connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+		// 双向认证的连接默认以客户端证书主体作为连接状态，导致新请求无法复用池中连接；本实例只有一个证书，不需要区分
+		httpClient = HttpClients.custom().setConnectionManager(connectionManager).disableConnectionState()
+				.evictExpiredConnections().evictIdleConnections(60, TimeUnit.SECONDS).build();
 
 		// 根据默认超时限制初始化requestConfig
-		requestConfig = RequestConfig.custom().setSocketTimeout(socketTimeout).setConnectTimeout(connectTimeout)
-				.build();
+		if (requestConfig == null) {
+			resetRequestConfig();
+		}
 		hasInit = true;
 	}
 
+	/** JDK支持的现代协议版本（TLSv1.3、TLSv1.2） */
+	private static String[] supportedProtocols() {
+		try {
+			List<String> supported = Arrays
+					.asList(SSLContext.getDefault().getSupportedSSLParameters().getProtocols());
+			List<String> protocols = new ArrayList<String>();
+			for (String protocol : MODERN_PROTOCOLS) {
+				if (supported.contains(protocol)) {
+					protocols.add(protocol);
+				}
+			}
+			return protocols.toArray(new String[0]);
+		} catch (NoSuchAlgorithmException e) {
+			return new String[] { "TLSv1.2" };
+		}
+	}
+
+	/**
+	 * 获取数据对象类型对应的XStream（首次使用时创建，之后复用）
+	 *
+	 * @param clazz
+	 *            数据对象类型
+	 * @return XStream（线程安全）
+	 */
+	static XStream marshaller(Class<?> clazz) {
+		XStream xStream = marshallers.get(clazz);
+		if (xStream == null) {
+			// 解决XStream对出现双下划线的bug
+			xStream = marshallers.computeIfAbsent(clazz,
+					c -> new XStream(new DomDriver("UTF-8", new XmlFriendlyNameCoder("-_", "_"))));
+		}
+		return xStream;
+	}
+
 	/**
 	 * 通过Https往API post xml数据
 	 *
@@ -116,29 +190,24 @@ public class HttpRequest {
 
 		HttpPost httpPost = new HttpPost(url);
 
-		// 解决XStream对出现双下划线的bug
-		XStream xStreamForRequestPostData = new XStream(new DomDriver("UTF-8", new XmlFriendlyNameCoder("-_", "_")));
-
 		// 将要提交给API的数据对象转换成XML格式数据Post给API
-		String postDataXml = xStreamForRequestPostData.toXML(xmlObj);
-
-		log.info("API，POST过去的数据是：");
-		log.info(postDataXml);
+		final XStream xStream = marshaller(xmlObj.getClass());
+		if (log.isDebugEnabled()) {
+			log.debug("API，POST过去的数据是：{}", xStream.toXML(xmlObj));
+		}
 
 		// 得指明使用UTF-8编码，否则到API服务器XML的中文不能被成功识别
-		StringEntity postEntity = new StringEntity(postDataXml, "UTF-8");
+		httpPost.setEntity(chunked ? new XmlEntity(xStream, xmlObj) : new XmlEntity(xStream, xmlObj).buffered());
 		httpPost.addHeader("Content-Type", "text/xml");
-		httpPost.setEntity(postEntity);
 
 		// 设置请求器的配置
 		httpPost.setConfig(requestConfig);
 
-		log.info("executing request" + httpPost.getRequestLine());
+		log.debug("executing request {}", httpPost.getRequestLine());
 
-		try {
-			HttpResponse response = httpClient.execute(httpPost);
+		try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
 			HttpEntity entity = response.getEntity();
-			result = EntityUtils.toString(entity, "UTF-8");
+			result = EntityUtils.toString(entity, "UTF-8");// 读完响应体，连接归还连接池
 		} catch (ConnectionPoolTimeoutException e) {
 			log.error("http get throw ConnectionPoolTimeoutException(wait time out)");
 		} catch (ConnectTimeoutException e) {
@@ -146,14 +215,29 @@ public class HttpRequest {
 		} catch (SocketTimeoutException e) {
 			log.error("http get throw SocketTimeoutException");
 		} catch (Exception e) {
-			log.error("http get throw Exception");
-		} finally {
+			log.error("http get throw Exception: [" + ExceptionUtil.detail(e) + "]");
 			httpPost.abort();
 		}
 
 		return result;
 	}
 
+	/**
+	 * 关闭请求器（释放连接池中的所有连接）
+	 */
+	@Override
+	public synchronized void close() {
+		if (!hasInit) {
+			return;
+		}
+		hasInit = false;
+		try {
+			httpClient.close();
+		} catch (Exception e) {
+			log.error("关闭HttpClient出错：" + ExceptionUtil.detail(e));
+		}
+	}
+
 	/**
 	 * 设置连接超时时间
 	 *
@@ -176,9 +260,20 @@ public class HttpRequest {
 		resetRequestConfig();
 	}
 
+	/**
+	 * 设置从连接池获取连接的超时时间（超时抛出ConnectionPoolTimeoutException）
+	 *
+	 * @param connectionRequestTimeout
+	 *            等待时长，默认10秒
+	 */
+	public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+		this.connectionRequestTimeout = connectionRequestTimeout;
+		resetRequestConfig();
+	}
+
 	private void resetRequestConfig() {
 		requestConfig = RequestConfig.custom().setSocketTimeout(socketTimeout).setConnectTimeout(connectTimeout)
-				.build();
+				.setConnectionRequestTimeout(connectionRequestTimeout).build();
 	}
 
 	/**
@@ -191,4 +286,95 @@ public class HttpRequest {
 		this.requestConfig = requestConfig;
 	}
 
+	/**
+	 * 设置最大连接数
+	 *
+	 * @param maxTotal
+	 *            最大连接数，默认100
+	 */
+	public synchronized void setMaxTotal(int maxTotal) {
+		this.maxTotal = maxTotal;
+		if (connectionManager != null) {
+			connectionManager.setMaxTotal(maxTotal);
+		}
+	}
+
+	/**
+	 * 设置单路由（主机）最大连接数
+	 *
+	 * @param maxPerRoute
+	 *            单路由最大连接数，默认50
+	 */
+	public synchronized void setMaxPerRoute(int maxPerRoute) {
+		this.maxPerRoute = maxPerRoute;
+		if (connectionManager != null) {
+			connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+		}
+	}
+
+	/**
+	 * 设置是否以分块传输发送请求体
+	 *
+	 * @param chunked
+	 *            true（默认）：XML直接写入连接 false：先序列化到缓冲区，以Content-Length发送（用于不支持分块传输的服务器）
+	 */
+	public void setChunked(boolean chunked) {
+		this.chunked = chunked;
+	}
+
+	/**
+	 * XML请求体（写出时直接序列化到输出流）
+	 */
+	private static class XmlEntity extends AbstractHttpEntity {
+
+		/** 序列化器 */
+		private final XStream xStream;
+		/** 数据对象 */
+		private final Object xmlObj;
+
+		XmlEntity(XStream xStream, Object xmlObj) {
+			this.xStream = xStream;
+			this.xmlObj = xmlObj;
+			setContentType("text/xml");
+			setChunked(true);
+		}
+
+		/** 序列化到缓冲区（已知长度的请求体） */
+		HttpEntity buffered() {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+			xStream.toXML(xmlObj, buffer);
+			ByteArrayEntity entity = new ByteArrayEntity(buffer.toByteArray());
+			entity.setContentType(getContentType());
+			return entity;
+		}
+
+		@Override
+		public boolean isRepeatable() {
+			return true;// 可重新序列化
+		}
+
+		@Override
+		public long getContentLength() {
+			return -1;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+			xStream.toXML(xmlObj, buffer);
+			return new ByteArrayInputStream(buffer.toByteArray());
+		}
+
+		@Override
+		public void writeTo(OutputStream output) throws IOException {
+			xStream.toXML(xmlObj, output);
+		}
+
+		@Override
+		public boolean isStreaming() {
+			return false;
+		}
+
+	}
+
 }
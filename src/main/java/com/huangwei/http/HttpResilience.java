@@ -0,0 +1,252 @@
+package com.huangwei.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.net.ssl.SSLException;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.http.HttpClient.Response;
+
+/**
+ * HTTP容错（按主机的重试、退避及熔断）<br>
+ * <br>
+ * 说明：默认不启用；通过{@link #setPolicy(ResiliencePolicy)}设置默认策略，或通过{@link #setPolicy(String, ResiliencePolicy)}为指定主机设置策略。<br>
+ * 启用后，连接池内置的自动重试将被关闭，由本类统一负责重试。熔断器状态可通过{@link #getCircuitBreakers()}查询。
+ */
+public final class HttpResilience {
+	private static final Logger logger = LoggerFactory.getLogger(HttpResilience.class);
+
+	/** 默认策略（为空：未启用） */
+	private static volatile ResiliencePolicy defaultPolicy;
+	/** 主机策略（主机 -&gt; 策略） */
+	private static final Map<String, ResiliencePolicy> hostPolicies = new ConcurrentHashMap<String, ResiliencePolicy>();
+	/** 熔断器（主机 -&gt; 熔断器） */
+	private static final ConcurrentHashMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<String, CircuitBreaker>();
+
+	private HttpResilience() {
+	}
+
+	/**
+	 * 设置默认策略
+	 *
+	 * @param policy
+	 *            容错策略（为空：关闭默认策略）
+	 */
+	public static void setPolicy(ResiliencePolicy policy) {
+		defaultPolicy = policy;
+		logger.info("[HTTP容错]设置默认策略！policy:" + policy);
+	}
+
+	/**
+	 * 设置主机策略（优先于默认策略）
+	 *
+	 * @param host
+	 *            主机（不能为空；格式：host 或 host:port）
+	 * @param policy
+	 *            容错策略（为空：移除该主机的策略）
+	 * @throws IllegalArgumentException
+	 *             主机为空
+	 */
+	public static void setPolicy(String host, ResiliencePolicy policy) {
+		if (host == null || "".equals(host = host.trim())) {
+			throw new IllegalArgumentException("主机不能为空！");
+		}
+
+		if (policy == null) {
+			hostPolicies.remove(host.toLowerCase());
+		} else {
+			hostPolicies.put(host.toLowerCase(), policy);
+		}
+		logger.info("[HTTP容错]设置主机策略！host:" + host + " policy:" + policy);
+	}
+
+	/**
+	 * 获取主机适用的策略
+	 *
+	 * @param host
+	 *            主机（不能为空）
+	 * @return NULL（未启用） 或 策略
+	 */
+	public static ResiliencePolicy getPolicy(String host) {
+		if (!hostPolicies.isEmpty()) {
+			ResiliencePolicy policy = hostPolicies.get(host);
+			if (policy != null) {
+				return policy;
+			}
+		}
+		return defaultPolicy;
+	}
+
+	/** 是否已启用（存在默认策略或主机策略） */
+	public static boolean isEnabled() {
+		return defaultPolicy != null || !hostPolicies.isEmpty();
+	}
+
+	/**
+	 * 获取所有熔断器（用于监控）
+	 *
+	 * @return 主机 -&gt; 熔断器（只读视图）
+	 */
+	public static Map<String, CircuitBreaker> getCircuitBreakers() {
+		return Collections.unmodifiableMap(breakers);
+	}
+
+	/**
+	 * 获取主机的熔断器
+	 *
+	 * @param host
+	 *            主机（格式：host 或 host:port）
+	 * @return NULL 或 熔断器
+	 */
+	public static CircuitBreaker getCircuitBreaker(String host) {
+		return host == null ? null : breakers.get(host.toLowerCase());
+	}
+
+	/**
+	 * 清空熔断器状态
+	 */
+	public static void reset() {
+		breakers.clear();
+	}
+
+	/**
+	 * 执行请求（按策略重试及熔断）
+	 *
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @param idempotent
+	 *            是否为幂等请求
+	 * @param call
+	 *            单次请求（不能为空；可重复调用）
+	 * @return 响应
+	 * @throws CircuitOpenException
+	 *             熔断中（快速失败）
+	 * @throws Exception
+	 *             最后一次请求的异常
+	 */
+	static Response execute(String url, boolean idempotent, Callable<Response> call) throws Exception {
+		if (!isEnabled()) {
+			return call.call();
+		}
+		final String host = HttpClient.hostOf(url);
+		final ResiliencePolicy policy = getPolicy(host);
+		if (policy == null) {
+			return call.call();
+		}
+
+		CircuitBreaker breaker = breakers.get(host);
+		if (breaker == null) {
+			breaker = breakers.computeIfAbsent(host, CircuitBreaker::new);
+		}
+		for (int attempt = 0;; attempt++) {
+			if (!breaker.tryAcquire(policy)) {
+				throw new CircuitOpenException(host);
+			}
+			final Response response;
+			try {
+				response = call.call();
+			} catch (Exception e) {
+				if (!(e instanceof IOException) || e instanceof HttpThrottle.ThrottledException) {
+					breaker.onIgnored();// 参数错误、客户端限流等非上游原因
+					throw e;
+				}
+				breaker.onFailure(policy);
+				if (attempt < policy.getMaxRetries() && isRetryable(e, idempotent)) {
+					backoff(policy, attempt + 1, host, e.toString());
+					continue;
+				}
+				throw e;
+			}
+			if (!policy.isRetryStatus(response.getCode())) {
+				breaker.onSuccess();
+				return response;
+			}
+			breaker.onFailure(policy);
+			if (idempotent && attempt < policy.getMaxRetries()) {
+				backoff(policy, attempt + 1, host, "statusCode:" + response.getCode());
+				continue;
+			}
+			return response;
+		}
+	}
+
+	/**
+	 * 判断异常是否可重试
+	 *
+	 * @param e
+	 *            异常
+	 * @param idempotent
+	 *            是否为幂等请求
+	 * @return true:可重试 false:不可重试
+	 */
+	private static boolean isRetryable(Exception e, boolean idempotent) {
+		// 熔断、域名无法解析、SSL错误、线程被中断：重试无意义
+		if (e instanceof CircuitOpenException || e instanceof UnknownHostException || e instanceof SSLException
+				|| e.getClass() == InterruptedIOException.class) {
+			return false;
+		}
+		// 请求未发出（连接失败、获取连接超时），任何请求均可安全重试
+		if (e instanceof ConnectException || e instanceof ConnectTimeoutException
+				|| e instanceof ConnectionPoolTimeoutException || e instanceof NoRouteToHostException) {
+			return true;
+		}
+		return idempotent;
+	}
+
+	/**
+	 * 退避等待
+	 *
+	 * @throws InterruptedIOException
+	 *             等待被中断
+	 */
+	private static void backoff(ResiliencePolicy policy, int attempt, String host, String reason)
+			throws InterruptedIOException {
+		final long millis = policy.backoff(attempt, ThreadLocalRandom.current().nextDouble());
+		logger.warn("[HTTP容错]请求失败，准备重试！host:" + host + " attempt:" + attempt + " backoffMilliseconds:" + millis
+				+ " reason:" + reason);
+		if (millis <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("重试等待被中断！host:" + host);
+		}
+	}
+
+	/**
+	 * 熔断异常（熔断器打开时快速失败，不发出请求）
+	 */
+	public static class CircuitOpenException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		/** 主机 */
+		private final String host;
+
+		public CircuitOpenException(String host) {
+			super("熔断中，请求被拒绝！host:" + host);
+			this.host = host;
+		}
+
+		/** 主机 */
+		public String getHost() {
+			return host;
+		}
+
+	}
+
+}
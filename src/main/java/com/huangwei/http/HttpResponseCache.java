@@ -0,0 +1,461 @@
+package com.huangwei.http;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.http.HttpClient.Response;
+
+/**
+ * GET请求合并及响应缓存<br>
+ * <br>
+ * 1. 合并（single-flight）：并发的相同GET请求（请求地址、请求头、解码方式均相同）只发出一次，共享同一个响应；<br>
+ * 2. 缓存：内存缓存（近似LRU，限制条目数；超出上限时淘汰最久未访问的条目），有效期取Cache-Control的max-age（不超过最大有效期），无该指令时取默认有效期；<br>
+ * 3. 重新验证：缓存过期且响应含ETag时，以If-None-Match发出条件请求，服务端返回304则续期并返回缓存的响应。<br>
+ * 说明：默认不启用，通过{@link #configure(Config)}启用。请求头含Cache-Control: no-store时不使用缓存及合并；<br>
+ * 请求头Cache-Control: no-cache（{@link HttpClient#header4NoCache()}及{@link HttpClient#header4Json()}默认携带）仅对上游服务器及中间代理有效。
+ */
+public final class HttpResponseCache {
+	private static final Logger logger = LoggerFactory.getLogger(HttpResponseCache.class);
+
+	/** 配置（为空：未启用） */
+	private static volatile Config config;
+	/** 缓存（请求键 -&gt; 缓存条目） */
+	private static volatile ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<String, Entry>();
+	/** 是否正在清理缓存 */
+	private static final AtomicBoolean sweeping = new AtomicBoolean();
+	/** 进行中的请求（请求键 -&gt; 响应） */
+	private static final ConcurrentHashMap<String, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<String, CompletableFuture<Response>>();
+
+	/** 缓存命中次数 */
+	private static final LongAdder hits = new LongAdder();
+	/** 缓存未命中次数（实际发出的请求数） */
+	private static final LongAdder misses = new LongAdder();
+	/** 重新验证成功（304）次数 */
+	private static final LongAdder revalidations = new LongAdder();
+	/** 被合并的请求数 */
+	private static final LongAdder coalesced = new LongAdder();
+	/** 淘汰的缓存条目数（超出上限） */
+	private static final LongAdder evicted = new LongAdder();
+
+	private HttpResponseCache() {
+	}
+
+	/**
+	 * 配置（替换配置时清空缓存）
+	 *
+	 * @param config
+	 *            配置（为空：关闭）
+	 */
+	public static synchronized void configure(Config config) {
+		final Config c = config == null ? null : config.copy();
+		cache = new ConcurrentHashMap<String, Entry>();
+		HttpResponseCache.config = c;
+		logger.info("[响应缓存]设置配置！config:" + c);
+	}
+
+	/** 是否已启用 */
+	public static boolean isEnabled() {
+		return config != null;
+	}
+
+	/**
+	 * 清空缓存
+	 */
+	public static void clear() {
+		cache.clear();
+	}
+
+	/** 缓存条目数 */
+	public static int size() {
+		return cache.size();
+	}
+
+	/**
+	 * 执行GET请求（按配置合并及缓存）
+	 *
+	 * @param requestUrl
+	 *            含参请求地址（不能为空）
+	 * @param headers
+	 *            请求头（可为空）
+	 * @param decode
+	 *            是否将响应解码为字符串
+	 * @param charset
+	 *            字符集（用于响应解码）
+	 * @param loader
+	 *            实际请求（参数为本次使用的请求头）
+	 * @return 响应
+	 * @throws Exception
+	 *             通信异常/IO错误
+	 */
+	static Response get(String requestUrl, Map<String, String> headers, boolean decode, Charset charset,
+			Loader loader) throws Exception {
+		final Config c = config;
+		if (c == null || isNoStore(headers)) {
+			return loader.load(headers);
+		}
+
+		final String key = key(requestUrl, headers, decode, charset);
+		final Entry entry = cache.get(key);
+		if (entry != null && entry.isFresh()) {
+			hits.increment();
+			entry.lastAccess = System.nanoTime();
+			return entry.response.copy();
+		}
+		if (!c.isSingleFlight()) {
+			return fetch(c, key, headers, loader).copy();
+		}
+
+		final CompletableFuture<Response> future = new CompletableFuture<Response>();
+		final CompletableFuture<Response> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			coalesced.increment();
+			try {
+				return existing.get().copy();
+			} catch (ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof Exception) {
+					throw (Exception) cause;
+				}
+				throw e;
+			}
+		}
+		try {
+			final Response response = fetch(c, key, headers, loader);
+			future.complete(response);
+			return response.copy();
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+			throw e;
+		} catch (Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	/**
+	 * 发出请求（有已过期的缓存条目时进行条件请求）
+	 */
+	private static Response fetch(Config c, String key, Map<String, String> headers, Loader loader)
+			throws Exception {
+		final Entry stale = cache.get(key);
+		if (stale != null && stale.isFresh()) {// 等待期间已被其他请求刷新
+			hits.increment();
+			return stale.response;
+		}
+		Map<String, String> requestHeaders = headers;
+		if (stale != null && stale.response.getETag() != null) {
+			requestHeaders = headers == null ? new HashMap<String, String>() : new HashMap<String, String>(headers);
+			requestHeaders.put(HttpHeaders.IF_NONE_MATCH, stale.response.getETag());
+		}
+
+		misses.increment();
+		final Response response = loader.load(requestHeaders);
+		if (stale != null && response.getCode() == HttpStatus.SC_NOT_MODIFIED) {
+			revalidations.increment();
+			final long ttl = ttlOf(c,
+					response.getCacheControl() != null ? response.getCacheControl() : stale.response.getCacheControl());
+			if (ttl < 0) {
+				cache.remove(key);
+			} else {
+				stale.lastAccess = System.nanoTime();
+				stale.expiresAt = stale.lastAccess + TimeUnit.MILLISECONDS.toNanos(ttl);
+			}
+			return stale.response;
+		}
+		if (c.getMaxEntries() > 0 && response.getCode() == HttpStatus.SC_OK) {
+			final long ttl = ttlOf(c, response.getCacheControl());
+			if (ttl > 0 || (ttl == 0 && response.getETag() != null)) {// 有效期为零：仅保存用于条件请求
+				final ConcurrentHashMap<String, Entry> table = cache;
+				if (table.put(key, new Entry(response, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl))) == null
+						&& table.size() > c.getMaxEntries()) {
+					sweep(c, table);
+				}
+			} else if (stale != null) {
+				cache.remove(key);
+			}
+		}
+		return response;
+	}
+
+	/**
+	 * 清理缓存（新增条目后超出上限时调用；同一时间只有一个线程清理，其它线程直接返回）<br>
+	 * 1. 淘汰已过期且无ETag的条目（不能用于条件请求）；<br>
+	 * 2. 仍超出上限：淘汰最久未访问的条目，直至上限的90%（减少清理次数）。
+	 */
+	private static void sweep(Config c, ConcurrentHashMap<String, Entry> table) {
+		if (!sweeping.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			for (Iterator<Entry> it = table.values().iterator(); it.hasNext();) {
+				final Entry entry = it.next();
+				if (!entry.isFresh() && entry.response.getETag() == null) {
+					it.remove();
+					evicted.increment();
+				}
+			}
+			final int size = table.size();
+			if (size > c.getMaxEntries()) {
+				final int target = Math.max(1, c.getMaxEntries() / 10 * 9);
+				long[] lastAccess = new long[size];
+				int n = 0;
+				for (Entry entry : table.values()) {
+					if (n == lastAccess.length) {
+						break;
+					}
+					lastAccess[n++] = entry.lastAccess;
+				}
+				if (n > target) {
+					Arrays.sort(lastAccess, 0, n);
+					final long cutoff = lastAccess[n - target - 1];// 早于该时间访问的条目被淘汰，等于该时间的按需淘汰
+					int remaining = n - target;
+					for (Iterator<Entry> it = table.values().iterator(); it.hasNext() && remaining > 0;) {
+						if (it.next().lastAccess < cutoff) {
+							it.remove();
+							evicted.increment();
+							remaining--;
+						}
+					}
+					for (Iterator<Entry> it = table.values().iterator(); it.hasNext() && remaining > 0;) {
+						if (it.next().lastAccess == cutoff) {
+							it.remove();
+							evicted.increment();
+							remaining--;
+						}
+					}
+				}
+			}
+		} finally {
+			sweeping.set(false);
+		}
+	}
+
+	/**
+	 * 计算有效期
+	 *
+	 * @param c
+	 *            配置
+	 * @param cacheControl
+	 *            响应头Cache-Control（可为空）
+	 * @return 有效期（单位：毫秒；小于零：不能缓存）
+	 */
+	static long ttlOf(Config c, String cacheControl) {
+		if (cacheControl == null) {
+			return c.getDefaultTtl();
+		}
+		long ttl = c.getDefaultTtl();
+		boolean noCache = false;
+		for (String directive : cacheControl.split(",")) {
+			directive = directive.trim().toLowerCase();
+			if ("no-store".equals(directive)) {
+				return -1;
+			}
+			if ("no-cache".equals(directive)) {
+				noCache = true;
+			} else if (directive.startsWith("max-age=")) {
+				try {
+					ttl = Math.min(Long.parseLong(directive.substring(8).replace("\"", "")) * 1000L, c.getMaxTtl());
+				} catch (NumberFormatException e) {
+					ttl = 0;// 格式错误按已过期处理
+				}
+			}
+		}
+		return noCache ? 0 : Math.max(ttl, 0);
+	}
+
+	/** 请求头是否要求不使用缓存（no-store） */
+	private static boolean isNoStore(Map<String, String> headers) {
+		if (headers == null || headers.isEmpty()) {
+			return false;
+		}
+		for (Map.Entry<String, String> header : headers.entrySet()) {
+			if (HttpHeaders.CACHE_CONTROL.equalsIgnoreCase(header.getKey()) && header.getValue() != null) {
+				if (header.getValue().toLowerCase().contains("no-store")) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/** 请求键（请求地址 + 解码方式 + 请求头） */
+	private static String key(String requestUrl, Map<String, String> headers, boolean decode, Charset charset) {
+		StringBuilder builder = new StringBuilder(requestUrl.length() + 32);
+		builder.append(requestUrl).append('\n').append(decode ? charset : "byte");
+		if (headers != null && !headers.isEmpty()) {
+			builder.append('\n').append(new TreeMap<String, String>(headers));
+		}
+		return builder.toString();
+	}
+
+	/** 缓存命中次数 */
+	public static long getHits() {
+		return hits.sum();
+	}
+
+	/** 缓存未命中次数（实际发出的请求数） */
+	public static long getMisses() {
+		return misses.sum();
+	}
+
+	/** 重新验证成功（304）次数 */
+	public static long getRevalidations() {
+		return revalidations.sum();
+	}
+
+	/** 被合并的请求数 */
+	public static long getCoalesced() {
+		return coalesced.sum();
+	}
+
+	/** 淘汰的缓存条目数（超出上限） */
+	public static long getEvicted() {
+		return evicted.sum();
+	}
+
+	/** 统计信息 */
+	public static String stats() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=HttpResponseCache, size=").append(size()).append(", hits=").append(getHits())
+				.append(", misses=").append(getMisses()).append(", revalidations=").append(getRevalidations())
+				.append(", coalesced=").append(getCoalesced()).append(", evicted=").append(getEvicted())
+				.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * 实际请求
+	 */
+	interface Loader {
+
+		/**
+		 * 发出请求
+		 *
+		 * @param headers
+		 *            请求头（可为空）
+		 * @return 响应
+		 * @throws Exception
+		 *             通信异常/IO错误
+		 */
+		Response load(Map<String, String> headers) throws Exception;
+
+	}
+
+	/**
+	 * 缓存条目
+	 */
+	private static class Entry {
+
+		/** 响应 */
+		final Response response;
+		/** 过期时间（System.nanoTime()） */
+		volatile long expiresAt;
+		/** 最近访问时间（System.nanoTime()；用于淘汰） */
+		volatile long lastAccess;
+
+		Entry(Response response, long expiresAt) {
+			this.response = response;
+			this.expiresAt = expiresAt;
+			this.lastAccess = System.nanoTime();
+		}
+
+		/** 是否未过期 */
+		boolean isFresh() {
+			return expiresAt - System.nanoTime() > 0;
+		}
+
+	}
+
+	/**
+	 * 响应缓存配置
+	 */
+	public static class Config {
+
+		/** 是否合并并发的相同请求 */
+		private boolean singleFlight = true;
+		/** 最大缓存条目数（小于等于零：不缓存，仅合并请求） */
+		private int maxEntries = 1000;
+		/** 默认有效期：响应无Cache-Control时使用（单位：毫秒；0：仅缓存含ETag的响应，每次使用前重新验证） */
+		private long defaultTtl = 1000;
+		/** 最大有效期（单位：毫秒） */
+		private long maxTtl = 1000 * 60;
+
+		/** 复制 */
+		Config copy() {
+			Config c = new Config();
+			c.singleFlight = singleFlight;
+			c.maxEntries = maxEntries;
+			c.defaultTtl = defaultTtl;
+			c.maxTtl = maxTtl;
+			return c;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("[clazz=HttpResponseCache.Config, singleFlight=").append(singleFlight).append(", maxEntries=")
+					.append(maxEntries).append(", defaultTtl=").append(defaultTtl).append(", maxTtl=").append(maxTtl)
+					.append("]");
+			return builder.toString();
+		}
+
+		/** 是否合并并发的相同请求 */
+		public boolean isSingleFlight() {
+			return singleFlight;
+		}
+
+		/** 是否合并并发的相同请求 */
+		public void setSingleFlight(boolean singleFlight) {
+			this.singleFlight = singleFlight;
+		}
+
+		/** 最大缓存条目数（小于等于零：不缓存，仅合并请求） */
+		public int getMaxEntries() {
+			return maxEntries;
+		}
+
+		/** 最大缓存条目数（小于等于零：不缓存，仅合并请求） */
+		public void setMaxEntries(int maxEntries) {
+			this.maxEntries = maxEntries;
+		}
+
+		/** 默认有效期（单位：毫秒） */
+		public long getDefaultTtl() {
+			return defaultTtl;
+		}
+
+		/** 默认有效期（单位：毫秒） */
+		public void setDefaultTtl(long defaultTtl) {
+			this.defaultTtl = Math.max(defaultTtl, 0);
+		}
+
+		/** 最大有效期（单位：毫秒） */
+		public long getMaxTtl() {
+			return maxTtl;
+		}
+
+		/** 最大有效期（单位：毫秒） */
+		public void setMaxTtl(long maxTtl) {
+			this.maxTtl = Math.max(maxTtl, 0);
+		}
+
+	}
+
+}
@@ -0,0 +1,367 @@
+package com.huangwei.http;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.util.TokenBucket;
+
+/**
+ * HTTP限流（按主机的客户端速率限制及并发隔离）<br>
+ * <br>
+ * 1. 策略：通过{@link #setPolicy(ThrottlePolicy)}设置默认策略，或通过{@link #setPolicy(String, ThrottlePolicy)}按主机设置策略；<br>
+ * 主机支持通配符（如：*.example.com），匹配顺序：host:port &gt; host &gt; 通配符（由近及远） &gt; 默认策略；<br>
+ * 2. 获取：并发数及令牌均先无锁尝试，失败时在调用线程中排队等待，超出最长排队时间则抛出{@link ThrottledException}；<br>
+ * 3. 统计：每个主机的排队耗时分布、排队次数及拒绝次数（见{@link #getLimiters()}），用于观察是否在自我限流。<br>
+ * 说明：默认不启用；未启用时每个请求只有一次volatile读。限流作用于{@link HttpClient}的每次请求（含重试），被限流的请求不计为熔断失败。
+ */
+public final class HttpThrottle {
+	private static final Logger logger = LoggerFactory.getLogger(HttpThrottle.class);
+
+	/** 不限流（没有适用策略的主机） */
+	private static final Limiter NONE = new Limiter(null, new ThrottlePolicy());
+
+	/** 是否已启用（存在默认策略或主机策略） */
+	private static volatile boolean enabled = false;
+	/** 默认策略（为空：无默认策略） */
+	private static volatile ThrottlePolicy defaultPolicy;
+	/** 主机策略（主机或通配符 -&gt; 策略） */
+	private static final Map<String, ThrottlePolicy> hostPolicies = new ConcurrentHashMap<String, ThrottlePolicy>();
+	/** 限流器（主机 -&gt; 限流器；没有适用策略的主机为NONE） */
+	private static final ConcurrentHashMap<String, Limiter> limiters = new ConcurrentHashMap<String, Limiter>();
+
+	private HttpThrottle() {
+	}
+
+	/**
+	 * 设置默认策略
+	 *
+	 * @param policy
+	 *            限流策略（为空：关闭默认策略）
+	 */
+	public static synchronized void setPolicy(ThrottlePolicy policy) {
+		defaultPolicy = policy;
+		refresh();
+		logger.info("[HTTP限流]设置默认策略！policy:" + policy);
+	}
+
+	/**
+	 * 设置主机策略（优先于默认策略）
+	 *
+	 * @param host
+	 *            主机（不能为空；格式：host、host:port 或 *.domain）
+	 * @param policy
+	 *            限流策略（为空：移除该主机的策略）
+	 * @throws IllegalArgumentException
+	 *             主机为空
+	 */
+	public static synchronized void setPolicy(String host, ThrottlePolicy policy) {
+		if (host == null || "".equals(host = host.trim())) {
+			throw new IllegalArgumentException("主机不能为空！");
+		}
+
+		if (policy == null) {
+			hostPolicies.remove(host.toLowerCase());
+		} else {
+			hostPolicies.put(host.toLowerCase(), policy);
+		}
+		refresh();
+		logger.info("[HTTP限流]设置主机策略！host:" + host + " policy:" + policy);
+	}
+
+	/**
+	 * 获取主机适用的策略
+	 *
+	 * @param host
+	 *            主机（不能为空；格式：host 或 host:port）
+	 * @return NULL（不限流） 或 策略
+	 */
+	public static ThrottlePolicy getPolicy(String host) {
+		host = host.toLowerCase();
+		if (!hostPolicies.isEmpty()) {
+			ThrottlePolicy policy = hostPolicies.get(host);
+			if (policy != null) {
+				return policy;
+			}
+			int colon = host.lastIndexOf(':');
+			if (colon > 0 && host.indexOf(']') < colon) {// 去掉端口（IPv6地址含有冒号）
+				host = host.substring(0, colon);
+				policy = hostPolicies.get(host);
+				if (policy != null) {
+					return policy;
+				}
+			}
+			for (int dot = host.indexOf('.'); dot >= 0; dot = host.indexOf('.', dot + 1)) {
+				policy = hostPolicies.get("*" + host.substring(dot));
+				if (policy != null) {
+					return policy;
+				}
+			}
+		}
+		return defaultPolicy;
+	}
+
+	/** 是否已启用（存在默认策略或主机策略） */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * 获取所有限流器（用于监控）
+	 *
+	 * @return 主机 -&gt; 限流器（只读；不含没有适用策略的主机）
+	 */
+	public static Map<String, Limiter> getLimiters() {
+		Map<String, Limiter> result = new TreeMap<String, Limiter>();
+		for (Map.Entry<String, Limiter> e : limiters.entrySet()) {
+			if (e.getValue() != NONE) {
+				result.put(e.getKey(), e.getValue());
+			}
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * 获取主机的限流器
+	 *
+	 * @param host
+	 *            主机（格式：host 或 host:port）
+	 * @return NULL（尚未请求或不限流） 或 限流器
+	 */
+	public static Limiter getLimiter(String host) {
+		Limiter limiter = host == null ? null : limiters.get(host.toLowerCase());
+		return limiter == NONE ? null : limiter;
+	}
+
+	/** 统计信息 */
+	public static String stats() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=HttpThrottle, enabled=").append(enabled).append(", limiters=")
+				.append(getLimiters().values()).append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * 获取许可（请求前调用；请求结束后必须调用{@link Limiter#release()}）
+	 *
+	 * @param url
+	 *            请求地址（不能为空）
+	 * @return 限流器（用于释放许可）
+	 * @throws ThrottledException
+	 *             超出最长排队时间
+	 * @throws InterruptedIOException
+	 *             排队等待被中断
+	 */
+	static Limiter acquire(String url) throws IOException {
+		if (!enabled) {
+			return NONE;
+		}
+		final String host = HttpClient.hostOf(url);
+		Limiter limiter = limiters.get(host);
+		if (limiter == null) {
+			limiter = limiters.computeIfAbsent(host, HttpThrottle::create);
+		}
+		return limiter == NONE ? NONE : limiter.acquire();
+	}
+
+	/** 创建限流器 */
+	private static Limiter create(String host) {
+		ThrottlePolicy policy = getPolicy(host);
+		return policy == null ? NONE : new Limiter(host, policy);
+	}
+
+	/** 策略变更：重建限流器（正在进行中的请求释放到旧的限流器，不受影响） */
+	private static void refresh() {
+		enabled = defaultPolicy != null || !hostPolicies.isEmpty();
+		limiters.clear();
+	}
+
+	/**
+	 * 限流器（单个主机）
+	 */
+	public static class Limiter {
+
+		/** 主机 */
+		private final String host;
+		/** 令牌桶（为空：不限速率） */
+		private final TokenBucket bucket;
+		/** 并发许可（为空：不限并发） */
+		private final Semaphore bulkhead;
+		/** 最大并发数 */
+		private final int maxConcurrent;
+		/** 最长排队时间（纳秒） */
+		private final long maxWaitNanos;
+
+		/** 排队耗时分布（含无需排队的请求） */
+		private final LatencyHistogram waitTime = new LatencyHistogram();
+		/** 获取许可成功次数 */
+		private final LongAdder acquired = new LongAdder();
+		/** 排队次数（无法立即获取许可） */
+		private final LongAdder delayed = new LongAdder();
+		/** 拒绝次数（超出最长排队时间） */
+		private final LongAdder rejected = new LongAdder();
+
+		Limiter(String host, ThrottlePolicy policy) {
+			this.host = host;
+			this.bucket = policy.getPermitsPerSecond() > 0
+					? new TokenBucket(policy.getPermitsPerSecond(), policy.effectiveBurst()) : null;
+			this.maxConcurrent = policy.getMaxConcurrent();
+			this.bulkhead = maxConcurrent > 0 ? new Semaphore(maxConcurrent) : null;
+			this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(policy.getMaxWait());
+		}
+
+		/**
+		 * 获取许可（先并发数，后令牌）
+		 *
+		 * @throws ThrottledException
+		 *             超出最长排队时间
+		 * @throws InterruptedIOException
+		 *             排队等待被中断
+		 */
+		Limiter acquire() throws IOException {
+			final long begin = System.nanoTime();
+			boolean waited = false;
+			if (bulkhead != null && !bulkhead.tryAcquire()) {
+				waited = true;
+				boolean ok = false;
+				if (maxWaitNanos > 0) {
+					try {
+						ok = bulkhead.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("限流等待被中断！host:" + host);
+					}
+				}
+				if (!ok) {
+					rejected.increment();
+					throw new ThrottledException(host, "并发数已满，maxConcurrent:" + maxConcurrent);
+				}
+			}
+			if (bucket != null) {
+				final long wait = bucket.reserve(maxWaitNanos - (System.nanoTime() - begin));
+				if (wait < 0) {
+					releaseBulkhead();
+					rejected.increment();
+					throw new ThrottledException(host, "超出速率限制，permitsPerSecond:" + bucket.getPermitsPerSecond());
+				}
+				if (wait > 0) {
+					waited = true;
+					try {
+						TimeUnit.NANOSECONDS.sleep(wait);
+					} catch (InterruptedException e) {
+						releaseBulkhead();
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("限流等待被中断！host:" + host);
+					}
+				}
+			}
+			if (waited) {
+				delayed.increment();
+			}
+			acquired.increment();
+			waitTime.record(System.nanoTime() - begin);
+			return this;
+		}
+
+		/**
+		 * 释放许可（请求结束后调用，每次获取对应一次释放）
+		 */
+		void release() {
+			releaseBulkhead();
+		}
+
+		private void releaseBulkhead() {
+			if (bulkhead != null) {
+				bulkhead.release();
+			}
+		}
+
+		/** 主机 */
+		public String getHost() {
+			return host;
+		}
+
+		/** 速率（请求数/秒；0：不限制） */
+		public double getPermitsPerSecond() {
+			return bucket == null ? 0 : bucket.getPermitsPerSecond();
+		}
+
+		/** 当前可用令牌数（近似值；-1：不限速率） */
+		public int getAvailablePermits() {
+			return bucket == null ? -1 : bucket.getAvailablePermits();
+		}
+
+		/** 最大并发数（0：不限制） */
+		public int getMaxConcurrent() {
+			return maxConcurrent;
+		}
+
+		/** 进行中的请求数（不限并发时为0） */
+		public int getInFlight() {
+			return bulkhead == null ? 0 : maxConcurrent - bulkhead.availablePermits();
+		}
+
+		/** 排队耗时分布（含无需排队的请求） */
+		public LatencyHistogram getWaitTime() {
+			return waitTime;
+		}
+
+		/** 获取许可成功次数 */
+		public long getAcquired() {
+			return acquired.sum();
+		}
+
+		/** 排队次数（无法立即获取许可） */
+		public long getDelayed() {
+			return delayed.sum();
+		}
+
+		/** 拒绝次数（超出最长排队时间） */
+		public long getRejected() {
+			return rejected.sum();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("[clazz=Limiter, host=").append(host).append(", permitsPerSecond=")
+					.append(getPermitsPerSecond()).append(", availablePermits=").append(getAvailablePermits())
+					.append(", maxConcurrent=").append(maxConcurrent).append(", inFlight=").append(getInFlight())
+					.append(", acquired=").append(getAcquired()).append(", delayed=").append(getDelayed())
+					.append(", rejected=").append(getRejected()).append(", waitTime=").append(waitTime).append("]");
+			return builder.toString();
+		}
+
+	}
+
+	/**
+	 * 限流异常（超出最长排队时间，请求未发出）
+	 */
+	public static class ThrottledException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		/** 主机 */
+		private final String host;
+
+		public ThrottledException(String host, String reason) {
+			super("限流中，请求被拒绝！host:" + host + " reason:" + reason);
+			this.host = host;
+		}
+
+		/** 主机 */
+		public String getHost() {
+			return host;
+		}
+
+	}
+
+}
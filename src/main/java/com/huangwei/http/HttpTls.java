@@ -0,0 +1,456 @@
+package com.huangwei.http;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.ssl.TrustAllStrategy;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.util.ExceptionUtil;
+
+/**
+ * TLS配置<br>
+ * <br>
+ * 1. 缓存：按配置缓存SSLContext及SSLConnectionSocketFactory，避免每次请求重新创建（创建SSLContext的开销较大）；<br>
+ * 2. 会话复用：同一SSLContext内的客户端会话缓存使后续握手可走简化流程（Session Resumption）；<br>
+ * 3. 信任模式：信任所有证书（原有行为，不安全）、JDK默认信任库、指定的信任库文件；<br>
+ * 4. 客户端证书（双向认证）：指定密钥库文件。
+ */
+public final class HttpTls {
+	private static final Logger logger = LoggerFactory.getLogger(HttpTls.class);
+
+	/** 缓存（配置键 -&gt; TLS组件） */
+	private static final ConcurrentHashMap<String, Holder> holders = new ConcurrentHashMap<String, Holder>();
+
+	private HttpTls() {
+	}
+
+	/**
+	 * 获取SSLContext（按配置缓存）
+	 *
+	 * @param config
+	 *            TLS配置（不能为空）
+	 * @return SSLContext
+	 * @throws IllegalArgumentException
+	 *             配置为空
+	 * @throws IllegalStateException
+	 *             创建失败（如信任库无法读取）
+	 */
+	public static SSLContext sslContext(Config config) {
+		return holder(config).sslContext;
+	}
+
+	/**
+	 * 获取SSL连接工厂（按配置缓存）
+	 *
+	 * @param config
+	 *            TLS配置（不能为空）
+	 * @return SSL连接工厂
+	 * @throws IllegalArgumentException
+	 *             配置为空
+	 * @throws IllegalStateException
+	 *             创建失败（如信任库无法读取）
+	 */
+	public static SSLConnectionSocketFactory socketFactory(Config config) {
+		return holder(config).socketFactory;
+	}
+
+	/**
+	 * 主机名校验器
+	 *
+	 * @param config
+	 *            TLS配置（不能为空）
+	 * @return 主机名校验器
+	 */
+	static HostnameVerifier hostnameVerifier(Config config) {
+		return config.isVerifyHostname() ? new DefaultHostnameVerifier() : NoopHostnameVerifier.INSTANCE;
+	}
+
+	/**
+	 * 清空缓存（信任库文件更新后调用）
+	 */
+	public static void clear() {
+		holders.clear();
+	}
+
+	/** 获取TLS组件（不存在时创建） */
+	private static Holder holder(Config config) {
+		if (config == null) {
+			throw new IllegalArgumentException("TLS配置不能为空！");
+		}
+
+		final String key = config.key();
+		Holder holder = holders.get(key);
+		if (holder == null) {
+			holder = holders.computeIfAbsent(key, k -> create(config.copy()));
+		}
+		return holder;
+	}
+
+	/** 创建TLS组件 */
+	private static Holder create(Config config) {
+		try {
+			SSLContextBuilder builder = SSLContextBuilder.create();
+			if (config.getProtocol() != null) {
+				builder.setProtocol(config.getProtocol());
+			}
+			switch (config.getTrustMode()) {
+			case TRUST_ALL:
+				builder.loadTrustMaterial(TrustAllStrategy.INSTANCE);
+				break;
+			case TRUST_STORE:
+				builder.loadTrustMaterial(loadTrustStore(config), null);
+				break;
+			default:
+				break;// JDK默认信任库
+			}
+			if (config.getKeyStore() != null) {
+				builder.loadKeyMaterial(loadKeyStore(config.getKeyStore(), config.getKeyStoreType(),
+						config.getKeyStorePassword()), config.getKeyStorePassword());
+			}
+			SSLContext sslContext = builder.build();
+			SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+			if (sessionContext != null) {
+				sessionContext.setSessionCacheSize(config.getSessionCacheSize());
+				sessionContext.setSessionTimeout(config.getSessionTimeout());
+			}
+			SSLConnectionSocketFactory socketFactory = new SSLConnectionSocketFactory(sslContext,
+					config.getSupportedProtocols(), null, hostnameVerifier(config));
+			logger.info("[TLS]已创建SSLContext！config:" + config);
+			return new Holder(sslContext, socketFactory);
+		} catch (Exception e) {
+			logger.error("[TLS]创建SSLContext出错！config:" + config + " exception: [" + ExceptionUtil.detail(e) + "]");
+			throw new IllegalStateException("创建SSLContext出错！", e);
+		}
+	}
+
+	/** 载入信任库 */
+	private static KeyStore loadTrustStore(Config config) throws Exception {
+		if (config.getTrustStore() == null) {
+			throw new IllegalArgumentException("信任库文件不能为空！");
+		}
+		return loadKeyStore(config.getTrustStore(), config.getTrustStoreType(), config.getTrustStorePassword());
+	}
+
+	/** 载入密钥库/信任库文件 */
+	private static KeyStore loadKeyStore(Path file, String type, char[] password) throws Exception {
+		KeyStore keyStore = KeyStore.getInstance(type);
+		try (InputStream input = Files.newInputStream(file)) {
+			keyStore.load(input, password);
+		}
+		return keyStore;
+	}
+
+	/**
+	 * TLS组件
+	 */
+	private static class Holder {
+
+		final SSLContext sslContext;
+		final SSLConnectionSocketFactory socketFactory;
+
+		Holder(SSLContext sslContext, SSLConnectionSocketFactory socketFactory) {
+			this.sslContext = sslContext;
+			this.socketFactory = socketFactory;
+		}
+
+	}
+
+	/**
+	 * 信任模式
+	 */
+	public enum TrustMode {
+		/** 信任所有证书（不安全，仅用于兼容原有行为） */
+		TRUST_ALL,
+		/** JDK默认信任库 */
+		SYSTEM,
+		/** 指定的信任库文件 */
+		TRUST_STORE
+	}
+
+	/**
+	 * TLS配置
+	 */
+	public static class Config {
+
+		/** 信任模式 */
+		private TrustMode trustMode = TrustMode.SYSTEM;
+		/** 是否校验主机名 */
+		private boolean verifyHostname = true;
+		/** 信任库文件（信任模式为TRUST_STORE时必填） */
+		private Path trustStore;
+		/** 信任库密码（可为空） */
+		private char[] trustStorePassword;
+		/** 信任库类型 */
+		private String trustStoreType = KeyStore.getDefaultType();
+		/** 客户端证书密钥库文件（双向认证；为空：不提供客户端证书） */
+		private Path keyStore;
+		/** 客户端证书密钥库密码（同时用作私钥密码） */
+		private char[] keyStorePassword;
+		/** 客户端证书密钥库类型 */
+		private String keyStoreType = "PKCS12";
+		/** SSLContext协议（为空：TLS） */
+		private String protocol;
+		/** 允许的协议版本（为空：JDK默认，例如：TLSv1.2, TLSv1.3） */
+		private String[] supportedProtocols;
+		/** 客户端会话缓存数量（0：不限制） */
+		private int sessionCacheSize = 1000;
+		/** 客户端会话有效期（单位：秒；0：不限制） */
+		private int sessionTimeout = 60 * 60 * 24;
+
+		/**
+		 * 信任所有证书，不校验主机名（不安全，与原有行为一致）
+		 *
+		 * @return TLS配置
+		 */
+		public static Config trustAll() {
+			Config c = new Config();
+			c.trustMode = TrustMode.TRUST_ALL;
+			c.verifyHostname = false;
+			return c;
+		}
+
+		/**
+		 * JDK默认信任库，校验主机名
+		 *
+		 * @return TLS配置
+		 */
+		public static Config system() {
+			return new Config();
+		}
+
+		/**
+		 * 指定的信任库文件，校验主机名
+		 *
+		 * @param trustStore
+		 *            信任库文件（不能为空）
+		 * @param password
+		 *            信任库密码（可为空）
+		 * @return TLS配置
+		 * @throws IllegalArgumentException
+		 *             信任库文件为空
+		 */
+		public static Config trustStore(Path trustStore, char[] password) {
+			if (trustStore == null) {
+				throw new IllegalArgumentException("信任库文件不能为空！");
+			}
+			Config c = new Config();
+			c.trustMode = TrustMode.TRUST_STORE;
+			c.trustStore = trustStore;
+			c.trustStorePassword = password == null ? null : password.clone();
+			return c;
+		}
+
+		/** 缓存键（密码以SHA-256摘要参与，不保存明文；不同密码不会命中同一缓存） */
+		String key() {
+			StringBuilder builder = new StringBuilder();
+			builder.append(trustMode).append('|').append(verifyHostname).append('|').append(trustStore).append('|')
+					.append(digest(trustStorePassword)).append('|').append(trustStoreType).append('|')
+					.append(keyStore).append('|').append(digest(keyStorePassword)).append('|')
+					.append(keyStoreType).append('|')
+					.append(protocol).append('|').append(Arrays.toString(supportedProtocols)).append('|')
+					.append(sessionCacheSize).append('|').append(sessionTimeout);
+			return builder.toString();
+		}
+
+		/** 密码摘要（SHA-256，Base64；为空：null） */
+		private static String digest(char[] password) {
+			if (password == null) {
+				return "null";
+			}
+			final ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+			try {
+				MessageDigest md = MessageDigest.getInstance("SHA-256");
+				md.update(bytes);
+				return Base64.getEncoder().encodeToString(md.digest());
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("不支持SHA-256！", e);
+			} finally {
+				if (bytes.hasArray()) {
+					Arrays.fill(bytes.array(), (byte) 0);// 清除密码的字节副本
+				}
+			}
+		}
+
+		/** 复制 */
+		Config copy() {
+			Config c = new Config();
+			c.trustMode = trustMode;
+			c.verifyHostname = verifyHostname;
+			c.trustStore = trustStore;
+			c.trustStorePassword = trustStorePassword == null ? null : trustStorePassword.clone();
+			c.trustStoreType = trustStoreType;
+			c.keyStore = keyStore;
+			c.keyStorePassword = keyStorePassword == null ? null : keyStorePassword.clone();
+			c.keyStoreType = keyStoreType;
+			c.protocol = protocol;
+			c.supportedProtocols = supportedProtocols == null ? null : supportedProtocols.clone();
+			c.sessionCacheSize = sessionCacheSize;
+			c.sessionTimeout = sessionTimeout;
+			return c;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("[clazz=HttpTls.Config, trustMode=").append(trustMode).append(", verifyHostname=")
+					.append(verifyHostname).append(", trustStore=").append(trustStore).append(", trustStoreType=")
+					.append(trustStoreType).append(", keyStore=").append(keyStore).append(", keyStoreType=")
+					.append(keyStoreType).append(", protocol=").append(protocol).append(", supportedProtocols=")
+					.append(Arrays.toString(supportedProtocols)).append(", sessionCacheSize=")
+					.append(sessionCacheSize).append(", sessionTimeout=").append(sessionTimeout).append("]");
+			return builder.toString();
+		}
+
+		/** 信任模式 */
+		public TrustMode getTrustMode() {
+			return trustMode;
+		}
+
+		/** 信任模式 */
+		public void setTrustMode(TrustMode trustMode) {
+			if (trustMode == null) {
+				throw new IllegalArgumentException("信任模式不能为空！");
+			}
+			this.trustMode = trustMode;
+		}
+
+		/** 是否校验主机名 */
+		public boolean isVerifyHostname() {
+			return verifyHostname;
+		}
+
+		/** 是否校验主机名 */
+		public void setVerifyHostname(boolean verifyHostname) {
+			this.verifyHostname = verifyHostname;
+		}
+
+		/** 信任库文件 */
+		public Path getTrustStore() {
+			return trustStore;
+		}
+
+		/** 信任库文件 */
+		public void setTrustStore(Path trustStore) {
+			this.trustStore = trustStore;
+		}
+
+		/** 信任库密码 */
+		char[] getTrustStorePassword() {
+			return trustStorePassword;
+		}
+
+		/** 信任库密码（可为空） */
+		public void setTrustStorePassword(char[] trustStorePassword) {
+			this.trustStorePassword = trustStorePassword == null ? null : trustStorePassword.clone();
+		}
+
+		/** 信任库类型 */
+		public String getTrustStoreType() {
+			return trustStoreType;
+		}
+
+		/** 信任库类型（例如：JKS, PKCS12） */
+		public void setTrustStoreType(String trustStoreType) {
+			if (trustStoreType == null || "".equals(trustStoreType = trustStoreType.trim())) {
+				throw new IllegalArgumentException("信任库类型不能为空！");
+			}
+			this.trustStoreType = trustStoreType;
+		}
+
+		/** 客户端证书密钥库文件 */
+		public Path getKeyStore() {
+			return keyStore;
+		}
+
+		/** 客户端证书密钥库文件（双向认证；为空：不提供客户端证书） */
+		public void setKeyStore(Path keyStore) {
+			this.keyStore = keyStore;
+		}
+
+		/** 客户端证书密钥库密码 */
+		char[] getKeyStorePassword() {
+			return keyStorePassword;
+		}
+
+		/** 客户端证书密钥库密码（同时用作私钥密码） */
+		public void setKeyStorePassword(char[] keyStorePassword) {
+			this.keyStorePassword = keyStorePassword == null ? null : keyStorePassword.clone();
+		}
+
+		/** 客户端证书密钥库类型 */
+		public String getKeyStoreType() {
+			return keyStoreType;
+		}
+
+		/** 客户端证书密钥库类型（默认：PKCS12） */
+		public void setKeyStoreType(String keyStoreType) {
+			if (keyStoreType == null || "".equals(keyStoreType = keyStoreType.trim())) {
+				throw new IllegalArgumentException("密钥库类型不能为空！");
+			}
+			this.keyStoreType = keyStoreType;
+		}
+
+		/** SSLContext协议 */
+		public String getProtocol() {
+			return protocol;
+		}
+
+		/** SSLContext协议（为空：TLS） */
+		public void setProtocol(String protocol) {
+			this.protocol = protocol;
+		}
+
+		/** 允许的协议版本 */
+		public String[] getSupportedProtocols() {
+			return supportedProtocols == null ? null : supportedProtocols.clone();
+		}
+
+		/** 允许的协议版本（为空：JDK默认） */
+		public void setSupportedProtocols(String... supportedProtocols) {
+			this.supportedProtocols = supportedProtocols == null || supportedProtocols.length == 0 ? null
+					: supportedProtocols.clone();
+		}
+
+		/** 客户端会话缓存数量（0：不限制） */
+		public int getSessionCacheSize() {
+			return sessionCacheSize;
+		}
+
+		/** 客户端会话缓存数量（0：不限制） */
+		public void setSessionCacheSize(int sessionCacheSize) {
+			this.sessionCacheSize = Math.max(sessionCacheSize, 0);
+		}
+
+		/** 客户端会话有效期（单位：秒；0：不限制） */
+		public int getSessionTimeout() {
+			return sessionTimeout;
+		}
+
+		/** 客户端会话有效期（单位：秒；0：不限制） */
+		public void setSessionTimeout(int sessionTimeout) {
+			this.sessionTimeout = Math.max(sessionTimeout, 0);
+		}
+
+	}
+
+}
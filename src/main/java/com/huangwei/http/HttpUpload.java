@@ -0,0 +1,644 @@
+package com.huangwei.http;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.entity.mime.HttpMultipartMode;
+import org.apache.http.entity.mime.MultipartEntityBuilder;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+import org.apache.http.entity.mime.content.InputStreamBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.huangwei.util.ExceptionUtil;
+
+/**
+ * HTTP上传（大请求体）<br>
+ * <br>
+ * 1. 请求体：文件（Path，经FileChannel读取）、输入流、multipart/form-data，均以分块传输流式发送，不缓冲到内存；<br>
+ * 2. 进度：通过{@link ProgressListener}回调已发送字节数、总字节数及速率；<br>
+ * 3. 统计：上传次数、字节数及累计速率（见{@link #stats()}）。<br>
+ * 说明：上传请求体不做gzip压缩；文件请求体可重复发送（可重试），输入流请求体只能发送一次；<br>
+ * 传入的输入流由本类负责关闭（发送完成、发送出错或未发送均关闭），调用方不需要也不应在上传结束前关闭。
+ */
+public final class HttpUpload {
+	private static final Logger logger = LoggerFactory.getLogger(HttpUpload.class);
+
+	/** 读取缓冲区大小 */
+	private static final int BUFFER_SIZE = 1024 * 64;
+	/** 进度回调间隔（字节数） */
+	private static final long PROGRESS_STEP = 1024 * 64;
+
+	/** 上传次数（请求体发送完成） */
+	private static final LongAdder uploads = new LongAdder();
+	/** 上传字节数 */
+	private static final LongAdder uploadedBytes = new LongAdder();
+	/** 上传耗时（纳秒） */
+	private static final LongAdder uploadNanos = new LongAdder();
+
+	private HttpUpload() {
+	}
+
+	/**
+	 * 文件请求体
+	 *
+	 * @param file
+	 *            文件（不能为空）
+	 * @param contentType
+	 *            内容类型（为空：application/octet-stream）
+	 * @return 请求体（可重复发送）
+	 * @throws IllegalArgumentException
+	 *             文件为空 或 不是可读的普通文件
+	 * @throws IOException
+	 *             读取文件大小出错
+	 */
+	static HttpEntity fileEntity(Path file, String contentType) throws IOException {
+		checkFile(file);
+		return new PathEntity(file, contentType(contentType));
+	}
+
+	/**
+	 * 输入流请求体
+	 *
+	 * @param input
+	 *            输入流（不能为空；由请求体负责关闭，见{@link #release(HttpEntity)}）
+	 * @param length
+	 *            长度（字节数；小于零：未知）
+	 * @param contentType
+	 *            内容类型（为空：application/octet-stream）
+	 * @return 请求体（只能发送一次）
+	 * @throws IllegalArgumentException
+	 *             输入流为空
+	 */
+	static HttpEntity streamEntity(InputStream input, long length, String contentType) {
+		if (input == null) {
+			throw new IllegalArgumentException("输入流不能为空！");
+		}
+		return new StreamEntity(input, length, contentType(contentType));
+	}
+
+	/**
+	 * 释放请求体持有的输入流（上传结束后调用；请求体未发送时输入流不会被读取，也需要在此关闭）
+	 *
+	 * @param entity
+	 *            请求体（可为空；不持有输入流时不做处理）
+	 */
+	static void release(HttpEntity entity) {
+		if (entity instanceof Closeable) {
+			try {
+				((Closeable) entity).close();
+			} catch (IOException e) {
+				logger.warn("[上传]关闭输入流出错！exception: [" + ExceptionUtil.detail(e) + "]");
+			}
+		}
+	}
+
+	/**
+	 * 附加进度回调及统计
+	 *
+	 * @param entity
+	 *            请求体（不能为空）
+	 * @param listener
+	 *            进度回调（可为空）
+	 * @return 请求体
+	 */
+	static ProgressEntity progress(HttpEntity entity, ProgressListener listener) {
+		return new ProgressEntity(entity, listener);
+	}
+
+	/** 上传次数（请求体发送完成） */
+	public static long getUploads() {
+		return uploads.sum();
+	}
+
+	/** 上传字节数 */
+	public static long getUploadedBytes() {
+		return uploadedBytes.sum();
+	}
+
+	/** 累计上传速率（字节/秒；按发送请求体的耗时计算） */
+	public static long getThroughput() {
+		return bytesPerSecond(getUploadedBytes(), uploadNanos.sum());
+	}
+
+	/** 统计信息 */
+	public static String stats() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=HttpUpload, uploads=").append(getUploads()).append(", uploadedBytes=")
+				.append(getUploadedBytes()).append(", throughput=").append(getThroughput()).append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * 计算速率
+	 *
+	 * @param bytes
+	 *            字节数
+	 * @param nanos
+	 *            耗时（纳秒）
+	 * @return 字节/秒
+	 */
+	static long bytesPerSecond(long bytes, long nanos) {
+		return nanos <= 0 ? 0 : (long) (bytes * 1000000000D / nanos);
+	}
+
+	/**
+	 * 检查文件
+	 *
+	 * @throws IllegalArgumentException
+	 *             文件为空 或 不是可读的普通文件
+	 */
+	private static void checkFile(Path file) {
+		if (file == null) {
+			throw new IllegalArgumentException("文件不能为空！");
+		}
+		if (!Files.isRegularFile(file) || !Files.isReadable(file)) {
+			throw new IllegalArgumentException("文件不存在或不可读！file:" + file);
+		}
+	}
+
+	private static ContentType contentType(String contentType) {
+		return contentType == null || contentType.isEmpty() ? ContentType.APPLICATION_OCTET_STREAM
+				: ContentType.parse(contentType);
+	}
+
+	/**
+	 * 经FileChannel将文件写入输出流
+	 */
+	private static void copy(Path file, OutputStream output) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+			while (channel.read(byteBuffer) != -1) {
+				output.write(buffer, 0, byteBuffer.position());
+				byteBuffer.clear();
+			}
+		}
+	}
+
+	/**
+	 * 上传进度回调<br>
+	 * <br>
+	 * 说明：在发送请求的线程中调用，约每64KB及发送完成时各调用一次；请求被重试时从零开始重新回调。
+	 */
+	public interface ProgressListener {
+
+		/**
+		 * 上传进度
+		 *
+		 * @param progress
+		 *            进度（不能为空）
+		 */
+		void onProgress(Progress progress);
+
+	}
+
+	/**
+	 * 上传进度
+	 */
+	public static final class Progress {
+
+		/** 已发送字节数 */
+		private final long transferred;
+		/** 总字节数（-1：未知） */
+		private final long total;
+		/** 已耗时（纳秒） */
+		private final long elapsedNanos;
+		/** 是否发送完成 */
+		private final boolean done;
+
+		Progress(long transferred, long total, long elapsedNanos, boolean done) {
+			this.transferred = transferred;
+			this.total = total;
+			this.elapsedNanos = elapsedNanos;
+			this.done = done;
+		}
+
+		/** 已发送字节数 */
+		public long getTransferred() {
+			return transferred;
+		}
+
+		/** 总字节数（-1：未知） */
+		public long getTotal() {
+			return total;
+		}
+
+		/** 已耗时（毫秒） */
+		public long getElapsedMilliseconds() {
+			return elapsedNanos / 1000000L;
+		}
+
+		/** 速率（字节/秒） */
+		public long getBytesPerSecond() {
+			return bytesPerSecond(transferred, elapsedNanos);
+		}
+
+		/** 完成百分比（0 ~ 100；总字节数未知：-1） */
+		public double getPercent() {
+			if (total < 0) {
+				return -1;
+			}
+			return total == 0 ? 100 : transferred * 100D / total;
+		}
+
+		/** 是否发送完成 */
+		public boolean isDone() {
+			return done;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("[clazz=Progress, transferred=").append(transferred).append(", total=").append(total)
+					.append(", elapsedMilliseconds=").append(getElapsedMilliseconds()).append(", bytesPerSecond=")
+					.append(getBytesPerSecond()).append(", done=").append(done).append("]");
+			return builder.toString();
+		}
+
+	}
+
+	/**
+	 * multipart/form-data请求体<br>
+	 * <br>
+	 * 说明：文本使用UTF-8编码；文件经FileChannel流式读取；每个实例只能用于一次上传（输入流只能读取一次）；<br>
+	 * 添加的输入流由上传负责关闭（发送完成、发送出错或未发送均关闭）。
+	 */
+	public static final class Multipart {
+
+		private final MultipartEntityBuilder builder = MultipartEntityBuilder.create()
+				.setMode(HttpMultipartMode.RFC6532).setCharset(StandardCharsets.UTF_8);
+		/** 是否含有部件 */
+		private boolean empty = true;
+		/** 输入流部件（上传结束后关闭） */
+		private final List<InputStream> streams = new ArrayList<InputStream>();
+
+		/**
+		 * 添加文本
+		 *
+		 * @param name
+		 *            名称（不能为空）
+		 * @param value
+		 *            值（为空：空字符串）
+		 * @return 当前对象
+		 */
+		public Multipart addText(String name, String value) {
+			checkName(name);
+			builder.addTextBody(name, value == null ? "" : value,
+					ContentType.create("text/plain", StandardCharsets.UTF_8));
+			empty = false;
+			return this;
+		}
+
+		/**
+		 * 添加文件
+		 *
+		 * @param name
+		 *            名称（不能为空）
+		 * @param file
+		 *            文件（不能为空）
+		 * @param contentType
+		 *            内容类型（为空：application/octet-stream）
+		 * @return 当前对象
+		 * @throws IllegalArgumentException
+		 *             参数错误 或 文件不存在
+		 * @throws IOException
+		 *             读取文件大小出错
+		 */
+		public Multipart addFile(String name, Path file, String contentType) throws IOException {
+			checkName(name);
+			checkFile(file);
+			builder.addPart(name, new PathBody(file, contentType(contentType)));
+			empty = false;
+			return this;
+		}
+
+		/**
+		 * 添加输入流
+		 *
+		 * @param name
+		 *            名称（不能为空）
+		 * @param input
+		 *            输入流（不能为空；由上传负责关闭，未调用上传方法时由调用方关闭）
+		 * @param contentType
+		 *            内容类型（为空：application/octet-stream）
+		 * @param fileName
+		 *            文件名（可为空）
+		 * @return 当前对象
+		 */
+		public Multipart addStream(String name, InputStream input, String contentType, String fileName) {
+			checkName(name);
+			if (input == null) {
+				throw new IllegalArgumentException("输入流不能为空！");
+			}
+			builder.addPart(name, new InputStreamBody(input, contentType(contentType), fileName));
+			streams.add(input);
+			empty = false;
+			return this;
+		}
+
+		/**
+		 * 生成请求体（分块传输）
+		 *
+		 * @throws IllegalArgumentException
+		 *             没有任何部件
+		 */
+		HttpEntity build() {
+			if (empty) {
+				throw new IllegalArgumentException("multipart内容不能为空！");
+			}
+			return new MultipartEntity(builder.build(), new ArrayList<InputStream>(streams));
+		}
+
+		private static void checkName(String name) {
+			if (name == null || name.isEmpty()) {
+				throw new IllegalArgumentException("名称不能为空！");
+			}
+		}
+
+	}
+
+	/**
+	 * multipart请求体（分块传输；关闭时关闭全部输入流部件）
+	 */
+	private static class MultipartEntity extends HttpEntityWrapper implements Closeable {
+
+		/** 输入流部件 */
+		private final List<InputStream> streams;
+
+		MultipartEntity(HttpEntity entity, List<InputStream> streams) {
+			super(entity);
+			this.streams = streams;
+		}
+
+		@Override
+		public boolean isChunked() {
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			IOException error = null;
+			for (InputStream stream : streams) {
+				try {
+					stream.close();
+				} catch (IOException e) {
+					if (error == null) {
+						error = e;
+					} else {
+						error.addSuppressed(e);
+					}
+				}
+			}
+			if (error != null) {
+				throw error;
+			}
+		}
+
+	}
+
+	/**
+	 * 文件请求体（分块传输，可重复发送）
+	 */
+	private static class PathEntity extends AbstractHttpEntity {
+
+		private final Path file;
+		/** 文件大小（创建时读取） */
+		private final long length;
+
+		PathEntity(Path file, ContentType contentType) throws IOException {
+			this.file = file;
+			this.length = Files.size(file);
+			setContentType(contentType.toString());
+			setChunked(true);
+		}
+
+		@Override
+		public boolean isRepeatable() {
+			return true;
+		}
+
+		@Override
+		public long getContentLength() {
+			return length;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return Files.newInputStream(file);
+		}
+
+		@Override
+		public void writeTo(OutputStream output) throws IOException {
+			copy(file, output);
+		}
+
+		@Override
+		public boolean isStreaming() {
+			return false;
+		}
+
+	}
+
+	/**
+	 * 输入流请求体（分块传输，只能发送一次；发送完成或关闭时关闭输入流）
+	 */
+	private static class StreamEntity extends AbstractHttpEntity implements Closeable {
+
+		private final InputStream input;
+		/** 长度（-1：未知） */
+		private final long length;
+
+		StreamEntity(InputStream input, long length, ContentType contentType) {
+			this.input = input;
+			this.length = length < 0 ? -1 : length;
+			setContentType(contentType.toString());
+			setChunked(true);
+		}
+
+		@Override
+		public boolean isRepeatable() {
+			return false;
+		}
+
+		@Override
+		public long getContentLength() {
+			return length;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return input;
+		}
+
+		@Override
+		public void writeTo(OutputStream output) throws IOException {
+			try (InputStream in = input) {
+				final byte[] buffer = new byte[BUFFER_SIZE];
+				int n = 0;
+				while ((n = in.read(buffer)) != -1) {
+					output.write(buffer, 0, n);
+				}
+			}
+		}
+
+		@Override
+		public boolean isStreaming() {
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+
+	}
+
+	/**
+	 * multipart文件部件（经FileChannel读取）
+	 */
+	private static class PathBody extends AbstractContentBody {
+
+		private final Path file;
+		/** 文件大小（创建时读取） */
+		private final long length;
+
+		PathBody(Path file, ContentType contentType) throws IOException {
+			super(contentType);
+			this.file = file;
+			this.length = Files.size(file);
+		}
+
+		@Override
+		public String getFilename() {
+			return file.getFileName().toString();
+		}
+
+		@Override
+		public void writeTo(OutputStream output) throws IOException {
+			copy(file, output);
+		}
+
+		@Override
+		public String getTransferEncoding() {
+			return "binary";
+		}
+
+		@Override
+		public long getContentLength() {
+			return length;
+		}
+
+	}
+
+	/**
+	 * 统计发送进度的请求体
+	 */
+	static class ProgressEntity extends HttpEntityWrapper {
+
+		/** 进度回调（可为空） */
+		private final ProgressListener listener;
+		/** 最近一次发送的字节数 */
+		private volatile long transferred;
+		/** 最近一次发送的耗时（纳秒） */
+		private volatile long elapsedNanos;
+
+		ProgressEntity(HttpEntity entity, ProgressListener listener) {
+			super(entity);
+			this.listener = listener;
+		}
+
+		@Override
+		public void writeTo(OutputStream output) throws IOException {
+			final ProgressOutputStream out = new ProgressOutputStream(output, wrappedEntity.getContentLength());
+			wrappedEntity.writeTo(out);
+			out.done();
+		}
+
+		/** 最近一次发送的字节数 */
+		long getTransferred() {
+			return transferred;
+		}
+
+		/** 最近一次发送的速率（字节/秒） */
+		long getBytesPerSecond() {
+			return bytesPerSecond(transferred, elapsedNanos);
+		}
+
+		/**
+		 * 统计进度的输出流
+		 */
+		private class ProgressOutputStream extends FilterOutputStream {
+
+			/** 总字节数（-1：未知） */
+			private final long total;
+			/** 开始时间（纳秒） */
+			private final long start = System.nanoTime();
+			/** 已写入字节数 */
+			private long count;
+			/** 下次回调的字节数 */
+			private long next = PROGRESS_STEP;
+
+			ProgressOutputStream(OutputStream output, long total) {
+				super(output);
+				this.total = total;
+			}
+
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				count++;
+				notifyProgress();
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				count += len;
+				notifyProgress();
+			}
+
+			private void notifyProgress() {
+				if (count < next) {
+					return;
+				}
+				next = count + PROGRESS_STEP;
+				if (listener != null) {
+					listener.onProgress(new Progress(count, total, System.nanoTime() - start, false));
+				}
+			}
+
+			/** 发送完成 */
+			void done() {
+				final long elapsed = System.nanoTime() - start;
+				transferred = count;
+				elapsedNanos = elapsed;
+				uploads.increment();
+				uploadedBytes.add(count);
+				uploadNanos.add(elapsed);
+				if (listener != null) {
+					listener.onProgress(new Progress(count, total, elapsed, true));
+				}
+			}
+
+		}
+
+	}
+
+}
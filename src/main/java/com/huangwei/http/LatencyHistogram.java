@@ -0,0 +1,167 @@
+package com.huangwei.http;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图（HDR风格的对数-线性分桶）<br>
+ * <br>
+ * 1. 单位：微秒；每个2的幂区间划分为32个子桶，相对误差约3%；可记录范围：0 ~ 约38小时（超出部分计入最后一个桶）；<br>
+ * 2. 记录：对原子数组执行一次自增，总次数/总耗时/最大耗时使用分段累加（LongAdder/LongAccumulator），无锁、并发时不争用同一变量且不分配对象，适合放在请求热路径上；<br>
+ * 3. 统计：百分位数为近似值（并发记录时读取的是弱一致的快照）。
+ */
+public class LatencyHistogram {
+
+	/** 子桶数量（每个2的幂区间）的位数 */
+	private static final int SUB_BUCKET_BITS = 5;
+	/** 子桶数量 */
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	/** 最大指数（2^37微秒，约38小时） */
+	private static final int MAX_EXPONENT = 37;
+	/** 桶数量 */
+	private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+	/** 计数（按桶） */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	/** 总次数 */
+	private final LongAdder count = new LongAdder();
+	/** 总耗时（单位：微秒） */
+	private final LongAdder sum = new LongAdder();
+	/** 最大耗时（单位：微秒） */
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * 记录耗时
+	 *
+	 * @param nanos
+	 *            耗时（单位：纳秒；小于零按零计）
+	 */
+	public void record(long nanos) {
+		final long micros = nanos <= 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(nanos);
+		counts.incrementAndGet(indexOf(micros));
+		count.increment();
+		sum.add(micros);
+		max.accumulate(micros);
+	}
+
+	/**
+	 * 计算桶下标
+	 *
+	 * @param value
+	 *            值（大于等于零）
+	 * @return 桶下标
+	 */
+	static int indexOf(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);// value位于[2^exponent, 2^(exponent+1))
+		if (exponent >= MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+		return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + sub;
+	}
+
+	/**
+	 * 桶的上限值（该桶内的最大值）
+	 *
+	 * @param index
+	 *            桶下标
+	 * @return 上限值
+	 */
+	static long upperBoundOf(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int exponent = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+		int sub = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return ((long) (SUB_BUCKET_COUNT + sub) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+	}
+
+	/**
+	 * 百分位数（近似值）
+	 *
+	 * @param percentile
+	 *            百分位（0 ~ 100，例如：99.9）
+	 * @return 耗时（单位：微秒；无记录时为0）
+	 */
+	public long getPercentile(double percentile) {
+		final long total = count.sum();
+		if (total <= 0) {
+			return 0;
+		}
+		final double p = Math.min(Math.max(percentile, 0), 100);
+		final long rank = Math.max(1, (long) Math.ceil(total * p / 100.0));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	/** 总次数 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/** 最大耗时（单位：微秒） */
+	public long getMax() {
+		return max.get();
+	}
+
+	/** 平均耗时（单位：微秒） */
+	public double getMean() {
+		final long total = count.sum();
+		return total <= 0 ? 0 : (double) sum.sum() / total;
+	}
+
+	/** 中位数（单位：微秒） */
+	public long getP50() {
+		return getPercentile(50);
+	}
+
+	/** 95百分位数（单位：微秒） */
+	public long getP95() {
+		return getPercentile(95);
+	}
+
+	/** 99百分位数（单位：微秒） */
+	public long getP99() {
+		return getPercentile(99);
+	}
+
+	/** 99.9百分位数（单位：微秒） */
+	public long getP999() {
+		return getPercentile(99.9);
+	}
+
+	/**
+	 * 清空（与并发记录之间不保证原子性）
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=LatencyHistogram, count=").append(getCount()).append(", mean=")
+				.append(String.format("%.1f", getMean())).append(", p50=").append(getP50()).append(", p99=")
+				.append(getP99()).append(", p999=").append(getP999()).append(", max=").append(getMax())
+				.append(", unit=us]");
+		return builder.toString();
+	}
+
+}
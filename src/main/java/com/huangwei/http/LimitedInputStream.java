@@ -0,0 +1,77 @@
+package com.huangwei.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 限制读取长度的输入流<br>
+ * <br>
+ * 读取的字节数超出限制时抛出IOException，防止异常的上游服务返回超大响应体耗尽内存/磁盘。
+ */
+class LimitedInputStream extends FilterInputStream {
+
+	/** 最大字节数 */
+	private final long maxBytes;
+	/** 已读取字节数 */
+	private long count;
+
+	/**
+	 * 限制读取长度的输入流
+	 *
+	 * @param input
+	 *            输入流（不能为空）
+	 * @param maxBytes
+	 *            最大字节数（大于零）
+	 */
+	LimitedInputStream(InputStream input, long maxBytes) {
+		super(input);
+		this.maxBytes = maxBytes;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b != -1) {
+			count(1);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, len);
+		if (n > 0) {
+			count(n);
+		}
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		if (skipped > 0) {
+			count(skipped);
+		}
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	/** 计数并检查是否超出限制 */
+	private void count(long n) throws IOException {
+		count += n;
+		if (count > maxBytes) {
+			throw new IOException("响应体超出最大限制！maxBytes:" + maxBytes + " read:" + count);
+		}
+	}
+
+	/** 已读取字节数 */
+	long getCount() {
+		return count;
+	}
+
+}
@@ -0,0 +1,146 @@
+package com.huangwei.http;
+
+import java.util.Arrays;
+
+/**
+ * 容错策略（重试、退避及熔断）<br>
+ * <br>
+ * 1. 重试：幂等请求（GET）在IO异常或指定状态码时重试；非幂等请求（POST）仅在请求未发出（连接失败）时重试；<br>
+ * 2. 退避：指数退避 + 随机抖动（Full Jitter），避免重试请求集中冲击上游；<br>
+ * 3. 熔断：连续失败达到阈值后熔断（快速失败），等待一段时间后放行少量探测请求（半开），探测成功则恢复。
+ */
+public class ResiliencePolicy {
+
+	/** 最大重试次数（不含首次请求；0：不重试） */
+	private int maxRetries = 2;
+	/** 退避基准时间（单位：毫秒） */
+	private long baseBackoff = 100;
+	/** 最大退避时间（单位：毫秒） */
+	private long maxBackoff = 1000 * 2;
+	/** 需要重试的HTTP状态码（仅幂等请求；同时计为熔断失败） */
+	private int[] retryStatusCodes = { 502, 503, 504 };
+	/** 熔断阈值：连续失败次数（小于等于零：不熔断） */
+	private int failureThreshold = 5;
+	/** 熔断持续时间，之后进入半开状态（单位：毫秒） */
+	private long openDuration = 1000 * 10;
+	/** 半开状态下允许的探测请求数 */
+	private int halfOpenPermits = 1;
+
+	/**
+	 * 是否为需要重试的状态码
+	 *
+	 * @param statusCode
+	 *            HTTP状态码
+	 * @return true:是 false:否
+	 */
+	public boolean isRetryStatus(int statusCode) {
+		for (int code : retryStatusCodes) {
+			if (code == statusCode) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 计算退避时间（指数退避 + 随机抖动）
+	 *
+	 * @param attempt
+	 *            重试次数（从1开始）
+	 * @param random
+	 *            随机数（0 &lt;= random &lt; 1）
+	 * @return 退避时间（单位：毫秒）
+	 */
+	public long backoff(int attempt, double random) {
+		long ceiling = baseBackoff << Math.min(Math.max(attempt - 1, 0), 30);
+		if (ceiling <= 0 || ceiling > maxBackoff) {
+			ceiling = maxBackoff;
+		}
+		return (long) (ceiling * random);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=ResiliencePolicy, maxRetries=").append(maxRetries).append(", baseBackoff=")
+				.append(baseBackoff).append(", maxBackoff=").append(maxBackoff).append(", retryStatusCodes=")
+				.append(Arrays.toString(retryStatusCodes)).append(", failureThreshold=").append(failureThreshold)
+				.append(", openDuration=").append(openDuration).append(", halfOpenPermits=").append(halfOpenPermits)
+				.append("]");
+		return builder.toString();
+	}
+
+	/** 最大重试次数（不含首次请求；0：不重试） */
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	/** 最大重试次数（不含首次请求；0：不重试） */
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = Math.max(maxRetries, 0);
+	}
+
+	/** 退避基准时间（单位：毫秒） */
+	public long getBaseBackoff() {
+		return baseBackoff;
+	}
+
+	/** 退避基准时间（单位：毫秒） */
+	public void setBaseBackoff(long baseBackoff) {
+		this.baseBackoff = Math.max(baseBackoff, 0);
+	}
+
+	/** 最大退避时间（单位：毫秒） */
+	public long getMaxBackoff() {
+		return maxBackoff;
+	}
+
+	/** 最大退避时间（单位：毫秒） */
+	public void setMaxBackoff(long maxBackoff) {
+		this.maxBackoff = Math.max(maxBackoff, 0);
+	}
+
+	/** 需要重试的HTTP状态码（仅幂等请求） */
+	public int[] getRetryStatusCodes() {
+		return retryStatusCodes.clone();
+	}
+
+	/** 需要重试的HTTP状态码（仅幂等请求） */
+	public void setRetryStatusCodes(int... retryStatusCodes) {
+		this.retryStatusCodes = retryStatusCodes == null ? new int[0] : retryStatusCodes.clone();
+	}
+
+	/** 熔断阈值：连续失败次数（小于等于零：不熔断） */
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	/** 熔断阈值：连续失败次数（小于等于零：不熔断） */
+	public void setFailureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+	}
+
+	/** 熔断持续时间（单位：毫秒） */
+	public long getOpenDuration() {
+		return openDuration;
+	}
+
+	/** 熔断持续时间（单位：毫秒） */
+	public void setOpenDuration(long openDuration) {
+		this.openDuration = Math.max(openDuration, 0);
+	}
+
+	/** 半开状态下允许的探测请求数 */
+	public int getHalfOpenPermits() {
+		return halfOpenPermits;
+	}
+
+	/** 半开状态下允许的探测请求数（大于零） */
+	public void setHalfOpenPermits(int halfOpenPermits) {
+		if (halfOpenPermits < 1) {
+			throw new IllegalArgumentException("探测请求数必须大于零！halfOpenPermits:" + halfOpenPermits);
+		}
+		this.halfOpenPermits = halfOpenPermits;
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.huangwei.http;
+
+/**
+ * 限流策略（客户端速率限制及并发隔离）<br>
+ * <br>
+ * 1. 速率：令牌桶，限制每秒请求数（允许一定突发），避免触发上游的QPS限制（429）；<br>
+ * 2. 并发：限制同一主机同时进行中的请求数（舱壁隔离），防止慢上游占满连接池及调用线程；<br>
+ * 3. 排队：无可用令牌/并发数时最多等待指定时间，超时则快速失败（{@link HttpThrottle.ThrottledException}）。<br>
+ * 说明：策略在{@link HttpThrottle#setPolicy}时生效，之后修改策略对象不影响已生效的限流器，需重新设置。
+ */
+public class ThrottlePolicy {
+
+	/** 速率（请求数/秒；小于等于零：不限制） */
+	private double permitsPerSecond = 0;
+	/** 突发数（令牌桶容量；小于等于零：与每秒请求数相同，至少为1） */
+	private int burst = 0;
+	/** 最大并发数（小于等于零：不限制） */
+	private int maxConcurrent = 0;
+	/** 最长排队时间（单位：毫秒；0：不排队，立即失败） */
+	private long maxWait = 500;
+
+	/** 实际使用的突发数 */
+	int effectiveBurst() {
+		if (burst > 0) {
+			return burst;
+		}
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, Math.ceil(permitsPerSecond)));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=ThrottlePolicy, permitsPerSecond=").append(permitsPerSecond).append(", burst=")
+				.append(burst).append(", maxConcurrent=").append(maxConcurrent).append(", maxWait=").append(maxWait)
+				.append("]");
+		return builder.toString();
+	}
+
+	/** 速率（请求数/秒；小于等于零：不限制） */
+	public double getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	/** 速率（请求数/秒；小于等于零：不限制） */
+	public void setPermitsPerSecond(double permitsPerSecond) {
+		this.permitsPerSecond = permitsPerSecond > 0 ? permitsPerSecond : 0;
+	}
+
+	/** 突发数（令牌桶容量；小于等于零：与每秒请求数相同，至少为1） */
+	public int getBurst() {
+		return burst;
+	}
+
+	/** 突发数（令牌桶容量；小于等于零：与每秒请求数相同，至少为1） */
+	public void setBurst(int burst) {
+		this.burst = Math.max(burst, 0);
+	}
+
+	/** 最大并发数（小于等于零：不限制） */
+	public int getMaxConcurrent() {
+		return maxConcurrent;
+	}
+
+	/** 最大并发数（小于等于零：不限制） */
+	public void setMaxConcurrent(int maxConcurrent) {
+		this.maxConcurrent = Math.max(maxConcurrent, 0);
+	}
+
+	/** 最长排队时间（单位：毫秒；0：不排队，立即失败） */
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	/** 最长排队时间（单位：毫秒；0：不排队，立即失败） */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = Math.max(maxWait, 0);
+	}
+
+}
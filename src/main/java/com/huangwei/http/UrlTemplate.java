@@ -0,0 +1,202 @@
+package com.huangwei.http;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * URL模板（预解析的请求地址，用于高效地拼接查询参数）<br>
+ * <br>
+ * 1. 解析：创建时校验一次URL格式，之后每次拼接只做字符串追加（替代每次请求新建URIBuilder并重建URI）；<br>
+ * 2. 编码：查询参数按application/x-www-form-urlencoded（UTF-8）编码，与URIBuilder的结果一致，编码使用查表法；<br>
+ * 3. 复用：拼接使用线程内复用的StringBuilder；{@link HttpClient#buildUrl}按地址缓存模板，所有GET请求入口均自动使用。<br>
+ * 说明：实例不可变，线程安全，可作为常量长期持有（例如：private static final UrlTemplate API = UrlTemplate.of("https://...")）。
+ */
+public final class UrlTemplate {
+
+	/** 模板缓存上限（超出时清空，避免动态拼接的地址导致缓存无限增长） */
+	private static final int CACHE_LIMIT = 1024;
+	/** 模板缓存（地址 -&gt; 模板） */
+	private static final ConcurrentHashMap<String, UrlTemplate> cache = new ConcurrentHashMap<String, UrlTemplate>();
+
+	/** 十六进制字符 */
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+	/** 无需编码的ASCII字符（字母、数字及 -_.*） */
+	private static final boolean[] SAFE = new boolean[128];
+	/** 复用的StringBuilder（每个线程一个；超过该容量时不再复用） */
+	private static final int BUILDER_LIMIT = 1024 * 8;
+	private static final ThreadLocal<StringBuilder> builders = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+	static {
+		for (char c = 'a'; c <= 'z'; c++) {
+			SAFE[c] = true;
+		}
+		for (char c = 'A'; c <= 'Z'; c++) {
+			SAFE[c] = true;
+		}
+		for (char c = '0'; c <= '9'; c++) {
+			SAFE[c] = true;
+		}
+		SAFE['-'] = true;
+		SAFE['_'] = true;
+		SAFE['.'] = true;
+		SAFE['*'] = true;
+	}
+
+	/** 地址（不含片段） */
+	private final String base;
+	/** 片段（含#；为空：无片段） */
+	private final String fragment;
+	/** 追加第一个参数时使用的分隔符（0：不需要分隔符） */
+	private final char separator;
+
+	private UrlTemplate(String url) {
+		try {
+			new URI(url);// 只校验一次格式
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException("构造含参URL出错！", e);
+		}
+		int hash = url.indexOf('#');
+		this.base = hash < 0 ? url : url.substring(0, hash);
+		this.fragment = hash < 0 ? null : url.substring(hash);
+		int query = base.indexOf('?');
+		if (query < 0) {
+			this.separator = '?';
+		} else if (query == base.length() - 1 || base.charAt(base.length() - 1) == '&') {
+			this.separator = 0;
+		} else {
+			this.separator = '&';
+		}
+	}
+
+	/**
+	 * 创建URL模板
+	 *
+	 * @param url
+	 *            请求地址（不能为空；可含有查询参数及片段）
+	 * @return URL模板（非空）
+	 * @throws IllegalArgumentException
+	 *             URL为空 或 URL格式错误
+	 */
+	public static UrlTemplate of(String url) {
+		if (url == null || "".equals(url = url.trim())) {
+			throw new IllegalArgumentException("请求地址不能为空！");
+		}
+		return new UrlTemplate(url);
+	}
+
+	/**
+	 * 获取URL模板（按地址缓存）
+	 *
+	 * @param url
+	 *            请求地址（不能为空；已去掉首尾空白）
+	 * @return URL模板（非空）
+	 * @throws IllegalArgumentException
+	 *             URL格式错误
+	 */
+	static UrlTemplate cached(String url) {
+		UrlTemplate template = cache.get(url);
+		if (template == null) {
+			template = new UrlTemplate(url);
+			if (cache.size() >= CACHE_LIMIT) {
+				cache.clear();
+			}
+			cache.put(url, template);
+		}
+		return template;
+	}
+
+	/**
+	 * 构造含参URL
+	 *
+	 * @param parameter
+	 *            参数（可为空；参数值为空时只输出参数名）
+	 * @return 含有参数的URL（非空）
+	 */
+	public String expand(Map<String, String> parameter) {
+		if (parameter == null || parameter.isEmpty()) {
+			return fragment == null ? base : base + fragment;
+		}
+
+		StringBuilder builder = builders.get();
+		builder.setLength(0);
+		builder.append(base);
+		char delimiter = separator;
+		for (Map.Entry<String, String> e : parameter.entrySet()) {
+			if (delimiter != 0) {
+				builder.append(delimiter);
+			}
+			delimiter = '&';
+			encode(builder, e.getKey());
+			if (e.getValue() != null) {
+				builder.append('=');
+				encode(builder, e.getValue());
+			}
+		}
+		if (fragment != null) {
+			builder.append(fragment);
+		}
+		String result = builder.toString();
+		if (builder.capacity() > BUILDER_LIMIT) {
+			builders.remove();
+		}
+		return result;
+	}
+
+	/**
+	 * 编码（application/x-www-form-urlencoded，UTF-8；空格编码为+）
+	 *
+	 * @param builder
+	 *            输出
+	 * @param value
+	 *            原文（为空：不输出）
+	 */
+	static void encode(StringBuilder builder, String value) {
+		if (value == null) {
+			return;
+		}
+		final int length = value.length();
+		int i = 0;
+		while (i < length) {
+			char c = value.charAt(i);
+			if (c < 128) {
+				if (SAFE[c]) {
+					builder.append(c);
+				} else if (c == ' ') {
+					builder.append('+');
+				} else {
+					appendEscaped(builder, c);
+				}
+				i++;
+			} else {
+				int end = i + 1;// 连续的非ASCII字符一次性转为UTF-8
+				while (end < length && value.charAt(end) >= 128) {
+					end++;
+				}
+				for (byte b : value.substring(i, end).getBytes(StandardCharsets.UTF_8)) {
+					appendEscaped(builder, b & 0xFF);
+				}
+				i = end;
+			}
+		}
+	}
+
+	private static void appendEscaped(StringBuilder builder, int b) {
+		builder.append('%').append(HEX[b >> 4]).append(HEX[b & 0x0F]);
+	}
+
+	/** 地址（不含片段） */
+	public String getBase() {
+		return base;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=UrlTemplate, base=").append(base).append(", fragment=").append(fragment).append("]");
+		return builder.toString();
+	}
+
+}
